@@ -0,0 +1,314 @@
+package com.ontosov.client;
+
+import com.ontosov.dto.AccessRequestDTO;
+import com.ontosov.dto.PolicyDecisionDTO;
+import com.ontosov.dto.PolicyGroupDTO;
+import com.ontosov.dto.PolicySnapshotDTO;
+import com.ontosov.dto.ReasonCode;
+import com.ontosov.services.CompiledPolicyGroup;
+import com.ontosov.services.EntitySelector;
+import com.ontosov.services.PolicyDecisions;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * In-process copy of one controller's policies, evaluated with the same rules as the PDP
+ * (PolicyEvaluationService, through PolicyDecisions and CompiledPolicyGroup).
+ *
+ * Loaded from a full PolicySnapshotDTO and kept current with deltas, each of which also
+ * replaces the data sources and table mappings. Every apply builds a new immutable state and
+ * swaps it in with one volatile write, so evaluate never locks and never sees a half-applied
+ * delta. Policy groups are compiled when applied and recompiled by sweepExpired once the day
+ * changes, like PolicyGroupService.sweepExpiredGroups on the backend.
+ */
+public class LocalPolicyReplica {
+
+    private static final class SelectorTarget {
+        private final EntitySelector selector;
+        private final PolicySnapshotDTO.Target target;
+
+        SelectorTarget(EntitySelector selector, PolicySnapshotDTO.Target target) {
+            this.selector = selector;
+            this.target = target;
+        }
+    }
+
+    private static final class SubjectState {
+        private final Long subjectId;
+        private final String taxId;
+        private final Map<String, PolicySnapshotDTO.Target> properties = new HashMap<>();
+        private final Map<String, PolicySnapshotDTO.Target> entities = new HashMap<>();
+        private final Map<String, List<SelectorTarget>> selectors = new HashMap<>(); // by data source and entity type
+        private final List<PolicyGroupDTO> groupDefinitions;
+        private final Map<String, CompiledPolicyGroup> groups = new HashMap<>();
+
+        SubjectState(PolicySnapshotDTO.Subject subject) {
+            this(subject.getSubjectId(), subject.getTaxId(), subject.getGroups());
+            for (PolicySnapshotDTO.Target target : subject.getTargets()) {
+                if (target.getProperty() != null) {
+                    properties.put(key(target.getDataSource(), target.getProperty()), target);
+                } else if (target.getEntityId() != null) {
+                    entities.put(key(target.getDataSource(), target.getEntityId()), target);
+                } else if (target.getEntitySelector() != null) {
+                    EntitySelector selector = EntitySelector.parse(target.getEntitySelector());
+                    selectors.computeIfAbsent(key(target.getDataSource(), selector.getEntityType()),
+                            k -> new ArrayList<>()).add(new SelectorTarget(selector, target));
+                }
+            }
+        }
+
+        private SubjectState(Long subjectId, String taxId, List<PolicyGroupDTO> groupDefinitions) {
+            this.subjectId = subjectId;
+            this.taxId = taxId;
+            this.groupDefinitions = groupDefinitions;
+            for (PolicyGroupDTO group : groupDefinitions) {
+                groups.put(group.getId(), CompiledPolicyGroup.compile(group, subjectId));
+            }
+        }
+
+        /**
+         * Copy with freshly compiled groups, once the day has changed
+         */
+        SubjectState recompiled() {
+            SubjectState copy = new SubjectState(subjectId, taxId, groupDefinitions);
+            copy.properties.putAll(properties);
+            copy.entities.putAll(entities);
+            copy.selectors.putAll(selectors);
+            return copy;
+        }
+
+        /**
+         * The record's own target merged with the selector targets covering it, or null
+         */
+        PolicySnapshotDTO.Target entityTarget(String dataSource, String entityType, String recordId, String entityUri) {
+            PolicySnapshotDTO.Target own = entities.get(key(dataSource, entityUri));
+            List<SelectorTarget> candidates = selectors.get(key(dataSource, entityType));
+            if (candidates == null) {
+                return own;
+            }
+
+            List<PolicySnapshotDTO.Target> matching = new ArrayList<>();
+            if (own != null) {
+                matching.add(own);
+            }
+            for (SelectorTarget candidate : candidates) {
+                if (candidate.selector.covers(recordId)) {
+                    matching.add(candidate.target);
+                }
+            }
+            if (matching.size() <= 1) {
+                return matching.isEmpty() ? null : matching.get(0);
+            }
+
+            PolicySnapshotDTO.Target merged = new PolicySnapshotDTO.Target();
+            merged.setDataSource(dataSource);
+            merged.setEntityId(entityUri);
+            for (PolicySnapshotDTO.Target target : matching) {
+                merged.getPermittedActions().addAll(target.getPermittedActions());
+                merged.getProhibitedActions().addAll(target.getProhibitedActions());
+                target.getGroupActions().forEach((groupId, actions) ->
+                        merged.getGroupActions().computeIfAbsent(groupId, k -> new HashSet<>()).addAll(actions));
+            }
+            return merged;
+        }
+    }
+
+    private static final class State {
+        private final String instanceId;
+        private final long version;
+        private final long compiledOnDay;
+        private final Map<String, PolicySnapshotDTO.DataSource> dataSources;  // by database ID
+        private final Map<String, Long> subjectIds;                           // by tax ID
+        private final Map<Long, SubjectState> subjects;
+
+        State(String instanceId, long version, long compiledOnDay, Map<String, PolicySnapshotDTO.DataSource> dataSources,
+              Map<String, Long> subjectIds, Map<Long, SubjectState> subjects) {
+            this.instanceId = instanceId;
+            this.version = version;
+            this.compiledOnDay = compiledOnDay;
+            this.dataSources = dataSources;
+            this.subjectIds = subjectIds;
+            this.subjects = subjects;
+        }
+    }
+
+    private final Long controllerId;
+    private volatile State state;
+
+    public LocalPolicyReplica(Long controllerId) {
+        this.controllerId = controllerId;
+    }
+
+    /**
+     * Applies a full snapshot or a delta. A delta is only accepted on top of a snapshot of the
+     * same backend instance; the caller must reload the full snapshot otherwise.
+     */
+    public synchronized void apply(PolicySnapshotDTO snapshot) {
+        if (!controllerId.equals(snapshot.getControllerId())) {
+            throw new IllegalArgumentException("Snapshot of controller " + snapshot.getControllerId() +
+                    " applied to the replica of controller " + controllerId);
+        }
+
+        State current = state;
+        long today = LocalDate.now().toEpochDay();
+        Map<String, PolicySnapshotDTO.DataSource> dataSources = new HashMap<>();
+        for (PolicySnapshotDTO.DataSource dataSource : snapshot.getDataSources()) {
+            dataSources.put(dataSource.getId(), dataSource);
+        }
+
+        if (snapshot.isFull()) {
+            Map<Long, SubjectState> subjects = new HashMap<>();
+            Map<String, Long> subjectIds = new HashMap<>(snapshot.getSubjectIds());
+            for (PolicySnapshotDTO.Subject subject : snapshot.getSubjects()) {
+                subjects.put(subject.getSubjectId(), new SubjectState(subject));
+                if (subject.getTaxId() != null) {
+                    subjectIds.put(subject.getTaxId(), subject.getSubjectId());
+                }
+            }
+            state = new State(snapshot.getInstanceId(), snapshot.getVersion(), today, dataSources, subjectIds, subjects);
+            return;
+        }
+
+        if (current == null || !current.instanceId.equals(snapshot.getInstanceId())) {
+            throw new IllegalStateException("Delta does not apply to this replica; load a full snapshot");
+        }
+        if (snapshot.getVersion() <= current.version) {
+            // No policy changes, but the mappings may have changed
+            state = new State(current.instanceId, current.version, current.compiledOnDay,
+                    dataSources, current.subjectIds, current.subjects);
+            return;
+        }
+
+        Map<Long, SubjectState> subjects = new HashMap<>(current.subjects);
+        Map<String, Long> subjectIds = new HashMap<>(current.subjectIds);
+        for (Long subjectId : snapshot.getRemovedSubjectIds()) {
+            subjects.remove(subjectId);
+        }
+        for (PolicySnapshotDTO.Subject subject : snapshot.getSubjects()) {
+            subjects.put(subject.getSubjectId(), new SubjectState(subject));
+            if (subject.getTaxId() != null) {
+                subjectIds.put(subject.getTaxId(), subject.getSubjectId());
+            }
+        }
+        state = new State(current.instanceId, snapshot.getVersion(), current.compiledOnDay,
+                dataSources, subjectIds, subjects);
+    }
+
+    /**
+     * Recompiles all policy groups once the day has changed, so expired groups stop permitting
+     */
+    public synchronized void sweepExpired() {
+        State current = state;
+        long today = LocalDate.now().toEpochDay();
+        if (current == null || current.compiledOnDay == today) {
+            return;
+        }
+
+        Map<Long, SubjectState> subjects = new HashMap<>();
+        current.subjects.forEach((subjectId, subject) -> subjects.put(subjectId, subject.recompiled()));
+        state = new State(current.instanceId, current.version, today, current.dataSources, current.subjectIds, subjects);
+    }
+
+    public boolean isLoaded() {
+        return state != null;
+    }
+
+    public String getInstanceId() {
+        State current = state;
+        return current != null ? current.instanceId : null;
+    }
+
+    public long getVersion() {
+        State current = state;
+        return current != null ? current.version : -1L;
+    }
+
+    public Long getControllerId() {
+        return controllerId;
+    }
+
+    /**
+     * Evaluates a request locally. Returns null when the replica cannot answer it: before the
+     * first snapshot, for another controller, or for a subject it does not know (one without
+     * policies on the controller's data sources); the caller should then ask the backend PDP.
+     */
+    public PolicyDecisionDTO evaluate(AccessRequestDTO request) {
+        PolicyDecisionDTO invalid = PolicyDecisions.validate(request);
+        if (invalid != null) {
+            return invalid;
+        }
+
+        State current = state;
+        if (current == null || !controllerId.equals(request.getControllerId())) {
+            return null;
+        }
+
+        Long subjectId = current.subjectIds.get(request.getSubjectTaxId());
+        if (subjectId == null) {
+            return null;
+        }
+
+        PolicySnapshotDTO.DataSource dataSource = current.dataSources.get(request.getDataSource());
+        if (dataSource == null) {
+            return PolicyDecisions.deny(ReasonCode.DATABASE_NOT_FOUND, request.getDataSource());
+        }
+
+        PolicySnapshotDTO.Table table = dataSource.getTables().get(request.getTableName());
+        SubjectState subject = current.subjects.get(subjectId);
+
+        if (PolicyDecisions.isEntityRequest(request)) {
+            if (table == null || table.getEntityType() == null) {
+                return PolicyDecisions.permitByDefault(ReasonCode.UNMAPPED_TABLE);
+            }
+            String entityUri = PolicyDecisions.entityUri(table.getEntityType(), request.getRecordId());
+            PolicySnapshotDTO.Target target = subject != null ? subject.entityTarget(dataSource.getIdentifier(),
+                    table.getEntityType(), request.getRecordId(), entityUri) : null;
+            if (target == null) {
+                return PolicyDecisions.permitByDefault(ReasonCode.NO_POLICY_FOR_ENTITY);
+            }
+            if (!target.getPermittedActions().contains(request.getAction())) {
+                return PolicyDecisions.deny(ReasonCode.ENTITY_NOT_PERMITTED,
+                        request.getAction(), entityUri, dataSource.getIdentifier());
+            }
+            return decide(request, subject, target);
+        }
+
+        String schemaOrgProperty = table != null ? table.getColumnProperties().get(request.getDataProperty()) : null;
+        if (schemaOrgProperty == null) {
+            return PolicyDecisions.permitByDefault(ReasonCode.UNMAPPED_DATA);
+        }
+        PolicySnapshotDTO.Target target = subject != null ?
+                subject.properties.get(key(dataSource.getIdentifier(), schemaOrgProperty)) : null;
+        if (target == null) {
+            return PolicyDecisions.permitByDefault(ReasonCode.NO_POLICY_FOR_DATA);
+        }
+        if (!target.getPermittedActions().contains(request.getAction())) {
+            return PolicyDecisions.deny(ReasonCode.NOT_PERMITTED,
+                    request.getAction(), schemaOrgProperty, dataSource.getIdentifier());
+        }
+        return decide(request, subject, target);
+    }
+
+    /**
+     * Combines the groups that permit the action on a target the controller is permitted on
+     */
+    private PolicyDecisionDTO decide(AccessRequestDTO request, SubjectState subject, PolicySnapshotDTO.Target target) {
+        List<CompiledPolicyGroup> applicablePolicies = new ArrayList<>();
+        for (String groupId : PolicyDecisions.applicableGroupIds(target.getGroupActions(), request.getAction())) {
+            CompiledPolicyGroup group = subject.groups.get(groupId);
+            if (group != null) {
+                applicablePolicies.add(group);
+            }
+        }
+
+        if (applicablePolicies.isEmpty()) {
+            return PolicyDecisions.deny(ReasonCode.POLICY_DETAILS_UNAVAILABLE);
+        }
+        return PolicyDecisions.combine(request, applicablePolicies);
+    }
+
+    private static String key(String dataSource, String dataKey) {
+        return dataSource + '\u0000' + dataKey;
+    }
+}
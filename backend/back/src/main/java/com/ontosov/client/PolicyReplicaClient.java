@@ -0,0 +1,230 @@
+package com.ontosov.client;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ontosov.dto.AccessRequestDTO;
+import com.ontosov.dto.LocalDecisionDTO;
+import com.ontosov.dto.PolicyDecisionDTO;
+import com.ontosov.dto.PolicySnapshotDTO;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embeddable PDP client for a controller's own JVM.
+ *
+ * Keeps a LocalPolicyReplica in sync with the backend (full snapshot on start, deltas every
+ * sync interval) and answers checkAccess from it. Requests the replica cannot answer go to the
+ * backend's check-access endpoint, which audits them itself. Local decisions are queued and
+ * shipped back for audit in batches, when a batch fills up and on every sync tick.
+ * Only depends on the JDK HTTP client, Jackson and the shared DTO/decision classes.
+ */
+public class PolicyReplicaClient implements AutoCloseable {
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String baseUrl;
+    private final Long controllerId;
+    private final long syncIntervalMillis;
+    private final int auditBatchSize;
+
+    private final LocalPolicyReplica replica;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService scheduler;
+
+    private final ConcurrentLinkedQueue<LocalDecisionDTO> pendingDecisions = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    // Metrics
+    private final AtomicLong localDecisions = new AtomicLong();
+    private final AtomicLong remoteDecisions = new AtomicLong();
+    private final AtomicLong shippedDecisions = new AtomicLong();
+    private final AtomicLong shipFailures = new AtomicLong();
+    private final AtomicLong syncFailures = new AtomicLong();
+
+    /**
+     * @param baseUrl            backend root, e.g. http://localhost:8080
+     * @param syncIntervalMillis how often deltas are pulled and local decisions shipped
+     * @param auditBatchSize     local decisions shipped per audit request
+     */
+    public PolicyReplicaClient(String baseUrl, Long controllerId, long syncIntervalMillis, int auditBatchSize) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.controllerId = controllerId;
+        this.syncIntervalMillis = Math.max(1, syncIntervalMillis);
+        this.auditBatchSize = Math.max(1, auditBatchSize);
+        this.replica = new LocalPolicyReplica(controllerId);
+        this.httpClient = HttpClient.newBuilder().connectTimeout(REQUEST_TIMEOUT).build();
+        this.objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "policy-replica-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Loads the full snapshot and starts the periodic sync
+     */
+    public void start() throws IOException, InterruptedException {
+        replica.apply(get("/policy-replica/snapshot"));
+        scheduler.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Decides a request, locally when the replica can answer it
+     */
+    public PolicyDecisionDTO checkAccess(AccessRequestDTO request) throws IOException, InterruptedException {
+        PolicyDecisionDTO decision = replica.evaluate(request);
+        if (decision == null) {
+            remoteDecisions.incrementAndGet();
+            return post("/api/controller/check-access", request, PolicyDecisionDTO.class);
+        }
+
+        localDecisions.incrementAndGet();
+        pendingDecisions.add(new LocalDecisionDTO(request, decision));
+        if (pendingCount.incrementAndGet() >= auditBatchSize && flushScheduled.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                flushScheduled.set(false);
+                flushQuietly();
+            });
+        }
+        return decision;
+    }
+
+    /**
+     * Pulls the policy changes since the replica's version. A full snapshot comes back instead
+     * if the backend restarted, and replaces the replica.
+     */
+    public void sync() throws IOException, InterruptedException {
+        PolicySnapshotDTO delta = get("/policy-replica/delta?instanceId=" +
+                URLEncoder.encode(replica.getInstanceId(), StandardCharsets.UTF_8) + "&since=" + replica.getVersion());
+        replica.apply(delta);
+        replica.sweepExpired();
+    }
+
+    /**
+     * Ships all queued local decisions for audit. A batch that fails is queued again.
+     */
+    public void flush() throws IOException, InterruptedException {
+        while (true) {
+            List<LocalDecisionDTO> batch = new ArrayList<>(auditBatchSize);
+            LocalDecisionDTO decision;
+            while (batch.size() < auditBatchSize && (decision = pendingDecisions.poll()) != null) {
+                batch.add(decision);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            pendingCount.addAndGet(-batch.size());
+
+            try {
+                post("/policy-replica/decisions", batch, Map.class);
+                shippedDecisions.addAndGet(batch.size());
+            } catch (IOException | RuntimeException e) {
+                pendingDecisions.addAll(batch);
+                pendingCount.addAndGet(batch.size());
+                shipFailures.incrementAndGet();
+                throw e;
+            }
+        }
+    }
+
+    public LocalPolicyReplica getReplica() {
+        return replica;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("replicaVersion", replica.getVersion());
+        stats.put("localDecisions", localDecisions.get());
+        stats.put("remoteDecisions", remoteDecisions.get());
+        stats.put("pendingAudit", pendingCount.get());
+        stats.put("shippedDecisions", shippedDecisions.get());
+        stats.put("shipFailures", shipFailures.get());
+        stats.put("syncFailures", syncFailures.get());
+        return stats;
+    }
+
+    /**
+     * Stops syncing and ships the remaining local decisions
+     */
+    @Override
+    public void close() throws IOException, InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        flush();
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Keep deciding from the last good state; the next tick retries
+            syncFailures.incrementAndGet();
+        }
+        flushQuietly();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Failed batches stay queued for the next tick
+        }
+    }
+
+    private PolicySnapshotDTO get(String controllerPath) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(controllerUrl(controllerPath)))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+        return send(request, PolicySnapshotDTO.class);
+    }
+
+    private <T> T post(String path, Object body, Class<T> responseType) throws IOException, InterruptedException {
+        String url = path.startsWith("/api/") ? baseUrl + path : controllerUrl(path);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+        return send(request, responseType);
+    }
+
+    private <T> T send(HttpRequest request, Class<T> responseType) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IOException(request.method() + " " + request.uri() + " failed with HTTP " + response.statusCode() +
+                    ": " + new String(response.body(), StandardCharsets.UTF_8));
+        }
+        return objectMapper.readValue(response.body(), responseType);
+    }
+
+    private String controllerUrl(String path) {
+        return baseUrl + "/api/controller/" + controllerId + path;
+    }
+}
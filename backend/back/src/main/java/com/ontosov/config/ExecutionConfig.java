@@ -0,0 +1,82 @@
+package com.ontosov.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Thread model for blocking work: servlet requests, and the federated Ontop/ODRL query pool.
+ *
+ * ontosov.execution.mode=platform keeps Tomcat's worker pool and a fixed pool of
+ * ontosov.execution.pool-size threads. ontosov.execution.mode=virtual runs each request and each
+ * pooled task on its own virtual thread. Virtual threads need a Java 21 runtime; on older runtimes
+ * the virtual mode logs a warning and falls back to platform threads.
+ */
+@Configuration
+public class ExecutionConfig {
+    private static final Logger log = LoggerFactory.getLogger(ExecutionConfig.class);
+
+    @Value("${ontosov.execution.mode:platform}")
+    private String mode;
+
+    @Value("${ontosov.execution.pool-size:10}")
+    private int poolSize;
+
+    /**
+     * Executor for blocking fan-out work (per-database Ontop queries)
+     */
+    @Bean(name = "blockingTaskExecutor", destroyMethod = "shutdown")
+    public ExecutorService blockingTaskExecutor() {
+        ExecutorService virtualThreads = useVirtualThreads() ? newVirtualThreadExecutor() : null;
+        if (virtualThreads != null) {
+            log.info("Blocking task executor: virtual threads");
+            return virtualThreads;
+        }
+        log.info("Blocking task executor: {} platform threads", poolSize);
+        return Executors.newFixedThreadPool(poolSize);
+    }
+
+    /**
+     * Runs servlet requests on virtual threads in virtual mode
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> requestExecutorCustomizer() {
+        return protocolHandler -> {
+            ExecutorService virtualThreads = useVirtualThreads() ? newVirtualThreadExecutor() : null;
+            if (virtualThreads != null) {
+                protocolHandler.setExecutor(virtualThreads);
+                log.info("Servlet request executor: virtual threads");
+            }
+        };
+    }
+
+    private boolean useVirtualThreads() {
+        if (!"virtual".equalsIgnoreCase(mode.trim())) {
+            return false;
+        }
+        if (Runtime.version().feature() < 21) {
+            log.warn("ontosov.execution.mode=virtual needs Java 21 or later (running {}); using platform threads",
+                    Runtime.version());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor(), looked up reflectively since the build targets Java 17
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.warn("Virtual threads unavailable: {}; using platform threads", e.getMessage());
+            return null;
+        }
+    }
+}
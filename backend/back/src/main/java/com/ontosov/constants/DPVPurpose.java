@@ -1,11 +1,18 @@
 package com.ontosov.constants;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Data Privacy Vocabulary (DPV) Purpose Taxonomy
  * Based on W3C DPV specification: https://w3c.github.io/dpv/
+ *
+ * Each purpose is interned to an integer ID when the class loads, and the subclass
+ * hierarchy is closed into one bitset of ancestors per purpose, so a subsumption check
+ * ("is AcademicResearch a kind of ResearchAndDevelopment?") is a single bit test.
  */
 public class DPVPurpose {
     private static final String DPV_NS = "https://w3id.org/dpv#";
@@ -14,6 +21,7 @@ public class DPVPurpose {
     public static final String SERVICE_PROVISION = DPV_NS + "ServiceProvision";
     public static final String MEDICAL_HEALTH = DPV_NS + "MedicalHealth";
     public static final String MARKETING = DPV_NS + "Marketing";
+    public static final String ADVERTISING = DPV_NS + "Advertising";
     public static final String PERSONALISED_ADVERTISING = DPV_NS + "PersonalisedAdvertising";
     public static final String RESEARCH_AND_DEVELOPMENT = DPV_NS + "ResearchAndDevelopment";
     public static final String ACADEMIC_RESEARCH = DPV_NS + "AcademicResearch";
@@ -25,17 +33,54 @@ public class DPVPurpose {
     // Human-readable labels for UI
     private static final Map<String, String> PURPOSE_LABELS = new HashMap<>();
 
+    // Interned purposes: URI, label and local name -> ID; ID -> ancestors including itself
+    private static final Map<String, Integer> PURPOSE_IDS = new HashMap<>();
+    private static final List<BitSet> ANCESTORS = new ArrayList<>();
+
     static {
-        PURPOSE_LABELS.put(SERVICE_PROVISION, "Service Provision");
-        PURPOSE_LABELS.put(MEDICAL_HEALTH, "Medical Treatment");
-        PURPOSE_LABELS.put(MARKETING, "Marketing");
-        PURPOSE_LABELS.put(PERSONALISED_ADVERTISING, "Personalized Advertising");
-        PURPOSE_LABELS.put(RESEARCH_AND_DEVELOPMENT, "Research and Development");
-        PURPOSE_LABELS.put(ACADEMIC_RESEARCH, "Academic Research");
-        PURPOSE_LABELS.put(COMMERCIAL_RESEARCH, "Commercial Research");
-        PURPOSE_LABELS.put(PERSONALIZATION, "Personalization");
-        PURPOSE_LABELS.put(FRAUD_PREVENTION_AND_DETECTION, "Fraud Prevention");
-        PURPOSE_LABELS.put(COMMUNICATION_MANAGEMENT, "Communication Management");
+        // Parents must be defined before their subclasses
+        define(SERVICE_PROVISION, "Service Provision");
+        define(MEDICAL_HEALTH, "Medical Treatment");
+        define(MARKETING, "Marketing");
+        define(ADVERTISING, "Advertising", MARKETING);
+        define(PERSONALIZATION, "Personalization");
+        define(PERSONALISED_ADVERTISING, "Personalized Advertising", ADVERTISING, PERSONALIZATION);
+        define(RESEARCH_AND_DEVELOPMENT, "Research and Development");
+        define(ACADEMIC_RESEARCH, "Academic Research", RESEARCH_AND_DEVELOPMENT);
+        define(COMMERCIAL_RESEARCH, "Commercial Research", RESEARCH_AND_DEVELOPMENT);
+        define(FRAUD_PREVENTION_AND_DETECTION, "Fraud Prevention");
+        define(COMMUNICATION_MANAGEMENT, "Communication Management");
+    }
+
+    private static void define(String uri, String label, String... parentUris) {
+        int id = ANCESTORS.size();
+        BitSet ancestors = new BitSet();
+        ancestors.set(id);
+        for (String parentUri : parentUris) {
+            ancestors.or(ANCESTORS.get(PURPOSE_IDS.get(parentUri)));
+        }
+        ANCESTORS.add(ancestors);
+
+        PURPOSE_LABELS.put(uri, label);
+        PURPOSE_IDS.put(uri, id);
+        PURPOSE_IDS.put(label, id);
+        PURPOSE_IDS.put(uri.substring(DPV_NS.length()), id);
+    }
+
+    /**
+     * Interned ID of a purpose given as DPV URI, label or local name, or -1 if it is not in the taxonomy
+     */
+    public static int getPurposeId(String purpose) {
+        Integer id = purpose != null ? PURPOSE_IDS.get(purpose) : null;
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Check if a purpose is the required purpose or one of its subclasses
+     * (e.g. Academic Research satisfies Research and Development, not the other way round)
+     */
+    public static boolean isSubsumedBy(int purposeId, int requiredPurposeId) {
+        return ANCESTORS.get(purposeId).get(requiredPurposeId);
     }
 
     /**
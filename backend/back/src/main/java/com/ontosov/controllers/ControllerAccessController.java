@@ -1,19 +1,33 @@
 package com.ontosov.controllers;
 
 import com.ontosov.dto.AccessRequestDTO;
+import com.ontosov.dto.ColumnMaskDTO;
+import com.ontosov.dto.LocalDecisionDTO;
 import com.ontosov.dto.PolicyDecisionDTO;
+import com.ontosov.dto.SqlRewriteDTO;
+import com.ontosov.dto.SqlRewriteRequestDTO;
 import com.ontosov.models.AccessLog;
-import com.ontosov.models.User;
 import com.ontosov.repositories.AccessLogRepo;
-import com.ontosov.repositories.UserRepo;
-import com.ontosov.services.BlockchainService;
+import com.ontosov.services.AuditPipeline;
+import com.ontosov.services.DatasetExportService;
+import com.ontosov.services.PolicyDecisionCache;
 import com.ontosov.services.PolicyEvaluationService;
+import com.ontosov.services.PolicyReplicaService;
+import com.ontosov.services.SqlRewriteService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.time.LocalDateTime;
-import java.util.List;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.*;
 
 @RestController
 @RequestMapping("/api/controller")
@@ -26,53 +40,42 @@ public class ControllerAccessController {
     private AccessLogRepo accessLogRepo;
 
     @Autowired
-    private UserRepo userRepo;
+    private AuditPipeline auditPipeline;
 
     @Autowired
-    private BlockchainService blockchainService;
+    private PolicyDecisionCache decisionCache;
 
+    @Autowired
+    private SqlRewriteService sqlRewriteService;
+
+    @Autowired
+    private DatasetExportService datasetExportService;
+
+    @Autowired
+    private PolicyReplicaService policyReplicaService;
+
+    @Value("${ontosov.pdp.batch.max-size:10000}")
+    private int maxBatchSize;
 
     /**
      * Endpoint for controllers to check if access is permitted
      * This is the main "Policy Checker" endpoint
+     * The decision carries a reason code; explain=true adds the human-readable reason text
      */
     @PostMapping("/check-access")
-    public ResponseEntity<?> checkAccess(@RequestBody AccessRequestDTO request) {
+    public ResponseEntity<?> checkAccess(@RequestBody AccessRequestDTO request,
+                                         @RequestParam(defaultValue = "false") boolean explain) {
         try {
             // 1. Evaluate the access request using PDP
             PolicyDecisionDTO decision = policyEvaluationService.evaluateAccess(request);
 
-            // 2. Log the access attempt to database
-            AccessLog log = createAccessLog(request, decision);
-            AccessLog savedLog = accessLogRepo.save(log);
+            // 2. Hand the access attempt to the audit pipeline (database and blockchain, written asynchronously)
+            auditPipeline.record(request, decision, true);
 
-            // 3. Log to blockchain
-            try {
-                String controllerAddress = "0x" + String.format("%040x", request.getControllerId());
-                String subjectAddress = "0x" + String.format("%040x", savedLog.getSubjectId());
-
-                BlockchainService.BlockchainLogResult result = blockchainService.logAccess(
-                        controllerAddress,
-                        subjectAddress,
-                        request.getPurpose() != null ? request.getPurpose() : "",
-                        request.getAction(),
-                        decision.getResult().name().equals("PERMIT"),
-                        decision.getPolicyGroupId(),
-                        decision.getPolicyVersion() != null ? java.math.BigInteger.valueOf(decision.getPolicyVersion()) : java.math.BigInteger.ZERO
-                );
-
-                if (result != null && result.getTransactionHash() != null) {
-                    savedLog.setBlockchainTxHash(result.getTransactionHash());
-                    savedLog.setBlockchainLogIndex(result.getLogIndex());
-                    accessLogRepo.save(savedLog);
-                    System.out.println("Access logged to blockchain. TX: " + result.getTransactionHash() +
-                                     ", Log Index: " + result.getLogIndex());
-                }
-            } catch (Exception e) {
-                System.err.println("Warning: Failed to log to blockchain: " + e.getMessage());
+            // 3. Return the decision
+            if (explain) {
+                decision.setReason(decision.getExplanation());
             }
-
-            // 4. Return the decision
             return ResponseEntity.ok(decision);
 
         } catch (Exception e) {
@@ -81,6 +84,168 @@ public class ControllerAccessController {
         }
     }
 
+    /**
+     * Batch variant of check-access for ETL-style callers.
+     * Returns one decision per request, in input order. Audit entries go through the audit
+     * pipeline; unlike the single-request endpoint, batch entries are not logged to the
+     * blockchain one transaction at a time.
+     */
+    @PostMapping("/check-access/batch")
+    public ResponseEntity<?> checkAccessBatch(@RequestBody List<AccessRequestDTO> requests,
+                                              @RequestParam(defaultValue = "false") boolean explain) {
+        if (requests == null || requests.isEmpty()) {
+            return ResponseEntity.badRequest().body("No access requests provided");
+        }
+        if (requests.size() > maxBatchSize) {
+            return ResponseEntity.badRequest()
+                    .body("Batch too large: " + requests.size() + " requests (max " + maxBatchSize + ")");
+        }
+
+        try {
+            // 1. Evaluate all requests, resolving shared lookups once
+            List<PolicyDecisionDTO> decisions = policyEvaluationService.evaluateBatch(requests);
+
+            // 2. Queue all access attempts for the batched audit writer
+            auditPipeline.recordAll(requests, decisions, false);
+
+            // 3. Return the decisions in input order
+            if (explain) {
+                decisions.forEach(decision -> decision.setReason(decision.getExplanation()));
+            }
+            return ResponseEntity.ok(decisions);
+
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError()
+                    .body("Error processing batch access request: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Endpoint for query layers to get the columns of a whole table a controller may access
+     * Takes controllerId, subjectTaxId, dataSource, tableName, action and purpose;
+     * returns the permitted columns and merged obligations in one call
+     */
+    @PostMapping("/column-mask")
+    public ResponseEntity<?> getColumnMask(@RequestBody AccessRequestDTO request) {
+        try {
+            ColumnMaskDTO mask = policyEvaluationService.evaluateColumnMask(request);
+            return ResponseEntity.ok(mask);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError()
+                    .body("Error computing column mask: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Endpoint for controllers to enforce policies on a whole SELECT statement
+     * Returns the statement rewritten so denied columns are nulled/masked and denied records filtered out
+     */
+    @PostMapping("/sql-rewrite")
+    public ResponseEntity<?> rewriteQuery(@RequestBody SqlRewriteRequestDTO request) {
+        try {
+            SqlRewriteDTO rewrite = sqlRewriteService.rewrite(request);
+            return ResponseEntity.ok(rewrite);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError()
+                    .body("Error rewriting query: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Endpoint to export a whole table as an AI training set (NDJSON or CSV)
+     * Rows are streamed from the controller database and filtered by each subject's aiTraining policy
+     */
+    @GetMapping("/{controllerId}/export/ai-training")
+    public ResponseEntity<?> exportForAiTraining(@PathVariable Long controllerId,
+                                                 @RequestParam String dataSource,
+                                                 @RequestParam String tableName,
+                                                 @RequestParam(required = false) String aiAlgorithm,
+                                                 @RequestParam(required = false) String purpose,
+                                                 @RequestParam(defaultValue = "ndjson") String format) {
+        DatasetExportService.ExportPlan plan;
+        try {
+            plan = datasetExportService.prepare(controllerId, dataSource, tableName, aiAlgorithm, purpose, format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError()
+                    .body("Error preparing export: " + e.getMessage());
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            try {
+                datasetExportService.export(plan, writer);
+            } catch (SQLException e) {
+                throw new IOException("Export of " + plan.getTableName() + " failed: " + e.getMessage(), e);
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(plan.isCsv() ? new MediaType("text", "csv") : new MediaType("application", "x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + plan.getTableName() +
+                        (plan.isCsv() ? ".csv" : ".ndjson") + "\"")
+                .body(body);
+    }
+
+    /**
+     * Endpoint for the embedded policy replica to load a full snapshot of the controller's policies
+     */
+    @GetMapping("/{controllerId}/policy-replica/snapshot")
+    public ResponseEntity<?> getPolicySnapshot(@PathVariable Long controllerId) {
+        try {
+            return ResponseEntity.ok(policyReplicaService.getSnapshot(controllerId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError()
+                    .body("Error building policy snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Endpoint for the embedded policy replica to fetch the policy changes after its version
+     * Returns a full snapshot instead when the replica was built by another backend instance
+     */
+    @GetMapping("/{controllerId}/policy-replica/delta")
+    public ResponseEntity<?> getPolicyDelta(@PathVariable Long controllerId,
+                                            @RequestParam String instanceId,
+                                            @RequestParam long since) {
+        try {
+            return ResponseEntity.ok(policyReplicaService.getDelta(controllerId, instanceId, since));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError()
+                    .body("Error building policy delta: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Endpoint for the embedded policy replica to ship its local decisions for audit, in batches
+     */
+    @PostMapping("/{controllerId}/policy-replica/decisions")
+    public ResponseEntity<?> recordLocalDecisions(@PathVariable Long controllerId,
+                                                  @RequestBody List<LocalDecisionDTO> decisions) {
+        if (decisions == null || decisions.isEmpty()) {
+            return ResponseEntity.badRequest().body("No decisions provided");
+        }
+        if (decisions.size() > maxBatchSize) {
+            return ResponseEntity.badRequest()
+                    .body("Batch too large: " + decisions.size() + " decisions (max " + maxBatchSize + ")");
+        }
+
+        try {
+            int recorded = policyReplicaService.recordLocalDecisions(controllerId, decisions);
+            return ResponseEntity.ok(Map.of("recorded", recorded));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError()
+                    .body("Error recording local decisions: " + e.getMessage());
+        }
+    }
+
     /**
      * Endpoint to get access history for a specific controller
      * This powers the "Access History" page
@@ -145,37 +310,19 @@ public class ControllerAccessController {
     }
 
     /**
-     * Helper method to create AccessLog entity from request and decision
+     * Endpoint to inspect the PDP decision cache (size, hits, misses, evictions)
+     * Used to size ontosov.pdp.cache.max-entries
      */
-    private AccessLog createAccessLog(AccessRequestDTO request, PolicyDecisionDTO decision) {
-        AccessLog log = new AccessLog();
-
-        // Set request details
-        log.setControllerId(request.getControllerId());
-        log.setAction(request.getAction());
-        log.setPurpose(request.getPurpose());
-        log.setDataDescription(request.getDataDescription());
-        log.setRequestTime(LocalDateTime.now());
-        log.setDataSource(request.getDataSource());
-        log.setTableName(request.getTableName());
-        log.setDataProperty(request.getDataProperty());
-        log.setRecordId(request.getRecordId());
-
-        // Find and set subject ID
-        User subject = userRepo.findByTaxid(request.getSubjectTaxId());
-        if (subject != null) {
-            log.setSubjectId(subject.getId());
-        }
-
-        // Set decision details
-        log.setDecision(decision.getResult());
-        log.setReason(decision.getReason());
-        log.setPolicyGroupId(decision.getPolicyGroupId());
-        log.setPolicyVersion(decision.getPolicyVersion());
-
-        // Blockchain hash will be set later when we integrate blockchain
-        log.setBlockchainTxHash(null);
+    @GetMapping("/decision-cache/stats")
+    public ResponseEntity<?> getDecisionCacheStats() {
+        return ResponseEntity.ok(decisionCache.getStats());
+    }
 
-        return log;
+    /**
+     * Endpoint to inspect the audit pipeline (queue depth, batch sizes, write lag, blockchain backlog)
+     */
+    @GetMapping("/audit/stats")
+    public ResponseEntity<?> getAuditStats() {
+        return ResponseEntity.ok(auditPipeline.getStats());
     }
 }
\ No newline at end of file
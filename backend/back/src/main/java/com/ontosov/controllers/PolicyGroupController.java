@@ -1,17 +1,23 @@
 package com.ontosov.controllers;
 
 import com.ontosov.dto.PolicyAssignmentDTO;
+import com.ontosov.dto.PolicyAssignmentResultDTO;
+import com.ontosov.dto.PolicyChangeFeedDTO;
 import com.ontosov.dto.PolicyGroupDTO;
 import com.ontosov.dto.PolicyStatusDTO;
 
 import com.ontosov.services.ODRLService;
+import com.ontosov.services.PolicyChangeLog;
 import com.ontosov.services.PolicyGroupService;
 import com.ontosov.services.PolicyTemplateService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.util.List;
 import java.util.Map;
@@ -31,6 +37,12 @@ public class PolicyGroupController {
     @Autowired
     private PolicyTemplateService policyTemplateService;
 
+    @Autowired
+    private PolicyChangeLog policyChangeLog;
+
+    @Value("${ontosov.policy.change-feed.max-wait-ms:60000}")
+    private long maxChangeFeedWaitMs;
+
     @GetMapping("/{subjectId}")
     public ResponseEntity<List<PolicyGroupDTO>> getPolicyGroups(@PathVariable Long subjectId) {
         try {
@@ -41,6 +53,22 @@ public class PolicyGroupController {
         }
     }
 
+    /**
+     * Resumable feed of policy-group changes (create, update, delete, assign, expiry), oldest first.
+     * Waits up to waitMs for a change after since; resume with the returned nextSince and logId.
+     * reset=true means the changes after since are gone (restart or too far behind): rescan, then resume.
+     */
+    @GetMapping("/changes")
+    public DeferredResult<PolicyChangeFeedDTO> getPolicyChanges(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(required = false) String logId,
+            @RequestParam(required = false) Long subjectId,
+            @RequestParam(defaultValue = "1000") int limit,
+            @RequestParam(defaultValue = "30000") long waitMs) {
+        return policyChangeLog.poll(logId, since, subjectId, Math.max(1, Math.min(limit, 10000)),
+                Math.max(1, Math.min(waitMs, maxChangeFeedWaitMs)));
+    }
+
     @GetMapping("/templates")
     public ResponseEntity<List<PolicyGroupDTO>> getPolicyTemplates() {
         try {
@@ -58,6 +86,9 @@ public class PolicyGroupController {
         try {
             String groupId = policyGroupService.createPolicyGroup(policyGroupDTO, subjectId);
             return ResponseEntity.ok(groupId);
+        } catch (IllegalStateException e) {
+            // Read-only replica
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
@@ -73,6 +104,8 @@ public class PolicyGroupController {
             return ResponseEntity.ok().build();
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
@@ -87,13 +120,15 @@ public class PolicyGroupController {
             return ResponseEntity.ok().build();
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
     @PostMapping("/{groupId}/assign")
-    public ResponseEntity<Void> assignDataToPolicy(
+    public ResponseEntity<PolicyAssignmentResultDTO> assignDataToPolicy(
             @PathVariable String groupId,
             @RequestBody PolicyAssignmentDTO assignmentDTO,
             @RequestParam Long subjectId) {
@@ -112,12 +147,12 @@ public class PolicyGroupController {
                     .orElseThrow(() -> new IllegalArgumentException("Policy group not found"));
 
             // Do everything in one transaction
-            policyGroupService.assignDataToPolicy(groupId, assignmentDTO, policyGroup, subjectId);
-
-            return ResponseEntity.ok().build();
+            return ResponseEntity.ok(policyGroupService.assignDataToPolicy(groupId, assignmentDTO, policyGroup, subjectId));
         } catch (IllegalArgumentException e) {
             log.error("Bad request in policy assignment: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (Exception e) {
             log.error("Internal error in policy assignment: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
@@ -148,7 +183,8 @@ public class PolicyGroupController {
                     .orElseThrow(() -> new IllegalArgumentException("Policy group not found"));
 
             // Use existing assignment method
-            policyGroupService.assignDataToPolicy(groupId, assignmentDTO, policyGroup, subjectId);
+            PolicyAssignmentResultDTO result =
+                    policyGroupService.assignDataToPolicy(groupId, assignmentDTO, policyGroup, subjectId);
 
             // Calculate totals for response
             int propertiesCount = assignmentDTO.getPropertyAssignments() != null
@@ -165,12 +201,17 @@ public class PolicyGroupController {
                     "message", "Successfully protected " + totalAssigned + " unprotected data elements",
                     "propertiesProtected", propertiesCount,
                     "entitiesProtected", entitiesCount,
-                    "totalProtected", totalAssigned
+                    "totalProtected", totalAssigned,
+                    "added", result.getAdded(),
+                    "removed", result.getRemoved(),
+                    "unchanged", result.getUnchanged()
             ));
 
         } catch (IllegalArgumentException e) {
             log.error("Bad request in bulk assignment: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             log.error("Internal error in bulk assignment: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
@@ -0,0 +1,80 @@
+package com.ontosov.controllers;
+
+import com.ontosov.services.PolicyChangeLog;
+import com.ontosov.services.PolicyGroupService;
+import com.ontosov.services.PolicyReplicationFollower;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Leader side of policy store replication (see PolicyReplicationFollower). Followers bootstrap
+ * from /snapshot, follow /api/policy-groups/changes and fetch /groups/{groupId}?subjectId= for
+ * every changed group. Snapshot and bundles are N-Quads of the two policy graphs.
+ */
+@RestController
+@RequestMapping("/api/replication")
+public class ReplicationController {
+    private static final MediaType N_QUADS = new MediaType("application", "n-quads");
+
+    @Autowired
+    private PolicyGroupService policyGroupService;
+
+    @Autowired
+    private PolicyChangeLog policyChangeLog;
+
+    @Autowired
+    private PolicyReplicationFollower follower;
+
+    @Value("${ontosov.replication.role:standalone}")
+    private String role;
+
+    @GetMapping("/snapshot")
+    public ResponseEntity<StreamingResponseBody> getSnapshot() {
+        if (!isLeader()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        // Read the sequence before the snapshot: writes landing meanwhile are replayed from the feed
+        long sequence = policyChangeLog.getLastSequence();
+        StreamingResponseBody body = policyGroupService::writeReplicationSnapshot;
+        return ResponseEntity.ok()
+                .contentType(N_QUADS)
+                .header("X-Policy-Log-Id", policyChangeLog.getLogId())
+                .header("X-Policy-Sequence", String.valueOf(sequence))
+                .body(body);
+    }
+
+    @GetMapping("/groups/{groupId}")
+    public ResponseEntity<StreamingResponseBody> getGroupBundle(@PathVariable String groupId,
+                                                                @RequestParam Long subjectId) {
+        if (!isLeader()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        StreamingResponseBody body = outputStream ->
+                policyGroupService.writeReplicationBundle(groupId, subjectId, outputStream);
+        return ResponseEntity.ok().contentType(N_QUADS).body(body);
+    }
+
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("role", role);
+        status.put("logId", policyChangeLog.getLogId());
+        status.put("lastSequence", policyChangeLog.getLastSequence());
+        if (follower.isEnabled()) {
+            status.put("replication", follower.getStatus());
+        }
+        return ResponseEntity.ok(status);
+    }
+
+    private boolean isLeader() {
+        return "leader".equalsIgnoreCase(role);
+    }
+}
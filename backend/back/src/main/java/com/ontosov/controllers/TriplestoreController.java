@@ -0,0 +1,52 @@
+package com.ontosov.controllers;
+
+import com.ontosov.dto.StoreCompactionDTO;
+import com.ontosov.services.PolicyStoreCompactor;
+import com.ontosov.services.SparqlTemplates;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Maintenance of the policy triplestore: garbage collection and compaction on demand
+ * (see PolicyStoreCompactor) and statistics of the prepared policy queries
+ */
+@RestController
+@RequestMapping("/api/triplestore")
+public class TriplestoreController {
+    private static final Logger log = LoggerFactory.getLogger(TriplestoreController.class);
+
+    @Autowired
+    private PolicyStoreCompactor compactor;
+
+    @PostMapping("/compact")
+    public ResponseEntity<StoreCompactionDTO> compact() {
+        try {
+            return ResponseEntity.ok(compactor.compact());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (Exception e) {
+            log.error("Triplestore compaction failed: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @GetMapping("/compaction")
+    public ResponseEntity<StoreCompactionDTO> getLastCompaction() {
+        StoreCompactionDTO report = compactor.getLastReport();
+        return report != null ? ResponseEntity.ok(report) : ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Parse time, executions and hit rate of the prepared SPARQL templates (see SparqlTemplates)
+     */
+    @GetMapping("/query-stats")
+    public ResponseEntity<Map<String, Object>> getQueryStats() {
+        return ResponseEntity.ok(SparqlTemplates.getStats());
+    }
+}
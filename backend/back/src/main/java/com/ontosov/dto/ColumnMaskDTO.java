@@ -0,0 +1,22 @@
+package com.ontosov.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ColumnMaskDTO {
+    private String tableName;
+    private String action;
+    private List<String> permittedColumns = new ArrayList<>();        // OBDA-mapped columns the action is permitted on
+    private Map<String, String> deniedColumns = new LinkedHashMap<>(); // column -> deny reason
+    private List<ObligationDTO> obligations = new ArrayList<>();      // merged obligations of the permitted columns
+    private String reason;               // Set when the whole table could not be evaluated (every column is denied)
+}
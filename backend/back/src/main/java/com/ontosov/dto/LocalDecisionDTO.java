@@ -0,0 +1,16 @@
+package com.ontosov.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A decision taken by an embedded policy replica, shipped back to the backend for audit
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocalDecisionDTO {
+    private AccessRequestDTO request;
+    private PolicyDecisionDTO decision;
+}
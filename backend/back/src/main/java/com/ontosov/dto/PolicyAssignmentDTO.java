@@ -11,12 +11,14 @@ public class PolicyAssignmentDTO {
     private Map<String, Set<String>> dataAssignments; // Map of data source -> set of properties
     private Map<String, Set<String>> propertyAssignments; // source -> properties
     private Map<String, Set<String>> entityAssignments;   // source -> entityIds
+    private Map<String, Set<String>> entitySelectorAssignments; // source -> selectors, "Order" or "Order/100..199"
 
     @Override
     public String toString() {
         return "PolicyAssignmentDTO{" +
                 "propertyAssignments=" + propertyAssignments +
                 ", entityAssignments=" + entityAssignments +
+                ", entitySelectorAssignments=" + entitySelectorAssignments +
                 ", dataAssignments=" + dataAssignments +
                 '}';
     }
@@ -0,0 +1,18 @@
+package com.ontosov.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of replacing the data assigned to a policy group: how many assignments were
+ * added, removed or already present
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PolicyAssignmentResultDTO {
+    private int added;
+    private int removed;
+    private int unchanged;
+}
@@ -0,0 +1,19 @@
+package com.ontosov.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One entry of the policy change feed
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PolicyChangeDTO {
+    private long sequence;              // Monotonic within one change log (see PolicyChangeFeedDTO.logId)
+    private Long subjectId;
+    private String groupId;
+    private PolicyChangeType type;
+    private long timestamp;             // Epoch milliseconds of the committed write
+}
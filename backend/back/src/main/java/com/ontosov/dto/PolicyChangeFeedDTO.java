@@ -0,0 +1,22 @@
+package com.ontosov.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A page of the policy change feed, answering GET /api/policy-groups/changes?since=
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PolicyChangeFeedDTO {
+    private String logId;               // Sequences only compare within one log; a new ID means start over
+    private List<PolicyChangeDTO> changes = new ArrayList<>();
+    private long nextSince;             // Pass back as since= to resume after this page
+    private long latestSequence;
+    private boolean reset;              // Changes after since are no longer retained: rescan, then resume from nextSince
+}
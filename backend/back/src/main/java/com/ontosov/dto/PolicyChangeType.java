@@ -0,0 +1,13 @@
+package com.ontosov.dto;
+
+/**
+ * Kind of write recorded in the policy change feed
+ */
+public enum PolicyChangeType {
+    CREATED,        // policy group created
+    UPDATED,        // policy group settings changed
+    DELETED,        // policy group and its ODRL policies removed
+    ASSIGNED,       // data assignments of a group replaced, ODRL policies regenerated
+    EXPIRED,        // policy group passed its expiration date and stopped permitting
+    RELOADED        // all policies of the subject replaced from a replication snapshot
+}
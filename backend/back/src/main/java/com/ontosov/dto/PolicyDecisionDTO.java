@@ -1,9 +1,12 @@
 package com.ontosov.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -12,9 +15,26 @@ import java.util.List;
 @AllArgsConstructor
 public class PolicyDecisionDTO {
     private DecisionResult result;       // PERMIT or DENY
-    private String reason;               // Human-readable explanation
+    private ReasonCode reasonCode;       // Why the decision was taken
+    private List<String> reasonParams = List.of();  // Values filled into the reason text
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String reason;               // Human-readable explanation, only set when requested (explain=true)
     private String policyGroupId;        // Which policy was evaluated
     private Integer policyVersion;       // Version of the policy
     private List<ObligationDTO> obligations = new ArrayList<>();
-}
 
+    @JsonIgnore
+    private LocalDate validUntil;        // Last day a PERMIT holds (earliest policy expiration), null if open-ended
+
+    /**
+     * Human-readable explanation, rendered from the reason code unless set explicitly
+     */
+    @JsonIgnore
+    public String getExplanation() {
+        if (reason != null || reasonCode == null) {
+            return reason;
+        }
+        return reasonCode.render(reasonParams);
+    }
+}
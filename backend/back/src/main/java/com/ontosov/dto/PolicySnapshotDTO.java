@@ -0,0 +1,71 @@
+package com.ontosov.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Policies of one controller's data sources, as pulled by the embeddable policy replica.
+ * A full snapshot replaces the replica; a delta carries only the subjects changed since the
+ * version the replica holds, and the current data sources.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PolicySnapshotDTO {
+    private String instanceId;           // Backend process that built it; a new instance means the replica must reload
+    private Long controllerId;
+    private long version;                // Policy version the snapshot is consistent with, passed back as since=
+    private boolean full;                // true: replaces the replica, false: delta over the previous version
+    private List<DataSource> dataSources = new ArrayList<>();   // Current data sources and table mappings, also in deltas
+    private Map<String, Long> subjectIds = new HashMap<>();     // Tax ID -> subject ID of the subjects below, full snapshots only
+    private List<Subject> subjects = new ArrayList<>();         // Subjects with policies on the data sources (changed ones in a delta)
+    private List<Long> removedSubjectIds = new ArrayList<>();   // Delta only: subjects left without policies on the data sources
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DataSource {
+        private String id;               // database ID, as sent in AccessRequestDTO.dataSource
+        private String identifier;       // "controllerName - databaseName", as used in policy storage
+        private Map<String, Table> tables = new HashMap<>();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Table {
+        private String entityType;       // null for tables without an entity mapping
+        private Map<String, String> columnProperties = new HashMap<>();  // column -> Schema.org property
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Subject {
+        private Long subjectId;
+        private String taxId;
+        private List<Target> targets = new ArrayList<>();
+        private List<PolicyGroupDTO> groups = new ArrayList<>();    // Groups referenced by the targets
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Target {
+        private String dataSource;       // data source identifier
+        private String property;         // Schema.org property, null for entity targets
+        private String entityId;         // entity URI, null for property targets
+        private String entitySelector;   // "Order" or "Order/100..199" for selector targets, else null
+        private Set<String> permittedActions = new HashSet<>();         // actions permitted to this controller
+        private Set<String> prohibitedActions = new HashSet<>();
+        private Map<String, Set<String>> groupActions = new HashMap<>(); // policy group ID -> actions it permits
+    }
+}
@@ -0,0 +1,58 @@
+package com.ontosov.dto;
+
+import java.util.List;
+
+/**
+ * Machine-readable reason of a policy decision.
+ *
+ * The PDP only records the code and its parameters; the human-readable text is rendered
+ * on demand (explain=true, access log, column masks).
+ */
+public enum ReasonCode {
+    INVALID_REQUEST("Invalid request: %s"),
+    SUBJECT_NOT_FOUND("Subject not found with tax ID: %s"),
+    CONTROLLER_NOT_FOUND("Controller not found"),
+    DATABASE_NOT_FOUND("Database not found: %s"),
+    MAPPING_ERROR("Error resolving mappings: %s"),
+    UNMAPPED_DATA("Unmapped data is not governed by subject policies - access permitted by default."),
+    UNMAPPED_TABLE("Unmapped table is not governed by subject policies - access permitted by default."),
+    NO_POLICY_FOR_DATA("No policy assigned to this data - access permitted by default"),
+    NO_POLICY_FOR_ENTITY("No policy assigned to this entity - access permitted by default"),
+    NOT_PERMITTED("No policy permits '%s' access to %s from %s"),                // action, property, data source
+    ENTITY_NOT_PERMITTED("No policy permits '%s' access to entity %s from %s"),  // action, entity URI, data source
+    POLICY_DETAILS_UNAVAILABLE("Policy found but group details unavailable"),
+    DENIED_BY_POLICIES(null),       // (policy name, CONSTRAINTS | AI_RESTRICTIONS) pairs
+    PERMITTED_BY_POLICY("Access permitted by policy: %s"),
+    PERMITTED_BY_POLICIES(null);    // policy names
+
+    /** Per-policy failures listed in DENIED_BY_POLICIES parameters */
+    public static final String CONSTRAINTS = "CONSTRAINTS";
+    public static final String AI_RESTRICTIONS = "AI_RESTRICTIONS";
+
+    private final String template;
+
+    ReasonCode(String template) {
+        this.template = template;
+    }
+
+    public String render(List<String> params) {
+        switch (this) {
+            case DENIED_BY_POLICIES -> {
+                StringBuilder text = new StringBuilder("Access denied by ")
+                        .append(params.size() / 2).append(" policy/policies:");
+                for (int i = 0; i + 1 < params.size(); i += 2) {
+                    text.append("\nPolicy '").append(params.get(i)).append(AI_RESTRICTIONS.equals(params.get(i + 1)) ?
+                            "' AI training restrictions not satisfied" :
+                            "' constraints not satisfied (purpose/expiration)");
+                }
+                return text.toString();
+            }
+            case PERMITTED_BY_POLICIES -> {
+                return "Access permitted by " + params.size() + " policy/policies: " + String.join(", ", params);
+            }
+            default -> {
+                return params.isEmpty() ? template : String.format(template, params.toArray());
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.ontosov.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SqlRewriteDTO {
+    private String sql;                  // Rewritten statement, null if the query may not run at all
+    private List<String> maskedColumns = new ArrayList<>();                   // "table.column" entries that were nulled/masked
+    private Map<String, List<String>> excludedRecords = new LinkedHashMap<>(); // table -> record ids filtered out
+    private Map<String, List<String>> excludedRanges = new LinkedHashMap<>();  // table -> entity selectors filtered out
+    private List<ObligationDTO> obligations = new ArrayList<>();
+    private String reason;               // Why no statement was returned
+}
@@ -0,0 +1,19 @@
+package com.ontosov.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SqlRewriteRequestDTO {
+    private Long controllerId;
+    private String subjectTaxId;
+    private String action;              // "read", "use", "share", "aggregate", "modify", "aiTraining"
+    private String purpose;
+    private String aiAlgorithm;         // AI algorithm for aiTraining action (optional)
+    private String dataSource;          // database ID from getDatabasesForController
+    private String sql;                 // SELECT statement to enforce
+    private String maskMode;            // "null" (default) or "mask" for denied columns in the select list
+}
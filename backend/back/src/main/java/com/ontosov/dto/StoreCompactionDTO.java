@@ -0,0 +1,21 @@
+package com.ontosov.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one garbage collection and compaction run of the policy triplestore
+ */
+@Data
+@NoArgsConstructor
+public class StoreCompactionDTO {
+    private String startedAt;
+    private long durationMs;
+    private long policyGroupTriplesRemoved;   // detached assignment, permission and constraint nodes
+    private long odrlTriplesRemoved;          // orphaned policies, rules and targets
+    private long triplesRemoved;
+    private int orphanedPolicyGroups;         // deleted groups whose ODRL policies were still stored
+    private long bytesBefore;
+    private long bytesAfter;
+    private long bytesReclaimed;
+}
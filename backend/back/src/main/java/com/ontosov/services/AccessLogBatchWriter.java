@@ -0,0 +1,145 @@
+package com.ontosov.services;
+
+import com.ontosov.models.AccessLog;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * JDBC batch writes of access_logs rows for the audit pipeline.
+ *
+ * AccessLog uses IDENTITY keys, which turns off Hibernate's insert batching, so the rows are
+ * written with one JDBC batch per audit batch instead. Table and column names are taken from
+ * the Hibernate mapping, so the SQL follows whatever naming strategy created the table.
+ */
+@Component
+public class AccessLogBatchWriter {
+    private static final String[] INSERT_PROPERTIES = {
+            "controllerId", "subjectId", "action", "purpose", "dataDescription", "dataSource",
+            "tableName", "dataProperty", "recordId", "decision", "reason", "policyGroupId",
+            "policyVersion", "requestTime", "blockchainTxHash", "blockchainLogIndex"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String idColumn;
+    private final String insertSql;
+    private final String updateChainSql;
+
+    public AccessLogBatchWriter(@Qualifier("userDataSource") DataSource dataSource,
+                                @Qualifier("userTransactionManager") PlatformTransactionManager transactionManager,
+                                EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        AbstractEntityPersister persister = (AbstractEntityPersister) entityManagerFactory
+                .unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel()
+                .getEntityDescriptor(AccessLog.class);
+        String table = persister.getTableName();
+        this.idColumn = persister.getIdentifierColumnNames()[0];
+
+        List<String> columns = Arrays.stream(INSERT_PROPERTIES)
+                .map(property -> persister.getPropertyColumnNames(property)[0])
+                .toList();
+        this.insertSql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (" +
+                columns.stream().map(column -> "?").collect(Collectors.joining(", ")) + ")";
+        this.updateChainSql = "UPDATE " + table +
+                " SET " + persister.getPropertyColumnNames("blockchainTxHash")[0] + " = ?, " +
+                persister.getPropertyColumnNames("blockchainLogIndex")[0] + " = ?" +
+                " WHERE " + idColumn + " = ?";
+    }
+
+    /**
+     * Inserts the logs in one transaction and assigns their generated IDs
+     */
+    public void insertAll(List<AccessLog> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(insertSql, new String[]{idColumn}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        setInsertValues(ps, logs.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return logs.size();
+                    }
+                },
+                keyHolder));
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < logs.size() && i < keys.size(); i++) {
+            Object id = keys.get(i).get(idColumn);
+            if (id == null && !keys.get(i).isEmpty()) {
+                id = keys.get(i).values().iterator().next();
+            }
+            if (id instanceof Number number) {
+                logs.get(i).setId(number.longValue());
+            }
+        }
+    }
+
+    /**
+     * Stores the blockchain transaction hash and log index of already inserted logs
+     */
+    public void updateBlockchainRefs(List<AccessLog> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(updateChainSql, logs, logs.size(),
+                (ps, log) -> {
+                    set(ps, 1, log.getBlockchainTxHash());
+                    set(ps, 2, log.getBlockchainLogIndex());
+                    set(ps, 3, log.getId());
+                }));
+    }
+
+    private static void setInsertValues(PreparedStatement ps, AccessLog log) throws SQLException {
+        int i = 1;
+        set(ps, i++, log.getControllerId());
+        set(ps, i++, log.getSubjectId());
+        set(ps, i++, log.getAction());
+        set(ps, i++, log.getPurpose());
+        set(ps, i++, log.getDataDescription());
+        set(ps, i++, log.getDataSource());
+        set(ps, i++, log.getTableName());
+        set(ps, i++, log.getDataProperty());
+        set(ps, i++, log.getRecordId());
+        set(ps, i++, log.getDecision() != null ? log.getDecision().name() : null);
+        set(ps, i++, log.getReason());
+        set(ps, i++, log.getPolicyGroupId());
+        set(ps, i++, log.getPolicyVersion());
+        set(ps, i++, log.getRequestTime() != null ? Timestamp.valueOf(log.getRequestTime()) : null);
+        set(ps, i++, log.getBlockchainTxHash());
+        set(ps, i, log.getBlockchainLogIndex());
+    }
+
+    private static void set(PreparedStatement ps, int index, Object value) throws SQLException {
+        StatementCreatorUtils.setParameterValue(ps, index, SqlTypeValue.TYPE_UNKNOWN, value);
+    }
+}
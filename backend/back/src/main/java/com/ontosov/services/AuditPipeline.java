@@ -0,0 +1,335 @@
+package com.ontosov.services;
+
+import com.ontosov.dto.AccessRequestDTO;
+import com.ontosov.dto.DecisionResult;
+import com.ontosov.dto.PolicyDecisionDTO;
+import com.ontosov.dto.ReasonCode;
+import com.ontosov.models.AccessLog;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous audit trail of access decisions.
+ *
+ * Request threads hand their AccessLog entries to a bounded queue and return the decision
+ * immediately; a full queue blocks the submitting thread until the writer catches up. A single
+ * writer thread drains the queue in batches, inserts each batch with one JDBC batch, and then
+ * passes the entries that go on chain to a separate blockchain thread, which submits the
+ * transactions and stores their hashes back in bulk. Pending entries are flushed on shutdown.
+ * Decision reasons travel as reason codes and are rendered to text by the writer thread.
+ */
+@Component
+public class AuditPipeline {
+    private static final Logger log = LoggerFactory.getLogger(AuditPipeline.class);
+    private static final long POLL_MILLIS = 100;
+
+    /**
+     * One queued entry; reasonCode is null when the log's reason is already set
+     */
+    private record AuditRecord(AccessLog log, ReasonCode reasonCode, List<String> reasonParams,
+                               boolean onChain, long enqueuedNanos) {
+    }
+
+    private final AccessLogBatchWriter batchWriter;
+    private final BlockchainService blockchainService;
+    private final IdentityResolutionCache resolutionCache;
+    private final int queueCapacity;
+    private final int batchSize;
+
+    private final BlockingQueue<AuditRecord> queue;
+    private final Thread writer;
+    private final ThreadPoolExecutor chainExecutor;
+    private volatile boolean running = true;
+
+    // Metrics
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong writeFailures = new AtomicLong();
+    private final AtomicLong chainPending = new AtomicLong();
+    private final AtomicLong chainWritten = new AtomicLong();
+    private final AtomicLong chainFailures = new AtomicLong();
+    private volatile int lastBatchSize;
+    private volatile int maxBatchSize;
+    private volatile long lastBatchLagMillis;
+    private volatile long maxBatchLagMillis;
+
+    @Autowired
+    public AuditPipeline(AccessLogBatchWriter batchWriter,
+                         BlockchainService blockchainService,
+                         IdentityResolutionCache resolutionCache,
+                         @Value("${ontosov.audit.queue-capacity:10000}") int queueCapacity,
+                         @Value("${ontosov.audit.batch-size:500}") int batchSize) {
+        this.batchWriter = batchWriter;
+        this.blockchainService = blockchainService;
+        this.resolutionCache = resolutionCache;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.queue = new ArrayBlockingQueue<>(this.queueCapacity);
+
+        // The blockchain thread has its own bounded queue; when it is full the writer submits
+        // the batch itself, which slows draining and so pushes back on the request threads
+        this.chainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, this.queueCapacity / this.batchSize)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "audit-blockchain");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        this.writer = new Thread(this::drainLoop, "audit-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues the audit record of one PDP decision; onChain also records it on the blockchain.
+     * Shared by every PDP front end (REST and binary).
+     */
+    public void record(AccessRequestDTO request, PolicyDecisionDTO decision, boolean onChain) {
+        enqueue(createRecord(request, decision, onChain, System.nanoTime()));
+    }
+
+    /**
+     * Queues the audit records of a batch of decisions, in request order
+     */
+    public void recordAll(List<AccessRequestDTO> requests, List<PolicyDecisionDTO> decisions, boolean onChain) {
+        long now = System.nanoTime();
+        for (int i = 0; i < requests.size(); i++) {
+            enqueue(createRecord(requests.get(i), decisions.get(i), onChain, now));
+        }
+    }
+
+    /**
+     * Queues one access log; onChain also records the access on the blockchain
+     */
+    public void submit(AccessLog accessLog, boolean onChain) {
+        enqueue(new AuditRecord(accessLog, null, List.of(), onChain, System.nanoTime()));
+    }
+
+    /**
+     * Queues the access logs of a batch request
+     */
+    public void submitAll(List<AccessLog> accessLogs, boolean onChain) {
+        long now = System.nanoTime();
+        for (AccessLog accessLog : accessLogs) {
+            enqueue(new AuditRecord(accessLog, null, List.of(), onChain, now));
+        }
+    }
+
+    private void enqueue(AuditRecord record) {
+        if (!running) {
+            throw new IllegalStateException("Audit pipeline is shut down");
+        }
+        try {
+            queue.put(record);
+            submitted.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while queueing audit record", e);
+        }
+    }
+
+    private void drainLoop() {
+        List<AuditRecord> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditRecord first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                // Shutdown: keep draining what is left
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<AuditRecord> batch) {
+        List<AccessLog> logs = new ArrayList<>(batch.size());
+        List<AccessLog> onChain = new ArrayList<>();
+        for (AuditRecord record : batch) {
+            if (record.reasonCode() != null) {
+                record.log().setReason(record.reasonCode().render(record.reasonParams()));
+            }
+            logs.add(record.log());
+            if (record.onChain()) {
+                onChain.add(record.log());
+            }
+        }
+
+        long lagMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - batch.get(0).enqueuedNanos());
+        try {
+            batchWriter.insertAll(logs);
+            written.addAndGet(logs.size());
+        } catch (Exception e) {
+            writeFailures.addAndGet(logs.size());
+            log.error("Failed to write {} access log(s): {}", logs.size(), e.getMessage());
+            return;
+        } finally {
+            batches.incrementAndGet();
+            lastBatchSize = logs.size();
+            maxBatchSize = Math.max(maxBatchSize, logs.size());
+            lastBatchLagMillis = lagMillis;
+            maxBatchLagMillis = Math.max(maxBatchLagMillis, lagMillis);
+        }
+
+        if (!onChain.isEmpty()) {
+            chainPending.addAndGet(onChain.size());
+            chainExecutor.execute(() -> writeToBlockchain(onChain));
+        }
+    }
+
+    private void writeToBlockchain(List<AccessLog> logs) {
+        List<AccessLog> recorded = new ArrayList<>(logs.size());
+        for (AccessLog accessLog : logs) {
+            try {
+                String controllerAddress = "0x" + String.format("%040x", accessLog.getControllerId());
+                String subjectAddress = "0x" + String.format("%040x", accessLog.getSubjectId());
+
+                BlockchainService.BlockchainLogResult result = blockchainService.logAccess(
+                        controllerAddress,
+                        subjectAddress,
+                        accessLog.getPurpose() != null ? accessLog.getPurpose() : "",
+                        accessLog.getAction(),
+                        accessLog.getDecision() == DecisionResult.PERMIT,
+                        accessLog.getPolicyGroupId(),
+                        accessLog.getPolicyVersion() != null ? BigInteger.valueOf(accessLog.getPolicyVersion()) : BigInteger.ZERO
+                );
+
+                if (result != null && result.getTransactionHash() != null) {
+                    accessLog.setBlockchainTxHash(result.getTransactionHash());
+                    accessLog.setBlockchainLogIndex(result.getLogIndex());
+                    recorded.add(accessLog);
+                } else {
+                    chainFailures.incrementAndGet();
+                }
+            } catch (Exception e) {
+                chainFailures.incrementAndGet();
+                log.warn("Failed to log access {} to blockchain: {}", accessLog.getId(), e.getMessage());
+            } finally {
+                chainPending.decrementAndGet();
+            }
+        }
+
+        try {
+            batchWriter.updateBlockchainRefs(recorded);
+            chainWritten.addAndGet(recorded.size());
+        } catch (Exception e) {
+            log.error("Failed to store blockchain references of {} access log(s): {}", recorded.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Queue entry of one decision. The reason text is left to the writer thread unless the
+     * decision carries an explicit one.
+     */
+    private AuditRecord createRecord(AccessRequestDTO request, PolicyDecisionDTO decision, boolean onChain,
+                                     long enqueuedNanos) {
+        AccessLog accessLog = createAccessLog(request, decision);
+        ReasonCode reasonCode = decision.getReason() == null ? decision.getReasonCode() : null;
+        return new AuditRecord(accessLog, reasonCode, decision.getReasonParams(), onChain, enqueuedNanos);
+    }
+
+    /**
+     * Helper method to create AccessLog entity from request and decision
+     */
+    private AccessLog createAccessLog(AccessRequestDTO request, PolicyDecisionDTO decision) {
+        AccessLog accessLog = new AccessLog();
+
+        // Set request details
+        accessLog.setControllerId(request.getControllerId());
+        accessLog.setAction(request.getAction());
+        accessLog.setPurpose(request.getPurpose());
+        accessLog.setDataDescription(request.getDataDescription());
+        accessLog.setRequestTime(LocalDateTime.now());
+        accessLog.setDataSource(request.getDataSource());
+        accessLog.setTableName(request.getTableName());
+        accessLog.setDataProperty(request.getDataProperty());
+        accessLog.setRecordId(request.getRecordId());
+
+        // Subject ID was already resolved by the PDP, so this is a cache hit
+        accessLog.setSubjectId(resolutionCache.getSubjectId(request.getSubjectTaxId()));
+
+        // Set decision details
+        accessLog.setDecision(decision.getResult());
+        accessLog.setReason(decision.getReason());
+        accessLog.setPolicyGroupId(decision.getPolicyGroupId());
+        accessLog.setPolicyVersion(decision.getPolicyVersion());
+
+        // Blockchain hash is set by the audit pipeline once the transaction is mined
+        accessLog.setBlockchainTxHash(null);
+
+        return accessLog;
+    }
+
+    /**
+     * Queue depth, batch sizes and lag of the audit pipeline
+     */
+    public Map<String, Object> getStats() {
+        AuditRecord oldest = queue.peek();
+        long oldestAgeMillis = oldest != null
+                ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest.enqueuedNanos())
+                : 0;
+        long batchCount = batches.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("submitted", submitted.get());
+        stats.put("written", written.get());
+        stats.put("writeFailures", writeFailures.get());
+        stats.put("batches", batchCount);
+        stats.put("batchSizeLimit", batchSize);
+        stats.put("lastBatchSize", lastBatchSize);
+        stats.put("maxBatchSize", maxBatchSize);
+        stats.put("avgBatchSize", batchCount > 0 ? String.format("%.1f", (double) (written.get() + writeFailures.get()) / batchCount) : "0.0");
+        stats.put("lagMillis", oldestAgeMillis);
+        stats.put("lastBatchLagMillis", lastBatchLagMillis);
+        stats.put("maxBatchLagMillis", maxBatchLagMillis);
+        stats.put("blockchainPending", chainPending.get());
+        stats.put("blockchainWritten", chainWritten.get());
+        stats.put("blockchainFailures", chainFailures.get());
+        return stats;
+    }
+
+    /**
+     * Stops accepting entries and waits for the queued ones to be written
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+            chainExecutor.shutdown();
+            chainExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.warn("Audit pipeline stopped with {} unwritten access log(s)", queue.size());
+        }
+    }
+}
@@ -11,6 +11,8 @@ import org.springframework.stereotype.Service;
 public class AuthService {
     @Autowired
     private UserRepo userRepo;
+    @Autowired
+    private IdentityResolutionCache identityResolutionCache;
     private BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
     public User registerUser(String email, String password, UserRole role, String taxidOrName) {
@@ -26,7 +28,9 @@ public class AuthService {
             user.setName(taxidOrName);
         }
 
-        return userRepo.save(user);
+        User saved = userRepo.save(user);
+        identityResolutionCache.invalidateUser(saved);
+        return saved;
     }
 
     public User authenticateUser(String email, String password) {
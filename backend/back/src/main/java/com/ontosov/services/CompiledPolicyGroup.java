@@ -0,0 +1,246 @@
+package com.ontosov.services;
+
+import com.ontosov.constants.DPVPurpose;
+import com.ontosov.dto.AccessRequestDTO;
+import com.ontosov.dto.ObligationDTO;
+import com.ontosov.dto.PolicyGroupDTO;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, pre-parsed form of a policy group for the PDP hot path.
+ *
+ * Compiled once when the group is written (or first loaded): the expiration becomes an
+ * epoch day, the purpose an interned DPV purpose ID, the AI restrictions a flag plus an
+ * algorithm matcher, and the obligations a prebuilt list. Evaluations read fields only and
+ * compare the expiry with the current day, so a group stops permitting the day after it
+ * expires. PolicyGroupService.sweepExpiredGroups later replaces it by a deactivated copy and
+ * drops the cached decisions it was part of.
+ */
+public final class CompiledPolicyGroup {
+    private static final long NO_EXPIRY = Long.MAX_VALUE;
+    private static final long INVALID_EXPIRY = Long.MIN_VALUE;
+
+    private final PolicyGroupDTO group;
+    private final Long subjectId;
+    private final boolean active;
+
+    private final long expiryEpochDay;
+    private final String requiredPurpose;          // null if the group has no purpose constraint
+    private final int requiredPurposeId;           // -1 for free-text purposes outside the DPV taxonomy
+    private final String requiredPurposeLower;     // substring match for free-text purposes
+    private final boolean aiRestricted;            // false if the group defines no AI restrictions
+    private final boolean aiTrainingAllowed;
+    private final String requiredAlgorithm;        // null if any algorithm is allowed
+    private final List<ObligationDTO> obligations;
+
+    private CompiledPolicyGroup(CompiledPolicyGroup source, boolean active) {
+        this.group = source.group;
+        this.subjectId = source.subjectId;
+        this.active = active;
+        this.expiryEpochDay = source.expiryEpochDay;
+        this.requiredPurpose = source.requiredPurpose;
+        this.requiredPurposeId = source.requiredPurposeId;
+        this.requiredPurposeLower = source.requiredPurposeLower;
+        this.aiRestricted = source.aiRestricted;
+        this.aiTrainingAllowed = source.aiTrainingAllowed;
+        this.requiredAlgorithm = source.requiredAlgorithm;
+        this.obligations = source.obligations;
+    }
+
+    private CompiledPolicyGroup(PolicyGroupDTO group, Long subjectId, long todayEpochDay) {
+        this.group = group;
+        this.subjectId = subjectId;
+
+        Map<String, Object> constraints = group.getConstraints() != null ? group.getConstraints() : Collections.emptyMap();
+
+        Object purpose = constraints.get("purpose");
+        String purposeStr = purpose != null ? purpose.toString().trim() : "";
+        this.requiredPurpose = purposeStr.isEmpty() ? null : purposeStr;
+        this.requiredPurposeId = requiredPurpose != null ? DPVPurpose.getPurposeId(requiredPurpose) : -1;
+        this.requiredPurposeLower = requiredPurpose != null ? normalizePurpose(requiredPurpose).toLowerCase() : null;
+
+        Object expiration = constraints.get("expiration");
+        String expirationStr = expiration != null ? expiration.toString().trim() : "";
+        long expiry = NO_EXPIRY;
+        if (!expirationStr.isEmpty()) {
+            try {
+                expiry = LocalDate.parse(expirationStr, DateTimeFormatter.ISO_LOCAL_DATE).toEpochDay();
+            } catch (Exception e) {
+                // An unparseable expiration never permits
+                System.err.println("Error parsing expiration date: " + e.getMessage());
+                expiry = INVALID_EXPIRY;
+            }
+        }
+        this.expiryEpochDay = expiry;
+        this.active = expiry >= todayEpochDay;
+
+        Map<String, Object> aiRestrictions = group.getAiRestrictions();
+        this.aiRestricted = aiRestrictions != null && !aiRestrictions.isEmpty();
+        this.aiTrainingAllowed = !aiRestricted || !Boolean.FALSE.equals(aiRestrictions.get("allowAiTraining"));
+        Object algorithm = aiRestricted ? aiRestrictions.get("aiAlgorithm") : null;
+        String algorithmStr = algorithm != null ? algorithm.toString().trim() : "";
+        this.requiredAlgorithm = algorithmStr.isEmpty() ? null : algorithmStr;
+
+        this.obligations = Collections.unmodifiableList(buildObligations(group));
+    }
+
+    public static CompiledPolicyGroup compile(PolicyGroupDTO group, Long subjectId) {
+        return compile(group, subjectId, LocalDate.now().toEpochDay());
+    }
+
+    static CompiledPolicyGroup compile(PolicyGroupDTO group, Long subjectId, long todayEpochDay) {
+        return new CompiledPolicyGroup(group, subjectId, todayEpochDay);
+    }
+
+    /**
+     * Deactivated copy, once the group has passed its expiration
+     */
+    CompiledPolicyGroup deactivated() {
+        return new CompiledPolicyGroup(this, false);
+    }
+
+    boolean isExpiredOn(long epochDay) {
+        return expiryEpochDay < epochDay;
+    }
+
+    public PolicyGroupDTO getGroup() {
+        return group;
+    }
+
+    public String getId() {
+        return group.getId();
+    }
+
+    public String getName() {
+        return group.getName();
+    }
+
+    public Long getSubjectId() {
+        return subjectId;
+    }
+
+    /**
+     * False once the group's expiration date had passed when it was compiled or swept
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Last day the group permits, or null if it never expires
+     */
+    public LocalDate getExpirationDate() {
+        return expiryEpochDay == NO_EXPIRY || expiryEpochDay == INVALID_EXPIRY ? null : LocalDate.ofEpochDay(expiryEpochDay);
+    }
+
+    /**
+     * Purpose and expiration constraints. Purposes are not checked for aiTraining.
+     */
+    public boolean satisfiesConstraints(AccessRequestDTO request) {
+        // Does not wait for the sweeper, which shares the scheduler with long-running jobs
+        if (!active || (expiryEpochDay != NO_EXPIRY && isExpiredOn(LocalDate.now().toEpochDay()))) {
+            return false;
+        }
+        if (requiredPurpose == null || "aiTraining".equals(request.getAction())) {
+            return true;
+        }
+
+        String requestPurpose = request.getPurpose();
+        if (requestPurpose == null || requestPurpose.trim().isEmpty()) {
+            return false;
+        }
+
+        // DPV purposes (URIs or labels): the request purpose must be the required one or a subclass of it
+        int requestPurposeId = requiredPurposeId >= 0 ? DPVPurpose.getPurposeId(requestPurpose.trim()) : -1;
+        if (requestPurposeId >= 0) {
+            return DPVPurpose.isSubsumedBy(requestPurposeId, requiredPurposeId);
+        }
+
+        // Free-text purposes outside the taxonomy keep the substring match
+        return normalizePurpose(requestPurpose).toLowerCase().contains(requiredPurposeLower);
+    }
+
+    /**
+     * AI training restrictions; only apply to the aiTraining action
+     */
+    public boolean satisfiesAiRestrictions(AccessRequestDTO request) {
+        if (!aiRestricted || !"aiTraining".equals(request.getAction())) {
+            return true;
+        }
+        if (!aiTrainingAllowed) {
+            return false;
+        }
+        if (requiredAlgorithm == null) {
+            return true;
+        }
+
+        String requestedAlgorithm = request.getAiAlgorithm();
+        return requestedAlgorithm != null && requiredAlgorithm.equalsIgnoreCase(requestedAlgorithm.trim());
+    }
+
+    public List<ObligationDTO> getObligations() {
+        return obligations;
+    }
+
+    /**
+     * Normalize purpose for comparison (supports both DPV URIs and labels)
+     */
+    private static String normalizePurpose(String purpose) {
+        // If it's a URI, try to convert to label
+        if (purpose.startsWith("http")) {
+            return DPVPurpose.getLabel(purpose);
+        }
+        return purpose;
+    }
+
+    private static List<ObligationDTO> buildObligations(PolicyGroupDTO policy) {
+        List<ObligationDTO> obligations = new ArrayList<>();
+
+        Map<String, Object> constraints = policy.getConstraints();
+        Map<String, Object> consequences = policy.getConsequences();
+
+        // Check for notification requirement
+        if (constraints != null && constraints.getOrDefault("requiresNotification", false).equals(true)) {
+            ObligationDTO notification = new ObligationDTO();
+            notification.setType("notify");
+
+            String notificationType = "email";
+            if (consequences != null && consequences.containsKey("notificationType")) {
+                notificationType = consequences.get("notificationType").toString();
+            }
+
+            notification.getDetails().put("method", notificationType);
+            obligations.add(notification);
+        }
+
+        // Check for compensation
+        if (consequences != null && consequences.containsKey("compensationAmount")) {
+            String amount = consequences.get("compensationAmount").toString().trim();
+
+            if (!amount.isEmpty()) {
+                ObligationDTO compensation = new ObligationDTO();
+                compensation.setType("compensate");
+                compensation.getDetails().put("amount", amount);
+                obligations.add(compensation);
+            }
+        }
+
+        // Check for transformation duties (ODS actions)
+        if (policy.getTransformations() != null && !policy.getTransformations().isEmpty()) {
+            for (String transformation : policy.getTransformations()) {
+                ObligationDTO transformationObligation = new ObligationDTO();
+                transformationObligation.setType(transformation.toLowerCase());
+                transformationObligation.getDetails().put("action", "Data must be " + transformation.toLowerCase() + "d before use");
+                obligations.add(transformationObligation);
+            }
+        }
+
+        return obligations;
+    }
+}
@@ -12,6 +12,7 @@ import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.DriverManager;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -23,6 +24,15 @@ public class DatabaseConfigService {
     @Autowired
     private OntopService ontopService;
 
+    @Autowired
+    private PolicyDecisionCache decisionCache;
+
+    // Parsed database_configs.properties per controller; dropped by the config write paths
+    private final Map<Long, List<DatabaseConfigDTO>> databaseConfigs = new ConcurrentHashMap<>();
+
+    // Parsed OBDA files by path; replaced by saveSchemaMappings, dropped by the config write paths
+    private final Map<String, ObdaMappingIndex> obdaIndexes = new ConcurrentHashMap<>();
+
     private String getControllerDir(Long controllerId) {
         return ONTOP_DIR + controllerId + "/";
     }
@@ -71,7 +81,10 @@ public class DatabaseConfigService {
 
         // Set the ID in the DTO for reference
         configDTO.setId(dbId);
+        databaseConfigs.remove(controllerId);
+        invalidateObdaIndexes(controllerId);
         ontopService.invalidateControllerCache(controllerId);
+        decisionCache.invalidateController(controllerId);
     }
 
     private String findExistingDatabaseId(Properties properties, DatabaseConfigDTO newConfig) {
@@ -154,7 +167,9 @@ public class DatabaseConfigService {
         String obdaPath = getObdaPath(controllerId, databaseName);
         Files.createDirectories(Paths.get(obdaPath).getParent());
         Files.writeString(Paths.get(obdaPath), obdaContent.toString());
+        obdaIndexes.put(obdaPath, ObdaMappingIndex.parse(obdaContent.toString()));
         ontopService.invalidateControllerCache(controllerId);
+        decisionCache.invalidateController(controllerId);
     }
 
     private void generateEntityMapping(StringBuilder obdaContent, String tableName, String primaryKey, String schemaClass, List<SchemaMappingDTO> mappings) {
@@ -302,6 +317,15 @@ public class DatabaseConfigService {
     }
 
     public List<DatabaseConfigDTO> getDatabasesForController(Long controllerId) throws IOException {
+        List<DatabaseConfigDTO> cached = databaseConfigs.get(controllerId);
+        if (cached == null) {
+            cached = Collections.unmodifiableList(loadDatabasesForController(controllerId));
+            databaseConfigs.put(controllerId, cached);
+        }
+        return new ArrayList<>(cached);
+    }
+
+    private List<DatabaseConfigDTO> loadDatabasesForController(Long controllerId) throws IOException {
         String configPath = getConfigPath(controllerId);
         if (!Files.exists(Paths.get(configPath))) {
             return new ArrayList<>();
@@ -412,39 +436,7 @@ public class DatabaseConfigService {
             String tableName,
             String columnName
     ) throws IOException {
-        String obdaPath = getObdaPath(controllerId, getDatabaseNameFromId(controllerId, databaseId));
-
-        if (!Files.exists(Paths.get(obdaPath))) {
-            return null;
-        }
-
-        List<String> lines = Files.readAllLines(Paths.get(obdaPath));
-
-        // Look for the mapping for this specific table and column
-        for (int i = 0; i < lines.size(); i++) {
-            String line = lines.get(i).trim();
-
-            // Check if this is a mappingId line for our table
-            if (line.startsWith("mappingId") && line.contains(tableName)) {
-                // Look at the target line (next line after mappingId)
-                if (i + 1 < lines.size()) {
-                    String targetLine = lines.get(i + 1).trim();
-
-                    // Check if this mapping includes our column
-                    if (targetLine.contains("{" + columnName + "}")) {
-                        // Extract the Schema.org property
-                        // Pattern: schema:propertyName {columnName}
-                        Pattern pattern = Pattern.compile("schema:(\\w+)\\s+\\{" + columnName + "\\}");
-                        Matcher matcher = pattern.matcher(targetLine);
-                        if (matcher.find()) {
-                            return matcher.group(1);
-                        }
-                    }
-                }
-            }
-        }
-
-        return null;
+        return getObdaIndex(controllerId, databaseId).table(tableName).getSchemaOrgProperty(columnName);
     }
 
     /**
@@ -456,46 +448,74 @@ public class DatabaseConfigService {
             String databaseId,
             String tableName
     ) throws IOException {
-        String obdaPath = getObdaPath(controllerId, getDatabaseNameFromId(controllerId, databaseId));
+        return getObdaIndex(controllerId, databaseId).table(tableName).getEntityType();
+    }
 
-        if (!Files.exists(Paths.get(obdaPath))) {
-            return null;
+    /**
+     * Column and entity-type mappings of a single table, resolved from the parsed OBDA mappings.
+     * Answers the same questions as resolveSchemaOrgProperty / resolveEntityTypeFromTable.
+     */
+    public static class TableMapping {
+        private final String entityType;
+        private final String keyColumn;
+        private final Map<String, String> columnProperties;
+
+        public TableMapping(String entityType, Map<String, String> columnProperties) {
+            this(entityType, null, columnProperties);
         }
 
-        List<String> lines = Files.readAllLines(Paths.get(obdaPath));
+        public TableMapping(String entityType, String keyColumn, Map<String, String> columnProperties) {
+            this.entityType = entityType;
+            this.keyColumn = keyColumn;
+            this.columnProperties = columnProperties;
+        }
 
-        // Look for the mapping for this specific table
-        for (int i = 0; i < lines.size(); i++) {
-            String line = lines.get(i).trim();
+        public String getEntityType() {
+            return entityType;
+        }
 
-            // Check if this is a mappingId line for our table
-            if (line.startsWith("mappingId") && line.contains(tableName)) {
-                // Look at the target line (next line after mappingId)
-                if (i + 1 < lines.size()) {
-                    String targetLine = lines.get(i + 1).trim();
-
-                    // Extract entity type from target line
-                    // Pattern: :EntityType/{primary_key} a schema:EntityType
-                    // Example: :MedicalEntity/{record_id} a schema:MedicalEntity
-
-                    // First pattern: :EntityType/{...}
-                    Pattern pattern1 = Pattern.compile(":(\\w+)/\\{");
-                    Matcher matcher1 = pattern1.matcher(targetLine);
-                    if (matcher1.find()) {
-                        return matcher1.group(1);
-                    }
+        /**
+         * Column holding the record id of the entity URI template (":Person/{user_id}"), if any
+         */
+        public String getKeyColumn() {
+            return keyColumn;
+        }
 
-                    // Second pattern: a schema:EntityType
-                    Pattern pattern2 = Pattern.compile("a schema:(\\w+)");
-                    Matcher matcher2 = pattern2.matcher(targetLine);
-                    if (matcher2.find()) {
-                        return matcher2.group(1);
-                    }
-                }
-            }
+        public String getSchemaOrgProperty(String columnName) {
+            return columnProperties.get(columnName);
         }
 
-        return null;
+        public Map<String, String> getColumnProperties() {
+            return Collections.unmodifiableMap(columnProperties);
+        }
+    }
+
+    /**
+     * Resolves every column of a table to its Schema.org property, plus the table's entity type.
+     * Used by batch evaluation so the mappings are resolved once per table instead of once per cell.
+     */
+    public TableMapping resolveTableMapping(Long controllerId, String databaseId, String tableName) throws IOException {
+        return getObdaIndex(controllerId, databaseId).table(tableName);
+    }
+
+    /**
+     * Parsed OBDA mappings of a database, read from disk only on first use after a change
+     */
+    private ObdaMappingIndex getObdaIndex(Long controllerId, String databaseId) throws IOException {
+        String obdaPath = getObdaPath(controllerId, getDatabaseNameFromId(controllerId, databaseId));
+        ObdaMappingIndex index = obdaIndexes.get(obdaPath);
+        if (index == null) {
+            index = Files.exists(Paths.get(obdaPath))
+                    ? ObdaMappingIndex.parse(Files.readAllLines(Paths.get(obdaPath)))
+                    : ObdaMappingIndex.EMPTY;
+            obdaIndexes.put(obdaPath, index);
+        }
+        return index;
+    }
+
+    private void invalidateObdaIndexes(Long controllerId) {
+        String controllerDir = getControllerDir(controllerId);
+        obdaIndexes.keySet().removeIf(path -> path.startsWith(controllerDir));
     }
 
     // Helper method to get database name from UUID
@@ -533,6 +553,9 @@ public class DatabaseConfigService {
                 properties.store(writer, "Database configurations for controller " + controllerId);
             }
         }
+        databaseConfigs.remove(controllerId);
+        invalidateObdaIndexes(controllerId);
         ontopService.invalidateControllerCache(controllerId);
+        decisionCache.invalidateController(controllerId);
     }
 }
\ No newline at end of file
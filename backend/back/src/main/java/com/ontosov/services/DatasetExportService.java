@@ -0,0 +1,295 @@
+package com.ontosov.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ontosov.dto.AccessRequestDTO;
+import com.ontosov.dto.ColumnMaskDTO;
+import com.ontosov.dto.DatabaseConfigDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.*;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Streams a whole controller table for AI training, filtered per subject.
+ *
+ * Rows are read through a JDBC cursor and written as NDJSON or CSV as they arrive. Each row
+ * is attributed to a subject through the column mapped to schema:taxID; that subject's
+ * aiTraining column mask (including the aiAlgorithm restriction) nulls denied columns, and
+ * records denied by entity-level policies are skipped. Rows whose subject is unknown are
+ * skipped as well, matching the PDP's "Subject not found" denial. When the table has no key
+ * column, rows cannot be matched to records, so a subject denying any record is excluded.
+ */
+@Service
+public class DatasetExportService {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final int FETCH_SIZE = 1000;
+    private static final String SUBJECT_PROPERTY = "taxID";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private PolicyEvaluationService policyEvaluationService;
+
+    @Autowired
+    private DatabaseConfigService databaseConfigService;
+
+    @Value("${ontosov.export.subject-cache-size:10000}")
+    private int subjectCacheSize = 10000;
+
+    /**
+     * A validated export: where to read from and how rows map to subjects
+     */
+    public static class ExportPlan {
+        private final Long controllerId;
+        private final DatabaseConfigDTO database;
+        private final String tableName;
+        private final String subjectColumn;
+        private final String keyColumn;
+        private final String aiAlgorithm;
+        private final String purpose;
+        private final boolean csv;
+
+        ExportPlan(Long controllerId, DatabaseConfigDTO database, String tableName, String subjectColumn,
+                   String keyColumn, String aiAlgorithm, String purpose, boolean csv) {
+            this.controllerId = controllerId;
+            this.database = database;
+            this.tableName = tableName;
+            this.subjectColumn = subjectColumn;
+            this.keyColumn = keyColumn;
+            this.aiAlgorithm = aiAlgorithm;
+            this.purpose = purpose;
+            this.csv = csv;
+        }
+
+        public boolean isCsv() {
+            return csv;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+    }
+
+    /**
+     * What one subject allows in the export
+     */
+    private static class SubjectFilter {
+        private final boolean excluded;
+        private final Set<String> maskedColumns;
+        private final Set<String> deniedRecordIds;
+        private final List<EntitySelector> deniedSelectors;
+
+        SubjectFilter(boolean excluded, Set<String> maskedColumns, Set<String> deniedRecordIds,
+                      List<EntitySelector> deniedSelectors) {
+            this.excluded = excluded;
+            this.maskedColumns = maskedColumns;
+            this.deniedRecordIds = deniedRecordIds;
+            this.deniedSelectors = deniedSelectors;
+        }
+
+        boolean deniesRecord(String recordId) {
+            if (deniedRecordIds.contains(recordId)) {
+                return true;
+            }
+            for (EntitySelector selector : deniedSelectors) {
+                if (selector.covers(recordId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Validates the export request before any output is written.
+     * Throws IllegalArgumentException if the table cannot be exported.
+     */
+    public ExportPlan prepare(Long controllerId, String dataSource, String tableName,
+                              String aiAlgorithm, String purpose, String format) throws IOException {
+        if (tableName == null || !IDENTIFIER.matcher(tableName).matches()) {
+            throw new IllegalArgumentException("Invalid table name: " + tableName);
+        }
+        if (format != null && !format.equalsIgnoreCase("ndjson") && !format.equalsIgnoreCase("csv")) {
+            throw new IllegalArgumentException("Unsupported format: " + format + " (use ndjson or csv)");
+        }
+
+        DatabaseConfigDTO database = databaseConfigService.getDatabasesForController(controllerId).stream()
+                .filter(db -> db.getId().equals(dataSource))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Database not found: " + dataSource));
+
+        DatabaseConfigService.TableMapping mapping =
+                databaseConfigService.resolveTableMapping(controllerId, dataSource, tableName);
+        String subjectColumn = null;
+        for (Map.Entry<String, String> column : mapping.getColumnProperties().entrySet()) {
+            if (SUBJECT_PROPERTY.equals(column.getValue())) {
+                subjectColumn = column.getKey();
+            }
+        }
+        if (subjectColumn == null) {
+            throw new IllegalArgumentException("Table " + tableName +
+                    " has no column mapped to schema:" + SUBJECT_PROPERTY + "; rows cannot be attributed to subjects");
+        }
+
+        return new ExportPlan(controllerId, database, tableName, subjectColumn, mapping.getKeyColumn(),
+                aiAlgorithm, purpose, "csv".equalsIgnoreCase(format));
+    }
+
+    /**
+     * Reads the table with a cursor and writes the permitted rows to the writer
+     */
+    public void export(ExportPlan plan, Writer writer) throws SQLException, IOException {
+        DatabaseConfigDTO database = plan.database;
+        try (Connection connection = DriverManager.getConnection(database.getJdbcUrl(), database.getUsername(), database.getPassword())) {
+            // PostgreSQL only streams with a fetch size inside a transaction; MySQL streams with MIN_VALUE
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+
+            try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize("mysql".equalsIgnoreCase(database.getDatabaseType()) ? Integer.MIN_VALUE : FETCH_SIZE);
+                try (ResultSet rs = statement.executeQuery("SELECT * FROM " + plan.tableName)) {
+                    writeRows(plan, rs, writer);
+                }
+            } finally {
+                connection.rollback();
+            }
+        }
+    }
+
+    /**
+     * Applies the per-subject filters to each row of the result set as it is read
+     */
+    void writeRows(ExportPlan plan, ResultSet rs, Writer writer) throws SQLException, IOException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] columns = new String[columnCount];
+        String[] columnKeys = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columns[i] = metaData.getColumnLabel(i + 1);
+            columnKeys[i] = normalize(columns[i]);
+        }
+
+        if (plan.csv) {
+            writer.write(csvLine(Arrays.asList((Object[]) columns)));
+        }
+
+        // Bounded per-export memo, so a subject's policies are evaluated once, not once per row
+        Map<String, SubjectFilter> filters = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SubjectFilter> eldest) {
+                return size() > subjectCacheSize;
+            }
+        };
+
+        long exported = 0;
+        long skipped = 0;
+        while (rs.next()) {
+            String taxId = rs.getString(plan.subjectColumn);
+            SubjectFilter filter = taxId != null ? filters.computeIfAbsent(taxId, id -> loadFilter(plan, id)) : null;
+
+            if (filter == null || filter.excluded ||
+                    (plan.keyColumn != null && filter.deniesRecord(rs.getString(plan.keyColumn)))) {
+                skipped++;
+                continue;
+            }
+
+            List<Object> values = new ArrayList<>(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                values.add(filter.maskedColumns.contains(columnKeys[i]) ? null : exportValue(rs.getObject(i + 1)));
+            }
+
+            if (plan.csv) {
+                writer.write(csvLine(values));
+            } else {
+                Map<String, Object> row = new LinkedHashMap<>();
+                for (int i = 0; i < columnCount; i++) {
+                    row.put(columns[i], values.get(i));
+                }
+                writer.write(objectMapper.writeValueAsString(row));
+                writer.write('\n');
+            }
+            exported++;
+        }
+
+        writer.flush();
+        System.out.println("AI training export of " + plan.tableName + ": " + exported + " rows exported, " +
+                skipped + " rows skipped");
+    }
+
+    private SubjectFilter loadFilter(ExportPlan plan, String taxId) {
+        AccessRequestDTO request = new AccessRequestDTO();
+        request.setControllerId(plan.controllerId);
+        request.setSubjectTaxId(taxId);
+        request.setAction("aiTraining");
+        request.setAiAlgorithm(plan.aiAlgorithm);
+        request.setPurpose(plan.purpose);
+        request.setDataSource(plan.database.getId());
+        request.setTableName(plan.tableName);
+
+        // Unknown subject, or a subject whose policies deny every governed column of the table
+        ColumnMaskDTO mask = policyEvaluationService.evaluateColumnMask(request);
+        if (mask.getReason() != null || (mask.getPermittedColumns().isEmpty() && !mask.getDeniedColumns().isEmpty())) {
+            return new SubjectFilter(true, Collections.emptySet(), Collections.emptySet(), Collections.emptyList());
+        }
+
+        // A selector denying all records of the table excludes the subject even without a key column
+        List<EntitySelector> deniedSelectors = policyEvaluationService.findDeniedRecordSelectors(request);
+        for (EntitySelector selector : deniedSelectors) {
+            if (selector.isWholeType()) {
+                return new SubjectFilter(true, Collections.emptySet(), Collections.emptySet(), Collections.emptyList());
+            }
+        }
+
+        Set<String> deniedRecordIds = new HashSet<>(policyEvaluationService.findDeniedRecordIds(request));
+        // Without a key column a denied record cannot be told apart from the others; fail closed
+        if (plan.keyColumn == null && (!deniedRecordIds.isEmpty() || !deniedSelectors.isEmpty())) {
+            return new SubjectFilter(true, Collections.emptySet(), Collections.emptySet(), Collections.emptyList());
+        }
+        // Mapped column names and JDBC labels may differ in case depending on the database
+        Set<String> maskedColumns = new HashSet<>();
+        for (String column : mask.getDeniedColumns().keySet()) {
+            maskedColumns.add(normalize(column));
+        }
+        return new SubjectFilter(false, maskedColumns, deniedRecordIds, deniedSelectors);
+    }
+
+    private static String normalize(String column) {
+        String name = column;
+        if (name.length() > 1 && (name.startsWith("\"") || name.startsWith("`"))) {
+            name = name.substring(1, name.length() - 1);
+        }
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private Object exportValue(Object value) {
+        if (value == null || value instanceof Number || value instanceof Boolean) {
+            return value;
+        }
+        return value.toString();
+    }
+
+    private String csvLine(List<Object> values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            Object value = values.get(i);
+            if (value == null) {
+                continue;
+            }
+            String text = value.toString();
+            if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+                text = "\"" + text.replace("\"", "\"\"") + "\"";
+            }
+            line.append(text);
+        }
+        return line.append('\n').toString();
+    }
+}
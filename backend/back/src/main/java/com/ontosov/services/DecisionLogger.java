@@ -0,0 +1,60 @@
+package com.ontosov.services;
+
+import com.ontosov.dto.AccessRequestDTO;
+import com.ontosov.dto.PolicyDecisionDTO;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sampled, asynchronous diagnostic log of PDP decisions.
+ *
+ * A sampled decision is handed to a single background thread that formats and writes it,
+ * so the request thread neither builds log strings nor contends on the log output. When the
+ * queue is full the entry is dropped rather than blocking the decision.
+ */
+@Component
+public class DecisionLogger {
+    private static final Logger log = LoggerFactory.getLogger(DecisionLogger.class);
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private final double sampleRate;
+    private final ThreadPoolExecutor executor;
+
+    public DecisionLogger(@Value("${ontosov.pdp.log.sample-rate:0.01}") double sampleRate) {
+        this.sampleRate = sampleRate;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "pdp-decision-log");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * Logs a freshly evaluated decision if it falls in the sample
+     */
+    public void log(AccessRequestDTO request, Long subjectId, PolicyDecisionDTO decision) {
+        if (sampleRate <= 0 || (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return;
+        }
+        executor.execute(() -> log.info("PDP decision: subject={} controller={} dataSource={} table={} target={} action={} -> {} {} {}",
+                subjectId, request.getControllerId(), request.getDataSource(), request.getTableName(),
+                request.getRecordId() != null ? request.getRecordId() : request.getDataProperty(),
+                request.getAction(), decision.getResult(), decision.getReasonCode(), decision.getReasonParams()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
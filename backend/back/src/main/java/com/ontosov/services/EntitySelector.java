@@ -0,0 +1,148 @@
+package com.ontosov.services;
+
+import java.util.Objects;
+
+/**
+ * Entity target that covers many records of one entity type at once: all records of the type
+ * ("Order") or a numeric record ID range with optional open ends ("Order/100..199",
+ * "Order/100..", "Order/..199"). A single ODRL policy with a selector target replaces one
+ * policy per record and is matched against record IDs when access is checked.
+ *
+ * recordId() gives a synthetic record ID for the selector itself ("*" or "100..199") so all
+ * records it covers can be decided at once, e.g. to turn a denied selector into a SQL predicate.
+ * A selector covers such an ID when it covers every record the ID stands for.
+ */
+public final class EntitySelector {
+    private static final String ALL_RECORDS = "*";
+    private static final String RANGE = "..";
+
+    private final String entityType;
+    private final Long minId;   // inclusive, null for no lower bound
+    private final Long maxId;   // inclusive, null for no upper bound
+
+    private EntitySelector(String entityType, Long minId, Long maxId) {
+        this.entityType = entityType;
+        this.minId = minId;
+        this.maxId = maxId;
+    }
+
+    /**
+     * Parses "Type" or "Type/min..max". Throws IllegalArgumentException for anything else.
+     */
+    public static EntitySelector parse(String selector) {
+        if (selector == null || selector.isBlank()) {
+            throw new IllegalArgumentException("Empty entity selector");
+        }
+        int slash = selector.indexOf('/');
+        String entityType = (slash < 0 ? selector : selector.substring(0, slash)).trim();
+        if (entityType.isEmpty()) {
+            throw new IllegalArgumentException("Entity selector without entity type: " + selector);
+        }
+        if (slash < 0) {
+            return new EntitySelector(entityType, null, null);
+        }
+
+        String range = selector.substring(slash + 1).trim();
+        int separator = range.indexOf(RANGE);
+        if (separator < 0) {
+            throw new IllegalArgumentException("Entity selector range must be min..max: " + selector);
+        }
+        try {
+            Long minId = parseBound(range.substring(0, separator));
+            Long maxId = parseBound(range.substring(separator + RANGE.length()));
+            if (minId != null && maxId != null && minId > maxId) {
+                throw new IllegalArgumentException("Empty entity selector range: " + selector);
+            }
+            return new EntitySelector(entityType, minId, maxId);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Entity selector bounds must be integers: " + selector);
+        }
+    }
+
+    private static Long parseBound(String bound) {
+        return bound.isBlank() ? null : Long.parseLong(bound.trim());
+    }
+
+    /**
+     * Whether every record the given record ID stands for is covered: a plain record ID,
+     * or the recordId() of another selector of the same type
+     */
+    public boolean covers(String recordId) {
+        if (recordId == null) {
+            return false;
+        }
+        if (isWholeType()) {
+            return true;
+        }
+        if (ALL_RECORDS.equals(recordId)) {
+            return false;
+        }
+
+        try {
+            int separator = recordId.indexOf(RANGE);
+            if (separator < 0) {
+                long id = Long.parseLong(recordId.trim());
+                return (minId == null || id >= minId) && (maxId == null || id <= maxId);
+            }
+            Long from = parseBound(recordId.substring(0, separator));
+            Long to = parseBound(recordId.substring(separator + RANGE.length()));
+            return (minId == null || (from != null && from >= minId)) &&
+                    (maxId == null || (to != null && to <= maxId));
+        } catch (NumberFormatException e) {
+            // Non-numeric record IDs are only covered by whole-type selectors
+            return false;
+        }
+    }
+
+    /**
+     * Synthetic record ID standing for all records of this selector
+     */
+    public String recordId() {
+        if (isWholeType()) {
+            return ALL_RECORDS;
+        }
+        return (minId != null ? minId.toString() : "") + RANGE + (maxId != null ? maxId.toString() : "");
+    }
+
+    public boolean isWholeType() {
+        return minId == null && maxId == null;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public Long getMinId() {
+        return minId;
+    }
+
+    public Long getMaxId() {
+        return maxId;
+    }
+
+    /**
+     * Canonical form, as accepted by parse
+     */
+    @Override
+    public String toString() {
+        return isWholeType() ? entityType : entityType + "/" + recordId();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EntitySelector)) {
+            return false;
+        }
+        EntitySelector other = (EntitySelector) o;
+        return entityType.equals(other.entityType) && Objects.equals(minId, other.minId) &&
+                Objects.equals(maxId, other.maxId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(entityType, minId, maxId);
+    }
+}
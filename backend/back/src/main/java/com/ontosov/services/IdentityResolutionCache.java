@@ -0,0 +1,86 @@
+package com.ontosov.services;
+
+import com.ontosov.models.User;
+import com.ontosov.repositories.UserRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the identity lookups of the PDP hot path: subject tax ID -> subject ID and
+ * controller ID -> controller name (the first half of the "controllerName - databaseName"
+ * data source identifier; database configs are cached by DatabaseConfigService).
+ *
+ * Only found users are cached, so unknown tax IDs cannot fill the cache and a new signup
+ * is visible immediately. User write paths call invalidateUser.
+ */
+@Component
+public class IdentityResolutionCache {
+
+    private final UserRepo userRepo;
+
+    private final ConcurrentHashMap<String, Long> subjectIds = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, String> controllerNames = new ConcurrentHashMap<>();
+
+    @Autowired
+    public IdentityResolutionCache(UserRepo userRepo) {
+        this.userRepo = userRepo;
+    }
+
+    /**
+     * Subject ID for a tax ID, or null if no such subject exists
+     */
+    public Long getSubjectId(String taxId) {
+        if (taxId == null) {
+            return null;
+        }
+        Long subjectId = subjectIds.get(taxId);
+        if (subjectId == null) {
+            User subject = userRepo.findByTaxid(taxId);
+            if (subject == null) {
+                return null;
+            }
+            subjectId = subject.getId();
+            subjectIds.put(taxId, subjectId);
+        }
+        return subjectId;
+    }
+
+    /**
+     * Controller name for an ID, or null if no such user exists
+     */
+    public String getControllerName(Long controllerId) {
+        if (controllerId == null) {
+            return null;
+        }
+        String name = controllerNames.get(controllerId);
+        if (name == null) {
+            User controller = userRepo.findById(controllerId).orElse(null);
+            if (controller == null || controller.getName() == null) {
+                return null;
+            }
+            name = controller.getName();
+            controllerNames.put(controllerId, name);
+        }
+        return name;
+    }
+
+    /**
+     * Drops everything cached for a user after it was created or changed
+     */
+    public void invalidateUser(User user) {
+        if (user.getTaxid() != null) {
+            subjectIds.remove(user.getTaxid());
+        }
+        if (user.getId() != null) {
+            controllerNames.remove(user.getId());
+            subjectIds.values().removeIf(user.getId()::equals);
+        }
+    }
+
+    public void invalidateAll() {
+        subjectIds.clear();
+        controllerNames.clear();
+    }
+}
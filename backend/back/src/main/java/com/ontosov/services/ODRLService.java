@@ -7,22 +7,27 @@ import org.eclipse.rdf4j.query.TupleQueryResult;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.apache.jena.query.*;
 import org.apache.jena.rdf.model.*;
-import org.apache.jena.tdb2.TDB2Factory;
 import org.apache.jena.vocabulary.RDF;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ontosov.constants.DPVPurpose;
 import com.ontosov.dto.PolicyAssignmentDTO;
 import com.ontosov.dto.PolicyGroupDTO;
+import com.ontosov.dto.PolicySnapshotDTO;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 @Service
 public class ODRLService {
@@ -35,9 +40,97 @@ public class ODRLService {
     private static final String DPV_NS = "https://w3id.org/dpv#";
     private static final String OAC_NS = "https://w3id.org/oac/";
 
-    private final ExecutorService executorService = Executors.newFixedThreadPool(10);
-    private final Dataset dataset;
-    private final Model odrlModel;
+    // Prepared queries (see SparqlTemplates)
+    private static final String RULES_PATTERN =
+            "SELECT ?group ?kind ?action ?assigner ?assignee ?source ?property ?entityId ?selector\n" +
+            "WHERE {\n" +
+            "  ?policy rdf:type odrl:Policy ;\n" +
+            "          ?kind ?rule .\n" +
+            "  FILTER(?kind = odrl:permission || ?kind = odrl:prohibition)\n" +
+            "  ?rule odrl:target ?target ;\n" +
+            "        odrl:action ?action ;\n" +
+            "        odrl:assigner ?assigner .\n" +
+            "%s" +
+            "  ?target onto:dataSource ?source .\n" +
+            "  OPTIONAL { ?policy onto:policyGroup ?group }\n" +
+            "  OPTIONAL { ?rule odrl:assignee ?assignee }\n" +
+            "  OPTIONAL { ?target onto:dataProperty ?property }\n" +
+            "  OPTIONAL { ?target onto:entityId ?entityId }\n" +
+            "  OPTIONAL { ?target onto:entitySelector ?selector }\n" +
+            "}";
+    // All rules of a shard, backing the decision index and so checkPropertyAccess,
+    // checkEntityAccess and policyExistsFor*
+    private static final SparqlTemplates.Template RULES_QUERY =
+            SparqlTemplates.register("odrl.rules", String.format(RULES_PATTERN, ""));
+    private static final SparqlTemplates.Template SUBJECT_RULES_QUERY =
+            SparqlTemplates.register("odrl.subject-rules",
+                    String.format(RULES_PATTERN, "  FILTER(?assigner = ?subject)\n"), "subject");
+    private static final SparqlTemplates.Template GROUP_ASSIGNMENTS_QUERY = SparqlTemplates.register(
+            "odrl.group-assignments",
+            "SELECT DISTINCT ?source ?property ?entityId ?selector\n" +
+            "WHERE {\n" +
+            "  ?policy rdf:type odrl:Policy ;\n" +
+            "          onto:policyGroup ?group ;\n" +
+            "          odrl:permission ?permission .\n" +
+            "  ?permission odrl:target ?target ;\n" +
+            "              odrl:assigner ?subject .\n" +
+            "  ?target onto:dataSource ?source .\n" +
+            "  OPTIONAL { ?target onto:dataProperty ?property }\n" +
+            "  OPTIONAL { ?target onto:entityId ?entityId }\n" +
+            "  OPTIONAL { ?target onto:entitySelector ?selector }\n" +
+            "}",
+            "group", "subject");
+    private static final String SUBJECT_RULE_PATTERN =
+            "SELECT ?group ?source ?dataKey ?action\n" +
+            "WHERE {\n" +
+            "  ?policy rdf:type odrl:Policy ;\n" +
+            "          onto:policyGroup ?group ;\n" +
+            "          %s ?rule .\n" +
+            "  ?rule odrl:target ?target ;\n" +
+            "        odrl:action ?action ;\n" +
+            "        odrl:assigner ?subject .\n" +
+            "  ?target onto:dataSource ?source .\n" +
+            "  {\n" +
+            "    # Property policies\n" +
+            "    ?target onto:dataProperty ?dataKey .\n" +
+            "  }\n" +
+            "  UNION\n" +
+            "  {\n" +
+            "    # Entity policies\n" +
+            "    ?target onto:entityId ?dataKey .\n" +
+            "  }\n" +
+            "  UNION\n" +
+            "  {\n" +
+            "    # Entity selector policies\n" +
+            "    ?target onto:entitySelector ?dataKey .\n" +
+            "  }\n" +
+            "}";
+    private static final SparqlTemplates.Template SUBJECT_PERMISSIONS_QUERY = SparqlTemplates.register(
+            "odrl.subject-permissions", String.format(SUBJECT_RULE_PATTERN, "odrl:permission"), "subject");
+    private static final SparqlTemplates.Template SUBJECT_PROHIBITIONS_QUERY = SparqlTemplates.register(
+            "odrl.subject-prohibitions", String.format(SUBJECT_RULE_PATTERN, "odrl:prohibition"), "subject");
+
+    // Shared blocking-work pool, platform or virtual threads (see ExecutionConfig)
+    @Autowired
+    @Qualifier("blockingTaskExecutor")
+    private ExecutorService executorService;
+
+    // Targets per in-memory chunk when policies are generated in bulk
+    @Value("${ontosov.policy.bulk-chunk-size:5000}")
+    private int bulkChunkSize = 5000;
+
+    // Builds target chunks while the caller holds a shard's write transaction; bounded and
+    // separate from the common ForkJoinPool, so other parallel work cannot stall the writer
+    private final ThreadPoolExecutor targetExecutor;
+
+    // Sharded TDB2 storage shared with PolicyGroupService; transactions are per shard
+    private final PolicyStore policyStore;
+
+    // Compiled view of the ODRL graph used to answer access checks without a TDB2 transaction
+    private final PolicyDecisionIndex decisionIndex = new PolicyDecisionIndex();
+
+    // Refreshes of one subject run one at a time, striped by subject ID (see refreshDecisionIndex)
+    private final Object[] refreshLocks = new Object[64];
 
     // ODRL vocabulary
     private final Resource policyResource;
@@ -91,21 +184,28 @@ public class ODRLService {
     private final Property odrlDutyProperty;
     private final Property entityTypeProperty;
     private final Property entityIdProperty;
+    private final Property entitySelectorProperty;
+    private final Property definitionHashProperty;
 
     private final Resource isAOperator;
     private final Resource eqOperator;
 
-    public ODRLService() {
-        // Initialize dataset and model
-        String triplestorePath = "src/main/resources/triplestore";
-        try {
-            Files.createDirectories(Paths.get(triplestorePath));
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to create triplestore directory", e);
+    @Autowired
+    public ODRLService(PolicyStore policyStore) {
+        this.policyStore = policyStore;
+        int targetThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        this.targetExecutor = new ThreadPoolExecutor(targetThreads, targetThreads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "odrl-target-builder");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.targetExecutor.allowCoreThreadTimeOut(true);
+        for (int i = 0; i < refreshLocks.length; i++) {
+            refreshLocks[i] = new Object();
         }
-
-        this.dataset = TDB2Factory.connectDataset(triplestorePath);
-        this.odrlModel = dataset.getNamedModel(ODRL_NS + "policies");
+        // Vocabulary nodes are shared by all shards
+        Model odrlModel = ModelFactory.createDefaultModel();
 
         // Initialize ODRL vocabulary
         this.policyResource = odrlModel.createResource(ODRL_NS + "Policy");
@@ -164,12 +264,122 @@ public class ODRLService {
         this.odrlDutyProperty = odrlModel.createProperty(ODRL_NS, "duty");
         this.entityTypeProperty = odrlModel.createProperty(ONTOSOV_NS, "entityType");
         this.entityIdProperty = odrlModel.createProperty(ONTOSOV_NS, "entityId");
+        this.entitySelectorProperty = odrlModel.createProperty(ONTOSOV_NS, "entitySelector");
+        this.definitionHashProperty = odrlModel.createProperty(ONTOSOV_NS, "definitionHash");
 
         // Operator resources
         this.isAOperator = odrlModel.createResource(ODRL_NS + "isA");
         this.eqOperator = odrlModel.createResource(ODRL_NS + "eq");
     }
 
+    /**
+     * Builds the in-memory decision index from the ODRL graph at startup
+     */
+    @PostConstruct
+    public void buildDecisionIndex() {
+        long start = System.currentTimeMillis();
+        Map<Long, PolicyDecisionIndex.SubjectRules> rules = new HashMap<>();
+        for (PolicyStore.Shard shard : policyStore.getShards()) {
+            shard.getDataset().begin(ReadWrite.READ);
+            try {
+                rules.putAll(loadSubjectRules(shard.getOdrlModel(), null));
+            } finally {
+                shard.getDataset().end();
+            }
+        }
+        decisionIndex.replaceAll(rules);
+        log.info("Built policy decision index for {} subjects in {} ms",
+                decisionIndex.getSubjectCount(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Rebuilds the decision index entries of a single subject from committed data.
+     * Must be called after the write transaction that changed the subject's policies has ended.
+     *
+     * Refreshes of the same subject are serialised from opening the read transaction to replacing
+     * the index entry. Otherwise a refresh reading an older snapshot could finish after a later
+     * one and put back rules that are out of date.
+     */
+    public void refreshDecisionIndex(Long subjectId) {
+        PolicyStore.Shard shard = policyStore.shardFor(subjectId);
+        Dataset dataset = shard.getDataset();
+        synchronized (refreshLocks[Math.floorMod(Long.hashCode(subjectId), refreshLocks.length)]) {
+            dataset.begin(ReadWrite.READ);
+            try {
+                Map<Long, PolicyDecisionIndex.SubjectRules> rules = loadSubjectRules(shard.getOdrlModel(), subjectId);
+                decisionIndex.replaceSubject(subjectId, rules.get(subjectId));
+            } finally {
+                dataset.end();
+            }
+        }
+    }
+
+    /**
+     * Reads all permission and prohibition rules of a shard, optionally restricted to one subject.
+     * Expects an open transaction.
+     */
+    private Map<Long, PolicyDecisionIndex.SubjectRules> loadSubjectRules(Model odrlModel, Long subjectId) {
+        Map<Long, PolicyDecisionIndex.SubjectRules> result = new HashMap<>();
+        String subjectPrefix = ONTOSOV_NS + "subject-";
+
+        try (QueryExecution qexec = subjectId != null ?
+                SUBJECT_RULES_QUERY.execute(odrlModel, Map.of("subject", subjectResource(subjectId))) :
+                RULES_QUERY.execute(odrlModel)) {
+            ResultSet rs = qexec.execSelect();
+            while (rs.hasNext()) {
+                QuerySolution solution = rs.next();
+
+                String assignerUri = solution.getResource("assigner").getURI();
+                if (assignerUri == null || !assignerUri.startsWith(subjectPrefix)) {
+                    continue;
+                }
+                Long ruleSubject;
+                try {
+                    ruleSubject = Long.parseLong(assignerUri.substring(subjectPrefix.length()));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+
+                String groupId = null;
+                if (solution.contains("group")) {
+                    String groupUri = solution.getResource("group").getURI();
+                    groupId = groupUri.substring(groupUri.lastIndexOf('#') + 1);
+                }
+
+                PolicyDecisionIndex.SubjectRules subjectRules =
+                        result.computeIfAbsent(ruleSubject, k -> new PolicyDecisionIndex.SubjectRules());
+                boolean prohibition = (ODRL_NS + "prohibition").equals(solution.getResource("kind").getURI());
+                if (solution.contains("selector")) {
+                    EntitySelector selector;
+                    try {
+                        selector = EntitySelector.parse(solution.getLiteral("selector").getString());
+                    } catch (IllegalArgumentException e) {
+                        log.warn("Skipping rule with invalid entity selector: {}", e.getMessage());
+                        continue;
+                    }
+                    subjectRules.addSelectorRule(
+                            groupId,
+                            prohibition,
+                            solution.getLiteral("source").getString(),
+                            selector,
+                            solution.getResource("action").getURI(),
+                            solution.contains("assignee") ? solution.getResource("assignee").getURI() : null);
+                    continue;
+                }
+
+                subjectRules.addRule(
+                        groupId,
+                        prohibition,
+                        solution.getLiteral("source").getString(),
+                        solution.contains("property") ? solution.getLiteral("property").getString() : null,
+                        solution.contains("entityId") ? solution.getLiteral("entityId").getString() : null,
+                        solution.getResource("action").getURI(),
+                        solution.contains("assignee") ? solution.getResource("assignee").getURI() : null);
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns cached action resource for performance.
      * Avoids creating new Resource objects for every policy.
@@ -181,10 +391,16 @@ public class ODRLService {
             case "share" -> shareAction;
             case "aggregate" -> aggregateAction;
             case "modify" -> modifyAction;
-            default -> odrlModel.createResource(ODRL_NS + action);
+            default -> ResourceFactory.createResource(ODRL_NS + action);
         };
     }
 
+    /**
+     * Writes the ODRL policy of a policy group: a single odrl:Policy per group whose rules list
+     * every action and every assigned target (ODRL compact form), so the group's constraints and
+     * duties are stored once rather than once per (target, action). Readers that match
+     * "?rule odrl:target ?target ; odrl:action ?action" see the same atomic rules as before.
+     */
     public void generatePoliciesFromAssignment(String policyGroupId, PolicyGroupDTO policyGroup,
                                                PolicyAssignmentDTO assignmentDTO, Long subjectId) {
         // Work within the existing transaction - no dataset.begin/end here
@@ -192,107 +408,352 @@ public class ODRLService {
             // Clear any existing policies for this group
             cleanupPoliciesForGroupInTransaction(policyGroupId, subjectId);
 
-            // Handle property assignments
-            if (assignmentDTO.getPropertyAssignments() != null) {
-                for (Map.Entry<String, Set<String>> sourceEntry : assignmentDTO.getPropertyAssignments().entrySet()) {
-                    String dataSource = sourceEntry.getKey();
-                    Set<String> properties = sourceEntry.getValue();
-
-                    for (String property : properties) {
-                        for (String action : Arrays.asList("read", "use", "share", "aggregate", "modify")) {
-                            if (policyGroup.getPermissions().containsKey(action) &&
-                                    policyGroup.getPermissions().get(action)) {
-                                createPropertyPolicy(policyGroupId, subjectId, dataSource, property, action,
-                                        policyGroup.getConstraints(),
-                                        policyGroup.getConsequences(),
-                                        policyGroup.getAiRestrictions(),
-                                        policyGroup.getTransformations());
-                            }
-                        }
+            List<Function<Model, Resource>> targets = targetBuilders(assignmentDTO, subjectId);
+            if (targets.isEmpty() || permittedActions(policyGroup).isEmpty()) {
+                return;
+            }
 
-                        // Explicitly create aiTraining policy if AI restrictions exist
-                        if (policyGroup.getAiRestrictions() != null && !policyGroup.getAiRestrictions().isEmpty()) {
-                            createPropertyPolicy(policyGroupId, subjectId, dataSource, property, "aiTraining",
-                                    policyGroup.getConstraints(),
-                                    policyGroup.getConsequences(),
-                                    policyGroup.getAiRestrictions(),
-                                    policyGroup.getTransformations());
-                        }
-                    }
+            // Build the policy and its targets in memory, then load them in one pass
+            Model policyModel = ModelFactory.createDefaultModel();
+            List<Resource> rules = createGroupPolicy(policyGroupId, policyGroup, subjectId, policyModel);
+            List<Model> generated = new ArrayList<>(buildTargets(targets, rules));
+            generated.add(policyModel);
+            load(policyStore.shardFor(subjectId).getOdrlModel(), generated);
+
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to generate ODRL policies: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Updates the policy of a group to a new assignment by linking the added targets to its rules
+     * and unlinking the removed ones, so unchanged targets are not rewritten. The policy is
+     * regenerated from scratch when it is missing or the group definition has changed since it
+     * was written. Expects an open write transaction.
+     */
+    public void applyAssignmentDiff(String policyGroupId, PolicyGroupDTO policyGroup, PolicyAssignmentDTO assignmentDTO,
+                                    PolicyAssignmentDTO added, PolicyAssignmentDTO removed, Long subjectId) {
+        Model odrlModel = policyStore.shardFor(subjectId).getOdrlModel();
+        Resource policy = odrlModel.getResource(groupPolicyUri(policyGroupId));
+        if (!policy.hasProperty(definitionHashProperty, definitionHash(policyGroup))) {
+            generatePoliciesFromAssignment(policyGroupId, policyGroup, assignmentDTO, subjectId);
+            return;
+        }
+
+        List<Resource> rules = new ArrayList<>();
+        for (Statement statement : policy.listProperties(odrlPermissionProperty).toList()) {
+            rules.add(statement.getResource());
+        }
+        for (Statement statement : policy.listProperties(odrlProhibitionProperty).toList()) {
+            rules.add(statement.getResource());
+        }
+
+        for (String targetUri : assignmentTargetUris(removed, subjectId)) {
+            Resource target = odrlModel.createResource(targetUri);
+            for (Resource rule : rules) {
+                odrlModel.remove(rule, targetProperty, target);
+            }
+        }
+        load(odrlModel, buildTargets(targetBuilders(added, subjectId), rules));
+
+        // A policy left without targets would govern nothing
+        if (rules.stream().noneMatch(rule -> rule.hasProperty(targetProperty))) {
+            cleanupPoliciesForGroupInTransaction(policyGroupId, subjectId);
+        }
+    }
+
+    /**
+     * Whether the group's policy already matches its definition and the given assignment would
+     * not change it, e.g. to skip a no-op reassignment. Expects an open transaction.
+     */
+    public boolean isGroupPolicyCurrent(String policyGroupId, PolicyGroupDTO policyGroup,
+                                        PolicyAssignmentDTO assignmentDTO, Long subjectId) {
+        Model odrlModel = policyStore.shardFor(subjectId).getOdrlModel();
+        Resource policy = odrlModel.getResource(groupPolicyUri(policyGroupId));
+        if (policy.hasProperty(RDF.type)) {
+            return policy.hasProperty(definitionHashProperty, definitionHash(policyGroup));
+        }
+        // Without a policy, regenerating would not write one either
+        boolean hasPolicies = odrlModel.contains(null, groupProperty, odrlModel.createResource(ONTOSOV_NS + policyGroupId));
+        return !hasPolicies && (permittedActions(policyGroup).isEmpty() || assignmentTargetUris(assignmentDTO, subjectId).isEmpty());
+    }
+
+    private static Resource subjectResource(Long subjectId) {
+        return ResourceFactory.createResource(ONTOSOV_NS + "subject-" + subjectId);
+    }
+
+    /**
+     * URI of the single ODRL policy of a policy group
+     */
+    private static String groupPolicyUri(String policyGroupId) {
+        return ODRL_NS + "policy-" + policyGroupId;
+    }
+
+    /**
+     * Fingerprint of the parts of a group definition its policy is generated from: SHA-256 of a
+     * canonical form with map entries sorted by key, so equal definitions always match and
+     * different ones practically never do
+     */
+    static String definitionHash(PolicyGroupDTO policyGroup) {
+        StringBuilder canonical = new StringBuilder();
+        appendCanonical(canonical, policyGroup.getPermissions());
+        appendCanonical(canonical, policyGroup.getConstraints());
+        appendCanonical(canonical, policyGroup.getConsequences());
+        appendCanonical(canonical, policyGroup.getAiRestrictions());
+        appendCanonical(canonical, policyGroup.getTransformations());
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Appends an unambiguous form of a value: strings are length-prefixed and tagged with their
+     * type, maps are written in key order
+     */
+    private static void appendCanonical(StringBuilder canonical, Object value) {
+        if (value == null) {
+            canonical.append('n');
+        } else if (value instanceof Map<?, ?> map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            map.forEach((key, entry) -> sorted.put(String.valueOf(key), entry));
+            canonical.append('{').append(sorted.size()).append(':');
+            sorted.forEach((key, entry) -> {
+                appendCanonical(canonical, key);
+                appendCanonical(canonical, entry);
+            });
+            canonical.append('}');
+        } else if (value instanceof Collection<?> collection) {
+            canonical.append('[').append(collection.size()).append(':');
+            collection.forEach(entry -> appendCanonical(canonical, entry));
+            canonical.append(']');
+        } else {
+            String text = value.toString();
+            canonical.append(value.getClass().getSimpleName().charAt(0)).append(text.length()).append(':').append(text);
+        }
+    }
+
+    /**
+     * Builders of the targets of all data in an assignment, each writing one target with its
+     * metadata into a given model
+     */
+    private List<Function<Model, Resource>> targetBuilders(PolicyAssignmentDTO assignmentDTO, Long subjectId) {
+        List<Function<Model, Resource>> targets = new ArrayList<>();
+
+        // Handle property assignments
+        if (assignmentDTO.getPropertyAssignments() != null) {
+            for (Map.Entry<String, Set<String>> sourceEntry : assignmentDTO.getPropertyAssignments().entrySet()) {
+                for (String property : sourceEntry.getValue()) {
+                    targets.add(model -> propertyTarget(model, subjectId, sourceEntry.getKey(), property));
                 }
             }
+        }
 
-            // Handle entity assignments
-            if (assignmentDTO.getEntityAssignments() != null) {
-                for (Map.Entry<String, Set<String>> sourceEntry : assignmentDTO.getEntityAssignments().entrySet()) {
-                    String dataSource = sourceEntry.getKey();
-                    Set<String> entityIds = sourceEntry.getValue();
-
-                    for (String entityId : entityIds) {
-                        String entityType = extractEntityTypeFromUri(entityId);
-
-                        for (String action : Arrays.asList("read", "use", "share", "aggregate", "modify")) {
-                            if (policyGroup.getPermissions().containsKey(action) &&
-                                    policyGroup.getPermissions().get(action)) {
-                                createEntityPolicy(policyGroupId, subjectId, dataSource, entityType, entityId, action,
-                                        policyGroup.getConstraints(),
-                                        policyGroup.getConsequences(),
-                                        policyGroup.getAiRestrictions(),
-                                        policyGroup.getTransformations());
-                            }
-                        }
+        // Handle entity assignments
+        if (assignmentDTO.getEntityAssignments() != null) {
+            for (Map.Entry<String, Set<String>> sourceEntry : assignmentDTO.getEntityAssignments().entrySet()) {
+                for (String entityId : sourceEntry.getValue()) {
+                    targets.add(model -> entityTarget(model, sourceEntry.getKey(), entityId));
+                }
+            }
+        }
 
-                        // Explicitly create aiTraining policy if AI restrictions exist
-                        if (policyGroup.getAiRestrictions() != null && !policyGroup.getAiRestrictions().isEmpty()) {
-                            createEntityPolicy(policyGroupId, subjectId, dataSource, entityType, entityId, "aiTraining",
-                                    policyGroup.getConstraints(),
-                                    policyGroup.getConsequences(),
-                                    policyGroup.getAiRestrictions(),
-                                    policyGroup.getTransformations());
-                        }
-                    }
+        // Handle entity selector assignments: one target per selector, however many records it covers
+        if (assignmentDTO.getEntitySelectorAssignments() != null) {
+            for (Map.Entry<String, Set<String>> sourceEntry : assignmentDTO.getEntitySelectorAssignments().entrySet()) {
+                for (String selector : sourceEntry.getValue()) {
+                    EntitySelector entitySelector = EntitySelector.parse(selector);
+                    targets.add(model -> selectorTarget(model, subjectId, sourceEntry.getKey(), entitySelector));
                 }
             }
+        }
+        return targets;
+    }
 
+    /**
+     * Builds the given targets and links them to the given rules without touching the store.
+     * Targets are split into chunks of bulkChunkSize, built into one in-memory model each; more
+     * than one chunk is built in parallel on targetExecutor.
+     */
+    private List<Model> buildTargets(List<Function<Model, Resource>> targets, List<Resource> rules) {
+        List<Callable<Model>> chunks = new ArrayList<>();
+        int chunkSize = Math.max(1, bulkChunkSize);
+        for (int start = 0; start < targets.size(); start += chunkSize) {
+            List<Function<Model, Resource>> chunk = targets.subList(start, Math.min(targets.size(), start + chunkSize));
+            chunks.add(() -> {
+                Model model = ModelFactory.createDefaultModel();
+                for (Function<Model, Resource> builder : chunk) {
+                    Resource target = builder.apply(model);
+                    for (Resource rule : rules) {
+                        model.add(rule, targetProperty, target);
+                    }
+                }
+                return model;
+            });
+        }
+
+        try {
+            if (chunks.size() == 1) {
+                return List.of(chunks.get(0).call());
+            }
+            List<Model> models = new ArrayList<>(chunks.size());
+            for (Future<Model> chunk : targetExecutor.invokeAll(chunks)) {
+                models.add(chunk.get());
+            }
+            return models;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while building policy targets", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to build policy targets: " + e.getCause().getMessage(), e.getCause());
         } catch (Exception e) {
-            throw new RuntimeException("Failed to generate ODRL policies: " + e.getMessage(), e);
+            throw new RuntimeException("Failed to build policy targets: " + e.getMessage(), e);
         }
     }
 
-    private void createPropertyPolicy(String policyGroupId, Long subjectId, String dataSource,
-                                      String property, String action, Map<String, Object> constraints,
-                                      Map<String, Object> consequences, Map<String, Object> aiRestrictions,
-                                      List<String> transformations) {
-        // Create a unique ID for the policy
-        String policyId = "policy-" + UUID.randomUUID().toString();
-        Resource policy = odrlModel.createResource(ODRL_NS + policyId);
+    /**
+     * Adds generated models to a store model. Expects an open write transaction.
+     */
+    private static void load(Model odrlModel, List<Model> generated) {
+        for (Model model : generated) {
+            odrlModel.add(model);
+        }
+    }
 
-        // Set basic policy properties
-        policy.addProperty(RDF.type, policyResource);
-        policy.addProperty(groupProperty, odrlModel.createResource(ONTOSOV_NS + policyGroupId));
+    @PreDestroy
+    public void shutdown() {
+        targetExecutor.shutdown();
+    }
 
-        // Create permission
-        Resource permission = odrlModel.createResource();
-        permission.addProperty(RDF.type, permissionResource);
+    /**
+     * Target URIs of all data in an assignment, without touching the store
+     */
+    private List<String> assignmentTargetUris(PolicyAssignmentDTO assignmentDTO, Long subjectId) {
+        List<String> targetUris = new ArrayList<>();
+        if (assignmentDTO.getPropertyAssignments() != null) {
+            assignmentDTO.getPropertyAssignments().forEach((dataSource, properties) -> properties.forEach(
+                    property -> targetUris.add(propertyTargetUri(subjectId, dataSource, property))));
+        }
+        if (assignmentDTO.getEntityAssignments() != null) {
+            assignmentDTO.getEntityAssignments().values().forEach(entityIds -> entityIds.forEach(
+                    entityId -> targetUris.add(entityTargetUri(entityId))));
+        }
+        if (assignmentDTO.getEntitySelectorAssignments() != null) {
+            assignmentDTO.getEntitySelectorAssignments().forEach((dataSource, selectors) -> selectors.forEach(
+                    selector -> targetUris.add(selectorTargetUri(subjectId, dataSource, EntitySelector.parse(selector)))));
+        }
+        return targetUris;
+    }
 
-        // Set target
+    private static String propertyTargetUri(Long subjectId, String dataSource, String property) {
         // The target will be the data resource identified by subject ID, data source, and property
-        String targetId = "data-" + subjectId + "-" +
+        return ONTOSOV_NS + "data-" + subjectId + "-" +
                 dataSource.replaceAll("[^a-zA-Z0-9]", "_") + "-" +
                 property.replaceAll("[^a-zA-Z0-9]", "_");
-        Resource target = odrlModel.createResource(ONTOSOV_NS + targetId);
+    }
+
+    private String entityTargetUri(String entityId) {
+        // Entity target using Option A format: entity-Order-http://example.org/resource#Order/1
+        return ONTOSOV_NS + "entity-" + extractEntityTypeFromUri(entityId) + "-" + entityId;
+    }
+
+    private static String selectorTargetUri(Long subjectId, String dataSource, EntitySelector selector) {
+        return ONTOSOV_NS + "entities-" + subjectId + "-" +
+                dataSource.replaceAll("[^a-zA-Z0-9]", "_") + "-" +
+                selector.toString().replaceAll("[^a-zA-Z0-9]", "_");
+    }
+
+    /**
+     * Target of a schema.org property of one subject in a data source
+     */
+    private Resource propertyTarget(Model odrlModel, Long subjectId, String dataSource, String property) {
+        Resource target = odrlModel.createResource(propertyTargetUri(subjectId, dataSource, property));
 
         // Add metadata to the target
         target.addProperty(dataSourceProperty, dataSource);
         target.addProperty(dataPropertyProperty, property);
+        return target;
+    }
+
+    /**
+     * Target of a single record, e.g. http://example.org/resource#Order/1
+     */
+    private Resource entityTarget(Model odrlModel, String dataSource, String entityId) {
+        String entityType = extractEntityTypeFromUri(entityId);
+        Resource target = odrlModel.createResource(entityTargetUri(entityId));
+
+        // Add metadata to the target
+        target.addProperty(dataSourceProperty, dataSource);
+        target.addProperty(entityTypeProperty, entityType);
+        target.addProperty(entityIdProperty, entityId);
+        return target;
+    }
+
+    /**
+     * Target of all records of a type, or of a record ID range, of one subject in a data source
+     */
+    private Resource selectorTarget(Model odrlModel, Long subjectId, String dataSource, EntitySelector selector) {
+        Resource target = odrlModel.createResource(selectorTargetUri(subjectId, dataSource, selector));
 
-        permission.addProperty(targetProperty, target);
+        target.addProperty(dataSourceProperty, dataSource);
+        target.addProperty(entityTypeProperty, selector.getEntityType());
+        target.addProperty(entitySelectorProperty, selector.toString());
+        return target;
+    }
 
-        // Set action
-        permission.addProperty(actionProperty, getCachedActionResource(action));
+    /**
+     * Actions the group's policy permits: the enabled basic actions, plus aiTraining when
+     * the group has AI restrictions
+     */
+    private static List<String> permittedActions(PolicyGroupDTO policyGroup) {
+        List<String> actions = new ArrayList<>();
+        for (String action : Arrays.asList("read", "use", "share", "aggregate", "modify")) {
+            if (policyGroup.getPermissions() != null && Boolean.TRUE.equals(policyGroup.getPermissions().get(action))) {
+                actions.add(action);
+            }
+        }
+        // Explicitly permit aiTraining if AI restrictions exist
+        if (policyGroup.getAiRestrictions() != null && !policyGroup.getAiRestrictions().isEmpty()) {
+            actions.add("aiTraining");
+        }
+        return actions;
+    }
+
+    /**
+     * Creates the group's policy, without targets, in the given model and returns the rules
+     * its targets are linked to
+     */
+    private List<Resource> createGroupPolicy(String policyGroupId, PolicyGroupDTO policyGroup, Long subjectId,
+                                             Model odrlModel) {
+        Map<String, Object> constraints = policyGroup.getConstraints();
+        Map<String, Object> consequences = policyGroup.getConsequences();
+        Map<String, Object> aiRestrictions = policyGroup.getAiRestrictions();
+        List<String> transformations = policyGroup.getTransformations();
+
+        List<String> actions = permittedActions(policyGroup);
+        List<Resource> rules = new ArrayList<>();
+        Resource subject = odrlModel.createResource(ONTOSOV_NS + "subject-" + subjectId);
+        Resource policy = odrlModel.createResource(groupPolicyUri(policyGroupId));
+
+        // Set basic policy properties
+        policy.addProperty(RDF.type, policyResource);
+        policy.addProperty(groupProperty, odrlModel.createResource(ONTOSOV_NS + policyGroupId));
+        policy.addProperty(definitionHashProperty, definitionHash(policyGroup));
+
+        // Create permission
+        Resource permission = odrlModel.createResource();
+        permission.addProperty(RDF.type, permissionResource);
+
+        // Set actions; targets are linked by the caller
+        rules.add(permission);
+        for (String action : actions) {
+            permission.addProperty(actionProperty, getCachedActionResource(action));
+        }
 
         // Set assigner (the subject)
-        permission.addProperty(assignerProperty, odrlModel.createResource(ONTOSOV_NS + "subject-" + subjectId));
+        permission.addProperty(assignerProperty, subject);
 
         // Set assignee (all controllers by default - can be refined later)
         permission.addProperty(assigneeProperty, allControllersResource);
@@ -325,7 +786,8 @@ public class ODRLService {
             }
 
             // Expiration constraint
-            if (constraints.containsKey("expiration") && constraints.get("expiration") != null) {
+            if (constraints.containsKey("expiration") && constraints.get("expiration") != null &&
+                    !constraints.get("expiration").toString().isEmpty()) {
                 Resource expirationConstraint = odrlModel.createResource();
                 expirationConstraint.addProperty(RDF.type, constraintResource);
                 expirationConstraint.addProperty(dateTimeProperty, constraints.get("expiration").toString());
@@ -352,8 +814,7 @@ public class ODRLService {
                 if (notificationType != null) {
                     consequence.addProperty(actionProperty, odrlModel.createResource(ODRL_NS + "notify"));
                     // Use the target here to specify who to notify (the subject)
-                    consequence.addProperty(targetProperty,
-                            odrlModel.createResource(ONTOSOV_NS + "subject-" + subjectId));
+                    consequence.addProperty(targetProperty, subject);
                     // Store the notification type as a custom property
                     consequence.addProperty(notificationTypeProperty, notificationType);
                 }
@@ -418,21 +879,20 @@ public class ODRLService {
 
         // Handle AI training restrictions
         if (aiRestrictions != null) {
-            Boolean allowAiTraining = aiRestrictions.containsKey("allowAiTraining") ?
-                    (Boolean) aiRestrictions.get("allowAiTraining") : true;
+            Object allowValue = aiRestrictions.get("allowAiTraining");
+            boolean allowAiTraining = allowValue == null || Boolean.parseBoolean(allowValue.toString());
 
             String aiAlgorithm = aiRestrictions.containsKey("aiAlgorithm") &&
                     aiRestrictions.get("aiAlgorithm") != null ?
                     aiRestrictions.get("aiAlgorithm").toString() : null;
 
-            if (Boolean.FALSE.equals(allowAiTraining)) {
+            if (!allowAiTraining) {
                 // Create prohibition for AI training
                 Resource prohibition = odrlModel.createResource();
                 prohibition.addProperty(RDF.type, prohibitionResource);
-                prohibition.addProperty(targetProperty, target);
+                rules.add(prohibition);
                 prohibition.addProperty(actionProperty, aiTrainingAction);
-                prohibition.addProperty(assignerProperty,
-                        odrlModel.createResource(ONTOSOV_NS + "subject-" + subjectId));
+                prohibition.addProperty(assignerProperty, subject);
                 prohibition.addProperty(assigneeProperty, allControllersResource);
 
                 // Add prohibition to policy
@@ -447,461 +907,313 @@ public class ODRLService {
 
                 Resource aiPermission = odrlModel.createResource();
                 aiPermission.addProperty(RDF.type, permissionResource);
-                aiPermission.addProperty(targetProperty, target);
+                rules.add(aiPermission);
                 aiPermission.addProperty(actionProperty, aiTrainingAction);
                 aiPermission.addProperty(constraintProperty, aiConstraint);
-                aiPermission.addProperty(assignerProperty,
-                        odrlModel.createResource(ONTOSOV_NS + "subject-" + subjectId));
+                aiPermission.addProperty(assignerProperty, subject);
                 aiPermission.addProperty(assigneeProperty, allControllersResource);
 
                 // Add permission to policy
                 policy.addProperty(odrlModel.createProperty(ODRL_NS, "permission"), aiPermission);
             }
         }
+        return rules;
     }
 
-    private void createEntityPolicy(String policyGroupId, Long subjectId, String dataSource,
-                                    String entityType, String entityId, String action,
-                                    Map<String, Object> constraints, Map<String, Object> consequences,
-                                    Map<String, Object> aiRestrictions, List<String> transformations) {
-        // Create a unique ID for the policy
-        String policyId = "policy-" + UUID.randomUUID().toString();
-        Resource policy = odrlModel.createResource(ODRL_NS + policyId);
+    private String extractEntityTypeFromUri(String entityUri) {
+        // Extract entity type from URI like "http://example.org/resource#Order/1" -> "Order"
+        if (entityUri.contains("#")) {
+            String afterHash = entityUri.substring(entityUri.lastIndexOf('#') + 1);
+            if (afterHash.contains("/")) {
+                return afterHash.substring(0, afterHash.indexOf("/"));
+            }
+        }
+        return "Entity"; // Fallback
+    }
 
-        // Set basic policy properties
-        policy.addProperty(RDF.type, policyResource);
-        policy.addProperty(groupProperty, odrlModel.createResource(ONTOSOV_NS + policyGroupId));
+    /**
+     * Answered from the in-memory decision index rather than the triplestore
+     */
+    public boolean checkPropertyAccess(Long subjectId, Long controllerId, String dataSource, String property, String action) {
+        PolicyDecisionIndex.TargetRules rules = decisionIndex.getPropertyRules(subjectId, dataSource, property);
+        return rules != null && rules.isPermitted(ODRL_NS + action,
+                ONTOSOV_NS + "controller-" + controllerId, ONTOSOV_NS + "allControllers");
+    }
 
-        // Create permission
-        Resource permission = odrlModel.createResource();
-        permission.addProperty(RDF.type, permissionResource);
+    /**
+     * Answered from the in-memory decision index rather than the triplestore
+     */
+    public boolean checkEntityAccess(Long subjectId, Long controllerId, String dataSource, String entityId, String action) {
+        PolicyDecisionIndex.TargetRules rules = decisionIndex.getEntityRules(subjectId, dataSource, entityId);
+        return rules != null && rules.isPermitted(ODRL_NS + action,
+                ONTOSOV_NS + "controller-" + controllerId, ONTOSOV_NS + "allControllers");
+    }
 
-        // Set entity target using Option A format: entity-Order-http://example.org/resource#Order/1
-        String targetId = "entity-" + entityType + "-" + entityId;
-        Resource target = odrlModel.createResource(ONTOSOV_NS + targetId);
+    /**
+     * Check if ANY policy exists for a given property (regardless of permissions)
+     * Used to distinguish between "no policy" vs "policy denies access"
+     */
+    public boolean policyExistsForProperty(Long subjectId, String dataSource, String property) {
+        return decisionIndex.getPropertyRules(subjectId, dataSource, property) != null;
+    }
 
-        // Add metadata to the target
-        target.addProperty(dataSourceProperty, dataSource);
-        target.addProperty(entityTypeProperty, entityType);
-        target.addProperty(entityIdProperty, entityId);
+    /**
+     * Check if ANY policy exists for a given entity (regardless of permissions)
+     * Used to distinguish between "no policy" vs "policy denies access"
+     */
+    public boolean policyExistsForEntity(Long subjectId, String dataSource, String entityId) {
+        return decisionIndex.getEntityRules(subjectId, dataSource, entityId) != null;
+    }
 
-        permission.addProperty(targetProperty, target);
+    /**
+     * Entity ids of a subject in a data source that carry an entity-level policy and start
+     * with the given prefix (e.g. "http://example.org/resource#Person/")
+     */
+    public List<String> getGovernedEntityIds(Long subjectId, String dataSource, String entityIdPrefix) {
+        return decisionIndex.getEntityIds(subjectId, dataSource, entityIdPrefix);
+    }
 
-        // Set action
-        permission.addProperty(actionProperty, getCachedActionResource(action));
+    /**
+     * Entity selectors of a subject on one entity type in a data source. checkEntityAccess already
+     * applies them to single records; callers filtering many records use them to cover whole ranges.
+     */
+    public List<EntitySelector> getEntitySelectors(Long subjectId, String dataSource, String entityType) {
+        return decisionIndex.getEntitySelectors(subjectId, dataSource, entityType);
+    }
 
-        // Set assigner and assignee
-        permission.addProperty(assignerProperty, odrlModel.createResource(ONTOSOV_NS + "subject-" + subjectId));
-        permission.addProperty(assigneeProperty, allControllersResource);
+    /**
+     * Policy groups assigned to a property, with the actions each one permits on it.
+     * Answered from the in-memory decision index in a single lookup.
+     */
+    public Map<String, Set<String>> getPolicyGroupActionsForProperty(Long subjectId, String dataSource, String property) {
+        return toGroupActionNames(decisionIndex.getPropertyRules(subjectId, dataSource, property));
+    }
 
-        // Add constraints if they exist
-        if (constraints != null && !constraints.isEmpty()) {
-            // Purpose constraint using DPV taxonomy
-            if (constraints.containsKey("purpose") && constraints.get("purpose") != null &&
-                    !constraints.get("purpose").toString().isEmpty()) {
-                String purposeValue = constraints.get("purpose").toString();
+    /**
+     * Policy groups assigned to an entity, with the actions each one permits on it.
+     * Answered from the in-memory decision index in a single lookup.
+     */
+    public Map<String, Set<String>> getPolicyGroupActionsForEntity(Long subjectId, String dataSource, String entityId) {
+        return toGroupActionNames(decisionIndex.getEntityRules(subjectId, dataSource, entityId));
+    }
 
-                // Convert label to URI if needed, or use as-is if already a URI
-                String purposeUri = purposeValue;
-                if (!purposeValue.startsWith("http")) {
-                    // Try to convert label to DPV URI
-                    String dpvUri = DPVPurpose.getUri(purposeValue);
-                    if (dpvUri != null) {
-                        purposeUri = dpvUri;
-                    }
-                }
+    /**
+     * Subjects that have at least one rule in the decision index
+     */
+    public Set<Long> getGovernedSubjectIds() {
+        return decisionIndex.getSubjectIds();
+    }
 
-                // Create constraint using OAC:Purpose pattern
-                Resource purposeConstraint = odrlModel.createResource();
-                purposeConstraint.addProperty(RDF.type, constraintResource);
-                purposeConstraint.addProperty(leftOperandProperty, oacPurposeProperty);
-                purposeConstraint.addProperty(operatorProperty, isAOperator);
-                purposeConstraint.addProperty(rightOperandProperty, odrlModel.createResource(purposeUri));
+    /**
+     * A subject's targets on the given data sources as one controller sees them: the actions
+     * permitted to that controller, the prohibited actions and the permitting groups of each target.
+     * Targets without a permission for the controller are kept, as they still deny it access.
+     * Answered from the in-memory decision index.
+     */
+    public List<PolicySnapshotDTO.Target> getControllerTargets(Long subjectId, Long controllerId, Set<String> dataSources) {
+        List<PolicySnapshotDTO.Target> targets = new ArrayList<>();
+        PolicyDecisionIndex.SubjectRules subjectRules = decisionIndex.getSubjectRules(subjectId);
+        if (subjectRules == null) {
+            return targets;
+        }
 
-                permission.addProperty(constraintProperty, purposeConstraint);
+        String controllerUri = ONTOSOV_NS + "controller-" + controllerId;
+        String allControllersUri = ONTOSOV_NS + "allControllers";
+        subjectRules.forEachTarget((dataSource, property, entityId, rules) -> {
+            if (!dataSources.contains(dataSource)) {
+                return;
             }
 
-            // Expiration constraint
-            if (constraints.containsKey("expiration") && constraints.get("expiration") != null &&
-                    !constraints.get("expiration").toString().isEmpty()) {
-                Resource expirationConstraint = odrlModel.createResource();
-                expirationConstraint.addProperty(RDF.type, constraintResource);
-                expirationConstraint.addProperty(dateTimeProperty, constraints.get("expiration").toString());
-                permission.addProperty(constraintProperty, expirationConstraint);
+            PolicySnapshotDTO.Target target = new PolicySnapshotDTO.Target();
+            target.setDataSource(dataSource);
+            target.setProperty(property);
+            target.setEntityId(entityId);
+            for (String actionUri : rules.getPermittedActions()) {
+                if (rules.isPermitted(actionUri, controllerUri, allControllersUri)) {
+                    target.getPermittedActions().add(actionName(actionUri));
+                }
             }
-        }
-
-        // Add consequences if they exist (inline logic)
-        if (consequences != null && !consequences.isEmpty()) {
-            if (consequences.containsKey("notificationType") && consequences.get("notificationType") != null &&
-                    !consequences.get("notificationType").toString().isEmpty()) {
-                Resource duty = odrlModel.createResource();
-                duty.addProperty(RDF.type, dutyResource);
-                duty.addProperty(actionProperty, odrlModel.createResource(ODRL_NS + "notify"));
-                duty.addProperty(consequenceProperty, consequences.get("notificationType").toString());
-                permission.addProperty(odrlModel.createProperty(ODRL_NS, "duty"), duty);
+            for (String actionUri : rules.getProhibitedActions()) {
+                target.getProhibitedActions().add(actionName(actionUri));
             }
-
-            if (consequences.containsKey("compensationAmount") && consequences.get("compensationAmount") != null &&
-                    !consequences.get("compensationAmount").toString().isEmpty()) {
-                Resource compensationDuty = odrlModel.createResource();
-                compensationDuty.addProperty(RDF.type, dutyResource);
-                compensationDuty.addProperty(actionProperty, odrlModel.createResource(ODRL_NS + "compensate"));
-                compensationDuty.addProperty(compensationProperty, consequences.get("compensationAmount").toString());
-                permission.addProperty(odrlModel.createProperty(ODRL_NS, "duty"), compensationDuty);
+            target.setGroupActions(toGroupActionNames(rules));
+            targets.add(target);
+        });
+        subjectRules.forEachSelector((dataSource, selector, rules) -> {
+            if (!dataSources.contains(dataSource)) {
+                return;
             }
-        }
 
-        // Add transformation duties if present
-        if (transformations != null && !transformations.isEmpty()) {
-            for (String transformation : transformations) {
-                Resource transformationDuty = odrlModel.createResource();
-                transformationDuty.addProperty(RDF.type, dutyResource);
-
-                // Map transformation name to ODS action resource
-                Resource transformationAction = null;
-                switch (transformation.toLowerCase()) {
-                    case "anonymize":
-                        transformationAction = anonymizeAction;
-                        break;
-                    case "pseudonymize":
-                        transformationAction = pseudonymizeAction;
-                        break;
-                    case "encrypt":
-                        transformationAction = encryptAction;
-                        break;
-                    case "transform":
-                        transformationAction = transformAction;
-                        break;
-                    default:
-                        log.warn("Unknown transformation action: " + transformation);
-                        continue;
+            PolicySnapshotDTO.Target target = new PolicySnapshotDTO.Target();
+            target.setDataSource(dataSource);
+            target.setEntitySelector(selector.toString());
+            for (String actionUri : rules.getPermittedActions()) {
+                if (rules.isPermitted(actionUri, controllerUri, allControllersUri)) {
+                    target.getPermittedActions().add(actionName(actionUri));
                 }
-
-                if (transformationAction != null) {
-                    transformationDuty.addProperty(actionProperty, transformationAction);
-                    permission.addProperty(odrlDutyProperty, transformationDuty);
-                }
-            }
-        }
-
-        // Add the permission to the policy
-        policy.addProperty(odrlPermissionProperty, permission);
-
-        // Handle AI restrictions (inline logic)
-        if (aiRestrictions != null && !aiRestrictions.isEmpty()) {
-            boolean allowAiTraining = true;
-            if (aiRestrictions.containsKey("allowAiTraining")) {
-                allowAiTraining = Boolean.parseBoolean(aiRestrictions.get("allowAiTraining").toString());
             }
-
-            if (!allowAiTraining) {
-                // Create prohibition for AI training
-                Resource prohibition = odrlModel.createResource();
-                prohibition.addProperty(RDF.type, prohibitionResource);
-                prohibition.addProperty(targetProperty, target);
-                prohibition.addProperty(actionProperty, aiTrainingAction);
-                prohibition.addProperty(assignerProperty, odrlModel.createResource(ONTOSOV_NS + "subject-" + subjectId));
-                prohibition.addProperty(assigneeProperty, allControllersResource);
-
-                policy.addProperty(odrlProhibitionProperty, prohibition);
-            } else if (aiRestrictions.containsKey("aiAlgorithm") &&
-                    !aiRestrictions.get("aiAlgorithm").toString().isEmpty()) {
-                // Create permission with algorithm constraint
-                Resource aiPermission = odrlModel.createResource();
-                aiPermission.addProperty(RDF.type, permissionResource);
-                aiPermission.addProperty(targetProperty, target);
-                aiPermission.addProperty(actionProperty, aiTrainingAction);
-                aiPermission.addProperty(assignerProperty, odrlModel.createResource(ONTOSOV_NS + "subject-" + subjectId));
-                aiPermission.addProperty(assigneeProperty, allControllersResource);
-
-                // Add algorithm constraint
-                Resource algorithmConstraint = odrlModel.createResource();
-                algorithmConstraint.addProperty(leftOperandProperty, aiAlgorithmProperty);
-                algorithmConstraint.addProperty(operatorProperty, odrlModel.createLiteral("eq"));
-                algorithmConstraint.addProperty(rightOperandProperty, aiRestrictions.get("aiAlgorithm").toString());
-
-                aiPermission.addProperty(constraintProperty, algorithmConstraint);
-                policy.addProperty(odrlModel.createProperty(ODRL_NS, "permission"), aiPermission);
+            for (String actionUri : rules.getProhibitedActions()) {
+                target.getProhibitedActions().add(actionName(actionUri));
             }
-        }
+            target.setGroupActions(toGroupActionNames(rules));
+            targets.add(target);
+        });
+        return targets;
     }
 
-    private String extractEntityTypeFromUri(String entityUri) {
-        // Extract entity type from URI like "http://example.org/resource#Order/1" -> "Order"
-        if (entityUri.contains("#")) {
-            String afterHash = entityUri.substring(entityUri.lastIndexOf('#') + 1);
-            if (afterHash.contains("/")) {
-                return afterHash.substring(0, afterHash.indexOf("/"));
-            }
+    private Map<String, Set<String>> toGroupActionNames(PolicyDecisionIndex.TargetRules rules) {
+        Map<String, Set<String>> result = new LinkedHashMap<>();
+        if (rules == null) {
+            return result;
         }
-        return "Entity"; // Fallback
-    }
-
-    private void removePoliciesForAssignment(String policyGroupId, PolicyAssignmentDTO assignment, Long subjectId) {
-        // Query to find all policies related to this assignment (both property and entity)
-        String queryString = "PREFIX onto: <" + ONTOSOV_NS + ">\n" +
-                "PREFIX odrl: <" + ODRL_NS + ">\n" +
-                "PREFIX rdf: <" + RDF.getURI() + ">\n" +
-                "SELECT ?policy ?permission ?target\n" +
-                "WHERE {\n" +
-                "  ?policy rdf:type odrl:Policy ;\n" +
-                "          onto:policyGroup onto:" + policyGroupId + " ;\n" +
-                "          odrl:permission ?permission .\n" +
-                "  ?permission odrl:target ?target ;\n" +
-                "              odrl:assigner onto:subject-" + subjectId + " .\n" +
-                "  ?target onto:dataSource ?dataSource .\n" +
-                "  {\n" +
-                "    # Property policies\n" +
-                "    ?target onto:dataProperty ?dataProperty .\n" +
-                "  }\n" +
-                "  UNION\n" +
-                "  {\n" +
-                "    # Entity policies\n" +
-                "    ?target onto:entityId ?entityId .\n" +
-                "  }\n" +
-                "}";
-
-        Query query = QueryFactory.create(queryString);
-
-        List<Resource> policiesToRemove = new ArrayList<>();
-        List<Resource> permissionsToRemove = new ArrayList<>();
-        List<Resource> targetsToRemove = new ArrayList<>();
-
-        try (QueryExecution qexec = QueryExecutionFactory.create(query, odrlModel)) {
-            ResultSet rs = qexec.execSelect();
-            while (rs.hasNext()) {
-                QuerySolution solution = rs.next();
-                policiesToRemove.add(solution.getResource("policy"));
-                permissionsToRemove.add(solution.getResource("permission"));
-                targetsToRemove.add(solution.getResource("target"));
+        for (Map.Entry<String, Set<String>> entry : rules.getGroupActions().entrySet()) {
+            Set<String> actions = new HashSet<>();
+            for (String actionUri : entry.getValue()) {
+                actions.add(actionName(actionUri));
             }
+            result.put(entry.getKey(), actions);
         }
-
-        // Remove all statements about these resources
-        for (Resource policy : policiesToRemove) {
-            odrlModel.removeAll(policy, null, null);
-        }
-
-        for (Resource permission : permissionsToRemove) {
-            odrlModel.removeAll(permission, null, null);
-        }
-
-        for (Resource target : targetsToRemove) {
-            odrlModel.removeAll(target, null, null);
-        }
+        return result;
     }
 
-    public boolean checkPropertyAccess(Long subjectId, Long controllerId, String dataSource, String property, String action) {
-        dataset.begin(ReadWrite.READ);
-
-        try {
-            String queryString = "PREFIX onto: <" + ONTOSOV_NS + ">\n" +
-                    "PREFIX odrl: <" + ODRL_NS + ">\n" +
-                    "PREFIX rdf: <" + RDF.getURI() + ">\n" +
-                    "ASK {\n" +
-                    "  ?policy rdf:type odrl:Policy .\n" +
-                    "  ?policy odrl:permission ?permission .\n" +
-                    "  ?permission odrl:target ?target ;\n" +
-                    "              odrl:action odrl:" + action + " ;\n" +
-                    "              odrl:assigner onto:subject-" + subjectId + " ;\n" +
-                    "              odrl:assignee ?assignee .\n" +
-                    "  ?target onto:dataSource \"" + dataSource + "\" ;\n" +
-                    "          onto:dataProperty \"" + property + "\" .\n" +
-                    "  FILTER(?assignee = onto:controller-" + controllerId + " || " +
-                    "         ?assignee = onto:allControllers)\n" +
-                    "}";
-
-            Query query = QueryFactory.create(queryString);
-            try (QueryExecution qexec = QueryExecutionFactory.create(query, odrlModel)) {
-                return qexec.execAsk();
-            }
-        } finally {
-            dataset.end();
-        }
+    /**
+     * odrl:read, onto:aiTraining -> read, aiTraining
+     */
+    private static String actionName(String actionUri) {
+        return actionUri.substring(Math.max(actionUri.lastIndexOf('/'), actionUri.lastIndexOf('#')) + 1);
     }
 
-    public boolean checkEntityAccess(Long subjectId, Long controllerId, String dataSource, String entityId, String action) {
+    public Map<String, Object> getAssignmentsForPolicyGroup(String groupId, Long subjectId) {
+        Dataset dataset = policyStore.shardFor(subjectId).getDataset();
         dataset.begin(ReadWrite.READ);
-
         try {
-            String queryString = "PREFIX onto: <" + ONTOSOV_NS + ">\n" +
-                    "PREFIX odrl: <" + ODRL_NS + ">\n" +
-                    "PREFIX rdf: <" + RDF.getURI() + ">\n" +
-                    "ASK {\n" +
-                    "  ?policy rdf:type odrl:Policy .\n" +
-                    "  ?policy odrl:permission ?permission .\n" +
-                    "  ?permission odrl:target ?target ;\n" +
-                    "              odrl:action odrl:" + action + " ;\n" +
-                    "              odrl:assigner onto:subject-" + subjectId + " ;\n" +
-                    "              odrl:assignee ?assignee .\n" +
-                    "  ?target onto:dataSource \"" + dataSource + "\" ;\n" +
-                    "          onto:entityId \"" + entityId + "\" .\n" +
-                    "  FILTER(?assignee = onto:controller-" + controllerId + " || " +
-                    "         ?assignee = onto:allControllers)\n" +
-                    "}";
-
-            Query query = QueryFactory.create(queryString);
-            try (QueryExecution qexec = QueryExecutionFactory.create(query, odrlModel)) {
-                return qexec.execAsk();
-            }
-        } finally {
-            dataset.end();
-        }
-    }
+            PolicyAssignmentDTO assignments = getAssignmentsInTransaction(groupId, subjectId);
 
-    /**
-     * Check if ANY policy exists for a given property (regardless of permissions)
-     * Used to distinguish between "no policy" vs "policy denies access"
-     */
-    public boolean policyExistsForProperty(Long subjectId, String dataSource, String property) {
-        dataset.begin(ReadWrite.READ);
+            Map<String, Object> result = new HashMap<>();
+            result.put("propertyAssignments", assignments.getPropertyAssignments());
+            result.put("entityAssignments", assignments.getEntityAssignments());
+            result.put("entitySelectorAssignments", assignments.getEntitySelectorAssignments());
+            return result;
 
-        try {
-            String queryString = "PREFIX onto: <" + ONTOSOV_NS + ">\n" +
-                    "PREFIX odrl: <" + ODRL_NS + ">\n" +
-                    "PREFIX rdf: <" + RDF.getURI() + ">\n" +
-                    "ASK {\n" +
-                    "  ?policy rdf:type odrl:Policy .\n" +
-                    "  ?policy ?permissionOrProhibition ?permOrProhib .\n" +
-                    "  ?permOrProhib odrl:target ?target ;\n" +
-                    "                odrl:assigner onto:subject-" + subjectId + " .\n" +
-                    "  ?target onto:dataSource \"" + dataSource + "\" ;\n" +
-                    "          onto:dataProperty \"" + property + "\" .\n" +
-                    "  FILTER(?permissionOrProhibition = odrl:permission || ?permissionOrProhibition = odrl:prohibition)\n" +
-                    "}";
-
-            Query query = QueryFactory.create(queryString);
-            try (QueryExecution qexec = QueryExecutionFactory.create(query, odrlModel)) {
-                return qexec.execAsk();
-            }
         } finally {
             dataset.end();
         }
     }
 
     /**
-     * Check if ANY policy exists for a given entity (regardless of permissions)
-     * Used to distinguish between "no policy" vs "policy denies access"
+     * Data assigned to a policy group, read from the targets of its ODRL policies.
+     * Expects an open transaction on the subject's shard.
      */
-    public boolean policyExistsForEntity(Long subjectId, String dataSource, String entityId) {
-        dataset.begin(ReadWrite.READ);
-
-        try {
-            String queryString = "PREFIX onto: <" + ONTOSOV_NS + ">\n" +
-                    "PREFIX odrl: <" + ODRL_NS + ">\n" +
-                    "PREFIX rdf: <" + RDF.getURI() + ">\n" +
-                    "ASK {\n" +
-                    "  ?policy rdf:type odrl:Policy .\n" +
-                    "  ?policy ?permissionOrProhibition ?permOrProhib .\n" +
-                    "  ?permOrProhib odrl:target ?target ;\n" +
-                    "                odrl:assigner onto:subject-" + subjectId + " .\n" +
-                    "  ?target onto:dataSource \"" + dataSource + "\" ;\n" +
-                    "          onto:entityId \"" + entityId + "\" .\n" +
-                    "  FILTER(?permissionOrProhibition = odrl:permission || ?permissionOrProhibition = odrl:prohibition)\n" +
-                    "}";
-
-            Query query = QueryFactory.create(queryString);
-            try (QueryExecution qexec = QueryExecutionFactory.create(query, odrlModel)) {
-                return qexec.execAsk();
-            }
-        } finally {
-            dataset.end();
-        }
-    }
-
-    public Map<String, Object> getAssignmentsForPolicyGroup(String groupId, Long subjectId) {
+    public PolicyAssignmentDTO getAssignmentsInTransaction(String groupId, Long subjectId) {
         Map<String, Set<String>> propertyAssignments = new HashMap<>();
         Map<String, Set<String>> entityAssignments = new HashMap<>();
+        Map<String, Set<String>> entitySelectorAssignments = new HashMap<>();
 
-        dataset.begin(ReadWrite.READ);
-        try {
-            String queryString = "PREFIX onto: <" + ONTOSOV_NS + ">\n" +
-                    "PREFIX odrl: <" + ODRL_NS + ">\n" +
-                    "PREFIX rdf: <" + RDF.getURI() + ">\n" +
-                    "SELECT ?source ?property ?entityId\n" +
-                    "WHERE {\n" +
-                    "  ?policy rdf:type odrl:Policy ;\n" +
-                    "          onto:policyGroup onto:" + groupId + " ;\n" +
-                    "          odrl:permission ?permission .\n" +
-                    "  ?permission odrl:target ?target ;\n" +
-                    "              odrl:assigner onto:subject-" + subjectId + " .\n" +
-                    "  ?target onto:dataSource ?source .\n" +
-                    "  OPTIONAL { ?target onto:dataProperty ?property }\n" +
-                    "  OPTIONAL { ?target onto:entityId ?entityId }\n" +
-                    "}";
-
-            Query query = QueryFactory.create(queryString);
-            try (QueryExecution qexec = QueryExecutionFactory.create(query, odrlModel)) {
-                ResultSet rs = qexec.execSelect();
-                while (rs.hasNext()) {
-                    QuerySolution solution = rs.next();
-                    String source = solution.getLiteral("source").getString();
-
-                    // Check if this is a property assignment
-                    if (solution.contains("property")) {
-                        String property = solution.getLiteral("property").getString();
-                        propertyAssignments.computeIfAbsent(source, k -> new HashSet<>()).add(property);
-                    }
+        Model odrlModel = policyStore.shardFor(subjectId).getOdrlModel();
+        Map<String, RDFNode> bindings = Map.of(
+                "group", ResourceFactory.createResource(ONTOSOV_NS + groupId),
+                "subject", subjectResource(subjectId));
+        try (QueryExecution qexec = GROUP_ASSIGNMENTS_QUERY.execute(odrlModel, bindings)) {
+            ResultSet rs = qexec.execSelect();
+            while (rs.hasNext()) {
+                QuerySolution solution = rs.next();
+                String source = solution.getLiteral("source").getString();
 
-                    // Check if this is an entity assignment
-                    if (solution.contains("entityId")) {
-                        String entityId = solution.getLiteral("entityId").getString();
-                        entityAssignments.computeIfAbsent(source, k -> new HashSet<>()).add(entityId);
-                    }
+                // Check if this is a property assignment
+                if (solution.contains("property")) {
+                    String property = solution.getLiteral("property").getString();
+                    propertyAssignments.computeIfAbsent(source, k -> new HashSet<>()).add(property);
                 }
-            }
 
-            Map<String, Object> result = new HashMap<>();
-            result.put("propertyAssignments", propertyAssignments);
-            result.put("entityAssignments", entityAssignments);
-            return result;
+                // Check if this is an entity assignment
+                if (solution.contains("entityId")) {
+                    String entityId = solution.getLiteral("entityId").getString();
+                    entityAssignments.computeIfAbsent(source, k -> new HashSet<>()).add(entityId);
+                }
 
-        } finally {
-            dataset.end();
+                if (solution.contains("selector")) {
+                    String selector = solution.getLiteral("selector").getString();
+                    entitySelectorAssignments.computeIfAbsent(source, k -> new HashSet<>()).add(selector);
+                }
+            }
         }
+
+        PolicyAssignmentDTO assignments = new PolicyAssignmentDTO();
+        assignments.setPolicyGroupId(groupId);
+        assignments.setPropertyAssignments(propertyAssignments);
+        assignments.setEntityAssignments(entityAssignments);
+        assignments.setEntitySelectorAssignments(entitySelectorAssignments);
+        return assignments;
     }
 
+    /**
+     * Removes the ODRL policies of a policy group with their rules, constraints and duties.
+     * Targets are shared between groups and stay in place. Expects an open write transaction.
+     */
     public void cleanupPoliciesForGroupInTransaction(String groupId, Long subjectId) {
+        Model odrlModel = policyStore.shardFor(subjectId).getOdrlModel();
         try {
-            String queryString = "PREFIX onto: <" + ONTOSOV_NS + ">\n" +
-                    "PREFIX odrl: <" + ODRL_NS + ">\n" +
-                    "PREFIX rdf: <" + RDF.getURI() + ">\n" +
-                    "SELECT ?policy ?permission\n" +
-                    "WHERE {\n" +
-                    "  ?policy rdf:type odrl:Policy ;\n" +
-                    "          onto:policyGroup onto:" + groupId + " ;\n" +
-                    "          odrl:permission ?permission .\n" +
-                    "}";
-
-            List<Resource> policiesToRemove = new ArrayList<>();
-            List<Resource> permissionsToRemove = new ArrayList<>();
-
-            Query query = QueryFactory.create(queryString);
-            try (QueryExecution qexec = QueryExecutionFactory.create(query, odrlModel)) {
-                ResultSet rs = qexec.execSelect();
-                while (rs.hasNext()) {
-                    QuerySolution solution = rs.next();
-                    policiesToRemove.add(solution.getResource("policy"));
-                    permissionsToRemove.add(solution.getResource("permission"));
-                }
+            Resource group = odrlModel.createResource(ONTOSOV_NS + groupId);
+            for (Resource policy : odrlModel.listSubjectsWithProperty(groupProperty, group).toList()) {
+                RdfGraphs.removeDescription(odrlModel, policy);
             }
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to cleanup ODRL policies: " + e.getMessage(), e);
+        }
+    }
 
-            // Remove the policies and permissions
-            for (Resource policy : policiesToRemove) {
-                odrlModel.removeAll(policy, null, null);
+    /**
+     * Policy groups of a shard that still have policies in the legacy layout, with one
+     * policy per (target, action) instead of one per group (see generatePoliciesFromAssignment).
+     * Expects an open transaction on the shard.
+     */
+    public Set<String> findLegacyPolicyGroupsInTransaction(PolicyStore.Shard shard) {
+        Set<String> groupIds = new LinkedHashSet<>();
+        StmtIterator iterator = shard.getOdrlModel().listStatements(null, groupProperty, (RDFNode) null);
+        while (iterator.hasNext()) {
+            Statement statement = iterator.next();
+            if (!statement.getObject().isURIResource()) {
+                continue;
             }
-
-            for (Resource permission : permissionsToRemove) {
-                odrlModel.removeAll(permission, null, null);
+            String groupUri = statement.getObject().asResource().getURI();
+            String groupId = groupUri.substring(groupUri.lastIndexOf('#') + 1);
+            if (!groupPolicyUri(groupId).equals(statement.getSubject().getURI())) {
+                groupIds.add(groupId);
             }
+        }
+        return groupIds;
+    }
 
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to cleanup ODRL policies: " + e.getMessage(), e);
+    /**
+     * Copies the ODRL policies of a policy group into the given model: each policy with its rules,
+     * constraints and duties, plus the metadata of the targets they point to.
+     * Expects an open transaction on the subject's shard.
+     */
+    public void describePoliciesForGroupInTransaction(String groupId, Long subjectId, Model into) {
+        Model odrlModel = policyStore.shardFor(subjectId).getOdrlModel();
+        Resource group = odrlModel.createResource(ONTOSOV_NS + groupId);
+        for (Resource policy : odrlModel.listSubjectsWithProperty(groupProperty, group).toList()) {
+            RdfGraphs.describe(odrlModel, policy, into);
         }
+        for (RDFNode target : into.listObjectsOfProperty(targetProperty).toList()) {
+            if (target.isURIResource()) {
+                RdfGraphs.describe(odrlModel, target.asResource(), into);
+            }
+        }
+    }
+
+    /**
+     * Replaces the ODRL policies of a policy group with the ones in a replicated bundle (see
+     * describePoliciesForGroupInTransaction). Targets are shared between groups and stay in place.
+     * Expects an open write transaction on the subject's shard.
+     */
+    public void replacePoliciesForGroupInTransaction(String groupId, Long subjectId, Model policies) {
+        cleanupPoliciesForGroupInTransaction(groupId, subjectId);
+        policyStore.shardFor(subjectId).getOdrlModel().add(policies);
     }
 
     public void cleanupPoliciesForGroup(String groupId, Long subjectId) {
+        Dataset dataset = policyStore.shardFor(subjectId).getDataset();
         dataset.begin(ReadWrite.WRITE);
         try {
             cleanupPoliciesForGroupInTransaction(groupId, subjectId);
@@ -912,39 +1224,20 @@ public class ODRLService {
         } finally {
             dataset.end();
         }
+        refreshDecisionIndex(subjectId);
     }
 
     public Map<String, Map<String, Map<String, Set<String>>>> getSubjectPolicies(Long subjectId) {
         Map<String, Map<String, Map<String, Set<String>>>> result = new HashMap<>();
+        PolicyStore.Shard shard = policyStore.shardFor(subjectId);
+        Dataset dataset = shard.getDataset();
+        Model odrlModel = shard.getOdrlModel();
         dataset.begin(ReadWrite.READ);
 
         try {
             // Query for both property and entity policies using UNION
-            String queryString = "PREFIX onto: <" + ONTOSOV_NS + ">\n" +
-                    "PREFIX odrl: <" + ODRL_NS + ">\n" +
-                    "PREFIX rdf: <" + RDF.getURI() + ">\n" +
-                    "SELECT ?group ?source ?dataKey ?action\n" +
-                    "WHERE {\n" +
-                    "  ?policy rdf:type odrl:Policy ;\n" +
-                    "          onto:policyGroup ?group ;\n" +
-                    "          odrl:permission ?permission .\n" +
-                    "  ?permission odrl:target ?target ;\n" +
-                    "              odrl:action ?action ;\n" +
-                    "              odrl:assigner onto:subject-" + subjectId + " .\n" +
-                    "  ?target onto:dataSource ?source .\n" +
-                    "  {\n" +
-                    "    # Property policies\n" +
-                    "    ?target onto:dataProperty ?dataKey .\n" +
-                    "  }\n" +
-                    "  UNION\n" +
-                    "  {\n" +
-                    "    # Entity policies  \n" +
-                    "    ?target onto:entityId ?dataKey .\n" +
-                    "  }\n" +
-                    "}";
-
-            Query query = QueryFactory.create(queryString);
-            try (QueryExecution qexec = QueryExecutionFactory.create(query, odrlModel)) {
+            Map<String, RDFNode> bindings = Map.of("subject", subjectResource(subjectId));
+            try (QueryExecution qexec = SUBJECT_PERMISSIONS_QUERY.execute(odrlModel, bindings)) {
                 ResultSet rs = qexec.execSelect();
                 while (rs.hasNext()) {
                     QuerySolution solution = rs.next();
@@ -953,7 +1246,7 @@ public class ODRLService {
                     String groupId = groupUri.substring(groupUri.lastIndexOf('/') + 1);
 
                     String source = solution.getLiteral("source").getString();
-                    String dataKey = solution.getLiteral("dataKey").getString(); // property or entityId
+                    String dataKey = solution.getLiteral("dataKey").getString(); // property, entityId or selector
                     String actionUri = solution.getResource("action").getURI();
 
                     // Extract action name without namespace
@@ -987,31 +1280,7 @@ public class ODRLService {
             }
 
             // Query for prohibitions (both property and entity)
-            String prohibitionQuery = "PREFIX onto: <" + ONTOSOV_NS + ">\n" +
-                    "PREFIX odrl: <" + ODRL_NS + ">\n" +
-                    "PREFIX rdf: <" + RDF.getURI() + ">\n" +
-                    "SELECT ?group ?source ?dataKey ?action\n" +
-                    "WHERE {\n" +
-                    "  ?policy rdf:type odrl:Policy ;\n" +
-                    "          onto:policyGroup ?group ;\n" +
-                    "          odrl:prohibition ?prohibition .\n" +
-                    "  ?prohibition odrl:target ?target ;\n" +
-                    "              odrl:action ?action ;\n" +
-                    "              odrl:assigner onto:subject-" + subjectId + " .\n" +
-                    "  ?target onto:dataSource ?source .\n" +
-                    "  {\n" +
-                    "    # Property policies\n" +
-                    "    ?target onto:dataProperty ?dataKey .\n" +
-                    "  }\n" +
-                    "  UNION\n" +
-                    "  {\n" +
-                    "    # Entity policies\n" +
-                    "    ?target onto:entityId ?dataKey .\n" +
-                    "  }\n" +
-                    "}";
-
-            Query prohibQuery = QueryFactory.create(prohibitionQuery);
-            try (QueryExecution qexec = QueryExecutionFactory.create(prohibQuery, odrlModel)) {
+            try (QueryExecution qexec = SUBJECT_PROHIBITIONS_QUERY.execute(odrlModel, bindings)) {
                 ResultSet rs = qexec.execSelect();
                 while (rs.hasNext()) {
                     QuerySolution solution = rs.next();
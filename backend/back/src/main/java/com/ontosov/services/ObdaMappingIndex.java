@@ -0,0 +1,95 @@
+package com.ontosov.services;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One database's OBDA mapping file, parsed once.
+ *
+ * Keeps the (mappingId, target) pairs of the file and answers table lookups from a per-table
+ * memo, so resolving a column or entity type is a hash lookup rather than file I/O plus regex
+ * work. Instances are immutable apart from the memo and are swapped whole when the file changes.
+ */
+final class ObdaMappingIndex {
+
+    static final ObdaMappingIndex EMPTY = new ObdaMappingIndex(Collections.emptyList());
+
+    private static final Pattern PROPERTY_PATTERN = Pattern.compile("schema:(\\w+)\\s+\\{([^}]+)\\}");
+    private static final Pattern ENTITY_PATTERN = Pattern.compile(":(\\w+)/\\{(?:(\\w+)\\})?");
+    private static final Pattern CLASS_PATTERN = Pattern.compile("a schema:(\\w+)");
+
+    private static class Mapping {
+        private final String mappingIdLine;
+        private final String targetLine;
+
+        Mapping(String mappingIdLine, String targetLine) {
+            this.mappingIdLine = mappingIdLine;
+            this.targetLine = targetLine;
+        }
+    }
+
+    private final List<Mapping> mappings;
+    private final Map<String, DatabaseConfigService.TableMapping> tables = new ConcurrentHashMap<>();
+
+    private ObdaMappingIndex(List<Mapping> mappings) {
+        this.mappings = mappings;
+    }
+
+    static ObdaMappingIndex parse(List<String> lines) {
+        List<Mapping> mappings = new ArrayList<>();
+        for (int i = 0; i + 1 < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.startsWith("mappingId")) {
+                mappings.add(new Mapping(line, lines.get(i + 1).trim()));
+            }
+        }
+        return new ObdaMappingIndex(mappings);
+    }
+
+    static ObdaMappingIndex parse(String content) {
+        return parse(content.lines().toList());
+    }
+
+    /**
+     * Column properties, entity type and key column of a table
+     */
+    DatabaseConfigService.TableMapping table(String tableName) {
+        return tables.computeIfAbsent(tableName, this::buildTable);
+    }
+
+    private DatabaseConfigService.TableMapping buildTable(String tableName) {
+        String entityType = null;
+        String keyColumn = null;
+        Map<String, String> columnProperties = new HashMap<>();
+
+        for (Mapping mapping : mappings) {
+            // Mappings are attributed to a table by their mappingId mentioning it
+            if (!mapping.mappingIdLine.contains(tableName)) {
+                continue;
+            }
+
+            // First mapping that matches wins
+            Matcher propertyMatcher = PROPERTY_PATTERN.matcher(mapping.targetLine);
+            while (propertyMatcher.find()) {
+                columnProperties.putIfAbsent(propertyMatcher.group(2), propertyMatcher.group(1));
+            }
+
+            if (entityType == null) {
+                Matcher entityMatcher = ENTITY_PATTERN.matcher(mapping.targetLine);
+                if (entityMatcher.find()) {
+                    entityType = entityMatcher.group(1);
+                    keyColumn = entityMatcher.group(2);
+                } else {
+                    Matcher classMatcher = CLASS_PATTERN.matcher(mapping.targetLine);
+                    if (classMatcher.find()) {
+                        entityType = classMatcher.group(1);
+                    }
+                }
+            }
+        }
+
+        return new DatabaseConfigService.TableMapping(entityType, keyColumn, columnProperties);
+    }
+}
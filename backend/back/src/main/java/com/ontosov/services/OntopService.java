@@ -5,6 +5,8 @@ import it.unibz.inf.ontop.rdf4j.repository.OntopRepository;
 import org.eclipse.rdf4j.query.TupleQuery;
 import org.eclipse.rdf4j.query.TupleQueryResult;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,7 +23,11 @@ import java.util.stream.Collectors;
 public class OntopService {
     private static final Logger log = LoggerFactory.getLogger(OntopService.class);
     private static final String ONTOP_DIR = "src/main/resources/ontop/controllers/";
-    private final ExecutorService executorService = Executors.newFixedThreadPool(10);
+
+    // Shared blocking-work pool, platform or virtual threads (see ExecutionConfig)
+    @Autowired
+    @Qualifier("blockingTaskExecutor")
+    private ExecutorService executorService;
 
     // Cache for database configurations per controller (controllerId -> configs)
     private final ConcurrentHashMap<Long, Map<String, DatabaseConfig>> controllerConfigCache = new ConcurrentHashMap<>();
@@ -87,7 +93,6 @@ public class OntopService {
     public void cleanup() {
         log.info("Shutting down OntopService, cleaning up cached repositories");
         invalidateAllCaches();
-        executorService.shutdown();
     }
 
     private Map<String, DatabaseConfig> getDatabaseConfigs(Long controllerId) {
@@ -0,0 +1,176 @@
+package com.ontosov.services;
+
+import com.ontosov.dto.PolicyDecisionDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streaming binary PDP endpoint for high-rate callers (see PdpWireProtocol).
+ *
+ * Each client keeps one long-lived TCP connection and streams requests without waiting for
+ * earlier decisions; the server answers them in order on the same connection and flushes
+ * whenever it has caught up with the input. Decisions go through the same PDP, decision cache
+ * and audit pipeline as /api/controller/check-access. Disabled unless ontosov.pdp.binary.enabled=true.
+ */
+@Component
+public class PdpBinaryServer {
+    private static final Logger log = LoggerFactory.getLogger(PdpBinaryServer.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final PolicyEvaluationService policyEvaluationService;
+    private final AuditPipeline auditPipeline;
+    private final boolean enabled;
+    private final String host;
+    private final int port;
+    private final int maxConnections;
+
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private volatile ServerSocket serverSocket;
+
+    @Autowired
+    public PdpBinaryServer(PolicyEvaluationService policyEvaluationService,
+                           AuditPipeline auditPipeline,
+                           @Value("${ontosov.pdp.binary.enabled:false}") boolean enabled,
+                           @Value("${ontosov.pdp.binary.host:0.0.0.0}") String host,
+                           @Value("${ontosov.pdp.binary.port:9090}") int port,
+                           @Value("${ontosov.pdp.binary.max-connections:256}") int maxConnections) {
+        this.policyEvaluationService = policyEvaluationService;
+        this.auditPipeline = auditPipeline;
+        this.enabled = enabled;
+        this.host = host;
+        this.port = port;
+        this.maxConnections = maxConnections;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(host, port));
+        Thread acceptor = new Thread(this::acceptLoop, "pdp-binary-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Binary PDP interface listening on {}:{}", host, getPort());
+    }
+
+    /**
+     * Bound port (differs from the configured one when that is 0), or -1 when not running
+     */
+    public int getPort() {
+        ServerSocket socket = serverSocket;
+        return socket != null ? socket.getLocalPort() : -1;
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                if (connections.size() >= maxConnections) {
+                    log.warn("Rejecting binary PDP connection from {}: {} connections open",
+                            socket.getRemoteSocketAddress(), connections.size());
+                    socket.close();
+                    continue;
+                }
+                connections.add(socket);
+                Thread handler = new Thread(() -> serve(socket), "pdp-binary-" + socket.getPort());
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("Error accepting binary PDP connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE))) {
+            socket.setTcpNoDelay(true);
+
+            if (in.readInt() != PdpWireProtocol.MAGIC) {
+                log.warn("Closing binary PDP connection from {}: bad handshake", socket.getRemoteSocketAddress());
+                return;
+            }
+            out.writeInt(PdpWireProtocol.MAGIC);
+            out.flush();
+
+            while (true) {
+                byte type = in.readByte();
+                if (type != PdpWireProtocol.EVALUATE) {
+                    throw new IOException("Unexpected PDP message type: " + type);
+                }
+                PdpWireProtocol.Request message = PdpWireProtocol.readRequest(in);
+                handle(message, out);
+
+                // Batch writes while the client keeps streaming; flush once we have caught up
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (EOFException | SocketException e) {
+            // Client closed the stream
+        } catch (IOException e) {
+            log.warn("Binary PDP connection from {} failed: {}", socket.getRemoteSocketAddress(), e.getMessage());
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private void handle(PdpWireProtocol.Request message, DataOutputStream out) throws IOException {
+        PolicyDecisionDTO decision;
+        try {
+            decision = policyEvaluationService.evaluateAccess(message.request());
+            auditPipeline.record(message.request(), decision, true);
+        } catch (Exception e) {
+            PdpWireProtocol.writeError(out, message.correlationId(), "Error processing access request: " + e.getMessage());
+            return;
+        }
+
+        if (message.explain()) {
+            decision.setReason(decision.getExplanation());
+        }
+        PdpWireProtocol.writeDecision(out, message.correlationId(), decision);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ServerSocket socket = serverSocket;
+        if (socket == null) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.warn("Error closing binary PDP interface: {}", e.getMessage());
+        }
+        for (Socket connection : connections) {
+            try {
+                connection.close();
+            } catch (IOException ignored) {
+                // Already closing
+            }
+        }
+    }
+}
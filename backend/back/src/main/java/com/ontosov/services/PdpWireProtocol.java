@@ -0,0 +1,213 @@
+package com.ontosov.services;
+
+import com.ontosov.dto.AccessRequestDTO;
+import com.ontosov.dto.DecisionResult;
+import com.ontosov.dto.ObligationDTO;
+import com.ontosov.dto.PolicyDecisionDTO;
+import com.ontosov.dto.ReasonCode;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary encoding of PDP requests and decisions for the streaming PDP interface.
+ *
+ * A connection starts with both sides sending MAGIC. After that the client streams request
+ * messages and the server streams one decision (or error) message per request, matched by the
+ * client-assigned correlation ID, in request order. Messages are self-delimiting DataOutput fields:
+ *
+ *   request:  byte EVALUATE, long correlationId, byte flags, controllerId, then the
+ *             AccessRequestDTO strings in declaration order
+ *   decision: byte DECISION, long correlationId, byte result, reason code name, reason params,
+ *             policyGroupId, policyVersion, validUntil (epoch day), obligations, explanation
+ *   error:    byte ERROR, long correlationId, message
+ *
+ * Nullable values are written as a presence byte followed by the value.
+ */
+public final class PdpWireProtocol {
+    public static final int MAGIC = 0x50445031;    // "PDP1"
+
+    public static final byte EVALUATE = 1;
+    public static final byte DECISION = 2;
+    public static final byte ERROR = 3;
+
+    /** Request flag: render the human-readable reason into the decision */
+    public static final byte FLAG_EXPLAIN = 1;
+
+    private PdpWireProtocol() {
+    }
+
+    /**
+     * A decoded request message
+     */
+    public record Request(long correlationId, boolean explain, AccessRequestDTO request) {
+    }
+
+    /**
+     * A decoded response message; decision is null for errors
+     */
+    public record Response(long correlationId, PolicyDecisionDTO decision, String error) {
+    }
+
+    // ==================== REQUESTS ====================
+
+    public static void writeRequest(DataOutput out, long correlationId, boolean explain, AccessRequestDTO request) throws IOException {
+        out.writeByte(EVALUATE);
+        out.writeLong(correlationId);
+        out.writeByte(explain ? FLAG_EXPLAIN : 0);
+        writeLong(out, request.getControllerId());
+        writeString(out, request.getSubjectTaxId());
+        writeString(out, request.getAction());
+        writeString(out, request.getPurpose());
+        writeString(out, request.getDataDescription());
+        writeString(out, request.getDataSource());
+        writeString(out, request.getTableName());
+        writeString(out, request.getDataProperty());
+        writeString(out, request.getAiAlgorithm());
+        writeString(out, request.getRecordId());
+    }
+
+    /**
+     * Reads the body of a request message, after its EVALUATE type byte
+     */
+    public static Request readRequest(DataInput in) throws IOException {
+        long correlationId = in.readLong();
+        boolean explain = (in.readByte() & FLAG_EXPLAIN) != 0;
+
+        AccessRequestDTO request = new AccessRequestDTO();
+        request.setControllerId(readLong(in));
+        request.setSubjectTaxId(readString(in));
+        request.setAction(readString(in));
+        request.setPurpose(readString(in));
+        request.setDataDescription(readString(in));
+        request.setDataSource(readString(in));
+        request.setTableName(readString(in));
+        request.setDataProperty(readString(in));
+        request.setAiAlgorithm(readString(in));
+        request.setRecordId(readString(in));
+        return new Request(correlationId, explain, request);
+    }
+
+    // ==================== RESPONSES ====================
+
+    public static void writeDecision(DataOutput out, long correlationId, PolicyDecisionDTO decision) throws IOException {
+        out.writeByte(DECISION);
+        out.writeLong(correlationId);
+        out.writeByte(decision.getResult() == DecisionResult.PERMIT ? 0 : 1);
+        writeString(out, decision.getReasonCode() != null ? decision.getReasonCode().name() : null);
+        writeStrings(out, decision.getReasonParams());
+        writeString(out, decision.getPolicyGroupId());
+        writeLong(out, decision.getPolicyVersion() != null ? decision.getPolicyVersion().longValue() : null);
+        writeLong(out, decision.getValidUntil() != null ? decision.getValidUntil().toEpochDay() : null);
+
+        List<ObligationDTO> obligations = decision.getObligations() != null ? decision.getObligations() : List.of();
+        out.writeInt(obligations.size());
+        for (ObligationDTO obligation : obligations) {
+            writeString(out, obligation.getType());
+            Map<String, String> details = obligation.getDetails() != null ? obligation.getDetails() : Map.of();
+            out.writeInt(details.size());
+            for (Map.Entry<String, String> detail : details.entrySet()) {
+                writeString(out, detail.getKey());
+                writeString(out, detail.getValue());
+            }
+        }
+
+        writeString(out, decision.getReason());
+    }
+
+    public static void writeError(DataOutput out, long correlationId, String message) throws IOException {
+        out.writeByte(ERROR);
+        out.writeLong(correlationId);
+        writeString(out, message);
+    }
+
+    /**
+     * Reads one response message, including its type byte
+     */
+    public static Response readResponse(DataInput in) throws IOException {
+        byte type = in.readByte();
+        long correlationId = in.readLong();
+        if (type == ERROR) {
+            return new Response(correlationId, null, readString(in));
+        }
+        if (type != DECISION) {
+            throw new IOException("Unexpected PDP message type: " + type);
+        }
+
+        PolicyDecisionDTO decision = new PolicyDecisionDTO();
+        decision.setResult(in.readByte() == 0 ? DecisionResult.PERMIT : DecisionResult.DENY);
+        String reasonCode = readString(in);
+        decision.setReasonCode(reasonCode != null ? ReasonCode.valueOf(reasonCode) : null);
+        decision.setReasonParams(readStrings(in));
+        decision.setPolicyGroupId(readString(in));
+        Long policyVersion = readLong(in);
+        decision.setPolicyVersion(policyVersion != null ? policyVersion.intValue() : null);
+        Long validUntil = readLong(in);
+        decision.setValidUntil(validUntil != null ? LocalDate.ofEpochDay(validUntil) : null);
+
+        int obligationCount = in.readInt();
+        List<ObligationDTO> obligations = new ArrayList<>(obligationCount);
+        for (int i = 0; i < obligationCount; i++) {
+            ObligationDTO obligation = new ObligationDTO();
+            obligation.setType(readString(in));
+            int detailCount = in.readInt();
+            Map<String, String> details = new HashMap<>();
+            for (int j = 0; j < detailCount; j++) {
+                details.put(readString(in), readString(in));
+            }
+            obligation.setDetails(details);
+            obligations.add(obligation);
+        }
+        decision.setObligations(obligations);
+
+        decision.setReason(readString(in));
+        return new Response(correlationId, decision, null);
+    }
+
+    // ==================== FIELDS ====================
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeLong(DataOutput out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeStrings(DataOutput out, List<String> values) throws IOException {
+        List<String> list = values != null ? values : List.of();
+        out.writeInt(list.size());
+        for (String value : list) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,151 @@
+package com.ontosov.services;
+
+import com.ontosov.dto.PolicyChangeDTO;
+import com.ontosov.dto.PolicyChangeFeedDTO;
+import com.ontosov.dto.PolicyChangeType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.*;
+
+/**
+ * Ordered log of committed policy-group writes with monotonic sequence numbers.
+ *
+ * PolicyGroupService appends one entry per create, update, delete, assign and expiry after the
+ * write has become visible to the PDP, so a reader that sees sequence N also sees the policies
+ * as of N. The newest ontosov.policy.change-log.capacity entries are kept in memory; a reader
+ * that falls further behind, or that resumes against another log (e.g. after a restart), gets
+ * reset=true and has to rescan before resuming.
+ *
+ * Readers long-poll: poll parks the request until a matching change arrives or the timeout
+ * passes, without holding a servlet thread.
+ */
+@Component
+public class PolicyChangeLog {
+
+    private record Waiter(long since, Long subjectId, int limit, DeferredResult<PolicyChangeFeedDTO> result) {
+    }
+
+    private final String logId = UUID.randomUUID().toString();
+    private final int capacity;
+
+    // Guarded by this
+    private final ArrayDeque<PolicyChangeDTO> entries = new ArrayDeque<>();
+    private final List<Waiter> waiters = new ArrayList<>();
+    private long lastSequence;
+
+    @Autowired
+    public PolicyChangeLog(@Value("${ontosov.policy.change-log.capacity:100000}") int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Appends a committed change and wakes the readers it matches. Returns its sequence number.
+     */
+    public long append(Long subjectId, String groupId, PolicyChangeType type) {
+        List<Waiter> ready = new ArrayList<>();
+        long sequence;
+        synchronized (this) {
+            sequence = ++lastSequence;
+            entries.addLast(new PolicyChangeDTO(sequence, subjectId, groupId, type, System.currentTimeMillis()));
+            if (entries.size() > capacity) {
+                entries.removeFirst();
+            }
+
+            Iterator<Waiter> iterator = waiters.iterator();
+            while (iterator.hasNext()) {
+                Waiter waiter = iterator.next();
+                if (waiter.subjectId == null || waiter.subjectId.equals(subjectId)) {
+                    iterator.remove();
+                    ready.add(waiter);
+                }
+            }
+        }
+
+        // Complete outside the lock; the result is handed to the container thread
+        for (Waiter waiter : ready) {
+            waiter.result.setResult(read(logId, waiter.since, waiter.subjectId, waiter.limit));
+        }
+        return sequence;
+    }
+
+    /**
+     * Changes after since, oldest first, optionally of one subject only. Never waits.
+     */
+    public synchronized PolicyChangeFeedDTO read(String readerLogId, long since, Long subjectId, int limit) {
+        PolicyChangeFeedDTO feed = new PolicyChangeFeedDTO();
+        feed.setLogId(logId);
+        feed.setLatestSequence(lastSequence);
+
+        long oldestRetained = entries.isEmpty() ? lastSequence + 1 : entries.peekFirst().getSequence();
+        if ((readerLogId != null && !readerLogId.equals(logId)) || since > lastSequence || since < oldestRetained - 1) {
+            feed.setReset(true);
+            feed.setNextSince(lastSequence);
+            return feed;
+        }
+
+        Iterator<PolicyChangeDTO> iterator = entries.descendingIterator();
+        Deque<PolicyChangeDTO> page = new ArrayDeque<>();
+        while (iterator.hasNext()) {
+            PolicyChangeDTO change = iterator.next();
+            if (change.getSequence() <= since) {
+                break;
+            }
+            if (subjectId == null || subjectId.equals(change.getSubjectId())) {
+                page.addFirst(change);
+                if (page.size() > limit) {
+                    page.removeLast();
+                }
+            }
+        }
+
+        for (PolicyChangeDTO change : page) {
+            feed.getChanges().add(change);
+        }
+        // A full page resumes after its last entry, otherwise after everything scanned
+        feed.setNextSince(limit > 0 && page.size() == limit ? page.peekLast().getSequence() : lastSequence);
+        return feed;
+    }
+
+    /**
+     * Long-poll read: answers at once if there are changes after since (or the reader must
+     * reset), otherwise when the next matching change is appended or after timeoutMillis
+     * with an empty page.
+     */
+    public DeferredResult<PolicyChangeFeedDTO> poll(String readerLogId, long since, Long subjectId, int limit,
+                                                    long timeoutMillis) {
+        DeferredResult<PolicyChangeFeedDTO> result = new DeferredResult<>(timeoutMillis);
+        synchronized (this) {
+            PolicyChangeFeedDTO feed = read(readerLogId, since, subjectId, limit);
+            if (feed.isReset() || !feed.getChanges().isEmpty()) {
+                result.setResult(feed);
+                return result;
+            }
+
+            Waiter waiter = new Waiter(feed.getNextSince(), subjectId, limit, result);
+            waiters.add(waiter);
+            result.onTimeout(() -> {
+                synchronized (this) {
+                    waiters.remove(waiter);
+                }
+                result.setResult(read(logId, waiter.since, subjectId, limit));
+            });
+            result.onCompletion(() -> {
+                synchronized (this) {
+                    waiters.remove(waiter);
+                }
+            });
+        }
+        return result;
+    }
+
+    public String getLogId() {
+        return logId;
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+}
@@ -0,0 +1,170 @@
+package com.ontosov.services;
+
+import com.ontosov.dto.AccessRequestDTO;
+import com.ontosov.dto.PolicyDecisionDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded LRU cache of PDP decisions.
+ *
+ * Each entry remembers the subject's policy epoch at the time it was computed and is
+ * discarded as soon as the subject's epoch moves on. PERMITs granted under an expiring
+ * policy additionally carry the last day they are valid.
+ */
+@Component
+public class PolicyDecisionCache {
+
+    private static class Entry {
+        private final Long subjectId;
+        private final long epoch;
+        private final PolicyDecisionDTO decision;
+
+        Entry(Long subjectId, long epoch, PolicyDecisionDTO decision) {
+            this.subjectId = subjectId;
+            this.epoch = epoch;
+            this.decision = decision;
+        }
+    }
+
+    private final int maxEntries;
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public PolicyDecisionCache(@Value("${ontosov.pdp.cache.max-entries:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > PolicyDecisionCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Builds the cache key from every request field that influences the decision
+     */
+    public static String keyFor(AccessRequestDTO request) {
+        return String.join("\u0000",
+                String.valueOf(request.getControllerId()),
+                String.valueOf(request.getSubjectTaxId()),
+                String.valueOf(request.getDataSource()),
+                String.valueOf(request.getTableName()),
+                String.valueOf(request.getDataProperty()),
+                String.valueOf(request.getRecordId()),
+                String.valueOf(request.getAction()),
+                String.valueOf(request.getPurpose()),
+                String.valueOf(request.getAiAlgorithm()));
+    }
+
+    /**
+     * Returns a copy of the cached decision, or null if there is no entry, the subject's
+     * policies changed since it was computed, or a cached PERMIT has expired.
+     */
+    public PolicyDecisionDTO get(String key, ToLongFunction<Long> currentEpoch) {
+        if (maxEntries <= 0) {
+            return null;
+        }
+
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        LocalDate validUntil = entry.decision.getValidUntil();
+        if (entry.epoch != currentEpoch.applyAsLong(entry.subjectId) ||
+                (validUntil != null && LocalDate.now().isAfter(validUntil))) {
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+            invalidations.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return copyOf(entry.decision);
+    }
+
+    /**
+     * Stores a decision computed while the subject was at the given epoch
+     */
+    public void put(String key, Long subjectId, long epoch, PolicyDecisionDTO decision) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        Entry entry = new Entry(subjectId, epoch, copyOf(decision));
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Drops every cached decision for a controller, e.g. after its mappings changed
+     */
+    public void invalidateController(Long controllerId) {
+        String prefix = controllerId + "\u0000";
+        synchronized (entries) {
+            entries.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        stats.put("hitRate", total > 0 ? String.format("%.1f%%", hitCount * 100.0 / total) : "0.0%");
+        return stats;
+    }
+
+    private static PolicyDecisionDTO copyOf(PolicyDecisionDTO decision) {
+        PolicyDecisionDTO copy = new PolicyDecisionDTO();
+        copy.setResult(decision.getResult());
+        copy.setReasonCode(decision.getReasonCode());
+        copy.setReasonParams(decision.getReasonParams());
+        copy.setReason(decision.getReason());
+        copy.setPolicyGroupId(decision.getPolicyGroupId());
+        copy.setPolicyVersion(decision.getPolicyVersion());
+        copy.setObligations(decision.getObligations() != null ?
+                new ArrayList<>(decision.getObligations()) : new ArrayList<>());
+        copy.setValidUntil(decision.getValidUntil());
+        return copy;
+    }
+}
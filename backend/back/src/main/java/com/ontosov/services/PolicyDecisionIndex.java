@@ -0,0 +1,304 @@
+package com.ontosov.services;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiled, in-memory view of the ODRL policy graph.
+ *
+ * Rules are grouped per subject and keyed by (dataSource, schema property),
+ * (dataSource, entity id) or (dataSource, entity type) for entity selectors, which cover
+ * all records of a type or a record ID range (see EntitySelector). Each target holds the permitted actions with their
+ * assignees, the prohibited actions and the policy groups that contributed them,
+ * so access checks can be answered without opening a TDB2 transaction.
+ *
+ * A subject's rules are rebuilt as a whole and swapped in with a single map write,
+ * so readers never observe a half-updated subject.
+ */
+public class PolicyDecisionIndex {
+
+    /**
+     * Rules that apply to one target (a property or an entity within a data source)
+     */
+    public static class TargetRules {
+        // action URI -> assignee URIs holding that permission
+        private final Map<String, Set<String>> permittedAssignees = new HashMap<>();
+        private final Set<String> prohibitedActions = new HashSet<>();
+        // policy group id -> action URIs the group permits on this target
+        private final Map<String, Set<String>> groupActions = new HashMap<>();
+
+        public boolean isPermitted(String actionUri, String controllerUri, String allControllersUri) {
+            Set<String> assignees = permittedAssignees.get(actionUri);
+            return assignees != null &&
+                    (assignees.contains(controllerUri) || assignees.contains(allControllersUri));
+        }
+
+        public boolean isProhibited(String actionUri) {
+            return prohibitedActions.contains(actionUri);
+        }
+
+        public Set<String> getPermittedActions() {
+            return Collections.unmodifiableSet(permittedAssignees.keySet());
+        }
+
+        public Set<String> getProhibitedActions() {
+            return Collections.unmodifiableSet(prohibitedActions);
+        }
+
+        public Map<String, Set<String>> getGroupActions() {
+            return Collections.unmodifiableMap(groupActions);
+        }
+
+        private void add(String groupId, boolean prohibition, String actionUri, String assigneeUri) {
+            if (prohibition) {
+                prohibitedActions.add(actionUri);
+                return;
+            }
+
+            Set<String> assignees = permittedAssignees.computeIfAbsent(actionUri, k -> new HashSet<>());
+            if (assigneeUri != null) {
+                assignees.add(assigneeUri);
+            }
+            if (groupId != null) {
+                groupActions.computeIfAbsent(groupId, k -> new HashSet<>()).add(actionUri);
+            }
+        }
+
+        /**
+         * Rules of several targets that apply to the same data, as if they were one target
+         */
+        static TargetRules merge(List<TargetRules> targets) {
+            if (targets.size() == 1) {
+                return targets.get(0);
+            }
+            TargetRules merged = new TargetRules();
+            for (TargetRules target : targets) {
+                target.permittedAssignees.forEach((action, assignees) ->
+                        merged.permittedAssignees.computeIfAbsent(action, k -> new HashSet<>()).addAll(assignees));
+                merged.prohibitedActions.addAll(target.prohibitedActions);
+                target.groupActions.forEach((groupId, actions) ->
+                        merged.groupActions.computeIfAbsent(groupId, k -> new HashSet<>()).addAll(actions));
+            }
+            return merged;
+        }
+    }
+
+    /**
+     * Receives the targets of a subject; exactly one of property / entityId is non-null
+     */
+    @FunctionalInterface
+    public interface TargetVisitor {
+        void visit(String dataSource, String property, String entityId, TargetRules rules);
+    }
+
+    /**
+     * Receives the entity selector targets of a subject
+     */
+    @FunctionalInterface
+    public interface SelectorVisitor {
+        void visit(String dataSource, EntitySelector selector, TargetRules rules);
+    }
+
+    private record SelectorTarget(EntitySelector selector, TargetRules rules) {
+    }
+
+    /**
+     * Immutable-after-build rule set for a single subject
+     */
+    public static class SubjectRules {
+        private final Map<String, TargetRules> properties = new HashMap<>();
+        private final Map<String, TargetRules> entities = new HashMap<>();
+        // (dataSource, entity type) -> selectors of that type
+        private final Map<String, List<SelectorTarget>> selectors = new HashMap<>();
+
+        /**
+         * Adds one permission or prohibition row read from the ODRL graph.
+         * Exactly one of property / entityId is expected to be non-null.
+         */
+        public void addRule(String groupId, boolean prohibition, String dataSource, String property,
+                            String entityId, String actionUri, String assigneeUri) {
+            TargetRules rules;
+            if (property != null) {
+                rules = properties.computeIfAbsent(key(dataSource, property), k -> new TargetRules());
+            } else if (entityId != null) {
+                rules = entities.computeIfAbsent(key(dataSource, entityId), k -> new TargetRules());
+            } else {
+                return;
+            }
+            rules.add(groupId, prohibition, actionUri, assigneeUri);
+        }
+
+        /**
+         * Adds one permission or prohibition row of an entity selector target
+         */
+        public void addSelectorRule(String groupId, boolean prohibition, String dataSource, EntitySelector selector,
+                                    String actionUri, String assigneeUri) {
+            List<SelectorTarget> targets = selectors.computeIfAbsent(
+                    key(dataSource, selector.getEntityType()), k -> new ArrayList<>());
+            TargetRules rules = null;
+            for (SelectorTarget target : targets) {
+                if (target.selector().equals(selector)) {
+                    rules = target.rules();
+                }
+            }
+            if (rules == null) {
+                rules = new TargetRules();
+                targets.add(new SelectorTarget(selector, rules));
+            }
+            rules.add(groupId, prohibition, actionUri, assigneeUri);
+        }
+
+        public TargetRules getPropertyRules(String dataSource, String property) {
+            return properties.get(key(dataSource, property));
+        }
+
+        /**
+         * Rules of an entity (http://example.org/resource#Type/recordId): its own rules merged with
+         * those of every selector covering it. Null if nothing applies.
+         */
+        public TargetRules getEntityRules(String dataSource, String entityId) {
+            TargetRules own = entities.get(key(dataSource, entityId));
+            if (selectors.isEmpty()) {
+                return own;
+            }
+
+            int hash = entityId.lastIndexOf('#');
+            int slash = entityId.indexOf('/', hash + 1);
+            List<SelectorTarget> targets = hash < 0 || slash < 0 ? null :
+                    selectors.get(key(dataSource, entityId.substring(hash + 1, slash)));
+            if (targets == null) {
+                return own;
+            }
+
+            String recordId = entityId.substring(slash + 1);
+            List<TargetRules> matching = new ArrayList<>();
+            if (own != null) {
+                matching.add(own);
+            }
+            for (SelectorTarget target : targets) {
+                if (target.selector().covers(recordId)) {
+                    matching.add(target.rules());
+                }
+            }
+            return matching.isEmpty() ? null : TargetRules.merge(matching);
+        }
+
+        /**
+         * Entity selectors of one entity type in a data source
+         */
+        public List<EntitySelector> getSelectors(String dataSource, String entityType) {
+            List<EntitySelector> result = new ArrayList<>();
+            for (SelectorTarget target : selectors.getOrDefault(key(dataSource, entityType), List.of())) {
+                result.add(target.selector());
+            }
+            return result;
+        }
+
+        /**
+         * Entity ids with rules of their own in a data source that start with the given prefix,
+         * e.g. every individually governed record of one entity type. Records covered only by
+         * a selector are not listed.
+         */
+        public List<String> getEntityIds(String dataSource, String entityIdPrefix) {
+            String keyPrefix = key(dataSource, entityIdPrefix);
+            List<String> entityIds = new ArrayList<>();
+            for (String entityKey : entities.keySet()) {
+                if (entityKey.startsWith(keyPrefix)) {
+                    entityIds.add(entityKey.substring(dataSource.length() + 1));
+                }
+            }
+            return entityIds;
+        }
+
+        public int size() {
+            int size = properties.size() + entities.size();
+            for (List<SelectorTarget> targets : selectors.values()) {
+                size += targets.size();
+            }
+            return size;
+        }
+
+        /**
+         * Visits every property and entity target, e.g. to copy the rules into a replica snapshot
+         */
+        public void forEachTarget(TargetVisitor visitor) {
+            properties.forEach((targetKey, rules) -> {
+                int separator = targetKey.indexOf('\u0000');
+                visitor.visit(targetKey.substring(0, separator), targetKey.substring(separator + 1), null, rules);
+            });
+            entities.forEach((targetKey, rules) -> {
+                int separator = targetKey.indexOf('\u0000');
+                visitor.visit(targetKey.substring(0, separator), null, targetKey.substring(separator + 1), rules);
+            });
+        }
+
+        public void forEachSelector(SelectorVisitor visitor) {
+            selectors.forEach((typeKey, targets) -> {
+                String dataSource = typeKey.substring(0, typeKey.indexOf('\u0000'));
+                for (SelectorTarget target : targets) {
+                    visitor.visit(dataSource, target.selector(), target.rules());
+                }
+            });
+        }
+
+        private static String key(String dataSource, String dataKey) {
+            return dataSource + '\u0000' + dataKey;
+        }
+    }
+
+    private final ConcurrentHashMap<Long, SubjectRules> subjects = new ConcurrentHashMap<>();
+
+    /**
+     * Replaces the rules of a subject. An empty rule set removes the subject.
+     */
+    public void replaceSubject(Long subjectId, SubjectRules rules) {
+        if (rules == null || rules.size() == 0) {
+            subjects.remove(subjectId);
+        } else {
+            subjects.put(subjectId, rules);
+        }
+    }
+
+    /**
+     * Replaces the whole index, e.g. after a full rebuild at startup
+     */
+    public void replaceAll(Map<Long, SubjectRules> rulesBySubject) {
+        subjects.keySet().retainAll(rulesBySubject.keySet());
+        rulesBySubject.forEach(this::replaceSubject);
+    }
+
+    public TargetRules getPropertyRules(Long subjectId, String dataSource, String property) {
+        SubjectRules rules = subjects.get(subjectId);
+        return rules != null ? rules.getPropertyRules(dataSource, property) : null;
+    }
+
+    public TargetRules getEntityRules(Long subjectId, String dataSource, String entityId) {
+        SubjectRules rules = subjects.get(subjectId);
+        return rules != null ? rules.getEntityRules(dataSource, entityId) : null;
+    }
+
+    public List<String> getEntityIds(Long subjectId, String dataSource, String entityIdPrefix) {
+        SubjectRules rules = subjects.get(subjectId);
+        return rules != null ? rules.getEntityIds(dataSource, entityIdPrefix) : new ArrayList<>();
+    }
+
+    public List<EntitySelector> getEntitySelectors(Long subjectId, String dataSource, String entityType) {
+        SubjectRules rules = subjects.get(subjectId);
+        return rules != null ? rules.getSelectors(dataSource, entityType) : new ArrayList<>();
+    }
+
+    /**
+     * Rules of a subject, or null if the subject has none
+     */
+    public SubjectRules getSubjectRules(Long subjectId) {
+        return subjects.get(subjectId);
+    }
+
+    public Set<Long> getSubjectIds() {
+        return Collections.unmodifiableSet(subjects.keySet());
+    }
+
+    public int getSubjectCount() {
+        return subjects.size();
+    }
+}
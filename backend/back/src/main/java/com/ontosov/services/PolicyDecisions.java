@@ -0,0 +1,193 @@
+package com.ontosov.services;
+
+import com.ontosov.dto.AccessRequestDTO;
+import com.ontosov.dto.DecisionResult;
+import com.ontosov.dto.ObligationDTO;
+import com.ontosov.dto.PolicyDecisionDTO;
+import com.ontosov.dto.ReasonCode;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decision rules shared by the PDP (PolicyEvaluationService) and the embeddable policy replica
+ * (com.ontosov.client.LocalPolicyReplica): request validation, policy combination and the shape
+ * of PERMIT/DENY decisions. Keeping them in one place keeps local and remote decisions identical.
+ */
+public final class PolicyDecisions {
+    private static final String ENTITY_NAMESPACE = "http://example.org/resource#";
+
+    private PolicyDecisions() {
+    }
+
+    /**
+     * Checks the request shape. Returns a DENY decision if invalid, null otherwise.
+     */
+    public static PolicyDecisionDTO validate(AccessRequestDTO request) {
+        if (request.getSubjectTaxId() == null || request.getAction() == null) {
+            return deny(ReasonCode.INVALID_REQUEST, "missing subject or action");
+        }
+
+        boolean isEntityRequest = isEntityRequest(request);
+        boolean isPropertyRequest = request.getDataProperty() != null && !request.getDataProperty().trim().isEmpty();
+
+        if (!isEntityRequest && !isPropertyRequest) {
+            return deny(ReasonCode.INVALID_REQUEST, "must specify either dataProperty (for property check) or recordId (for entity check)");
+        }
+
+        if (isEntityRequest && isPropertyRequest) {
+            return deny(ReasonCode.INVALID_REQUEST, "cannot specify both dataProperty and recordId");
+        }
+
+        if (isEntityRequest) {
+            if (request.getDataSource() == null || request.getRecordId() == null || request.getTableName() == null) {
+                return deny(ReasonCode.INVALID_REQUEST, "must specify dataSource, tableName, and recordId");
+            }
+        } else if (request.getDataSource() == null || request.getDataProperty() == null || request.getTableName() == null) {
+            return deny(ReasonCode.INVALID_REQUEST, "must specify dataSource, tableName, and dataProperty");
+        }
+
+        return null;
+    }
+
+    public static boolean isEntityRequest(AccessRequestDTO request) {
+        return request.getRecordId() != null && !request.getRecordId().trim().isEmpty();
+    }
+
+    /**
+     * Data source identifier used in policy storage, formatted the same way as in the Subject UI
+     */
+    public static String dataSourceIdentifier(String controllerName, String databaseName) {
+        return controllerName + " - " + databaseName;
+    }
+
+    /**
+     * Full entity URI of a record: http://example.org/resource#EntityType/recordId
+     */
+    public static String entityUri(String entityType, String recordId) {
+        return ENTITY_NAMESPACE + entityType + "/" + recordId;
+    }
+
+    /**
+     * IDs of the policy groups that permit the action, given the group -> permitted actions
+     * map of a data element, in map order
+     */
+    public static List<String> applicableGroupIds(Map<String, Set<String>> groupActions, String action) {
+        List<String> groupIds = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> entry : groupActions.entrySet()) {
+            if (entry.getValue().contains(action)) {
+                groupIds.add(entry.getKey());
+            }
+        }
+        return groupIds;
+    }
+
+    /**
+     * Evaluates ALL applicable policies with "most restrictive wins": any denying policy
+     * denies the request, otherwise it is permitted with the merged obligations
+     */
+    public static PolicyDecisionDTO combine(AccessRequestDTO request, List<CompiledPolicyGroup> applicablePolicies) {
+        List<String> denials = new ArrayList<>();  // (policy name, failure) pairs
+        List<CompiledPolicyGroup> permitPolicies = new ArrayList<>();
+        List<ObligationDTO> allObligations = new ArrayList<>();
+
+        for (CompiledPolicyGroup policy : applicablePolicies) {
+            // Check constraints (purpose, expiration)
+            if (!policy.satisfiesConstraints(request)) {
+                denials.add(policy.getName());
+                denials.add(ReasonCode.CONSTRAINTS);
+                continue;
+            }
+
+            // Check AI restrictions if applicable
+            if (!policy.satisfiesAiRestrictions(request)) {
+                denials.add(policy.getName());
+                denials.add(ReasonCode.AI_RESTRICTIONS);
+                continue;
+            }
+
+            // This policy permits - collect obligations
+            permitPolicies.add(policy);
+            allObligations.addAll(policy.getObligations());
+        }
+
+        if (!denials.isEmpty()) {
+            return deny(ReasonCode.DENIED_BY_POLICIES, denials);
+        }
+
+        // All policies permit - return PERMIT with merged obligations
+        return permitByPolicies(permitPolicies, allObligations);
+    }
+
+    /**
+     * Creates a PERMIT decision for data that no subject policy governs
+     */
+    public static PolicyDecisionDTO permitByDefault(ReasonCode reasonCode) {
+        PolicyDecisionDTO decision = new PolicyDecisionDTO();
+        decision.setResult(DecisionResult.PERMIT);
+        decision.setReasonCode(reasonCode);
+        decision.setObligations(new ArrayList<>());
+        return decision;
+    }
+
+    /**
+     * Creates a DENY decision with a reason code and its parameters
+     */
+    public static PolicyDecisionDTO deny(ReasonCode reasonCode, String... reasonParams) {
+        return deny(reasonCode, Arrays.asList(reasonParams));
+    }
+
+    public static PolicyDecisionDTO deny(ReasonCode reasonCode, List<String> reasonParams) {
+        PolicyDecisionDTO decision = new PolicyDecisionDTO();
+        decision.setResult(DecisionResult.DENY);
+        decision.setReasonCode(reasonCode);
+        decision.setReasonParams(reasonParams);
+        decision.setObligations(new ArrayList<>());
+        return decision;
+    }
+
+    /**
+     * Creates a PERMIT decision for multiple policies with merged obligations
+     */
+    private static PolicyDecisionDTO permitByPolicies(List<CompiledPolicyGroup> policies, List<ObligationDTO> allObligations) {
+        PolicyDecisionDTO decision = new PolicyDecisionDTO();
+        decision.setResult(DecisionResult.PERMIT);
+
+        // Record all policies that permitted access
+        List<String> policyNames = new ArrayList<>(policies.size());
+        for (CompiledPolicyGroup policy : policies) {
+            policyNames.add(policy.getName());
+        }
+        decision.setReasonCode(ReasonCode.PERMITTED_BY_POLICIES);
+        decision.setReasonParams(policyNames);
+
+        // The PERMIT only holds until the earliest expiration among the permitting policies
+        decision.setValidUntil(earliestExpiration(policies));
+
+        // Set the first policy's ID for backward compatibility
+        if (!policies.isEmpty()) {
+            decision.setPolicyGroupId(policies.get(0).getId());
+        }
+
+        decision.setObligations(allObligations);
+        return decision;
+    }
+
+    /**
+     * Returns the earliest expiration date among the given policies, or null if none expires
+     */
+    private static LocalDate earliestExpiration(List<CompiledPolicyGroup> policies) {
+        LocalDate earliest = null;
+        for (CompiledPolicyGroup policy : policies) {
+            LocalDate expirationDate = policy.getExpirationDate();
+            if (expirationDate != null && (earliest == null || expirationDate.isBefore(earliest))) {
+                earliest = expirationDate;
+            }
+        }
+        return earliest;
+    }
+}
@@ -1,26 +1,18 @@
 package com.ontosov.services;
 
-import com.ontosov.constants.DPVPurpose;
 import com.ontosov.dto.*;
-import com.ontosov.models.User;
-import com.ontosov.repositories.UserRepo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.function.Supplier;
 
 @Service
 public class PolicyEvaluationService {
 
     @Autowired
-    private UserRepo userRepo;
+    private IdentityResolutionCache resolutionCache;
 
     @Autowired
     private PolicyGroupService policyGroupService;
@@ -31,53 +23,322 @@ public class PolicyEvaluationService {
     @Autowired
     private DatabaseConfigService databaseConfigService;
 
+    @Autowired
+    private PolicyDecisionCache decisionCache;
+
+    @Autowired
+    private DecisionLogger decisionLogger;
+
     /**
      * Main method: Evaluates if an access request should be permitted or denied
      */
     public PolicyDecisionDTO evaluateAccess(AccessRequestDTO request) {
 
-        // 1. Validate basic request fields
-        if (request.getSubjectTaxId() == null || request.getAction() == null) {
-            return createDenyDecision("Invalid request: missing subject or action");
+        // 1. Validate request fields
+        PolicyDecisionDTO invalid = PolicyDecisions.validate(request);
+        if (invalid != null) {
+            return invalid;
         }
 
-        // 2. Determine request type and route to appropriate handler
-        boolean isEntityRequest = request.getRecordId() != null && !request.getRecordId().trim().isEmpty();
-        boolean isPropertyRequest = request.getDataProperty() != null && !request.getDataProperty().trim().isEmpty();
+        // 2. Find the subject by tax ID
+        Long subjectId = resolutionCache.getSubjectId(request.getSubjectTaxId());
+        if (subjectId == null) {
+            return PolicyDecisions.deny(ReasonCode.SUBJECT_NOT_FOUND, request.getSubjectTaxId());
+        }
+
+        // 3. Route to appropriate evaluation method, serving repeated checks from the decision cache
+        return evaluateCached(request, subjectId, () -> PolicyDecisions.isEntityRequest(request) ?
+                evaluateEntityAccess(request, subjectId) :
+                evaluatePropertyAccess(request, subjectId));
+    }
+
+    /**
+     * Evaluates a batch of requests and returns the decisions in input order.
+     * Subjects, controllers, databases and OBDA table mappings are resolved once per
+     * distinct (controller, dataSource, table) instead of once per request.
+     */
+    public List<PolicyDecisionDTO> evaluateBatch(List<AccessRequestDTO> requests) {
+        BatchResolver resolver = new BatchResolver();
+        List<PolicyDecisionDTO> decisions = new ArrayList<>(requests.size());
+
+        for (AccessRequestDTO request : requests) {
+            PolicyDecisionDTO invalid = PolicyDecisions.validate(request);
+            if (invalid != null) {
+                decisions.add(invalid);
+                continue;
+            }
+
+            Long subjectId = resolutionCache.getSubjectId(request.getSubjectTaxId());
+            if (subjectId == null) {
+                decisions.add(PolicyDecisions.deny(ReasonCode.SUBJECT_NOT_FOUND, request.getSubjectTaxId()));
+                continue;
+            }
 
-        if (!isEntityRequest && !isPropertyRequest) {
-            return createDenyDecision("Invalid request: must specify either dataProperty (for property check) or recordId (for entity check)");
+            ResolvedTable table = resolver.table(request.getControllerId(), request.getDataSource(), request.getTableName());
+            decisions.add(evaluateCached(request, subjectId, () -> decideResolved(request, subjectId, table)));
         }
 
-        if (isEntityRequest && isPropertyRequest) {
-            return createDenyDecision("Invalid request: cannot specify both dataProperty and recordId");
+        return decisions;
+    }
+
+    /**
+     * Evaluates the action on every OBDA-mapped column of a table in one pass and returns
+     * the permitted column set with the merged obligations. The table mapping is resolved once;
+     * dataProperty and recordId of the request are ignored. Columns without an OBDA mapping are
+     * not governed by subject policies and are permitted by default, as in evaluateAccess.
+     */
+    public ColumnMaskDTO evaluateColumnMask(AccessRequestDTO request) {
+        ColumnMaskDTO mask = new ColumnMaskDTO();
+        mask.setTableName(request.getTableName());
+        mask.setAction(request.getAction());
+
+        if (request.getSubjectTaxId() == null || request.getAction() == null ||
+                request.getDataSource() == null || request.getTableName() == null) {
+            mask.setReason("Invalid request: must specify subject, action, dataSource, and tableName");
+            return mask;
+        }
+
+        Long subjectId = resolutionCache.getSubjectId(request.getSubjectTaxId());
+        if (subjectId == null) {
+            mask.setReason(ReasonCode.SUBJECT_NOT_FOUND.render(List.of(request.getSubjectTaxId())));
+            return mask;
         }
 
-        // Route to appropriate evaluation method
-        if (isEntityRequest) {
-            return evaluateEntityAccess(request);
-        } else {
-            return evaluatePropertyAccess(request);
+        ResolvedTable table = new BatchResolver().table(request.getControllerId(), request.getDataSource(), request.getTableName());
+        if (table.failureCode != null) {
+            mask.setReason(table.failureCode.render(table.failureParams));
+            return mask;
         }
+
+        Set<ObligationDTO> obligations = new LinkedHashSet<>();
+        for (Map.Entry<String, String> column : new TreeMap<>(table.mapping.getColumnProperties()).entrySet()) {
+            AccessRequestDTO columnRequest = copyForTarget(request, column.getKey(), null);
+
+            PolicyDecisionDTO decision = evaluateCached(columnRequest, subjectId, () ->
+                    decidePropertyAccess(columnRequest, subjectId, table.dataSourceIdentifier, column.getValue()));
+
+            if (decision.getResult() == DecisionResult.PERMIT) {
+                mask.getPermittedColumns().add(column.getKey());
+                obligations.addAll(decision.getObligations());
+            } else {
+                mask.getDeniedColumns().put(column.getKey(), decision.getExplanation());
+            }
+        }
+
+        mask.setObligations(new ArrayList<>(obligations));
+        return mask;
     }
 
     /**
-     * Evaluates property-level access (column access)
+     * Record ids of a table whose entity-level policies deny the action for the subject.
+     * Records without an entity policy are permitted by default and are not returned,
+     * so the result only grows with the number of governed records, not the table size.
      */
-    private PolicyDecisionDTO evaluatePropertyAccess(AccessRequestDTO request) {
+    public List<String> findDeniedRecordIds(AccessRequestDTO request) {
+        List<String> deniedRecordIds = new ArrayList<>();
 
-        // 1. Validate data-specific fields
-        if (request.getDataSource() == null || request.getDataProperty() == null || request.getTableName() == null) {
-            return createDenyDecision("Invalid request: must specify dataSource, tableName, and dataProperty");
+        Long subjectId = resolutionCache.getSubjectId(request.getSubjectTaxId());
+        if (subjectId == null || request.getAction() == null) {
+            return deniedRecordIds;
         }
 
-        // 2. Find the subject by tax ID
-        User subject = userRepo.findByTaxid(request.getSubjectTaxId());
-        if (subject == null) {
-            return createDenyDecision("Subject not found with tax ID: " + request.getSubjectTaxId());
+        ResolvedTable table = new BatchResolver().table(request.getControllerId(), request.getDataSource(), request.getTableName());
+        if (table.failureCode != null || table.mapping.getEntityType() == null) {
+            return deniedRecordIds;
+        }
+
+        String entityPrefix = PolicyDecisions.entityUri(table.mapping.getEntityType(), "");
+        for (String entityUri : odrlService.getGovernedEntityIds(subjectId, table.dataSourceIdentifier, entityPrefix)) {
+            String recordId = entityUri.substring(entityPrefix.length());
+            AccessRequestDTO recordRequest = copyForTarget(request, null, recordId);
+
+            PolicyDecisionDTO decision = evaluateCached(recordRequest, subjectId, () ->
+                    decideEntityAccess(recordRequest, subjectId, table.dataSourceIdentifier, entityUri));
+            if (decision.getResult() != DecisionResult.PERMIT) {
+                deniedRecordIds.add(recordId);
+            }
+        }
+
+        return deniedRecordIds;
+    }
+
+    /**
+     * Entity selectors of a table (all records of its type, or a record ID range) under which
+     * the action is denied for the subject. Each selector is decided once for all records it
+     * covers, through its synthetic record ID, so callers can filter whole ranges without
+     * listing their records. A selector is only decided together with the selectors that cover
+     * all of it, so records where partially overlapping selectors meet may be decided per
+     * selector rather than as a union.
+     */
+    public List<EntitySelector> findDeniedRecordSelectors(AccessRequestDTO request) {
+        List<EntitySelector> deniedSelectors = new ArrayList<>();
+
+        Long subjectId = resolutionCache.getSubjectId(request.getSubjectTaxId());
+        if (subjectId == null || request.getAction() == null) {
+            return deniedSelectors;
+        }
+
+        ResolvedTable table = new BatchResolver().table(request.getControllerId(), request.getDataSource(), request.getTableName());
+        if (table.failureCode != null || table.mapping.getEntityType() == null) {
+            return deniedSelectors;
+        }
+
+        String entityType = table.mapping.getEntityType();
+        for (EntitySelector selector : odrlService.getEntitySelectors(subjectId, table.dataSourceIdentifier, entityType)) {
+            String entityUri = PolicyDecisions.entityUri(entityType, selector.recordId());
+            AccessRequestDTO selectorRequest = copyForTarget(request, null, selector.recordId());
+
+            PolicyDecisionDTO decision = evaluateCached(selectorRequest, subjectId, () ->
+                    decideEntityAccess(selectorRequest, subjectId, table.dataSourceIdentifier, entityUri));
+            if (decision.getResult() != DecisionResult.PERMIT) {
+                deniedSelectors.add(selector);
+            }
+        }
+
+        return deniedSelectors;
+    }
+
+    /**
+     * Copies the table-level fields of a request for one column or one record of that table
+     */
+    private AccessRequestDTO copyForTarget(AccessRequestDTO request, String dataProperty, String recordId) {
+        AccessRequestDTO copy = new AccessRequestDTO();
+        copy.setControllerId(request.getControllerId());
+        copy.setSubjectTaxId(request.getSubjectTaxId());
+        copy.setAction(request.getAction());
+        copy.setPurpose(request.getPurpose());
+        copy.setAiAlgorithm(request.getAiAlgorithm());
+        copy.setDataSource(request.getDataSource());
+        copy.setTableName(request.getTableName());
+        copy.setDataProperty(dataProperty);
+        copy.setRecordId(recordId);
+        return copy;
+    }
+
+    /**
+     * Returns the cached decision for the request if the subject's policies are unchanged,
+     * otherwise evaluates it and caches the result under the epoch read before evaluation.
+     */
+    private PolicyDecisionDTO evaluateCached(AccessRequestDTO request, Long subjectId,
+                                             Supplier<PolicyDecisionDTO> evaluation) {
+        String cacheKey = PolicyDecisionCache.keyFor(request);
+        PolicyDecisionDTO cached = decisionCache.get(cacheKey, policyGroupService::getPolicyEpoch);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Read the epoch before evaluating so a concurrent policy write invalidates this result
+        long policyEpoch = policyGroupService.getPolicyEpoch(subjectId);
+        PolicyDecisionDTO decision = evaluation.get();
+        decisionCache.put(cacheKey, subjectId, policyEpoch, decision);
+        decisionLogger.log(request, subjectId, decision);
+        return decision;
+    }
+
+    /**
+     * Decides a batched request against its pre-resolved table
+     */
+    private PolicyDecisionDTO decideResolved(AccessRequestDTO request, Long subjectId, ResolvedTable table) {
+        if (table.failureCode != null) {
+            return PolicyDecisions.deny(table.failureCode, table.failureParams);
+        }
+
+        if (PolicyDecisions.isEntityRequest(request)) {
+            String entityType = table.mapping.getEntityType();
+            if (entityType == null) {
+                return PolicyDecisions.permitByDefault(ReasonCode.UNMAPPED_TABLE);
+            }
+            String entityUri = PolicyDecisions.entityUri(entityType, request.getRecordId());
+            return decideEntityAccess(request, subjectId, table.dataSourceIdentifier, entityUri);
+        }
+
+        String schemaOrgProperty = table.mapping.getSchemaOrgProperty(request.getDataProperty());
+        if (schemaOrgProperty == null) {
+            return PolicyDecisions.permitByDefault(ReasonCode.UNMAPPED_DATA);
+        }
+        return decidePropertyAccess(request, subjectId, table.dataSourceIdentifier, schemaOrgProperty);
+    }
+
+    /**
+     * Data source identifier and OBDA mapping of one (controller, dataSource, table),
+     * or the reason it could not be resolved
+     */
+    private static class ResolvedTable {
+        private final ReasonCode failureCode;
+        private final List<String> failureParams;
+        private final String dataSourceIdentifier;
+        private final DatabaseConfigService.TableMapping mapping;
+
+        ResolvedTable(String dataSourceIdentifier, DatabaseConfigService.TableMapping mapping) {
+            this.failureCode = null;
+            this.failureParams = List.of();
+            this.dataSourceIdentifier = dataSourceIdentifier;
+            this.mapping = mapping;
+        }
+
+        ResolvedTable(ReasonCode failureCode, String... failureParams) {
+            this.failureCode = failureCode;
+            this.failureParams = Arrays.asList(failureParams);
+            this.dataSourceIdentifier = null;
+            this.mapping = null;
+        }
+    }
+
+    /**
+     * Per-batch memo of database and table lookups
+     */
+    private class BatchResolver {
+        private final Map<Long, List<DatabaseConfigDTO>> databases = new HashMap<>();
+        private final Map<String, ResolvedTable> tables = new HashMap<>();
+
+        ResolvedTable table(Long controllerId, String dataSource, String tableName) {
+            String key = controllerId + "\u0000" + dataSource + "\u0000" + tableName;
+            ResolvedTable table = tables.get(key);
+            if (table == null) {
+                table = resolveTable(controllerId, dataSource, tableName);
+                tables.put(key, table);
+            }
+            return table;
+        }
+
+        private ResolvedTable resolveTable(Long controllerId, String dataSource, String tableName) {
+            try {
+                String controllerName = resolutionCache.getControllerName(controllerId);
+                if (controllerName == null) {
+                    return new ResolvedTable(ReasonCode.CONTROLLER_NOT_FOUND);
+                }
+
+                List<DatabaseConfigDTO> controllerDatabases = databases.get(controllerId);
+                if (controllerDatabases == null) {
+                    controllerDatabases = databaseConfigService.getDatabasesForController(controllerId);
+                    databases.put(controllerId, controllerDatabases);
+                }
+
+                DatabaseConfigDTO database = controllerDatabases.stream()
+                        .filter(db -> db.getId().equals(dataSource))
+                        .findFirst()
+                        .orElse(null);
+                if (database == null) {
+                    return new ResolvedTable(ReasonCode.DATABASE_NOT_FOUND, dataSource);
+                }
+
+                String dataSourceIdentifier = PolicyDecisions.dataSourceIdentifier(controllerName, database.getDatabaseName());
+                DatabaseConfigService.TableMapping mapping =
+                        databaseConfigService.resolveTableMapping(controllerId, dataSource, tableName);
+                return new ResolvedTable(dataSourceIdentifier, mapping);
+
+            } catch (IOException e) {
+                return new ResolvedTable(ReasonCode.MAPPING_ERROR, String.valueOf(e.getMessage()));
+            }
         }
+    }
+
+    /**
+     * Evaluates property-level access (column access)
+     */
+    private PolicyDecisionDTO evaluatePropertyAccess(AccessRequestDTO request, Long subjectId) {
 
-        // 3. Resolve identifiers to match the format used in policy storage
+        // 1. Resolve identifiers to match the format used in policy storage
         String databaseName;
         String schemaOrgProperty;
         String controllerName;
@@ -85,11 +346,10 @@ public class PolicyEvaluationService {
 
         try {
             // Get controller name
-            User controller = userRepo.findById(request.getControllerId()).orElse(null);
-            if (controller == null) {
-                return createDenyDecision("Controller not found");
+            controllerName = resolutionCache.getControllerName(request.getControllerId());
+            if (controllerName == null) {
+                return PolicyDecisions.deny(ReasonCode.CONTROLLER_NOT_FOUND);
             }
-            controllerName = controller.getName();
 
             // Get database name from UUID
             List<DatabaseConfigDTO> databases = databaseConfigService.getDatabasesForController(request.getControllerId());
@@ -99,13 +359,13 @@ public class PolicyEvaluationService {
                     .orElse(null);
 
             if (database == null) {
-                return createDenyDecision("Database not found: " + request.getDataSource());
+                return PolicyDecisions.deny(ReasonCode.DATABASE_NOT_FOUND, request.getDataSource());
             }
 
             databaseName = database.getDatabaseName();
 
             // Format dataSource the same way as in the Subject UI
-            dataSourceIdentifier = controllerName + " - " + databaseName;
+            dataSourceIdentifier = PolicyDecisions.dataSourceIdentifier(controllerName, databaseName);
 
             // Resolve column to Schema.org property (4 parameters!)
             schemaOrgProperty = databaseConfigService.resolveSchemaOrgProperty(
@@ -117,145 +377,62 @@ public class PolicyEvaluationService {
 
             if (schemaOrgProperty == null) {
                 // Unmapped data - PERMIT by default
-                PolicyDecisionDTO decision = new PolicyDecisionDTO();
-                decision.setResult(DecisionResult.PERMIT);
-                decision.setReason("Unmapped data is not governed by subject policies - access permitted by default.");
-                decision.setObligations(new ArrayList<>());
-                return decision;
+                return PolicyDecisions.permitByDefault(ReasonCode.UNMAPPED_DATA);
             }
 
-            System.out.println("Resolved identifiers:");
-            System.out.println("  Controller name: " + controllerName);
-            System.out.println("  Database name: " + databaseName);
-            System.out.println("  DataSource identifier: " + dataSourceIdentifier);
-            System.out.println("  Column -> Schema.org: " + request.getDataProperty() + " -> " + schemaOrgProperty);
-
         } catch (IOException e) {
-            return createDenyDecision("Error resolving mappings: " + e.getMessage());
+            return PolicyDecisions.deny(ReasonCode.MAPPING_ERROR, String.valueOf(e.getMessage()));
         }
 
-        // 4. Check if any policy exists for this property
-        if (!odrlService.policyExistsForProperty(subject.getId(), dataSourceIdentifier, schemaOrgProperty)) {
+        return decidePropertyAccess(request, subjectId, dataSourceIdentifier, schemaOrgProperty);
+    }
+
+    /**
+     * Decides property-level access once the data source and Schema.org property are resolved
+     */
+    private PolicyDecisionDTO decidePropertyAccess(AccessRequestDTO request, Long subjectId,
+                                                   String dataSourceIdentifier, String schemaOrgProperty) {
+
+        // 1. Check if any policy exists for this property
+        if (!odrlService.policyExistsForProperty(subjectId, dataSourceIdentifier, schemaOrgProperty)) {
             // No policy assigned - PERMIT by default
-            PolicyDecisionDTO decision = new PolicyDecisionDTO();
-            decision.setResult(DecisionResult.PERMIT);
-            decision.setReason("No policy assigned to this data - access permitted by default");
-            decision.setObligations(new ArrayList<>());
-            return decision;
+            return PolicyDecisions.permitByDefault(ReasonCode.NO_POLICY_FOR_DATA);
         }
 
-        // 5. Check policies using the identifiers
+        // 2. Check policies using the identifiers
         boolean hasAccessPermission = odrlService.checkPropertyAccess(
-                subject.getId(),
+                subjectId,
                 request.getControllerId(),
                 dataSourceIdentifier,
                 schemaOrgProperty,
                 request.getAction()
         );
 
-        System.out.println("Checking policy access with:");
-        System.out.println("  subjectId: " + subject.getId());
-        System.out.println("  controllerId: " + request.getControllerId());
-        System.out.println("  dataSource: " + request.getDataSource());
-        System.out.println("  schemaProperty: " + schemaOrgProperty);
-        System.out.println("  action: " + request.getAction());
-
         if (!hasAccessPermission) {
-            return createDenyDecision(
-                    "No policy permits '" + request.getAction() + "' access to " +
-                            schemaOrgProperty + " from " + dataSourceIdentifier
-            );
+            return PolicyDecisions.deny(ReasonCode.NOT_PERMITTED,
+                    request.getAction(), schemaOrgProperty, dataSourceIdentifier);
         }
 
-        // 6. Find ALL applicable policy groups for this data element
-        List<PolicyGroupDTO> applicablePolicies = findApplicablePolicyGroups(
-                subject.getId(),
-                dataSourceIdentifier,
-                schemaOrgProperty
+        // 3. Find ALL policy groups assigned to this data element that permit the action
+        List<CompiledPolicyGroup> applicablePolicies = findApplicablePolicyGroups(
+                subjectId,
+                odrlService.getPolicyGroupActionsForProperty(subjectId, dataSourceIdentifier, schemaOrgProperty),
+                request.getAction()
         );
 
         if (applicablePolicies.isEmpty()) {
-            return createDenyDecision("Policy found but group details unavailable");
-        }
-
-        System.out.println("Found " + applicablePolicies.size() + " applicable policies for evaluation");
-
-        // 7. Evaluate ALL policies - collect denials and permits
-        List<String> denyReasons = new ArrayList<>();
-        List<PolicyGroupDTO> permitPolicies = new ArrayList<>();
-        List<ObligationDTO> allObligations = new ArrayList<>();
-
-        for (PolicyGroupDTO policy : applicablePolicies) {
-            System.out.println("Evaluating policy: " + policy.getName());
-
-            // Check if this specific policy permits the action
-            boolean policyPermitsAction = odrlService.checkPropertyAccess(
-                    subject.getId(),
-                    request.getControllerId(),
-                    dataSourceIdentifier,
-                    schemaOrgProperty,
-                    request.getAction()
-            );
-
-            if (!policyPermitsAction) {
-                String reason = "Policy '" + policy.getName() + "' does not permit action '" + request.getAction() + "'";
-                denyReasons.add(reason);
-                System.out.println("  DENY: " + reason);
-                continue;
-            }
-
-            // Check constraints (purpose, expiration)
-            if (!checkConstraints(policy, request)) {
-                String reason = "Policy '" + policy.getName() + "' constraints not satisfied (purpose/expiration)";
-                denyReasons.add(reason);
-                System.out.println("  DENY: " + reason);
-                continue;
-            }
-
-            // Check AI restrictions if applicable
-            if (!checkAiRestrictions(policy, request)) {
-                String reason = "Policy '" + policy.getName() + "' AI training restrictions not satisfied";
-                denyReasons.add(reason);
-                System.out.println("  DENY: " + reason);
-                continue;
-            }
-
-            // This policy permits - collect obligations
-            System.out.println("  PERMIT: Policy '" + policy.getName() + "' allows access");
-            permitPolicies.add(policy);
-            allObligations.addAll(collectObligations(policy));
-        }
-
-        // 8. Apply "most restrictive wins" logic
-        if (!denyReasons.isEmpty()) {
-            String combinedReason = "Access denied by " + denyReasons.size() + " policy/policies:\n" +
-                    String.join("\n", denyReasons);
-            System.out.println("FINAL DECISION: DENY (" + denyReasons.size() + " policies denied)");
-            return createDenyDecision(combinedReason);
+            return PolicyDecisions.deny(ReasonCode.POLICY_DETAILS_UNAVAILABLE);
         }
 
-        // 9. All policies permit - return PERMIT with merged obligations
-        System.out.println("FINAL DECISION: PERMIT (all " + permitPolicies.size() + " policies allow access)");
-        return createPermitDecisionForMultiplePolicies(permitPolicies, allObligations);
+        return PolicyDecisions.combine(request, applicablePolicies);
     }
 
     /**
      * Evaluates entity-level access (row/record access)
      */
-    private PolicyDecisionDTO evaluateEntityAccess(AccessRequestDTO request) {
-
-        // 1. Validate data-specific fields
-        if (request.getDataSource() == null || request.getRecordId() == null || request.getTableName() == null) {
-            return createDenyDecision("Invalid request: must specify dataSource, tableName, and recordId");
-        }
-
-        // 2. Find the subject by tax ID
-        User subject = userRepo.findByTaxid(request.getSubjectTaxId());
-        if (subject == null) {
-            return createDenyDecision("Subject not found with tax ID: " + request.getSubjectTaxId());
-        }
+    private PolicyDecisionDTO evaluateEntityAccess(AccessRequestDTO request, Long subjectId) {
 
-        // 3. Resolve identifiers to match the format used in policy storage
+        // 1. Resolve identifiers to match the format used in policy storage
         String databaseName;
         String controllerName;
         String dataSourceIdentifier;
@@ -263,11 +440,10 @@ public class PolicyEvaluationService {
 
         try {
             // Get controller name
-            User controller = userRepo.findById(request.getControllerId()).orElse(null);
-            if (controller == null) {
-                return createDenyDecision("Controller not found");
+            controllerName = resolutionCache.getControllerName(request.getControllerId());
+            if (controllerName == null) {
+                return PolicyDecisions.deny(ReasonCode.CONTROLLER_NOT_FOUND);
             }
-            controllerName = controller.getName();
 
             // Get database name from UUID
             List<DatabaseConfigDTO> databases = databaseConfigService.getDatabasesForController(request.getControllerId());
@@ -277,13 +453,13 @@ public class PolicyEvaluationService {
                     .orElse(null);
 
             if (database == null) {
-                return createDenyDecision("Database not found: " + request.getDataSource());
+                return PolicyDecisions.deny(ReasonCode.DATABASE_NOT_FOUND, request.getDataSource());
             }
 
             databaseName = database.getDatabaseName();
 
             // Format dataSource the same way as in the Subject UI
-            dataSourceIdentifier = controllerName + " - " + databaseName;
+            dataSourceIdentifier = PolicyDecisions.dataSourceIdentifier(controllerName, databaseName);
 
             // Resolve table to entity type and construct full URI
             String entityType = databaseConfigService.resolveEntityTypeFromTable(
@@ -294,197 +470,70 @@ public class PolicyEvaluationService {
 
             if (entityType == null) {
                 // Unmapped table - PERMIT by default
-                PolicyDecisionDTO decision = new PolicyDecisionDTO();
-                decision.setResult(DecisionResult.PERMIT);
-                decision.setReason("Unmapped table is not governed by subject policies - access permitted by default.");
-                decision.setObligations(new ArrayList<>());
-                return decision;
+                return PolicyDecisions.permitByDefault(ReasonCode.UNMAPPED_TABLE);
             }
 
             // Construct full entity URI: http://example.org/resource#EntityType/recordId
-            entityUri = "http://example.org/resource#" + entityType + "/" + request.getRecordId();
-
-            System.out.println("Resolved identifiers for entity access:");
-            System.out.println("  Controller name: " + controllerName);
-            System.out.println("  Database name: " + databaseName);
-            System.out.println("  DataSource identifier: " + dataSourceIdentifier);
-            System.out.println("  Table -> EntityType: " + request.getTableName() + " -> " + entityType);
-            System.out.println("  Entity URI: " + entityUri);
+            entityUri = PolicyDecisions.entityUri(entityType, request.getRecordId());
 
         } catch (IOException e) {
-            return createDenyDecision("Error resolving mappings: " + e.getMessage());
+            return PolicyDecisions.deny(ReasonCode.MAPPING_ERROR, String.valueOf(e.getMessage()));
         }
 
-        // 4. Check if any policy exists for this entity
-        if (!odrlService.policyExistsForEntity(subject.getId(), dataSourceIdentifier, entityUri)) {
+        return decideEntityAccess(request, subjectId, dataSourceIdentifier, entityUri);
+    }
+
+    /**
+     * Decides entity-level access once the data source and entity URI are resolved
+     */
+    private PolicyDecisionDTO decideEntityAccess(AccessRequestDTO request, Long subjectId,
+                                                 String dataSourceIdentifier, String entityUri) {
+
+        // 1. Check if any policy exists for this entity
+        if (!odrlService.policyExistsForEntity(subjectId, dataSourceIdentifier, entityUri)) {
             // No policy assigned - PERMIT by default
-            PolicyDecisionDTO decision = new PolicyDecisionDTO();
-            decision.setResult(DecisionResult.PERMIT);
-            decision.setReason("No policy assigned to this entity - access permitted by default");
-            decision.setObligations(new ArrayList<>());
-            return decision;
+            return PolicyDecisions.permitByDefault(ReasonCode.NO_POLICY_FOR_ENTITY);
         }
 
-        // 5. Check policies using the identifiers
+        // 2. Check policies using the identifiers
         boolean hasAccessPermission = odrlService.checkEntityAccess(
-                subject.getId(),
+                subjectId,
                 request.getControllerId(),
                 dataSourceIdentifier,
                 entityUri,
                 request.getAction()
         );
 
-        System.out.println("Checking entity policy access with:");
-        System.out.println("  subjectId: " + subject.getId());
-        System.out.println("  controllerId: " + request.getControllerId());
-        System.out.println("  dataSource: " + dataSourceIdentifier);
-        System.out.println("  entityUri: " + entityUri);
-        System.out.println("  action: " + request.getAction());
-
         if (!hasAccessPermission) {
-            return createDenyDecision(
-                    "No policy permits '" + request.getAction() + "' access to entity " +
-                            entityUri + " from " + dataSourceIdentifier
-            );
+            return PolicyDecisions.deny(ReasonCode.ENTITY_NOT_PERMITTED,
+                    request.getAction(), entityUri, dataSourceIdentifier);
         }
 
-        // 6. Find ALL applicable policy groups for this entity
-        List<PolicyGroupDTO> applicablePolicies = findApplicablePolicyGroupsForEntity(
-                subject.getId(),
-                dataSourceIdentifier,
-                entityUri
+        // 3. Find ALL policy groups assigned to this entity that permit the action
+        List<CompiledPolicyGroup> applicablePolicies = findApplicablePolicyGroups(
+                subjectId,
+                odrlService.getPolicyGroupActionsForEntity(subjectId, dataSourceIdentifier, entityUri),
+                request.getAction()
         );
 
         if (applicablePolicies.isEmpty()) {
-            return createDenyDecision("Policy found but group details unavailable");
-        }
-
-        System.out.println("Found " + applicablePolicies.size() + " applicable policies for entity evaluation");
-
-        // 7. Evaluate ALL policies - collect denials and permits
-        List<String> denyReasons = new ArrayList<>();
-        List<PolicyGroupDTO> permitPolicies = new ArrayList<>();
-        List<ObligationDTO> allObligations = new ArrayList<>();
-
-        for (PolicyGroupDTO policy : applicablePolicies) {
-            System.out.println("Evaluating policy: " + policy.getName());
-
-            // Check if this specific policy permits the action
-            boolean policyPermitsAction = odrlService.checkEntityAccess(
-                    subject.getId(),
-                    request.getControllerId(),
-                    dataSourceIdentifier,
-                    entityUri,
-                    request.getAction()
-            );
-
-            if (!policyPermitsAction) {
-                String reason = "Policy '" + policy.getName() + "' does not permit action '" + request.getAction() + "'";
-                denyReasons.add(reason);
-                System.out.println("  DENY: " + reason);
-                continue;
-            }
-
-            // Check constraints (purpose, expiration)
-            if (!checkConstraints(policy, request)) {
-                String reason = "Policy '" + policy.getName() + "' constraints not satisfied (purpose/expiration)";
-                denyReasons.add(reason);
-                System.out.println("  DENY: " + reason);
-                continue;
-            }
-
-            // Check AI restrictions if applicable
-            if (!checkAiRestrictions(policy, request)) {
-                String reason = "Policy '" + policy.getName() + "' AI training restrictions not satisfied";
-                denyReasons.add(reason);
-                System.out.println("  DENY: " + reason);
-                continue;
-            }
-
-            // This policy permits - collect obligations
-            System.out.println("  PERMIT: Policy '" + policy.getName() + "' allows access");
-            permitPolicies.add(policy);
-            allObligations.addAll(collectObligations(policy));
-        }
-
-        // 8. Apply "most restrictive wins" logic
-        if (!denyReasons.isEmpty()) {
-            String combinedReason = "Access denied by " + denyReasons.size() + " policy/policies:\n" +
-                    String.join("\n", denyReasons);
-            System.out.println("FINAL DECISION: DENY (" + denyReasons.size() + " policies denied)");
-            return createDenyDecision(combinedReason);
-        }
-
-        // 9. All policies permit - return PERMIT with merged obligations
-        System.out.println("FINAL DECISION: PERMIT (all " + permitPolicies.size() + " policies allow access)");
-        return createPermitDecisionForMultiplePolicies(permitPolicies, allObligations);
-    }
-
-    /**
-     * Find ALL policy groups assigned to this specific entity (entity-level)
-     */
-    private List<PolicyGroupDTO> findApplicablePolicyGroupsForEntity(Long subjectId, String dataSource, String entityId) {
-        // Get all policy groups for this subject
-        List<PolicyGroupDTO> allGroups = policyGroupService.getPolicyGroupsBySubject(subjectId);
-        List<PolicyGroupDTO> applicableGroups = new ArrayList<>();
-
-        // Check each group to see if it's assigned to the requested entity
-        for (PolicyGroupDTO group : allGroups) {
-            // Get assignments for this group
-            Map<String, Object> assignments = odrlService.getAssignmentsForPolicyGroup(group.getId(), subjectId);
-
-            // Check entity assignments
-            @SuppressWarnings("unchecked")
-            Map<String, Set<String>> entityAssignments =
-                    (Map<String, Set<String>>) assignments.get("entityAssignments");
-
-            if (entityAssignments != null &&
-                    entityAssignments.containsKey(dataSource) &&
-                    entityAssignments.get(dataSource).contains(entityId)) {
-                applicableGroups.add(group);
-            }
+            return PolicyDecisions.deny(ReasonCode.POLICY_DETAILS_UNAVAILABLE);
         }
 
-        return applicableGroups;
+        return PolicyDecisions.combine(request, applicablePolicies);
     }
 
     /**
-     * Find ALL policy groups assigned to this specific data element
+     * Find ALL policy groups that permit the action on a data element, given the
+     * group -> permitted actions map for that element. Loads only those groups.
      */
-    private List<PolicyGroupDTO> findApplicablePolicyGroups(Long subjectId, String dataSource, String dataProperty) {
-        // Get all policy groups for this subject
-        List<PolicyGroupDTO> allGroups = policyGroupService.getPolicyGroupsBySubject(subjectId);
-        List<PolicyGroupDTO> applicableGroups = new ArrayList<>();
-
-        // Check each group to see if it's assigned to the requested data
-        for (PolicyGroupDTO group : allGroups) {
-            // Get assignments for this group
-            Map<String, Object> assignments = odrlService.getAssignmentsForPolicyGroup(group.getId(), subjectId);
-
-            // Check property assignments
-            @SuppressWarnings("unchecked")
-            Map<String, Set<String>> propertyAssignments =
-                    (Map<String, Set<String>>) assignments.get("propertyAssignments");
-
-            if (propertyAssignments != null &&
-                    propertyAssignments.containsKey(dataSource) &&
-                    propertyAssignments.get(dataSource).contains(dataProperty)) {
-                applicableGroups.add(group);
-            }
+    private List<CompiledPolicyGroup> findApplicablePolicyGroups(Long subjectId, Map<String, Set<String>> groupActions,
+                                                                 String action) {
+        List<String> groupIds = PolicyDecisions.applicableGroupIds(groupActions, action);
+        if (groupIds.isEmpty()) {
+            return new ArrayList<>();
         }
-
-        return applicableGroups;
-    }
-
-    /**
-     * Creates a DENY decision with a reason
-     */
-    private PolicyDecisionDTO createDenyDecision(String reason) {
-        PolicyDecisionDTO decision = new PolicyDecisionDTO();
-        decision.setResult(DecisionResult.DENY);
-        decision.setReason(reason);
-        decision.setObligations(new ArrayList<>());
-        return decision;
+        return policyGroupService.getCompiledPolicyGroups(subjectId, groupIds);
     }
 
     /**
@@ -493,148 +542,13 @@ public class PolicyEvaluationService {
     private PolicyDecisionDTO createPermitDecision(PolicyGroupDTO policy, List<ObligationDTO> obligations) {
         PolicyDecisionDTO decision = new PolicyDecisionDTO();
         decision.setResult(DecisionResult.PERMIT);
-        decision.setReason("Access permitted by policy: " + policy.getName());
+        decision.setReasonCode(ReasonCode.PERMITTED_BY_POLICY);
+        decision.setReasonParams(Collections.singletonList(policy.getName()));
         decision.setPolicyGroupId(policy.getId());
         decision.setObligations(obligations);
         return decision;
     }
 
-    /**
-     * Creates a PERMIT decision for multiple policies with merged obligations
-     */
-    private PolicyDecisionDTO createPermitDecisionForMultiplePolicies(List<PolicyGroupDTO> policies, List<ObligationDTO> allObligations) {
-        PolicyDecisionDTO decision = new PolicyDecisionDTO();
-        decision.setResult(DecisionResult.PERMIT);
-
-        // Create a detailed reason showing all policies that permitted access
-        String policyNames = policies.stream()
-                .map(PolicyGroupDTO::getName)
-                .collect(Collectors.joining(", "));
-
-        decision.setReason("Access permitted by " + policies.size() + " policy/policies: " + policyNames);
-
-        // Set the first policy's ID for backward compatibility
-        if (!policies.isEmpty()) {
-            decision.setPolicyGroupId(policies.get(0).getId());
-        }
-
-        decision.setObligations(allObligations);
-        return decision;
-    }
-
-    /**
-     * Checks if the request satisfies the policy's constraints
-     */
-    private boolean checkConstraints(PolicyGroupDTO policy, AccessRequestDTO request) {
-        Map<String, Object> constraints = policy.getConstraints();
-
-        if (constraints == null || constraints.isEmpty()) {
-            return true;
-        }
-
-        // Check purpose constraint - SKIP for aiTraining action
-        if (!"aiTraining".equals(request.getAction())) {
-            if (constraints.containsKey("purpose")) {
-                String requiredPurpose = constraints.get("purpose").toString().trim();
-                if (!requiredPurpose.isEmpty()) {
-                    String requestPurpose = request.getPurpose();
-                    if (requestPurpose == null || requestPurpose.trim().isEmpty()) {
-                        return false;
-                    }
-
-                    // Support both DPV labels and URIs
-                    // Convert purposes to comparable format
-                    String normalizedRequired = normalizePurpose(requiredPurpose);
-                    String normalizedRequest = normalizePurpose(requestPurpose);
-
-                    if (!normalizedRequest.toLowerCase().contains(normalizedRequired.toLowerCase())) {
-                        return false;
-                    }
-                }
-            }
-        }
-
-        // Check expiration constraint (always check regardless of action)
-        if (constraints.containsKey("expiration")) {
-            String expirationStr = constraints.get("expiration").toString().trim();
-            if (!expirationStr.isEmpty()) {
-                try {
-                    LocalDate expirationDate = LocalDate.parse(expirationStr, DateTimeFormatter.ISO_LOCAL_DATE);
-                    if (LocalDate.now().isAfter(expirationDate)) {
-                        return false;
-                    }
-                } catch (Exception e) {
-                    System.err.println("Error parsing expiration date: " + e.getMessage());
-                    return false;
-                }
-            }
-        }
-
-        return true;
-    }
-
-    /**
-     * Checks if the request satisfies AI training restrictions
-     */
-    private boolean checkAiRestrictions(PolicyGroupDTO policy, AccessRequestDTO request) {
-        // Only check AI restrictions if the action is aiTraining
-        if (!"aiTraining".equals(request.getAction())) {
-            return true; // No AI restrictions apply to non-AI actions
-        }
-
-        Map<String, Object> aiRestrictions = policy.getAiRestrictions();
-
-        if (aiRestrictions == null || aiRestrictions.isEmpty()) {
-            return true; // No AI restrictions defined
-        }
-
-        // Check if AI training is allowed at all
-        if (aiRestrictions.containsKey("allowAiTraining")) {
-            Boolean allowAiTraining = (Boolean) aiRestrictions.get("allowAiTraining");
-            if (Boolean.FALSE.equals(allowAiTraining)) {
-                return false; // AI training is explicitly prohibited
-            }
-        }
-
-        // Check if a specific algorithm is required
-        if (aiRestrictions.containsKey("aiAlgorithm")) {
-            String requiredAlgorithm = aiRestrictions.get("aiAlgorithm").toString().trim();
-            if (!requiredAlgorithm.isEmpty()) {
-                String requestedAlgorithm = request.getAiAlgorithm();
-
-                // If policy requires a specific algorithm but request doesn't specify one
-                if (requestedAlgorithm == null || requestedAlgorithm.trim().isEmpty()) {
-                    return false; // Must specify an algorithm
-                }
-
-                // Check if requested algorithm matches the required one
-                if (!requiredAlgorithm.equalsIgnoreCase(requestedAlgorithm.trim())) {
-                    return false; // Algorithm mismatch
-                }
-            }
-        }
-
-        return true;
-    }
-
-    /**
-     * Helper: Normalize purpose for comparison (supports both DPV URIs and labels)
-     */
-    private String normalizePurpose(String purpose) {
-        if (purpose == null || purpose.trim().isEmpty()) {
-            return "";
-        }
-
-        // If it's a URI, try to convert to label
-        if (purpose.startsWith("http")) {
-            String label = DPVPurpose.getLabel(purpose);
-            return label != null ? label : purpose;
-        }
-
-        // If it's a label, it might also have a URI equivalent - return label as-is
-        return purpose;
-    }
-
     /**
      * Helper: Determine if purpose is AI-related
      */
@@ -652,52 +566,4 @@ public class PolicyEvaluationService {
                 purposeLower.contains("analytics") ||
                 purposeLower.contains("prediction");
     }
-
-    /**
-     * Collects obligations from the policy
-     */
-    private List<ObligationDTO> collectObligations(PolicyGroupDTO policy) {
-        List<ObligationDTO> obligations = new ArrayList<>();
-
-        Map<String, Object> constraints = policy.getConstraints();
-        Map<String, Object> consequences = policy.getConsequences();
-
-        // Check for notification requirement
-        if (constraints != null && constraints.getOrDefault("requiresNotification", false).equals(true)) {
-            ObligationDTO notification = new ObligationDTO();
-            notification.setType("notify");
-
-            String notificationType = "email";
-            if (consequences != null && consequences.containsKey("notificationType")) {
-                notificationType = consequences.get("notificationType").toString();
-            }
-
-            notification.getDetails().put("method", notificationType);
-            obligations.add(notification);
-        }
-
-        // Check for compensation
-        if (consequences != null && consequences.containsKey("compensationAmount")) {
-            String amount = consequences.get("compensationAmount").toString().trim();
-
-            if (!amount.isEmpty()) {
-                ObligationDTO compensation = new ObligationDTO();
-                compensation.setType("compensate");
-                compensation.getDetails().put("amount", amount);
-                obligations.add(compensation);
-            }
-        }
-
-        // Check for transformation duties (ODS actions)
-        if (policy.getTransformations() != null && !policy.getTransformations().isEmpty()) {
-            for (String transformation : policy.getTransformations()) {
-                ObligationDTO transformationObligation = new ObligationDTO();
-                transformationObligation.setType(transformation.toLowerCase());
-                transformationObligation.getDetails().put("action", "Data must be " + transformation.toLowerCase() + "d before use");
-                obligations.add(transformationObligation);
-            }
-        }
-
-        return obligations;
-    }
-}
\ No newline at end of file
+}
@@ -2,27 +2,58 @@ package com.ontosov.services;
 
 import com.ontosov.dto.PolicyGroupDTO;
 import com.ontosov.dto.PolicyAssignmentDTO;
+import com.ontosov.dto.PolicyAssignmentResultDTO;
+import com.ontosov.dto.PolicyChangeType;
 import org.apache.jena.query.*;
 import org.apache.jena.rdf.model.*;
-import org.apache.jena.tdb2.TDB2Factory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
 import org.apache.jena.vocabulary.RDF;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class PolicyGroupService {
     private static final String ONTOSOV_NS = "http://ontosov.org/policy#";
     private static final String ODRL_NS = "http://www.w3.org/ns/odrl/2/";
 
-    private final Dataset dataset;
-    private final Model policyModel;
+    // Prepared queries (see SparqlTemplates)
+    private static final SparqlTemplates.Template GROUPS_BY_OWNER_QUERY = SparqlTemplates.register(
+            "policy-group.by-owner",
+            "SELECT ?group ?name ?description ?created ?modified\n" +
+            "WHERE {\n" +
+            "  ?group rdf:type onto:PolicyGroup ;\n" +
+            "         onto:owner ?owner ;\n" +
+            "         onto:name ?name ;\n" +
+            "         onto:description ?description ;\n" +
+            "         onto:created ?created ;\n" +
+            "         onto:modified ?modified .\n" +
+            "}",
+            "owner");
+
+    // Sharded TDB2 storage shared with ODRLService; transactions are per shard
+    private final PolicyStore policyStore;
+
+    // Followers keep a read-only replica of the leader's policy graphs (see PolicyReplicationFollower)
+    private final boolean readOnlyReplica;
+
+    // Rewrite legacy per-(target, action) ODRL policies into one policy per group at startup
+    private final boolean migrateLayout;
 
     // Basic properties
     private final Property nameProperty;
@@ -55,22 +86,31 @@ public class PolicyGroupService {
     private final Property dataPropertyPropertyCached;
     private final Property entityIdPropertyCached;
     private final Property assignmentTypeProperty;
+    private final Property entitySelectorPropertyCached;
+
+    // Per-subject policy epochs: the change log sequence of the subject's latest committed policy-group write
+    private final ConcurrentHashMap<Long, AtomicLong> policyEpochs = new ConcurrentHashMap<>();
+
+    // Compiled policy groups for the PDP by group id, recompiled after every write of the group
+    private final ConcurrentHashMap<String, CompiledPolicyGroup> compiledGroups = new ConcurrentHashMap<>();
 
     @Autowired
     private ODRLService odrlService;
     @Autowired
     private BlockchainService blockchainService;
+    @Autowired
+    private PolicyChangeLog changeLog;
 
-    public PolicyGroupService(@Value("${ontosov.triplestore.path:src/main/resources/triplestore}") String triplestorePath) {
-        // Create directory if it doesn't exist
-        try {
-            Files.createDirectories(Paths.get(triplestorePath));
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to create triplestore directory", e);
-        }
+    @Autowired
+    public PolicyGroupService(PolicyStore policyStore,
+                              @Value("${ontosov.replication.role:standalone}") String replicationRole,
+                              @Value("${ontosov.triplestore.migrate-layout:true}") boolean migrateLayout) {
+        this.policyStore = policyStore;
+        this.readOnlyReplica = "follower".equalsIgnoreCase(replicationRole);
+        this.migrateLayout = migrateLayout;
 
-        this.dataset = TDB2Factory.connectDataset(triplestorePath);
-        this.policyModel = dataset.getNamedModel(ONTOSOV_NS + "policies");
+        // Vocabulary nodes are shared by all shards
+        Model policyModel = ModelFactory.createDefaultModel();
 
         // Define basic properties
         this.nameProperty = policyModel.createProperty(ONTOSOV_NS, "name");
@@ -102,14 +142,92 @@ public class PolicyGroupService {
         this.dataSourcePropertyCached = policyModel.createProperty(ONTOSOV_NS, "dataSource");
         this.dataPropertyPropertyCached = policyModel.createProperty(ONTOSOV_NS, "dataProperty");
         this.entityIdPropertyCached = policyModel.createProperty(ONTOSOV_NS, "entityId");
+        this.entitySelectorPropertyCached = policyModel.createProperty(ONTOSOV_NS, "entitySelector");
         this.assignmentTypeProperty = policyModel.createProperty(ONTOSOV_NS, "assignmentType");
     }
 
+    /**
+     * Rewrites ODRL policies still stored in the legacy layout, with one policy per assigned
+     * target and action, into one policy per group (see ODRLService.generatePoliciesFromAssignment).
+     * Each group is regenerated from its definition and the targets of its legacy policies, one
+     * write transaction per shard. Followers skip this and receive the leader's layout with its snapshot.
+     */
+    @PostConstruct
+    public void migratePolicyLayout() {
+        if (!migrateLayout || readOnlyReplica) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        int migrated = 0;
+        for (PolicyStore.Shard shard : policyStore.getShards()) {
+            Dataset dataset = shard.getDataset();
+            dataset.begin(ReadWrite.WRITE);
+            try {
+                Set<String> legacyGroups = odrlService.findLegacyPolicyGroupsInTransaction(shard);
+                if (legacyGroups.isEmpty()) {
+                    dataset.abort();
+                    continue;
+                }
+
+                Model policyModel = shard.getPolicyGroupModel();
+                long triplesBefore = shard.getOdrlModel().size();
+                int shardMigrated = 0;
+                for (String groupId : legacyGroups) {
+                    Resource groupResource = policyModel.getResource(ONTOSOV_NS + groupId);
+                    Statement owner = groupResource.getProperty(ownerProperty);
+                    if (!groupResource.hasProperty(RDF.type, policyGroupClass) || owner == null ||
+                            !owner.getObject().isURIResource()) {
+                        // Policies of a deleted group; left for the triplestore cleanup
+                        continue;
+                    }
+                    String ownerUri = owner.getResource().getURI();
+                    Long subjectId;
+                    try {
+                        subjectId = Long.parseLong(ownerUri.substring((ONTOSOV_NS + "subject-").length()));
+                    } catch (NumberFormatException e) {
+                        continue;
+                    }
+
+                    Statement name = groupResource.getProperty(nameProperty);
+                    Statement description = groupResource.getProperty(descriptionProperty);
+                    PolicyGroupDTO policyGroup = toPolicyGroupDTO(groupResource, groupId,
+                            name != null ? name.getString() : "", description != null ? description.getString() : "");
+                    PolicyAssignmentDTO assignments = odrlService.getAssignmentsInTransaction(groupId, subjectId);
+                    odrlService.generatePoliciesFromAssignment(groupId, policyGroup, assignments, subjectId);
+                    shardMigrated++;
+                }
+                long triplesAfter = shard.getOdrlModel().size();
+                dataset.commit();
+
+                migrated += shardMigrated;
+                System.out.println("Migrated " + shardMigrated + " policy group(s) of shard " + shard.getIndex() +
+                        " to one ODRL policy per group: " + triplesBefore + " -> " + triplesAfter + " ODRL triples");
+            } catch (Exception e) {
+                dataset.abort();
+                throw new RuntimeException("Failed to migrate ODRL policies of shard " + shard.getIndex() +
+                        ": " + e.getMessage(), e);
+            } finally {
+                dataset.end();
+            }
+        }
+
+        if (migrated > 0) {
+            odrlService.buildDecisionIndex();
+            System.out.println("ODRL policy layout migration finished in " + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
     public String createPolicyGroup(PolicyGroupDTO policyGroupDTO, Long subjectId) {
+        requireWritable();
+        // Create a unique ID for the policy group
+        String policyGroupId = "pg-" + UUID.randomUUID().toString();
+
+        PolicyStore.Shard shard = policyStore.shardFor(subjectId);
+        Dataset dataset = shard.getDataset();
+        Model policyModel = shard.getPolicyGroupModel();
         dataset.begin(ReadWrite.WRITE);
         try {
-            // Create a unique ID for the policy group
-            String policyGroupId = "pg-" + UUID.randomUUID().toString();
             Resource policyGroup = policyModel.createResource(ONTOSOV_NS + policyGroupId);
 
             // Set basic properties
@@ -221,203 +339,320 @@ public class PolicyGroupService {
             }
 
             dataset.commit();
-            return policyGroupId;
         } catch (Exception e) {
             dataset.abort();
             throw new RuntimeException("Failed to create policy group: " + e.getMessage(), e);
         } finally {
             dataset.end();
         }
+        recompileGroup(policyGroupId, subjectId);
+        bumpPolicyEpoch(subjectId, policyGroupId, PolicyChangeType.CREATED);
+        return policyGroupId;
     }
 
     public List<PolicyGroupDTO> getPolicyGroupsBySubject(Long subjectId) {
         List<PolicyGroupDTO> result = new ArrayList<>();
+        PolicyStore.Shard shard = policyStore.shardFor(subjectId);
+        Dataset dataset = shard.getDataset();
+        Model policyModel = shard.getPolicyGroupModel();
         dataset.begin(ReadWrite.READ);
 
         try {
-            String queryString = "PREFIX onto: <" + ONTOSOV_NS + ">\n" +
-                    "PREFIX rdf: <" + RDF.getURI() + ">\n" +
-                    "PREFIX odrl: <" + ODRL_NS + ">\n" +
-                    "SELECT ?group ?name ?description ?created ?modified\n" +
-                    "WHERE {\n" +
-                    "  ?group rdf:type onto:PolicyGroup ;\n" +
-                    "         onto:owner onto:subject-" + subjectId + " ;\n" +
-                    "         onto:name ?name ;\n" +
-                    "         onto:description ?description ;\n" +
-                    "         onto:created ?created ;\n" +
-                    "         onto:modified ?modified .\n" +
-                    "}";
-
-            Query query = QueryFactory.create(queryString);
-            try (QueryExecution qexec = QueryExecutionFactory.create(query, policyModel)) {
+            Map<String, RDFNode> bindings = Map.of(
+                    "owner", ResourceFactory.createResource(ONTOSOV_NS + "subject-" + subjectId));
+            try (QueryExecution qexec = GROUPS_BY_OWNER_QUERY.execute(policyModel, bindings)) {
                 ResultSet rs = qexec.execSelect();
                 while (rs.hasNext()) {
                     QuerySolution solution = rs.next();
 
-                    PolicyGroupDTO dto = new PolicyGroupDTO();
                     String groupUri = solution.getResource("group").getURI();
                     int index = groupUri.lastIndexOf('#');
                     if (index == -1) {
                         index = groupUri.lastIndexOf('/');
                     }
-                    dto.setId(groupUri.substring(index + 1));
-                    dto.setName(solution.getLiteral("name").getString());
-                    dto.setDescription(solution.getLiteral("description").getString());
-
-                    // Get permissions for this group
-                    Map<String, Boolean> permissions = new HashMap<>();
-                    permissions.put("read", false);
-                    permissions.put("use", false);
-                    permissions.put("share", false);
-                    permissions.put("aggregate", false);
-                    permissions.put("modify", false);
-
-                    Resource groupResource = solution.getResource("group");
-                    StmtIterator permissionIterator = policyModel.listStatements(
-                            groupResource,
-                            permissionProperty,
-                            (RDFNode) null
-                    );
-
-                    while (permissionIterator.hasNext()) {
-                        Statement stmt = permissionIterator.next();
-                        Resource permissionResource = stmt.getObject().asResource();
-
-                        StmtIterator actionIterator = policyModel.listStatements(
-                                permissionResource,
-                                policyModel.createProperty(ODRL_NS, "action"),
-                                (RDFNode) null
-                        );
-
-                        while (actionIterator.hasNext()) {
-                            Statement actionStmt = actionIterator.next();
-                            String actionUri = actionStmt.getObject().asResource().getURI();
-                            String action = actionUri.substring(actionUri.lastIndexOf('/') + 1);
-                            permissions.put(action, true);
-                        }
-                    }
+                    result.add(toPolicyGroupDTO(
+                            solution.getResource("group"),
+                            groupUri.substring(index + 1),
+                            solution.getLiteral("name").getString(),
+                            solution.getLiteral("description").getString()
+                    ));
+                }
+            }
 
-                    dto.setPermissions(permissions);
+            return result;
+        } finally {
+            dataset.end();
+        }
+    }
 
-                    // Get constraints
-                    Map<String, Object> constraints = new HashMap<>();
+    /**
+     * Loads only the given policy groups of a subject in a single read transaction.
+     * Ids that do not exist or belong to another subject are skipped.
+     */
+    public List<PolicyGroupDTO> getPolicyGroupsByIds(Long subjectId, Collection<String> groupIds) {
+        List<PolicyGroupDTO> result = new ArrayList<>();
+        if (groupIds == null || groupIds.isEmpty()) {
+            return result;
+        }
 
-                    StmtIterator constraintIterator = policyModel.listStatements(
-                            groupResource,
-                            constraintProperty,
-                            (RDFNode) null
-                    );
+        PolicyStore.Shard shard = policyStore.shardFor(subjectId);
+        Dataset dataset = shard.getDataset();
+        Model policyModel = shard.getPolicyGroupModel();
+        dataset.begin(ReadWrite.READ);
+        try {
+            Resource owner = policyModel.createResource(ONTOSOV_NS + "subject-" + subjectId);
+            for (String groupId : groupIds) {
+                Resource groupResource = policyModel.getResource(ONTOSOV_NS + groupId);
+                if (!groupResource.hasProperty(RDF.type, policyGroupClass) ||
+                        !groupResource.hasProperty(ownerProperty, owner)) {
+                    continue;
+                }
 
-                    if (constraintIterator.hasNext()) {
-                        Resource constraintResource = constraintIterator.next().getObject().asResource();
+                Statement nameStmt = groupResource.getProperty(nameProperty);
+                Statement descriptionStmt = groupResource.getProperty(descriptionProperty);
+                if (nameStmt == null || descriptionStmt == null) {
+                    continue;
+                }
 
-                        // Purpose
-                        Statement purposeStmt = constraintResource.getProperty(purposeProperty);
-                        if (purposeStmt != null) {
-                            constraints.put("purpose", purposeStmt.getString());
-                        }
+                result.add(toPolicyGroupDTO(groupResource, groupId,
+                        nameStmt.getString(), descriptionStmt.getString()));
+            }
+            return result;
+        } finally {
+            dataset.end();
+        }
+    }
 
-                        // Expiration
-                        Statement expirationStmt = constraintResource.getProperty(expirationProperty);
-                        if (expirationStmt != null) {
-                            constraints.put("expiration", expirationStmt.getString());
-                        }
+    /**
+     * Compiled form of the given policy groups of a subject, in the order of the ids.
+     * Groups not compiled yet (e.g. after a restart) are loaded once and kept.
+     */
+    public List<CompiledPolicyGroup> getCompiledPolicyGroups(Long subjectId, Collection<String> groupIds) {
+        Map<String, CompiledPolicyGroup> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String groupId : groupIds) {
+            CompiledPolicyGroup group = compiledGroups.get(groupId);
+            if (group == null) {
+                missing.add(groupId);
+            } else if (group.getSubjectId().equals(subjectId)) {
+                found.put(groupId, group);
+            }
+        }
 
-                        // Notification
-                        Statement notificationStmt = constraintResource.getProperty(notificationProperty);
-                        constraints.put("requiresNotification", notificationStmt != null &&
-                                "true".equals(notificationStmt.getString()));
-                    }
+        if (!missing.isEmpty()) {
+            for (PolicyGroupDTO dto : getPolicyGroupsByIds(subjectId, missing)) {
+                // A concurrent write may have compiled a newer version meanwhile; keep that one
+                CompiledPolicyGroup compiled = CompiledPolicyGroup.compile(dto, subjectId);
+                CompiledPolicyGroup existing = compiledGroups.putIfAbsent(dto.getId(), compiled);
+                found.put(dto.getId(), existing != null ? existing : compiled);
+            }
+        }
 
-                    dto.setConstraints(constraints);
+        List<CompiledPolicyGroup> result = new ArrayList<>(found.size());
+        for (String groupId : groupIds) {
+            CompiledPolicyGroup group = found.get(groupId);
+            if (group != null) {
+                result.add(group);
+            }
+        }
+        return result;
+    }
 
-                    // Get consequences
-                    Map<String, Object> consequences = new HashMap<>();
+    /**
+     * Deactivates compiled groups whose expiration date has passed and moves the owners' policy
+     * epochs so cached decisions are dropped. Evaluations already deny expired groups on their
+     * own, see CompiledPolicyGroup.satisfiesConstraints.
+     */
+    @Scheduled(fixedDelayString = "${ontosov.pdp.expiry-sweep-interval-ms:60000}")
+    public void sweepExpiredGroups() {
+        long today = LocalDate.now().toEpochDay();
+        Set<Long> affectedSubjects = new HashSet<>();
+        for (CompiledPolicyGroup group : compiledGroups.values()) {
+            if (group.isActive() && group.isExpiredOn(today) &&
+                    compiledGroups.replace(group.getId(), group, group.deactivated())) {
+                affectedSubjects.add(group.getSubjectId());
+                bumpPolicyEpoch(group.getSubjectId(), group.getId(), PolicyChangeType.EXPIRED);
+            }
+        }
 
-                    StmtIterator consequenceIterator = policyModel.listStatements(
-                            groupResource,
-                            consequenceProperty,
-                            (RDFNode) null
-                    );
+        if (!affectedSubjects.isEmpty()) {
+            System.out.println("Deactivated expired policy groups of " + affectedSubjects.size() + " subject(s)");
+        }
+    }
 
-                    if (consequenceIterator.hasNext()) {
-                        Resource consequenceResource = consequenceIterator.next().getObject().asResource();
+    /**
+     * Recompiles a policy group after its write transaction has ended
+     */
+    private void recompileGroup(String groupId, Long subjectId) {
+        List<PolicyGroupDTO> groups = getPolicyGroupsByIds(subjectId, List.of(groupId));
+        if (groups.isEmpty()) {
+            compiledGroups.remove(groupId);
+        } else {
+            compiledGroups.put(groupId, CompiledPolicyGroup.compile(groups.get(0), subjectId));
+        }
+    }
 
-                        // Notification type
-                        Statement notificationTypeStmt = consequenceResource.getProperty(notificationTypeProperty);
-                        if (notificationTypeStmt != null) {
-                            consequences.put("notificationType", notificationTypeStmt.getString());
-                        }
+    /**
+     * Builds the DTO for a policy group resource (permissions, constraints, consequences,
+     * AI restrictions, transformations). Must be called inside a read transaction.
+     */
+    private PolicyGroupDTO toPolicyGroupDTO(Resource groupResource, String groupId, String name, String description) {
+        Model policyModel = groupResource.getModel();
+        PolicyGroupDTO dto = new PolicyGroupDTO();
+        dto.setId(groupId);
+        dto.setName(name);
+        dto.setDescription(description);
+
+        // Get permissions for this group
+        Map<String, Boolean> permissions = new HashMap<>();
+        permissions.put("read", false);
+        permissions.put("use", false);
+        permissions.put("share", false);
+        permissions.put("aggregate", false);
+        permissions.put("modify", false);
+
+        StmtIterator permissionIterator = policyModel.listStatements(
+                groupResource,
+                permissionProperty,
+                (RDFNode) null
+        );
+
+        while (permissionIterator.hasNext()) {
+            Statement stmt = permissionIterator.next();
+            Resource permissionResource = stmt.getObject().asResource();
+
+            StmtIterator actionIterator = policyModel.listStatements(
+                    permissionResource,
+                    policyModel.createProperty(ODRL_NS, "action"),
+                    (RDFNode) null
+            );
+
+            while (actionIterator.hasNext()) {
+                Statement actionStmt = actionIterator.next();
+                String actionUri = actionStmt.getObject().asResource().getURI();
+                String action = actionUri.substring(actionUri.lastIndexOf('/') + 1);
+                permissions.put(action, true);
+            }
+        }
 
-                        // Compensation amount
-                        Statement compensationAmountStmt = consequenceResource.getProperty(compensationAmountProperty);
-                        if (compensationAmountStmt != null) {
-                            consequences.put("compensationAmount", compensationAmountStmt.getString());
-                        }
-                    }
+        dto.setPermissions(permissions);
 
-                    dto.setConsequences(consequences);
-
-                    // Get AI restrictions
-                    Map<String, Object> aiRestrictions = new HashMap<>();
-
-                    StmtIterator aiRestrictionsIterator = policyModel.listStatements(
-                            groupResource,
-                            aiRestrictionsProperty,
-                            (RDFNode) null
-                    );
-
-                    if (aiRestrictionsIterator.hasNext()) {
-                        Resource aiRestrictionResource = aiRestrictionsIterator.next().getObject().asResource();
-
-                        // AI training flag
-                        Statement allowAiTrainingStmt = aiRestrictionResource.getProperty(allowAiTrainingProperty);
-                        if (allowAiTrainingStmt != null) {
-                            aiRestrictions.put("allowAiTraining", Boolean.parseBoolean(allowAiTrainingStmt.getString()));
-                        } else {
-                            // Default to true if not specified
-                            aiRestrictions.put("allowAiTraining", true);
-                        }
-
-                        // AI algorithm
-                        Statement aiAlgorithmStmt = aiRestrictionResource.getProperty(aiAlgorithmProperty);
-                        if (aiAlgorithmStmt != null) {
-                            aiRestrictions.put("aiAlgorithm", aiAlgorithmStmt.getString());
-                        }
-                    } else {
-                        // Default values if no AI restrictions specified
-                        aiRestrictions.put("allowAiTraining", true);
-                        aiRestrictions.put("aiAlgorithm", "");
-                    }
+        // Get constraints
+        Map<String, Object> constraints = new HashMap<>();
 
-                    dto.setAiRestrictions(aiRestrictions);
+        StmtIterator constraintIterator = policyModel.listStatements(
+                groupResource,
+                constraintProperty,
+                (RDFNode) null
+        );
 
-                    // Get transformations
-                    List<String> transformations = new ArrayList<>();
-                    StmtIterator transformationsIterator = policyModel.listStatements(
-                            groupResource,
-                            transformationsProperty,
-                            (RDFNode) null
-                    );
+        if (constraintIterator.hasNext()) {
+            Resource constraintResource = constraintIterator.next().getObject().asResource();
 
-                    while (transformationsIterator.hasNext()) {
-                        Statement stmt = transformationsIterator.next();
-                        transformations.add(stmt.getString());
-                    }
+            // Purpose
+            Statement purposeStmt = constraintResource.getProperty(purposeProperty);
+            if (purposeStmt != null) {
+                constraints.put("purpose", purposeStmt.getString());
+            }
 
-                    dto.setTransformations(transformations);
+            // Expiration
+            Statement expirationStmt = constraintResource.getProperty(expirationProperty);
+            if (expirationStmt != null) {
+                constraints.put("expiration", expirationStmt.getString());
+            }
 
-                    result.add(dto);
-                }
+            // Notification
+            Statement notificationStmt = constraintResource.getProperty(notificationProperty);
+            constraints.put("requiresNotification", notificationStmt != null &&
+                    "true".equals(notificationStmt.getString()));
+        }
+
+        dto.setConstraints(constraints);
+
+        // Get consequences
+        Map<String, Object> consequences = new HashMap<>();
+
+        StmtIterator consequenceIterator = policyModel.listStatements(
+                groupResource,
+                consequenceProperty,
+                (RDFNode) null
+        );
+
+        if (consequenceIterator.hasNext()) {
+            Resource consequenceResource = consequenceIterator.next().getObject().asResource();
+
+            // Notification type
+            Statement notificationTypeStmt = consequenceResource.getProperty(notificationTypeProperty);
+            if (notificationTypeStmt != null) {
+                consequences.put("notificationType", notificationTypeStmt.getString());
             }
 
-            return result;
-        } finally {
-            dataset.end();
+            // Compensation amount
+            Statement compensationAmountStmt = consequenceResource.getProperty(compensationAmountProperty);
+            if (compensationAmountStmt != null) {
+                consequences.put("compensationAmount", compensationAmountStmt.getString());
+            }
+        }
+
+        dto.setConsequences(consequences);
+
+        // Get AI restrictions
+        Map<String, Object> aiRestrictions = new HashMap<>();
+
+        StmtIterator aiRestrictionsIterator = policyModel.listStatements(
+                groupResource,
+                aiRestrictionsProperty,
+                (RDFNode) null
+        );
+
+        if (aiRestrictionsIterator.hasNext()) {
+            Resource aiRestrictionResource = aiRestrictionsIterator.next().getObject().asResource();
+
+            // AI training flag
+            Statement allowAiTrainingStmt = aiRestrictionResource.getProperty(allowAiTrainingProperty);
+            if (allowAiTrainingStmt != null) {
+                aiRestrictions.put("allowAiTraining", Boolean.parseBoolean(allowAiTrainingStmt.getString()));
+            } else {
+                // Default to true if not specified
+                aiRestrictions.put("allowAiTraining", true);
+            }
+
+            // AI algorithm
+            Statement aiAlgorithmStmt = aiRestrictionResource.getProperty(aiAlgorithmProperty);
+            if (aiAlgorithmStmt != null) {
+                aiRestrictions.put("aiAlgorithm", aiAlgorithmStmt.getString());
+            }
+        } else {
+            // Default values if no AI restrictions specified
+            aiRestrictions.put("allowAiTraining", true);
+            aiRestrictions.put("aiAlgorithm", "");
         }
+
+        dto.setAiRestrictions(aiRestrictions);
+
+        // Get transformations
+        List<String> transformations = new ArrayList<>();
+        StmtIterator transformationsIterator = policyModel.listStatements(
+                groupResource,
+                transformationsProperty,
+                (RDFNode) null
+        );
+
+        while (transformationsIterator.hasNext()) {
+            Statement stmt = transformationsIterator.next();
+            transformations.add(stmt.getString());
+        }
+
+        dto.setTransformations(transformations);
+
+        return dto;
     }
 
     public void updatePolicyGroup(String groupId, PolicyGroupDTO policyGroupDTO, Long subjectId) {
+        requireWritable();
+        PolicyStore.Shard shard = policyStore.shardFor(subjectId);
+        Dataset dataset = shard.getDataset();
+        Model policyModel = shard.getPolicyGroupModel();
         dataset.begin(ReadWrite.WRITE);
 
         try {
@@ -544,9 +779,15 @@ public class PolicyGroupService {
         } finally {
             dataset.end();
         }
+        recompileGroup(groupId, subjectId);
+        afterPolicyWrite(subjectId, groupId, PolicyChangeType.UPDATED);
     }
 
     public void deletePolicyGroup(String groupId, Long subjectId) {
+        requireWritable();
+        PolicyStore.Shard shard = policyStore.shardFor(subjectId);
+        Dataset dataset = shard.getDataset();
+        Model policyModel = shard.getPolicyGroupModel();
         dataset.begin(ReadWrite.WRITE);
 
         try {
@@ -591,10 +832,23 @@ public class PolicyGroupService {
         } finally {
             dataset.end();
         }
+        compiledGroups.remove(groupId);
+        afterPolicyWrite(subjectId, groupId, PolicyChangeType.DELETED);
     }
 
-    public void assignDataToPolicy(String groupId, PolicyAssignmentDTO assignmentDTO,
-                                   PolicyGroupDTO policyGroup, Long subjectId) {
+    /**
+     * Replaces the data assigned to a policy group. The request is diffed against the stored
+     * assignments so only added and removed data is written, in the group and in its ODRL policy.
+     */
+    public PolicyAssignmentResultDTO assignDataToPolicy(String groupId, PolicyAssignmentDTO assignmentDTO,
+                                                        PolicyGroupDTO policyGroup, Long subjectId) {
+        requireWritable();
+        // Reject malformed selectors before anything is written
+        Set<AssignmentKey> requested = assignmentKeys(assignmentDTO);
+        PolicyStore.Shard shard = policyStore.shardFor(subjectId);
+        Dataset dataset = shard.getDataset();
+        Model policyModel = shard.getPolicyGroupModel();
+        PolicyAssignmentResultDTO result;
         dataset.begin(ReadWrite.WRITE);
 
         try {
@@ -606,51 +860,62 @@ public class PolicyGroupService {
                 throw new IllegalArgumentException("Policy group not found or access denied");
             }
 
-            // Clear previous data assignments for this group
-            policyGroupResource.removeAll(hasDataAssignmentProperty);
-
-            // Create new property assignments
-            if (assignmentDTO.getPropertyAssignments() != null) {
-                for (Map.Entry<String, Set<String>> entry : assignmentDTO.getPropertyAssignments().entrySet()) {
-                    String dataSource = entry.getKey();
-                    Set<String> properties = entry.getValue();
+            // Stored assignments; unreadable and duplicate ones are dropped
+            Map<AssignmentKey, Resource> stored = new HashMap<>();
+            for (Statement statement : policyGroupResource.listProperties(hasDataAssignmentProperty).toList()) {
+                Resource dataAssignment = statement.getObject().isResource() ? statement.getResource() : null;
+                AssignmentKey key = dataAssignment != null ? assignmentKey(dataAssignment) : null;
+                if (key == null || stored.putIfAbsent(key, dataAssignment) != null) {
+                    removeDataAssignment(policyModel, statement);
+                }
+            }
 
-                    for (String property : properties) {
-                        Resource dataAssignment = policyModel.createResource();
-                        dataAssignment.addProperty(dataSourcePropertyCached, dataSource);
-                        dataAssignment.addProperty(dataPropertyPropertyCached, property);
-                        dataAssignment.addProperty(assignmentTypeProperty, "property");
-                        policyGroupResource.addProperty(hasDataAssignmentProperty, dataAssignment);
-                    }
+            List<AssignmentKey> added = new ArrayList<>();
+            for (AssignmentKey key : requested) {
+                if (!stored.containsKey(key)) {
+                    added.add(key);
+                }
+            }
+            List<AssignmentKey> removed = new ArrayList<>();
+            for (AssignmentKey key : stored.keySet()) {
+                if (!requested.contains(key)) {
+                    removed.add(key);
                 }
             }
+            result = new PolicyAssignmentResultDTO(added.size(), removed.size(), requested.size() - added.size());
 
-            // Create new entity assignments
-            if (assignmentDTO.getEntityAssignments() != null) {
-                for (Map.Entry<String, Set<String>> entry : assignmentDTO.getEntityAssignments().entrySet()) {
-                    String dataSource = entry.getKey();
-                    Set<String> entityIds = entry.getValue();
+            if (added.isEmpty() && removed.isEmpty() &&
+                    odrlService.isGroupPolicyCurrent(groupId, policyGroup, assignmentDTO, subjectId)) {
+                // Nothing to write
+                dataset.abort();
+                return result;
+            }
 
-                    for (String entityId : entityIds) {
-                        Resource dataAssignment = policyModel.createResource();
-                        dataAssignment.addProperty(dataSourcePropertyCached, dataSource);
-                        dataAssignment.addProperty(entityIdPropertyCached, entityId);
-                        dataAssignment.addProperty(assignmentTypeProperty, "entity");
-                        policyGroupResource.addProperty(hasDataAssignmentProperty, dataAssignment);
-                    }
-                }
+            for (AssignmentKey key : removed) {
+                Resource dataAssignment = stored.get(key);
+                removeDataAssignment(policyModel, policyModel.createStatement(
+                        policyGroupResource, hasDataAssignmentProperty, dataAssignment));
+            }
+            for (AssignmentKey key : added) {
+                Resource dataAssignment = policyModel.createResource();
+                dataAssignment.addProperty(dataSourcePropertyCached, key.dataSource());
+                dataAssignment.addProperty(assignmentValueProperty(key.type()), key.value());
+                dataAssignment.addProperty(assignmentTypeProperty, key.type());
+                policyGroupResource.addProperty(hasDataAssignmentProperty, dataAssignment);
             }
 
             // Update modified timestamp
             updateProperty(policyGroupResource, modifiedProperty,
                     LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
 
-            // Generate ODRL policies within the same transaction
-            odrlService.generatePoliciesFromAssignment(groupId, policyGroup, assignmentDTO, subjectId);
+            // Update ODRL policies within the same transaction
+            odrlService.applyAssignmentDiff(groupId, policyGroup, assignmentDTO,
+                    toAssignmentDTO(added), toAssignmentDTO(removed), subjectId);
             System.out.println("=== ASSIGNING POLICY ===");
             System.out.println("Policy Group ID: " + groupId);
             System.out.println("Subject ID: " + subjectId);
-            System.out.println("PropertyAssignments: " + assignmentDTO.getPropertyAssignments());
+            System.out.println("Assignments added: " + result.getAdded() + ", removed: " + result.getRemoved() +
+                    ", unchanged: " + result.getUnchanged());
 
             dataset.commit();
         } catch (Exception e) {
@@ -659,6 +924,260 @@ public class PolicyGroupService {
         } finally {
             dataset.end();
         }
+        afterPolicyWrite(subjectId, groupId, PolicyChangeType.ASSIGNED);
+        return result;
+    }
+
+    /**
+     * One data assignment of a policy group: its type ("property", "entity" or "entitySelector"),
+     * data source and the property, entity ID or canonical selector it assigns
+     */
+    private record AssignmentKey(String type, String dataSource, String value) {
+    }
+
+    private Set<AssignmentKey> assignmentKeys(PolicyAssignmentDTO assignmentDTO) {
+        Set<AssignmentKey> keys = new HashSet<>();
+        if (assignmentDTO.getPropertyAssignments() != null) {
+            assignmentDTO.getPropertyAssignments().forEach((dataSource, properties) -> properties.forEach(
+                    property -> keys.add(new AssignmentKey("property", dataSource, property))));
+        }
+        if (assignmentDTO.getEntityAssignments() != null) {
+            assignmentDTO.getEntityAssignments().forEach((dataSource, entityIds) -> entityIds.forEach(
+                    entityId -> keys.add(new AssignmentKey("entity", dataSource, entityId))));
+        }
+        if (assignmentDTO.getEntitySelectorAssignments() != null) {
+            assignmentDTO.getEntitySelectorAssignments().forEach((dataSource, selectors) -> selectors.forEach(
+                    selector -> keys.add(new AssignmentKey("entitySelector", dataSource,
+                            EntitySelector.parse(selector).toString()))));
+        }
+        return keys;
+    }
+
+    /**
+     * Key of a stored assignment node, or null if it is incomplete. Assignments written before
+     * assignment types were stored are recognised by their value property.
+     */
+    private AssignmentKey assignmentKey(Resource dataAssignment) {
+        Statement dataSource = dataAssignment.getProperty(dataSourcePropertyCached);
+        if (dataSource == null) {
+            return null;
+        }
+        Statement type = dataAssignment.getProperty(assignmentTypeProperty);
+        for (String candidate : List.of("property", "entity", "entitySelector")) {
+            if (type != null && !candidate.equals(type.getString())) {
+                continue;
+            }
+            Statement value = dataAssignment.getProperty(assignmentValueProperty(candidate));
+            if (value != null) {
+                return new AssignmentKey(candidate, dataSource.getString(), value.getString());
+            }
+        }
+        return null;
+    }
+
+    private Property assignmentValueProperty(String type) {
+        switch (type) {
+            case "entity":
+                return entityIdPropertyCached;
+            case "entitySelector":
+                return entitySelectorPropertyCached;
+            default:
+                return dataPropertyPropertyCached;
+        }
+    }
+
+    /**
+     * Removes a hasDataAssignment link together with the assignment node it points to
+     */
+    private void removeDataAssignment(Model policyModel, Statement link) {
+        if (link.getObject().isAnon()) {
+            link.getResource().removeProperties();
+        }
+        policyModel.remove(link);
+    }
+
+    private static PolicyAssignmentDTO toAssignmentDTO(List<AssignmentKey> keys) {
+        PolicyAssignmentDTO assignmentDTO = new PolicyAssignmentDTO();
+        assignmentDTO.setPropertyAssignments(new HashMap<>());
+        assignmentDTO.setEntityAssignments(new HashMap<>());
+        assignmentDTO.setEntitySelectorAssignments(new HashMap<>());
+        for (AssignmentKey key : keys) {
+            Map<String, Set<String>> assignments = "entity".equals(key.type()) ? assignmentDTO.getEntityAssignments() :
+                    "entitySelector".equals(key.type()) ? assignmentDTO.getEntitySelectorAssignments() :
+                            assignmentDTO.getPropertyAssignments();
+            assignments.computeIfAbsent(key.dataSource(), k -> new HashSet<>()).add(key.value());
+        }
+        return assignmentDTO;
+    }
+
+    /**
+     * Writes both policy graphs of all shards as one N-Quads stream. Used by followers to
+     * bootstrap their replica; read the change log sequence before calling so later writes
+     * are replayed on top.
+     */
+    public void writeReplicationSnapshot(OutputStream out) {
+        // One writer for all shards keeps blank node labels distinct across them
+        StreamRDF writer = StreamRDFWriter.getWriterStream(out, RDFFormat.NQUADS);
+        writer.start();
+        for (PolicyStore.Shard shard : policyStore.getShards()) {
+            shard.getDataset().begin(ReadWrite.READ);
+            try {
+                shard.getDataset().asDatasetGraph().find().forEachRemaining(writer::quad);
+            } finally {
+                shard.getDataset().end();
+            }
+        }
+        writer.finish();
+    }
+
+    /**
+     * Writes one policy group as N-Quads: the group with its permissions and data assignments,
+     * and its ODRL policies with the targets they point to. Nothing when the group is gone.
+     */
+    public void writeReplicationBundle(String groupId, Long subjectId, OutputStream out) {
+        Model groupModel = ModelFactory.createDefaultModel();
+        Model odrlModel = ModelFactory.createDefaultModel();
+        PolicyStore.Shard shard = policyStore.shardFor(subjectId);
+        Dataset dataset = shard.getDataset();
+        Model policyModel = shard.getPolicyGroupModel();
+        dataset.begin(ReadWrite.READ);
+        try {
+            Resource policyGroup = policyModel.getResource(ONTOSOV_NS + groupId);
+            if (policyGroup.hasProperty(RDF.type, policyGroupClass)) {
+                RdfGraphs.describe(policyModel, policyGroup, groupModel);
+                odrlService.describePoliciesForGroupInTransaction(groupId, subjectId, odrlModel);
+            }
+        } finally {
+            dataset.end();
+        }
+
+        Dataset bundle = DatasetFactory.create();
+        bundle.addNamedModel(PolicyStore.POLICY_GROUP_GRAPH, groupModel);
+        bundle.addNamedModel(PolicyStore.ODRL_GRAPH, odrlModel);
+        RDFDataMgr.write(out, bundle, Lang.NQUADS);
+    }
+
+    /**
+     * Replaces the policy graphs of all shards with a leader's snapshot, split by subject, then
+     * rebuilds the decision index and moves the epochs of all subjects so no decision computed
+     * on the old graphs survives. Shards are replaced one transaction at a time.
+     */
+    public void applyReplicationSnapshot(InputStream in) {
+        Dataset snapshot = DatasetFactory.create();
+        RDFDataMgr.read(snapshot, in, Lang.NQUADS);
+        List<PolicyStore.Partition> partitions = PolicyStore.partition(
+                snapshot.getNamedModel(PolicyStore.POLICY_GROUP_GRAPH),
+                snapshot.getNamedModel(PolicyStore.ODRL_GRAPH),
+                policyStore.getShardCount());
+
+        for (PolicyStore.Shard shard : policyStore.getShards()) {
+            PolicyStore.Partition partition = partitions.get(shard.getIndex());
+            Dataset dataset = shard.getDataset();
+            dataset.begin(ReadWrite.WRITE);
+            try {
+                shard.getPolicyGroupModel().removeAll();
+                shard.getOdrlModel().removeAll();
+                shard.getPolicyGroupModel().add(partition.policyGroupModel());
+                shard.getOdrlModel().add(partition.odrlModel());
+                dataset.commit();
+            } catch (Exception e) {
+                dataset.abort();
+                throw new RuntimeException("Failed to apply policy snapshot: " + e.getMessage(), e);
+            } finally {
+                dataset.end();
+            }
+        }
+
+        odrlService.buildDecisionIndex();
+        compiledGroups.clear();
+        Set<Long> subjects = new HashSet<>(policyEpochs.keySet());
+        subjects.addAll(odrlService.getGovernedSubjectIds());
+        for (Long subjectId : subjects) {
+            bumpPolicyEpoch(subjectId, null, PolicyChangeType.RELOADED);
+        }
+    }
+
+    /**
+     * Replaces one policy group and its ODRL policies with a leader's bundle (see
+     * writeReplicationBundle) and records the change under the leader's change type.
+     * An empty bundle removes the group.
+     */
+    public void applyReplicationBundle(String groupId, Long subjectId, PolicyChangeType changeType, InputStream in) {
+        Dataset bundle = DatasetFactory.create();
+        RDFDataMgr.read(bundle, in, Lang.NQUADS);
+
+        PolicyStore.Shard shard = policyStore.shardFor(subjectId);
+        Dataset dataset = shard.getDataset();
+        Model policyModel = shard.getPolicyGroupModel();
+        dataset.begin(ReadWrite.WRITE);
+        try {
+            RdfGraphs.removeDescription(policyModel, policyModel.getResource(ONTOSOV_NS + groupId));
+            policyModel.add(bundle.getNamedModel(PolicyStore.POLICY_GROUP_GRAPH));
+            odrlService.replacePoliciesForGroupInTransaction(groupId, subjectId,
+                    bundle.getNamedModel(PolicyStore.ODRL_GRAPH));
+            dataset.commit();
+        } catch (Exception e) {
+            dataset.abort();
+            throw new RuntimeException("Failed to apply replicated policy group: " + e.getMessage(), e);
+        } finally {
+            dataset.end();
+        }
+        recompileGroup(groupId, subjectId);
+        afterPolicyWrite(subjectId, groupId, changeType);
+    }
+
+    public boolean isReadOnlyReplica() {
+        return readOnlyReplica;
+    }
+
+    private void requireWritable() {
+        if (readOnlyReplica) {
+            throw new IllegalStateException("This node is a read-only policy replica; send policy writes to the leader");
+        }
+    }
+
+    /**
+     * Current policy epoch of a subject. Any decision computed under an older epoch is stale.
+     */
+    public long getPolicyEpoch(Long subjectId) {
+        AtomicLong epoch = policyEpochs.get(subjectId);
+        return epoch != null ? epoch.get() : 0L;
+    }
+
+    /**
+     * Latest policy version handed out to any subject (the change log's last sequence);
+     * 0 before the first write since startup
+     */
+    public long getPolicyVersion() {
+        return changeLog.getLastSequence();
+    }
+
+    /**
+     * Records a committed write in the change log and moves the subject's epoch to its sequence
+     */
+    private void bumpPolicyEpoch(Long subjectId, String groupId, PolicyChangeType changeType) {
+        AtomicLong epoch = policyEpochs.computeIfAbsent(subjectId, k -> new AtomicLong());
+        // Concurrent writes of one subject may finish out of order; its epoch never moves backwards
+        epoch.accumulateAndGet(changeLog.append(subjectId, groupId, changeType), Math::max);
+    }
+
+    /**
+     * Publishes the removal of ODRL policies a deleted policy group had left behind, found by
+     * the triplestore sweep (see PolicyStoreCompactor)
+     */
+    public void afterOrphanedPoliciesRemoved(Long subjectId, String groupId) {
+        compiledGroups.remove(groupId);
+        afterPolicyWrite(subjectId, groupId, PolicyChangeType.DELETED);
+    }
+
+    /**
+     * Runs after a write transaction that touched the subject's policies has ended.
+     * The index is refreshed before the epoch moves so that a decision computed under
+     * the new epoch always sees the new index.
+     */
+    private void afterPolicyWrite(Long subjectId, String groupId, PolicyChangeType changeType) {
+        odrlService.refreshDecisionIndex(subjectId);
+        bumpPolicyEpoch(subjectId, groupId, changeType);
     }
 
     private void updateProperty(Resource resource, Property property, String value) {
@@ -0,0 +1,214 @@
+package com.ontosov.services;
+
+import com.ontosov.dto.AccessRequestDTO;
+import com.ontosov.dto.DatabaseConfigDTO;
+import com.ontosov.dto.LocalDecisionDTO;
+import com.ontosov.dto.PolicyChangeDTO;
+import com.ontosov.dto.PolicyChangeFeedDTO;
+import com.ontosov.dto.PolicyDecisionDTO;
+import com.ontosov.dto.PolicySnapshotDTO;
+import com.ontosov.dto.SchemaMappingDTO;
+import com.ontosov.models.User;
+import com.ontosov.models.UserRole;
+import com.ontosov.repositories.UserRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Serves the policy snapshots and deltas of the embeddable policy replica
+ * (com.ontosov.client.LocalPolicyReplica) and takes back the decisions it made for audit.
+ *
+ * Snapshots are cut from the in-memory decision index and the compiled policy groups, limited
+ * to the data sources of the requesting controller. Versions are sequences of the policy change
+ * log and the instance ID is the log's ID. A delta carries the subjects with changes after the
+ * version the replica holds, plus the controller's current table mappings, which the change log
+ * does not track; a replica of another log, or one further behind than the log retains, gets
+ * a full snapshot instead.
+ */
+@Service
+public class PolicyReplicaService {
+
+    @Autowired
+    private ODRLService odrlService;
+
+    @Autowired
+    private PolicyChangeLog changeLog;
+
+    @Autowired
+    private PolicyGroupService policyGroupService;
+
+    @Autowired
+    private DatabaseConfigService databaseConfigService;
+
+    @Autowired
+    private IdentityResolutionCache resolutionCache;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Autowired
+    private AuditPipeline auditPipeline;
+
+    /**
+     * Full snapshot of the policies on a controller's data sources, with the controller's
+     * table mappings. Only subjects with targets on those data sources are included, so a
+     * controller never learns the tax IDs of subjects outside its data.
+     */
+    public PolicySnapshotDTO getSnapshot(Long controllerId) throws IOException {
+        // Read the version first: a write that lands while the snapshot is cut shows up in the next delta
+        long version = policyGroupService.getPolicyVersion();
+
+        PolicySnapshotDTO snapshot = newSnapshot(controllerId, version, true);
+        snapshot.setDataSources(loadDataSources(controllerId));
+        Set<String> dataSources = identifiersOf(snapshot.getDataSources());
+
+        Map<Long, String> taxIds = new HashMap<>();
+        for (User subject : userRepo.findByRole(UserRole.SUBJECT)) {
+            if (subject.getTaxid() != null) {
+                taxIds.put(subject.getId(), subject.getTaxid());
+            }
+        }
+
+        for (Long subjectId : new ArrayList<>(odrlService.getGovernedSubjectIds())) {
+            PolicySnapshotDTO.Subject subject = loadSubject(subjectId, taxIds.get(subjectId), controllerId, dataSources);
+            if (subject != null) {
+                snapshot.getSubjects().add(subject);
+                if (subject.getTaxId() != null) {
+                    snapshot.getSubjectIds().put(subject.getTaxId(), subjectId);
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Subjects whose policies changed after the given version, with the controller's current
+     * data sources. Falls back to a full snapshot when the change log cannot resume from it.
+     */
+    public PolicySnapshotDTO getDelta(Long controllerId, String replicaInstanceId, long since) throws IOException {
+        PolicyChangeFeedDTO changes = changeLog.read(replicaInstanceId, since, null, Integer.MAX_VALUE);
+        if (changes.isReset()) {
+            return getSnapshot(controllerId);
+        }
+
+        PolicySnapshotDTO delta = newSnapshot(controllerId, changes.getNextSince(), false);
+        // Mapping and database changes are not in the change log, so the replica gets them every time
+        delta.setDataSources(loadDataSources(controllerId));
+        Set<String> dataSources = identifiersOf(delta.getDataSources());
+
+        Set<Long> changedSubjects = new LinkedHashSet<>();
+        for (PolicyChangeDTO change : changes.getChanges()) {
+            changedSubjects.add(change.getSubjectId());
+        }
+        for (Long subjectId : changedSubjects) {
+            PolicySnapshotDTO.Subject subject = loadSubject(subjectId, null, controllerId, dataSources);
+            if (subject != null) {
+                delta.getSubjects().add(subject);
+            } else {
+                delta.getRemovedSubjectIds().add(subjectId);
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Queues the decisions a controller's replica made locally for audit. Requests are attributed
+     * to the controller that ships them, whatever controller ID they carry.
+     */
+    public int recordLocalDecisions(Long controllerId, List<LocalDecisionDTO> localDecisions) {
+        List<AccessRequestDTO> requests = new ArrayList<>(localDecisions.size());
+        List<PolicyDecisionDTO> decisions = new ArrayList<>(localDecisions.size());
+        for (LocalDecisionDTO localDecision : localDecisions) {
+            if (localDecision == null || localDecision.getRequest() == null || localDecision.getDecision() == null) {
+                continue;
+            }
+            localDecision.getRequest().setControllerId(controllerId);
+            requests.add(localDecision.getRequest());
+            decisions.add(localDecision.getDecision());
+        }
+
+        auditPipeline.recordAll(requests, decisions, false);
+        return requests.size();
+    }
+
+    private PolicySnapshotDTO newSnapshot(Long controllerId, long version, boolean full) {
+        PolicySnapshotDTO snapshot = new PolicySnapshotDTO();
+        snapshot.setInstanceId(changeLog.getLogId());
+        snapshot.setControllerId(controllerId);
+        snapshot.setVersion(version);
+        snapshot.setFull(full);
+        return snapshot;
+    }
+
+    /**
+     * Targets and referenced groups of one subject, or null if it has no policy on the data sources
+     */
+    private PolicySnapshotDTO.Subject loadSubject(Long subjectId, String taxId, Long controllerId, Set<String> dataSources) {
+        List<PolicySnapshotDTO.Target> targets = odrlService.getControllerTargets(subjectId, controllerId, dataSources);
+        if (targets.isEmpty()) {
+            return null;
+        }
+
+        Set<String> groupIds = new LinkedHashSet<>();
+        for (PolicySnapshotDTO.Target target : targets) {
+            groupIds.addAll(target.getGroupActions().keySet());
+        }
+
+        if (taxId == null) {
+            taxId = userRepo.findById(subjectId).map(User::getTaxid).orElse(null);
+        }
+
+        PolicySnapshotDTO.Subject subject = new PolicySnapshotDTO.Subject();
+        subject.setSubjectId(subjectId);
+        subject.setTaxId(taxId);
+        subject.setTargets(targets);
+        for (CompiledPolicyGroup group : policyGroupService.getCompiledPolicyGroups(subjectId, groupIds)) {
+            subject.getGroups().add(group.getGroup());
+        }
+        return subject;
+    }
+
+    /**
+     * Databases of the controller with their policy-storage identifiers and table mappings
+     */
+    private List<PolicySnapshotDTO.DataSource> loadDataSources(Long controllerId) throws IOException {
+        List<PolicySnapshotDTO.DataSource> dataSources = new ArrayList<>();
+        String controllerName = resolutionCache.getControllerName(controllerId);
+        if (controllerName == null) {
+            throw new IllegalArgumentException("Controller not found: " + controllerId);
+        }
+
+        for (DatabaseConfigDTO database : databaseConfigService.getDatabasesForController(controllerId)) {
+            PolicySnapshotDTO.DataSource dataSource = new PolicySnapshotDTO.DataSource();
+            dataSource.setId(database.getId());
+            dataSource.setIdentifier(PolicyDecisions.dataSourceIdentifier(controllerName, database.getDatabaseName()));
+
+            // Tables named in the OBDA file, resolved the same way evaluateAccess resolves them
+            Set<String> tableNames = new TreeSet<>();
+            for (SchemaMappingDTO mapping : databaseConfigService.getMappings(controllerId, database.getDatabaseName())) {
+                if (mapping.getDatabaseTable() != null) {
+                    tableNames.add(mapping.getDatabaseTable());
+                }
+            }
+            for (String tableName : tableNames) {
+                DatabaseConfigService.TableMapping mapping =
+                        databaseConfigService.resolveTableMapping(controllerId, database.getId(), tableName);
+                dataSource.getTables().put(tableName,
+                        new PolicySnapshotDTO.Table(mapping.getEntityType(), new HashMap<>(mapping.getColumnProperties())));
+            }
+            dataSources.add(dataSource);
+        }
+        return dataSources;
+    }
+
+    private static Set<String> identifiersOf(List<PolicySnapshotDTO.DataSource> dataSources) {
+        Set<String> identifiers = new HashSet<>();
+        for (PolicySnapshotDTO.DataSource dataSource : dataSources) {
+            identifiers.add(dataSource.getIdentifier());
+        }
+        return identifiers;
+    }
+}
@@ -0,0 +1,228 @@
+package com.ontosov.services;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ontosov.dto.PolicyChangeDTO;
+import com.ontosov.dto.PolicyChangeFeedDTO;
+import com.ontosov.dto.PolicyChangeType;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps this node's policy graphs a read-only replica of a leader's (ontosov.replication.role=follower).
+ *
+ * On startup the follower loads the leader's snapshot, then long-polls the leader's change feed
+ * from the snapshot's sequence. Each page of changes is applied group by group: the follower
+ * fetches the group's current bundle (group resource and ODRL policies) and replaces its local
+ * copy, which refreshes the decision index, recompiles the group and moves the subject's epoch
+ * like a local write would. Replaying a change twice is harmless since bundles carry the whole
+ * group. Expiry is not replicated; every node sweeps its own compiled groups.
+ *
+ * When the leader restarts or the follower falls behind the leader's change log, the feed
+ * answers reset and the follower reloads the snapshot.
+ */
+@Component
+public class PolicyReplicationFollower {
+    private static final Logger log = LoggerFactory.getLogger(PolicyReplicationFollower.class);
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final int PAGE_SIZE = 1000;
+
+    private final PolicyGroupService policyGroupService;
+    private final boolean enabled;
+    private final String leaderUrl;
+    private final long pollWaitMillis;
+    private final long retryDelayMillis;
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+
+    private volatile boolean running;
+    private volatile Thread worker;
+
+    // Replication state, written by the worker thread only
+    private volatile String leaderLogId;
+    private volatile long appliedSequence;
+    private volatile long leaderSequence;
+    private volatile long lastAppliedAt;
+    private volatile String lastError;
+
+    @Autowired
+    public PolicyReplicationFollower(PolicyGroupService policyGroupService,
+                                     @Value("${ontosov.replication.role:standalone}") String role,
+                                     @Value("${ontosov.replication.leader-url:}") String leaderUrl,
+                                     @Value("${ontosov.replication.poll-wait-ms:30000}") long pollWaitMillis,
+                                     @Value("${ontosov.replication.retry-delay-ms:5000}") long retryDelayMillis) {
+        this.policyGroupService = policyGroupService;
+        this.enabled = "follower".equalsIgnoreCase(role);
+        this.leaderUrl = leaderUrl.endsWith("/") ? leaderUrl.substring(0, leaderUrl.length() - 1) : leaderUrl;
+        this.pollWaitMillis = Math.max(1, pollWaitMillis);
+        this.retryDelayMillis = Math.max(1, retryDelayMillis);
+        this.httpClient = HttpClient.newBuilder().connectTimeout(CONNECT_TIMEOUT).build();
+        this.objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (leaderUrl.isEmpty()) {
+            throw new IllegalStateException("ontosov.replication.leader-url is required for a follower");
+        }
+        running = true;
+        Thread thread = new Thread(this::replicate, "policy-replication");
+        thread.setDaemon(true);
+        thread.start();
+        worker = thread;
+        log.info("Replicating policies from leader {}", leaderUrl);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void replicate() {
+        while (running) {
+            try {
+                if (leaderLogId == null) {
+                    loadSnapshot();
+                }
+                PolicyChangeFeedDTO feed = fetchChanges();
+                leaderSequence = feed.getLatestSequence();
+                if (feed.isReset()) {
+                    log.info("Leader change log cannot resume from {} (log {}), reloading snapshot",
+                            appliedSequence, leaderLogId);
+                    leaderLogId = null;
+                    continue;
+                }
+                applyChanges(feed);
+                appliedSequence = feed.getNextSince();
+                lastError = null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                lastError = e.getMessage();
+                log.warn("Policy replication from {} failed, retrying in {} ms: {}",
+                        leaderUrl, retryDelayMillis, e.getMessage());
+                try {
+                    Thread.sleep(retryDelayMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    void loadSnapshot() throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        HttpResponse<InputStream> response = send("/api/replication/snapshot");
+        String logId = response.headers().firstValue("X-Policy-Log-Id")
+                .orElseThrow(() -> new IOException("Leader snapshot without log ID"));
+        long sequence = Long.parseLong(response.headers().firstValue("X-Policy-Sequence")
+                .orElseThrow(() -> new IOException("Leader snapshot without sequence")));
+
+        try (InputStream body = response.body()) {
+            policyGroupService.applyReplicationSnapshot(body);
+        }
+        leaderLogId = logId;
+        appliedSequence = sequence;
+        lastAppliedAt = System.currentTimeMillis();
+        log.info("Loaded policy snapshot of leader log {} at sequence {} in {} ms",
+                logId, sequence, lastAppliedAt - start);
+    }
+
+    private PolicyChangeFeedDTO fetchChanges() throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = send("/api/policy-groups/changes?since=" + appliedSequence +
+                "&logId=" + URLEncoder.encode(leaderLogId, StandardCharsets.UTF_8) +
+                "&limit=" + PAGE_SIZE + "&waitMs=" + pollWaitMillis);
+        try (InputStream body = response.body()) {
+            return objectMapper.readValue(body, PolicyChangeFeedDTO.class);
+        }
+    }
+
+    /**
+     * Applies a page of changes once per group, with the type of its latest change
+     */
+    void applyChanges(PolicyChangeFeedDTO feed) throws IOException, InterruptedException {
+        Map<String, PolicyChangeDTO> latestByGroup = new LinkedHashMap<>();
+        for (PolicyChangeDTO change : feed.getChanges()) {
+            if (change.getGroupId() != null && change.getType() != PolicyChangeType.EXPIRED) {
+                latestByGroup.remove(change.getGroupId());
+                latestByGroup.put(change.getGroupId(), change);
+            }
+        }
+
+        for (PolicyChangeDTO change : latestByGroup.values()) {
+            HttpResponse<InputStream> response = send("/api/replication/groups/" +
+                    URLEncoder.encode(change.getGroupId(), StandardCharsets.UTF_8) +
+                    "?subjectId=" + change.getSubjectId());
+            try (InputStream body = response.body()) {
+                policyGroupService.applyReplicationBundle(change.getGroupId(), change.getSubjectId(),
+                        change.getType(), body);
+            }
+        }
+        if (!latestByGroup.isEmpty()) {
+            lastAppliedAt = System.currentTimeMillis();
+        }
+    }
+
+    private HttpResponse<InputStream> send(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(leaderUrl + path))
+                // Long-polls may legitimately take the whole wait
+                .timeout(Duration.ofMillis(pollWaitMillis).plus(CONNECT_TIMEOUT).plusSeconds(60))
+                .GET()
+                .build();
+        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() != 200) {
+            response.body().close();
+            throw new IOException("Leader returned HTTP " + response.statusCode() + " for " + path);
+        }
+        return response;
+    }
+
+    /**
+     * Replication progress for monitoring
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("leaderUrl", leaderUrl);
+        status.put("leaderLogId", leaderLogId);
+        status.put("appliedSequence", appliedSequence);
+        status.put("leaderSequence", leaderSequence);
+        status.put("lag", Math.max(0, leaderSequence - appliedSequence));
+        status.put("lastAppliedAt", lastAppliedAt);
+        status.put("lastError", lastError);
+        return status;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
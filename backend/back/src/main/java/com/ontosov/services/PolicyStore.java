@@ -0,0 +1,238 @@
+package com.ontosov.services;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.tdb2.TDB2Factory;
+import org.apache.jena.vocabulary.RDF;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * TDB2 storage of the policy graphs, partitioned into shards by subject ID.
+ *
+ * TDB2 admits a single writer per dataset, so with one dataset a policy write of one subject
+ * blocks the writes of all others. Each shard is its own dataset holding both policy graphs
+ * (policy groups and ODRL policies) of the subjects hashed to it, so ODRLService and
+ * PolicyGroupService open per-shard transactions and writes of subjects on different shards
+ * run in parallel.
+ *
+ * With ontosov.triplestore.shards=1 (the default) the store is the plain dataset at
+ * ontosov.triplestore.path, as before sharding. With N > 1 shards live in shard-0 .. shard-(N-1)
+ * below that path and the shard count is recorded in a layout file; starting with another count,
+ * or on an unsharded store, fails until the store is converted with PolicyStoreResharder.
+ */
+@Component
+public class PolicyStore {
+    private static final Logger log = LoggerFactory.getLogger(PolicyStore.class);
+
+    static final String ONTOSOV_NS = "http://ontosov.org/policy#";
+    static final String ODRL_NS = "http://www.w3.org/ns/odrl/2/";
+    public static final String POLICY_GROUP_GRAPH = ONTOSOV_NS + "policies";
+    public static final String ODRL_GRAPH = ODRL_NS + "policies";
+    static final String LAYOUT_FILE = "shard-layout";
+
+    /**
+     * One shard: a TDB2 dataset with the policy-group and ODRL graphs of its subjects
+     */
+    public static final class Shard {
+        private final int index;
+        private final Dataset dataset;
+        private final Model policyGroupModel;
+        private final Model odrlModel;
+
+        Shard(int index, Dataset dataset) {
+            this.index = index;
+            this.dataset = dataset;
+            this.policyGroupModel = dataset.getNamedModel(POLICY_GROUP_GRAPH);
+            this.odrlModel = dataset.getNamedModel(ODRL_GRAPH);
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public Dataset getDataset() {
+            return dataset;
+        }
+
+        public Model getPolicyGroupModel() {
+            return policyGroupModel;
+        }
+
+        public Model getOdrlModel() {
+            return odrlModel;
+        }
+    }
+
+    /**
+     * Both policy graphs of one shard, outside the triplestore
+     */
+    public record Partition(Model policyGroupModel, Model odrlModel) {
+    }
+
+    private final Path root;
+    private final List<Shard> shards;
+
+    @Autowired
+    public PolicyStore(@Value("${ontosov.triplestore.path:src/main/resources/triplestore}") String triplestorePath,
+                       @Value("${ontosov.triplestore.shards:1}") int shardCount) {
+        this.root = Paths.get(triplestorePath);
+        this.shards = Collections.unmodifiableList(open(root, Math.max(1, shardCount)));
+        if (shards.size() > 1) {
+            log.info("Policy triplestore at {} partitioned into {} shards", triplestorePath, shards.size());
+        }
+    }
+
+    /**
+     * Opens (creating if needed) the shards of a store. Fails if the store on disk has another layout.
+     */
+    static List<Shard> open(Path root, int shardCount) {
+        try {
+            Files.createDirectories(root);
+            Path layoutFile = root.resolve(LAYOUT_FILE);
+            int existing = readLayout(root);
+            if (existing != 0 && existing != shardCount) {
+                throw new IllegalStateException("Policy triplestore at " + root + " has " + existing +
+                        " shard(s) but " + shardCount + " are configured; convert it with PolicyStoreResharder");
+            }
+
+            List<Shard> shards = new ArrayList<>(shardCount);
+            if (shardCount == 1) {
+                shards.add(new Shard(0, TDB2Factory.connectDataset(root.toString())));
+                return shards;
+            }
+            for (int i = 0; i < shardCount; i++) {
+                Path location = root.resolve("shard-" + i);
+                Files.createDirectories(location);
+                shards.add(new Shard(i, TDB2Factory.connectDataset(location.toString())));
+            }
+            Files.writeString(layoutFile, String.valueOf(shardCount), StandardCharsets.UTF_8);
+            return shards;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open triplestore at " + root, e);
+        }
+    }
+
+    /**
+     * Shard count of the store at root: as recorded in its layout file, 1 for a plain dataset
+     * and 0 if there is no store yet
+     */
+    static int readLayout(Path root) throws IOException {
+        Path layoutFile = root.resolve(LAYOUT_FILE);
+        if (Files.exists(layoutFile)) {
+            return Integer.parseInt(Files.readString(layoutFile, StandardCharsets.UTF_8).trim());
+        }
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+        // TDB2 keeps its data in Data-NNNN generations
+        try (var entries = Files.list(root)) {
+            return entries.anyMatch(entry -> entry.getFileName().toString().startsWith("Data-")) ? 1 : 0;
+        }
+    }
+
+    /**
+     * Shard holding the policies of a subject
+     */
+    public Shard shardFor(Long subjectId) {
+        return shards.get(shardIndex(subjectId, shards.size()));
+    }
+
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    /**
+     * Directory holding the store, with all its shards
+     */
+    public Path getPath() {
+        return root;
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    static int shardIndex(Long subjectId, int shardCount) {
+        return Math.floorMod(Long.hashCode(subjectId), shardCount);
+    }
+
+    /**
+     * Splits policy graphs by subject: every policy group goes to its owner's shard, every ODRL
+     * policy to its assigner's shard together with the targets it points to. Statements not
+     * reachable from a group or policy (e.g. targets left behind by deleted policies) are dropped.
+     */
+    public static List<Partition> partition(Model policyGroupModel, Model odrlModel, int shardCount) {
+        List<Partition> partitions = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            partitions.add(new Partition(ModelFactory.createDefaultModel(), ModelFactory.createDefaultModel()));
+        }
+
+        Property owner = ResourceFactory.createProperty(ONTOSOV_NS, "owner");
+        for (Statement statement : policyGroupModel.listStatements(null, owner, (RDFNode) null).toList()) {
+            Long subjectId = subjectIdOf(statement.getObject());
+            if (subjectId != null) {
+                RdfGraphs.describe(policyGroupModel, statement.getSubject(),
+                        partitions.get(shardIndex(subjectId, shardCount)).policyGroupModel());
+            }
+        }
+
+        Resource policyClass = ResourceFactory.createResource(ODRL_NS + "Policy");
+        for (Resource policy : odrlModel.listSubjectsWithProperty(RDF.type, policyClass).toList()) {
+            Long subjectId = assignerOf(odrlModel, policy);
+            if (subjectId != null) {
+                RdfGraphs.describe(odrlModel, policy, partitions.get(shardIndex(subjectId, shardCount)).odrlModel());
+            }
+        }
+
+        Property target = ResourceFactory.createProperty(ODRL_NS, "target");
+        for (Partition partition : partitions) {
+            for (RDFNode node : partition.odrlModel().listObjectsOfProperty(target).toList()) {
+                if (node.isURIResource()) {
+                    RdfGraphs.describe(odrlModel, node.asResource(), partition.odrlModel());
+                }
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * Subject of an ODRL policy: the assigner of its first rule
+     */
+    static Long assignerOf(Model odrlModel, Resource policy) {
+        Property assigner = ResourceFactory.createProperty(ODRL_NS, "assigner");
+        for (Statement rule : odrlModel.listStatements(policy, null, (RDFNode) null).toList()) {
+            if (rule.getObject().isAnon()) {
+                Statement statement = rule.getObject().asResource().getProperty(assigner);
+                Long subjectId = statement != null ? subjectIdOf(statement.getObject()) : null;
+                if (subjectId != null) {
+                    return subjectId;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Long subjectIdOf(RDFNode node) {
+        if (!node.isURIResource() || !node.asResource().getURI().startsWith(ONTOSOV_NS + "subject-")) {
+            return null;
+        }
+        try {
+            return Long.parseLong(node.asResource().getURI().substring((ONTOSOV_NS + "subject-").length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
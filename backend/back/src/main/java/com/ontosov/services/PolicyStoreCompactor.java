@@ -0,0 +1,216 @@
+package com.ontosov.services;
+
+import com.ontosov.dto.StoreCompactionDTO;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.vocabulary.RDF;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Garbage collection of the policy triplestore.
+ *
+ * A sweep removes, shard by shard, every statement that is no longer reachable from a live
+ * resource: assignment and rule blank nodes detached by earlier writes, ODRL policies of deleted
+ * policy groups, and targets no remaining policy points to. TDB2 never overwrites data in place,
+ * so removed triples only give space back once compaction has copied each dataset into a new
+ * generation and deleted the old one.
+ *
+ * Runs on the ontosov.triplestore.gc.cron schedule (off by default) or on demand through
+ * /api/triplestore/compact. Runs never overlap. Followers never run it: their store only
+ * changes through the replication stream (see PolicyReplicationFollower).
+ */
+@Service
+public class PolicyStoreCompactor {
+    private static final Logger log = LoggerFactory.getLogger(PolicyStoreCompactor.class);
+
+    private static final Resource POLICY_GROUP_CLASS =
+            ResourceFactory.createResource(PolicyStore.ONTOSOV_NS + "PolicyGroup");
+    private static final Resource POLICY_CLASS = ResourceFactory.createResource(PolicyStore.ODRL_NS + "Policy");
+    private static final Property POLICY_GROUP = ResourceFactory.createProperty(PolicyStore.ONTOSOV_NS, "policyGroup");
+    private static final Property DATA_SOURCE = ResourceFactory.createProperty(PolicyStore.ONTOSOV_NS, "dataSource");
+    private static final Property TARGET = ResourceFactory.createProperty(PolicyStore.ODRL_NS, "target");
+
+    /**
+     * Triples removed from the two graphs of one shard
+     */
+    record SweepResult(long policyGroupTriples, long odrlTriples) {
+    }
+
+    private final PolicyStore policyStore;
+    private final PolicyGroupService policyGroupService;
+    private final ReentrantLock running = new ReentrantLock();
+    private volatile StoreCompactionDTO lastReport;
+
+    @Autowired
+    public PolicyStoreCompactor(PolicyStore policyStore, PolicyGroupService policyGroupService) {
+        this.policyStore = policyStore;
+        this.policyGroupService = policyGroupService;
+    }
+
+    @Scheduled(cron = "${ontosov.triplestore.gc.cron:-}")
+    public void scheduledCompaction() {
+        try {
+            compact();
+        } catch (IllegalStateException e) {
+            log.info("Skipping scheduled triplestore compaction: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Sweeps orphaned statements from every shard, then compacts each shard's dataset.
+     * Throws IllegalStateException on a read-only replica or if a run is already in progress.
+     */
+    public StoreCompactionDTO compact() {
+        if (policyGroupService.isReadOnlyReplica()) {
+            throw new IllegalStateException("This node is a read-only policy replica; compact the leader");
+        }
+        if (!running.tryLock()) {
+            throw new IllegalStateException("A triplestore compaction is already running");
+        }
+        try {
+            long start = System.currentTimeMillis();
+            StoreCompactionDTO report = new StoreCompactionDTO();
+            report.setStartedAt(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            report.setBytesBefore(directorySize(policyStore.getPath()));
+
+            // group id -> owner of ODRL policies whose group no longer exists
+            Map<String, Long> orphanedGroups = new HashMap<>();
+            for (PolicyStore.Shard shard : policyStore.getShards()) {
+                SweepResult result = sweep(shard, orphanedGroups);
+                report.setPolicyGroupTriplesRemoved(report.getPolicyGroupTriplesRemoved() + result.policyGroupTriples());
+                report.setOdrlTriplesRemoved(report.getOdrlTriplesRemoved() + result.odrlTriples());
+            }
+            report.setTriplesRemoved(report.getPolicyGroupTriplesRemoved() + report.getOdrlTriplesRemoved());
+            report.setOrphanedPolicyGroups(orphanedGroups.size());
+            // Those policies still granted access; drop them from the index and cached decisions
+            orphanedGroups.forEach((groupId, subjectId) -> policyGroupService.afterOrphanedPoliciesRemoved(subjectId, groupId));
+
+            for (PolicyStore.Shard shard : policyStore.getShards()) {
+                DatabaseMgr.compact(shard.getDataset().asDatasetGraph(), true);
+            }
+
+            report.setBytesAfter(directorySize(policyStore.getPath()));
+            report.setBytesReclaimed(Math.max(0, report.getBytesBefore() - report.getBytesAfter()));
+            report.setDurationMs(System.currentTimeMillis() - start);
+            lastReport = report;
+            log.info("Triplestore compaction removed {} triples ({} orphaned policy groups) and reclaimed {} bytes in {} ms",
+                    report.getTriplesRemoved(), report.getOrphanedPolicyGroups(), report.getBytesReclaimed(),
+                    report.getDurationMs());
+            return report;
+        } finally {
+            running.unlock();
+        }
+    }
+
+    /**
+     * Report of the last completed run, null if none has run since startup
+     */
+    public StoreCompactionDTO getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Removes the unreachable statements of one shard in a single write transaction. Owners of
+     * removed policies of deleted groups are added to orphanedGroups.
+     */
+    static SweepResult sweep(PolicyStore.Shard shard, Map<String, Long> orphanedGroups) {
+        Dataset dataset = shard.getDataset();
+        dataset.begin(ReadWrite.WRITE);
+        try {
+            Model policyGroupModel = shard.getPolicyGroupModel();
+            Model odrlModel = shard.getOdrlModel();
+
+            // Policy-group graph: whatever a URI resource describes (groups with their
+            // permissions, constraints and assignments) is live
+            Model liveGroups = ModelFactory.createDefaultModel();
+            for (Resource resource : policyGroupModel.listSubjects().toList()) {
+                if (resource.isURIResource()) {
+                    RdfGraphs.describe(policyGroupModel, resource, liveGroups);
+                }
+            }
+            Set<Resource> groups = new HashSet<>(
+                    policyGroupModel.listSubjectsWithProperty(RDF.type, POLICY_GROUP_CLASS).toList());
+
+            // ODRL graph: policies of existing groups and the targets their rules point to.
+            // Other URI resources are kept as they are.
+            Model liveOdrl = ModelFactory.createDefaultModel();
+            for (Resource resource : odrlModel.listSubjects().toList()) {
+                if (!resource.isURIResource() || resource.hasProperty(DATA_SOURCE)) {
+                    continue;
+                }
+                Statement group = resource.hasProperty(RDF.type, POLICY_CLASS) ? resource.getProperty(POLICY_GROUP) : null;
+                if (group != null && group.getObject().isURIResource() && !groups.contains(group.getResource())) {
+                    String groupUri = group.getResource().getURI();
+                    Long subjectId = PolicyStore.assignerOf(odrlModel, resource);
+                    if (subjectId != null) {
+                        orphanedGroups.put(groupUri.substring(groupUri.lastIndexOf('#') + 1), subjectId);
+                    }
+                    continue;
+                }
+                RdfGraphs.describe(odrlModel, resource, liveOdrl);
+            }
+            for (RDFNode target : liveOdrl.listObjectsOfProperty(TARGET).toList()) {
+                if (target.isURIResource()) {
+                    RdfGraphs.describe(odrlModel, target.asResource(), liveOdrl);
+                }
+            }
+
+            SweepResult result = new SweepResult(removeAllBut(policyGroupModel, liveGroups),
+                    removeAllBut(odrlModel, liveOdrl));
+            dataset.commit();
+            return result;
+        } catch (Exception e) {
+            dataset.abort();
+            throw new RuntimeException("Failed to sweep shard " + shard.getIndex() + ": " + e.getMessage(), e);
+        } finally {
+            dataset.end();
+        }
+    }
+
+    private static long removeAllBut(Model model, Model live) {
+        List<Statement> garbage = new ArrayList<>();
+        StmtIterator iterator = model.listStatements();
+        while (iterator.hasNext()) {
+            Statement statement = iterator.next();
+            if (!live.contains(statement)) {
+                garbage.add(statement);
+            }
+        }
+        model.remove(garbage);
+        return garbage.size();
+    }
+
+    private static long directorySize(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> {
+                try {
+                    return Files.size(file);
+                } catch (IOException e) {
+                    // Deleted by a concurrent compaction
+                    return 0;
+                }
+            }).sum();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to measure triplestore at " + directory, e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.ontosov.services;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Offline tool that copies a policy triplestore into a new one with a different shard count
+ * (see PolicyStore). The backend must be stopped; the source is only read. The whole store is
+ * loaded into memory and split by subject, so dangling statements of deleted policies are not
+ * carried over. Point ontosov.triplestore.path and ontosov.triplestore.shards at the new store
+ * once it is done.
+ *
+ * Usage: PolicyStoreResharder &lt;source path&gt; &lt;target path&gt; &lt;target shard count&gt;
+ */
+public class PolicyStoreResharder {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: PolicyStoreResharder <source path> <target path> <target shard count>");
+            System.exit(2);
+        }
+        reshard(Paths.get(args[0]), Paths.get(args[1]), Integer.parseInt(args[2]));
+    }
+
+    /**
+     * Copies the store at source into an empty store at target with targetShards shards.
+     * Returns the number of statements written.
+     */
+    public static long reshard(Path source, Path target, int targetShards) throws IOException {
+        if (targetShards < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1");
+        }
+        int sourceShards = PolicyStore.readLayout(source);
+        if (sourceShards == 0) {
+            throw new IllegalArgumentException("No policy triplestore at " + source);
+        }
+        if (PolicyStore.readLayout(target) != 0) {
+            throw new IllegalArgumentException("Target " + target + " already holds a triplestore");
+        }
+
+        long start = System.currentTimeMillis();
+        Model policyGroupModel = ModelFactory.createDefaultModel();
+        Model odrlModel = ModelFactory.createDefaultModel();
+        for (PolicyStore.Shard shard : PolicyStore.open(source, sourceShards)) {
+            shard.getDataset().begin(ReadWrite.READ);
+            try {
+                policyGroupModel.add(shard.getPolicyGroupModel());
+                odrlModel.add(shard.getOdrlModel());
+            } finally {
+                shard.getDataset().end();
+            }
+        }
+        System.out.println("Read " + policyGroupModel.size() + " policy-group and " + odrlModel.size() +
+                " ODRL statements from " + sourceShards + " shard(s) at " + source);
+
+        List<PolicyStore.Partition> partitions = PolicyStore.partition(policyGroupModel, odrlModel, targetShards);
+        long written = 0;
+        for (PolicyStore.Shard shard : PolicyStore.open(target, targetShards)) {
+            PolicyStore.Partition partition = partitions.get(shard.getIndex());
+            Dataset dataset = shard.getDataset();
+            dataset.begin(ReadWrite.WRITE);
+            try {
+                shard.getPolicyGroupModel().add(partition.policyGroupModel());
+                shard.getOdrlModel().add(partition.odrlModel());
+                dataset.commit();
+            } catch (Exception e) {
+                dataset.abort();
+                throw new RuntimeException("Failed to write shard " + shard.getIndex() + ": " + e.getMessage(), e);
+            } finally {
+                dataset.end();
+            }
+
+            long size = partition.policyGroupModel().size() + partition.odrlModel().size();
+            written += size;
+            System.out.println("Shard " + shard.getIndex() + ": " + size + " statements");
+        }
+
+        System.out.println("Wrote " + written + " statements into " + targetShards + " shard(s) at " + target +
+                " in " + (System.currentTimeMillis() - start) + " ms");
+        return written;
+    }
+}
@@ -0,0 +1,61 @@
+package com.ontosov.services;
+
+import org.apache.jena.rdf.model.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Concise bounded descriptions of policy resources: a resource's statements plus, recursively,
+ * the statements of the blank nodes it points to. Policy groups and ODRL policies keep their
+ * permissions, constraints, duties and assignments in blank nodes, so the description of the
+ * root resource is the whole group or policy.
+ */
+final class RdfGraphs {
+
+    private RdfGraphs() {
+    }
+
+    /**
+     * Copies the description of root from source into target
+     */
+    static void describe(Model source, Resource root, Model target) {
+        for (Statement statement : collect(source, root)) {
+            target.add(statement);
+        }
+    }
+
+    /**
+     * Removes the description of root from the model
+     */
+    static void removeDescription(Model model, Resource root) {
+        model.remove(collect(model, root));
+    }
+
+    private static List<Statement> collect(Model model, Resource root) {
+        List<Statement> statements = new ArrayList<>();
+        Set<Resource> visited = new HashSet<>();
+        Deque<Resource> pending = new ArrayDeque<>();
+        pending.add(root);
+
+        while (!pending.isEmpty()) {
+            Resource resource = pending.poll();
+            if (!visited.add(resource)) {
+                continue;
+            }
+            StmtIterator iterator = model.listStatements(resource, null, (RDFNode) null);
+            while (iterator.hasNext()) {
+                Statement statement = iterator.next();
+                statements.add(statement);
+                if (statement.getObject().isAnon()) {
+                    pending.add(statement.getObject().asResource());
+                }
+            }
+        }
+        return statements;
+    }
+}
@@ -0,0 +1,154 @@
+package com.ontosov.services;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.syntax.syntaxtransform.QueryTransformOps;
+import org.apache.jena.vocabulary.RDF;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of the prepared SPARQL queries run against the policy graphs.
+ *
+ * A template is parsed on first use and kept; every later execution reuses the parsed query.
+ * Parameters are variables of the template that are replaced by RDF nodes in the parsed query,
+ * so values such as data sources, properties or group ids are never spliced into query text
+ * and need no escaping. Parse time and hit rate (executions served without parsing) are kept
+ * per template, see getStats.
+ */
+public final class SparqlTemplates {
+
+    private static final String PREFIXES =
+            "PREFIX onto: <" + PolicyStore.ONTOSOV_NS + ">\n" +
+            "PREFIX odrl: <" + PolicyStore.ODRL_NS + ">\n" +
+            "PREFIX rdf: <" + RDF.getURI() + ">\n";
+
+    private static final Map<String, Template> REGISTRY = new ConcurrentHashMap<>();
+
+    /**
+     * One prepared query with the variables callers must bind
+     */
+    public static final class Template {
+        private final String name;
+        private final String text;
+        private final Set<String> parameters;
+        private volatile Query query;
+
+        private final AtomicLong executions = new AtomicLong();
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong parseNanos = new AtomicLong();
+
+        private Template(String name, String text, Set<String> parameters) {
+            this.name = name;
+            this.text = text;
+            this.parameters = parameters;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Executes the template on a model with all of its parameters bound, e.g.
+         * Map.of("subject", subjectResource). Expects an open transaction on the model's dataset.
+         */
+        public QueryExecution execute(Model model, Map<String, ? extends RDFNode> bindings) {
+            if (!bindings.keySet().equals(parameters)) {
+                throw new IllegalArgumentException("Query " + name + " expects parameters " + parameters +
+                        " but got " + bindings.keySet());
+            }
+
+            Query prepared = prepared();
+            if (!bindings.isEmpty()) {
+                Map<Var, Node> substitutions = new HashMap<>();
+                bindings.forEach((parameter, value) -> substitutions.put(Var.alloc(parameter), value.asNode()));
+                prepared = QueryTransformOps.transform(prepared, substitutions);
+            }
+            return QueryExecutionFactory.create(prepared, model);
+        }
+
+        public QueryExecution execute(Model model) {
+            return execute(model, Map.of());
+        }
+
+        private Query prepared() {
+            executions.incrementAndGet();
+            Query current = query;
+            if (current != null) {
+                hits.incrementAndGet();
+                return current;
+            }
+            synchronized (this) {
+                if (query == null) {
+                    long start = System.nanoTime();
+                    query = QueryFactory.create(PREFIXES + text);
+                    parseNanos.addAndGet(System.nanoTime() - start);
+                } else {
+                    hits.incrementAndGet();
+                }
+                return query;
+            }
+        }
+
+        private Map<String, Object> getStats() {
+            long executionCount = executions.get();
+            long hitCount = hits.get();
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("executions", executionCount);
+            stats.put("hits", hitCount);
+            stats.put("parseTimeMs", parseNanos.get() / 1_000_000.0);
+            stats.put("hitRate", executionCount > 0 ?
+                    String.format("%.1f%%", hitCount * 100.0 / executionCount) : "0.0%");
+            return stats;
+        }
+    }
+
+    private SparqlTemplates() {
+    }
+
+    /**
+     * Registers a template under a unique name. The text is the query without PREFIX declarations
+     * (onto:, odrl: and rdf: are predeclared); parameters name the variables bound on execution.
+     */
+    public static Template register(String name, String text, String... parameters) {
+        Template template = new Template(name, text, Set.of(parameters));
+        if (REGISTRY.putIfAbsent(name, template) != null) {
+            throw new IllegalStateException("SPARQL template " + name + " is already registered");
+        }
+        return template;
+    }
+
+    /**
+     * Parse time, executions and hit rate of every template, plus totals
+     */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> templates = new TreeMap<>();
+        long executions = 0;
+        long hits = 0;
+        long parseNanos = 0;
+        for (Template template : REGISTRY.values()) {
+            templates.put(template.name, template.getStats());
+            executions += template.executions.get();
+            hits += template.hits.get();
+            parseNanos += template.parseNanos.get();
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("templates", REGISTRY.size());
+        stats.put("executions", executions);
+        stats.put("hits", hits);
+        stats.put("parseTimeMs", parseNanos / 1_000_000.0);
+        stats.put("hitRate", executions > 0 ? String.format("%.1f%%", hits * 100.0 / executions) : "0.0%");
+        stats.put("queries", templates);
+        return stats;
+    }
+}
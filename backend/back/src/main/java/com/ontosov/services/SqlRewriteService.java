@@ -0,0 +1,505 @@
+package com.ontosov.services;
+
+import com.ontosov.dto.*;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.*;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.Between;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThan;
+import net.sf.jsqlparser.expression.operators.relational.InExpression;
+import net.sf.jsqlparser.expression.operators.relational.MinorThan;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Query-rewriting enforcement: instead of one PDP decision per cell, a controller's SELECT
+ * is rewritten once so that denied columns come back as NULL (or a mask) and records denied
+ * by entity-level policies are filtered out with a predicate.
+ *
+ * Decisions are scoped to one subject, like check-access, and so are the rows: every table is
+ * restricted to the subject's records through its column mapped to schema:taxID, and tables
+ * without one are rejected. Only plain single-level SELECTs over tables are supported; anything
+ * else is rejected rather than passed through unchecked.
+ */
+@Service
+public class SqlRewriteService {
+
+    private static final String MASK_VALUE = "****";
+    private static final String SUBJECT_PROPERTY = "taxID";
+
+    @Autowired
+    private PolicyEvaluationService policyEvaluationService;
+
+    @Autowired
+    private DatabaseConfigService databaseConfigService;
+
+    /**
+     * Column and record restrictions of one table of the query
+     */
+    private static class TablePolicy {
+        private final String tableName;
+        private final Set<String> deniedColumns = new HashSet<>();
+        private final List<String> deniedRecordIds = new ArrayList<>();
+        private final List<EntitySelector> deniedSelectors = new ArrayList<>();
+        private String subjectColumn;
+        private String keyColumn;
+
+        TablePolicy(String tableName) {
+            this.tableName = tableName;
+        }
+    }
+
+    /**
+     * Rewrites the request's SELECT statement according to the subject's property and entity policies.
+     * Throws IllegalArgumentException when the statement cannot be parsed or is not supported.
+     */
+    public SqlRewriteDTO rewrite(SqlRewriteRequestDTO request) {
+        SqlRewriteDTO result = new SqlRewriteDTO();
+
+        if (request.getSubjectTaxId() == null || request.getAction() == null ||
+                request.getDataSource() == null || request.getSql() == null) {
+            result.setReason("Invalid request: must specify subject, action, dataSource, and sql");
+            return result;
+        }
+
+        Select select = parseSelect(request.getSql());
+        PlainSelect plainSelect = (PlainSelect) select.getSelectBody();
+
+        // 1. Tables referenced by the query, keyed by the name columns use to qualify them
+        Map<String, Table> tablesByReference = new LinkedHashMap<>();
+        registerTable(tablesByReference, plainSelect.getFromItem());
+        if (plainSelect.getJoins() != null) {
+            for (Join join : plainSelect.getJoins()) {
+                registerTable(tablesByReference, join.getRightItem());
+            }
+        }
+
+        // 2. One column mask and one record filter per distinct table
+        Map<String, TablePolicy> policies = new LinkedHashMap<>();
+        Set<ObligationDTO> obligations = new LinkedHashSet<>();
+        for (Table table : tablesByReference.values()) {
+            String tableName = normalize(table.getName());
+            if (policies.containsKey(tableName)) {
+                continue;
+            }
+
+            AccessRequestDTO tableRequest = new AccessRequestDTO();
+            tableRequest.setControllerId(request.getControllerId());
+            tableRequest.setSubjectTaxId(request.getSubjectTaxId());
+            tableRequest.setAction(request.getAction());
+            tableRequest.setPurpose(request.getPurpose());
+            tableRequest.setAiAlgorithm(request.getAiAlgorithm());
+            tableRequest.setDataSource(request.getDataSource());
+            tableRequest.setTableName(tableName);
+
+            TablePolicy policy = new TablePolicy(tableName);
+            DatabaseConfigService.TableMapping mapping = resolveTableMapping(request, tableName);
+            for (Map.Entry<String, String> column : mapping.getColumnProperties().entrySet()) {
+                if (SUBJECT_PROPERTY.equals(column.getValue())) {
+                    policy.subjectColumn = column.getKey();
+                }
+            }
+            if (policy.subjectColumn == null) {
+                // Rows cannot be attributed, so the query would return other subjects' records
+                result.setReason("Table '" + tableName + "' has no column mapped to schema:" + SUBJECT_PROPERTY +
+                        "; its rows cannot be attributed to subjects");
+                return result;
+            }
+            policy.keyColumn = mapping.getKeyColumn();
+
+            ColumnMaskDTO mask = policyEvaluationService.evaluateColumnMask(tableRequest);
+            if (mask.getReason() != null) {
+                result.setReason(mask.getReason());
+                return result;
+            }
+
+            for (String column : mask.getDeniedColumns().keySet()) {
+                policy.deniedColumns.add(normalize(column));
+            }
+            obligations.addAll(mask.getObligations());
+
+            policy.deniedRecordIds.addAll(policyEvaluationService.findDeniedRecordIds(tableRequest));
+            policy.deniedSelectors.addAll(policyEvaluationService.findDeniedRecordSelectors(tableRequest));
+            if ((!policy.deniedRecordIds.isEmpty() || !policy.deniedSelectors.isEmpty()) && policy.keyColumn == null) {
+                // Denied records cannot be told apart, so the table may not be read at all
+                result.setReason("Records of table '" + tableName + "' are restricted but its OBDA mapping has no key column");
+                return result;
+            }
+            policies.put(tableName, policy);
+        }
+
+        // 3. Expand * where a table has denied columns, then mask denied select items
+        expandAllColumns(plainSelect, tablesByReference, policies, request);
+        boolean useMask = "mask".equalsIgnoreCase(request.getMaskMode());
+        Set<String> maskedColumns = new LinkedHashSet<>();
+        for (SelectItem item : plainSelect.getSelectItems()) {
+            if (!(item instanceof SelectExpressionItem)) {
+                continue;
+            }
+            SelectExpressionItem expressionItem = (SelectExpressionItem) item;
+            List<String> denied = deniedColumns(expressionItem.getExpression(), tablesByReference, policies);
+            if (denied.isEmpty()) {
+                continue;
+            }
+
+            if (expressionItem.getAlias() == null && expressionItem.getExpression() instanceof Column) {
+                expressionItem.setAlias(new Alias(((Column) expressionItem.getExpression()).getColumnName()));
+            }
+            expressionItem.setExpression(useMask ? new StringValue(MASK_VALUE) : new NullValue());
+            maskedColumns.addAll(denied);
+        }
+
+        // 4. Denied columns must not leak through filters, joins, grouping or ordering either
+        List<Expression> clauses = new ArrayList<>();
+        clauses.add(plainSelect.getWhere());
+        clauses.add(plainSelect.getHaving());
+        if (plainSelect.getJoins() != null) {
+            for (Join join : plainSelect.getJoins()) {
+                clauses.addAll(join.getOnExpressions());
+            }
+        }
+        if (plainSelect.getGroupBy() != null) {
+            clauses.addAll(plainSelect.getGroupBy().getGroupByExpressionList().getExpressions());
+        }
+        if (plainSelect.getOrderByElements() != null) {
+            for (OrderByElement orderBy : plainSelect.getOrderByElements()) {
+                clauses.add(orderBy.getExpression());
+            }
+        }
+        for (Expression clause : clauses) {
+            maskedColumns.addAll(nullDeniedColumns(clause, tablesByReference, policies));
+        }
+
+        // 5. Keep only the subject's rows, minus records denied by entity-level policies
+        for (Map.Entry<String, Table> entry : tablesByReference.entrySet()) {
+            TablePolicy policy = policies.get(normalize(entry.getValue().getName()));
+            Column keyColumn = new Column(new Table(entry.getKey()), policy.keyColumn);
+
+            EqualsTo subjectFilter = new EqualsTo();
+            subjectFilter.setLeftExpression(new Column(new Table(entry.getKey()), policy.subjectColumn));
+            subjectFilter.setRightExpression(new StringValue(request.getSubjectTaxId().replace("'", "''")));
+            Expression filter = subjectFilter;
+
+            if (!policy.deniedRecordIds.isEmpty()) {
+                List<Expression> recordIds = new ArrayList<>();
+                for (String recordId : policy.deniedRecordIds) {
+                    recordIds.add(new StringValue(recordId));
+                }
+                InExpression recordFilter = new InExpression(keyColumn, new ExpressionList(recordIds));
+                recordFilter.setNot(true);
+                filter = new AndExpression(filter, recordFilter);
+                result.getExcludedRecords().put(policy.tableName, policy.deniedRecordIds);
+            }
+
+            // Selectors deny whole ID ranges with one predicate each, however many records they cover
+            for (EntitySelector selector : policy.deniedSelectors) {
+                filter = new AndExpression(filter, selectorFilter(keyColumn, selector));
+                result.getExcludedRanges().computeIfAbsent(policy.tableName, k -> new ArrayList<>())
+                        .add(selector.toString());
+            }
+            addRecordFilter(plainSelect, entry.getValue(), filter);
+        }
+
+        result.setSql(select.toString());
+        result.setMaskedColumns(new ArrayList<>(maskedColumns));
+        result.setObligations(new ArrayList<>(obligations));
+        return result;
+    }
+
+    private Select parseSelect(String sql) {
+        Statement statement;
+        try {
+            statement = CCJSqlParserUtil.parse(sql);
+        } catch (JSQLParserException e) {
+            throw new IllegalArgumentException("Could not parse SQL: " + e.getMessage());
+        }
+
+        if (!(statement instanceof Select)) {
+            throw new IllegalArgumentException("Only SELECT statements can be rewritten");
+        }
+        Select select = (Select) statement;
+        if (select.getWithItemsList() != null && !select.getWithItemsList().isEmpty()) {
+            throw new IllegalArgumentException("WITH clauses are not supported");
+        }
+        if (!(select.getSelectBody() instanceof PlainSelect)) {
+            throw new IllegalArgumentException("Set operations (UNION, INTERSECT, ...) are not supported");
+        }
+
+        PlainSelect plainSelect = (PlainSelect) select.getSelectBody();
+        if (plainSelect.getIntoTables() != null && !plainSelect.getIntoTables().isEmpty()) {
+            throw new IllegalArgumentException("SELECT ... INTO is not supported");
+        }
+        if (plainSelect.getFromItem() == null) {
+            throw new IllegalArgumentException("Query does not read from a table");
+        }
+
+        // Sub-queries would be evaluated without the column and record restrictions
+        for (SelectItem item : plainSelect.getSelectItems()) {
+            if (item instanceof SelectExpressionItem) {
+                rejectSubSelects(((SelectExpressionItem) item).getExpression());
+            }
+        }
+        rejectSubSelects(plainSelect.getWhere());
+        rejectSubSelects(plainSelect.getHaving());
+        if (plainSelect.getJoins() != null) {
+            for (Join join : plainSelect.getJoins()) {
+                join.getOnExpressions().forEach(this::rejectSubSelects);
+            }
+        }
+        if (plainSelect.getGroupBy() != null) {
+            plainSelect.getGroupBy().getGroupByExpressionList().getExpressions().forEach(this::rejectSubSelects);
+        }
+        if (plainSelect.getOrderByElements() != null) {
+            for (OrderByElement orderBy : plainSelect.getOrderByElements()) {
+                rejectSubSelects(orderBy.getExpression());
+            }
+        }
+
+        return select;
+    }
+
+    private void rejectSubSelects(Expression expression) {
+        if (expression == null) {
+            return;
+        }
+        expression.accept(new ExpressionVisitorAdapter() {
+            @Override
+            public void visit(SubSelect subSelect) {
+                throw new IllegalArgumentException("Sub-queries are not supported");
+            }
+        });
+    }
+
+    private void registerTable(Map<String, Table> tablesByReference, FromItem fromItem) {
+        if (!(fromItem instanceof Table)) {
+            throw new IllegalArgumentException("Only tables are supported in FROM and JOIN, found: " + fromItem);
+        }
+        Table table = (Table) fromItem;
+        String reference = table.getAlias() != null ? table.getAlias().getName() : table.getName();
+        tablesByReference.put(normalize(reference), table);
+    }
+
+    /**
+     * Replaces * and t.* with explicit columns for tables that have denied columns,
+     * so those columns can be masked individually. Uses the live table metadata.
+     */
+    private void expandAllColumns(PlainSelect plainSelect, Map<String, Table> tablesByReference,
+                                  Map<String, TablePolicy> policies, SqlRewriteRequestDTO request) {
+        List<SelectItem> expanded = new ArrayList<>();
+        Map<String, List<String>> tableColumns = null;
+
+        for (SelectItem item : plainSelect.getSelectItems()) {
+            List<String> references = new ArrayList<>();
+            if (item instanceof AllColumns) {
+                references.addAll(tablesByReference.keySet());
+            } else if (item instanceof AllTableColumns) {
+                references.add(normalize(((AllTableColumns) item).getTable().getName()));
+            } else {
+                expanded.add(item);
+                continue;
+            }
+
+            boolean restricted = false;
+            for (String reference : references) {
+                Table table = tablesByReference.get(reference);
+                if (table != null && !policies.get(normalize(table.getName())).deniedColumns.isEmpty()) {
+                    restricted = true;
+                }
+            }
+            if (!restricted) {
+                expanded.add(item);
+                continue;
+            }
+
+            if (tableColumns == null) {
+                tableColumns = loadTableColumns(request);
+            }
+            for (String reference : references) {
+                Table table = tablesByReference.get(reference);
+                List<String> columns = table != null ? tableColumns.get(normalize(table.getName())) : null;
+                if (columns == null) {
+                    throw new IllegalArgumentException("Cannot expand * for table '" + reference +
+                            "'; list the columns explicitly");
+                }
+                for (String column : columns) {
+                    expanded.add(new SelectExpressionItem(new Column(new Table(reference), column)));
+                }
+            }
+        }
+
+        plainSelect.setSelectItems(expanded);
+    }
+
+    private Map<String, List<String>> loadTableColumns(SqlRewriteRequestDTO request) {
+        try {
+            DatabaseConfigDTO database = databaseConfigService.getDatabasesForController(request.getControllerId()).stream()
+                    .filter(db -> db.getId().equals(request.getDataSource()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Database not found: " + request.getDataSource()));
+
+            Map<String, List<String>> tableColumns = new HashMap<>();
+            for (TableMetadataDTO table : databaseConfigService.getDatabaseTables(database)) {
+                List<String> columns = new ArrayList<>();
+                for (ColumnMetadataDTO column : table.getColumns()) {
+                    columns.add(column.getName());
+                }
+                tableColumns.put(normalize(table.getName()), columns);
+            }
+            return tableColumns;
+        } catch (IOException e) {
+            throw new RuntimeException("Error loading table metadata: " + e.getMessage(), e);
+        }
+    }
+
+    private DatabaseConfigService.TableMapping resolveTableMapping(SqlRewriteRequestDTO request, String tableName) {
+        try {
+            return databaseConfigService.resolveTableMapping(request.getControllerId(), request.getDataSource(), tableName);
+        } catch (IOException e) {
+            throw new RuntimeException("Error resolving mappings: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Denied columns ("table.column") referenced anywhere in the expression
+     */
+    private List<String> deniedColumns(Expression expression, Map<String, Table> tablesByReference,
+                                       Map<String, TablePolicy> policies) {
+        List<String> denied = new ArrayList<>();
+        for (Column column : collectColumns(expression)) {
+            TablePolicy policy = denyingPolicy(column, tablesByReference, policies);
+            if (policy != null) {
+                denied.add(policy.tableName + "." + normalize(column.getColumnName()));
+            }
+        }
+        return denied;
+    }
+
+    /**
+     * Turns every denied column reference in the expression into NULL
+     */
+    private List<String> nullDeniedColumns(Expression expression, Map<String, Table> tablesByReference,
+                                           Map<String, TablePolicy> policies) {
+        List<String> denied = new ArrayList<>();
+        if (expression == null) {
+            return denied;
+        }
+        for (Column column : collectColumns(expression)) {
+            TablePolicy policy = denyingPolicy(column, tablesByReference, policies);
+            if (policy != null) {
+                denied.add(policy.tableName + "." + normalize(column.getColumnName()));
+                column.setTable(null);
+                column.setColumnName("NULL");
+            }
+        }
+        return denied;
+    }
+
+    private List<Column> collectColumns(Expression expression) {
+        List<Column> columns = new ArrayList<>();
+        expression.accept(new ExpressionVisitorAdapter() {
+            @Override
+            public void visit(Column column) {
+                columns.add(column);
+            }
+        });
+        return columns;
+    }
+
+    /**
+     * Policy of the table that denies this column, or null if it is permitted.
+     * Unqualified columns are treated as denied if any table of the query denies them.
+     */
+    private TablePolicy denyingPolicy(Column column, Map<String, Table> tablesByReference,
+                                      Map<String, TablePolicy> policies) {
+        String columnName = normalize(column.getColumnName());
+
+        if (column.getTable() != null && column.getTable().getName() != null) {
+            Table table = tablesByReference.get(normalize(column.getTable().getName()));
+            if (table == null) {
+                return null;
+            }
+            TablePolicy policy = policies.get(normalize(table.getName()));
+            return policy.deniedColumns.contains(columnName) ? policy : null;
+        }
+
+        for (Table table : tablesByReference.values()) {
+            TablePolicy policy = policies.get(normalize(table.getName()));
+            if (policy.deniedColumns.contains(columnName)) {
+                return policy;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Predicate keeping only the records outside a denied selector
+     */
+    private static Expression selectorFilter(Column keyColumn, EntitySelector selector) {
+        if (selector.isWholeType()) {
+            EqualsTo none = new EqualsTo();
+            none.setLeftExpression(new LongValue(1));
+            none.setRightExpression(new LongValue(0));
+            return none;
+        }
+        if (selector.getMinId() == null) {
+            GreaterThan above = new GreaterThan();
+            above.setLeftExpression(keyColumn);
+            above.setRightExpression(new LongValue(selector.getMaxId()));
+            return above;
+        }
+        if (selector.getMaxId() == null) {
+            MinorThan below = new MinorThan();
+            below.setLeftExpression(keyColumn);
+            below.setRightExpression(new LongValue(selector.getMinId()));
+            return below;
+        }
+        Between outside = new Between();
+        outside.setLeftExpression(keyColumn);
+        outside.setBetweenExpressionStart(new LongValue(selector.getMinId()));
+        outside.setBetweenExpressionEnd(new LongValue(selector.getMaxId()));
+        outside.setNot(true);
+        return outside;
+    }
+
+    /**
+     * Adds the record filter to the join condition of a joined table (so outer joins keep
+     * the other side's rows) or to the WHERE clause for the FROM table
+     */
+    private void addRecordFilter(PlainSelect plainSelect, Table table, Expression filter) {
+        if (plainSelect.getJoins() != null) {
+            for (Join join : plainSelect.getJoins()) {
+                if (join.getRightItem() == table && !join.getOnExpressions().isEmpty()) {
+                    List<Expression> onExpressions = new ArrayList<>(join.getOnExpressions());
+                    Expression last = onExpressions.remove(onExpressions.size() - 1);
+                    onExpressions.add(new AndExpression(new Parenthesis(last), filter));
+                    join.setOnExpressions(onExpressions);
+                    return;
+                }
+            }
+        }
+
+        plainSelect.setWhere(plainSelect.getWhere() == null ? filter :
+                new AndExpression(new Parenthesis(plainSelect.getWhere()), filter));
+    }
+
+    private static String normalize(String identifier) {
+        if (identifier == null) {
+            return null;
+        }
+        String name = identifier;
+        if (name.length() > 1 && (name.startsWith("\"") || name.startsWith("`"))) {
+            name = name.substring(1, name.length() - 1);
+        }
+        return name.toLowerCase();
+    }
+}
@@ -0,0 +1,176 @@
+package com.ontosov.client;
+
+import com.ontosov.dto.AccessRequestDTO;
+import com.ontosov.dto.DecisionResult;
+import com.ontosov.dto.PolicyDecisionDTO;
+import com.ontosov.dto.PolicyGroupDTO;
+import com.ontosov.dto.PolicySnapshotDTO;
+import com.ontosov.dto.ReasonCode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("LocalPolicyReplica Tests")
+class LocalPolicyReplicaTest {
+
+    private static final Long CONTROLLER_ID = 7L;
+    private static final Long SUBJECT_ID = 42L;
+    private static final String TAX_ID = "TAX123";
+    private static final String DB_ID = "db-uuid";
+    private static final String DATA_SOURCE = "Shop - ecommerce_db";
+
+    private LocalPolicyReplica replica;
+
+    @BeforeEach
+    void setUp() {
+        replica = new LocalPolicyReplica(CONTROLLER_ID);
+    }
+
+    private PolicySnapshotDTO.DataSource dataSource(Map<String, String> userColumns) {
+        PolicySnapshotDTO.Table users = new PolicySnapshotDTO.Table("Person", userColumns);
+        return new PolicySnapshotDTO.DataSource(DB_ID, DATA_SOURCE, Map.of("users", users));
+    }
+
+    private PolicySnapshotDTO snapshot(long version, PolicySnapshotDTO.Subject... subjects) {
+        PolicySnapshotDTO snapshot = new PolicySnapshotDTO();
+        snapshot.setInstanceId("instance-1");
+        snapshot.setControllerId(CONTROLLER_ID);
+        snapshot.setVersion(version);
+        snapshot.setFull(true);
+        snapshot.setDataSources(List.of(dataSource(Map.of("email", "email", "phone", "telephone"))));
+        snapshot.setSubjectIds(Map.of(TAX_ID, SUBJECT_ID));
+        snapshot.setSubjects(List.of(subjects));
+        return snapshot;
+    }
+
+    private PolicySnapshotDTO.Subject subject(String purpose, String expiration, Set<String> permittedActions) {
+        PolicyGroupDTO group = new PolicyGroupDTO();
+        group.setId("pg-1");
+        group.setName("Research only");
+        Map<String, Object> constraints = new HashMap<>();
+        constraints.put("purpose", purpose);
+        constraints.put("expiration", expiration);
+        group.setConstraints(constraints);
+
+        PolicySnapshotDTO.Target target = new PolicySnapshotDTO.Target(DATA_SOURCE, "email", null,
+                permittedActions, Set.of(), Map.of("pg-1", Set.of("read")));
+        return new PolicySnapshotDTO.Subject(SUBJECT_ID, TAX_ID, List.of(target), List.of(group));
+    }
+
+    private PolicySnapshotDTO delta(long version) {
+        PolicySnapshotDTO delta = new PolicySnapshotDTO();
+        delta.setInstanceId("instance-1");
+        delta.setControllerId(CONTROLLER_ID);
+        delta.setVersion(version);
+        delta.setDataSources(List.of(dataSource(Map.of("email", "email", "phone", "telephone"))));
+        return delta;
+    }
+
+    private AccessRequestDTO request(String column, String purpose) {
+        AccessRequestDTO request = new AccessRequestDTO();
+        request.setControllerId(CONTROLLER_ID);
+        request.setSubjectTaxId(TAX_ID);
+        request.setAction("read");
+        request.setPurpose(purpose);
+        request.setDataSource(DB_ID);
+        request.setTableName("users");
+        request.setDataProperty(column);
+        return request;
+    }
+
+    @Test
+    @DisplayName("Permitted property is decided locally with the group's constraints")
+    void testPermitAndConstraintDeny() {
+        replica.apply(snapshot(1, subject("Academic Research", "", Set.of("read"))));
+
+        PolicyDecisionDTO permit = replica.evaluate(request("email", "Academic Research"));
+        assertEquals(DecisionResult.PERMIT, permit.getResult());
+        assertEquals(ReasonCode.PERMITTED_BY_POLICIES, permit.getReasonCode());
+        assertEquals("pg-1", permit.getPolicyGroupId());
+
+        PolicyDecisionDTO deny = replica.evaluate(request("email", "Marketing"));
+        assertEquals(DecisionResult.DENY, deny.getResult());
+        assertEquals(ReasonCode.DENIED_BY_POLICIES, deny.getReasonCode());
+    }
+
+    @Test
+    @DisplayName("Defaults match the PDP: ungoverned and unmapped data permit, unpermitted targets deny")
+    void testDefaults() {
+        replica.apply(snapshot(1, subject("Academic Research", "", Set.of())));
+
+        assertEquals(ReasonCode.NOT_PERMITTED, replica.evaluate(request("email", "Academic Research")).getReasonCode());
+        assertEquals(ReasonCode.NO_POLICY_FOR_DATA, replica.evaluate(request("phone", null)).getReasonCode());
+        assertEquals(ReasonCode.UNMAPPED_DATA, replica.evaluate(request("address", null)).getReasonCode());
+
+        AccessRequestDTO unknownDatabase = request("email", null);
+        unknownDatabase.setDataSource("other-db");
+        assertEquals(ReasonCode.DATABASE_NOT_FOUND, replica.evaluate(unknownDatabase).getReasonCode());
+    }
+
+    @Test
+    @DisplayName("Requests the replica cannot answer are left to the backend")
+    void testUnanswerable() {
+        AccessRequestDTO request = request("email", "Academic Research");
+        assertNull(replica.evaluate(request));
+
+        replica.apply(snapshot(1));
+        request.setSubjectTaxId("UNKNOWN");
+        assertNull(replica.evaluate(request));
+
+        AccessRequestDTO otherController = request("email", "Academic Research");
+        otherController.setControllerId(8L);
+        assertNull(replica.evaluate(otherController));
+    }
+
+    @Test
+    @DisplayName("Deltas replace changed subjects and drop removed ones")
+    void testDelta() {
+        replica.apply(snapshot(1, subject("Academic Research", "", Set.of("read"))));
+
+        PolicySnapshotDTO delta = delta(2);
+        delta.setSubjects(List.of(subject("Academic Research", LocalDate.now().minusDays(1).toString(), Set.of("read"))));
+        replica.apply(delta);
+
+        assertEquals(2, replica.getVersion());
+        assertEquals(DecisionResult.DENY, replica.evaluate(request("email", "Academic Research")).getResult());
+
+        PolicySnapshotDTO removal = delta(3);
+        removal.setRemovedSubjectIds(List.of(SUBJECT_ID));
+        replica.apply(removal);
+
+        assertEquals(ReasonCode.NO_POLICY_FOR_DATA, replica.evaluate(request("email", null)).getReasonCode());
+    }
+
+    @Test
+    @DisplayName("Deltas replace the table mappings, even without policy changes")
+    void testDeltaUpdatesMappings() {
+        replica.apply(snapshot(1, subject("Academic Research", "", Set.of("read"))));
+        assertEquals(ReasonCode.UNMAPPED_DATA, replica.evaluate(request("mail", "Academic Research")).getReasonCode());
+
+        // The controller renamed the column mapped to schema:email
+        PolicySnapshotDTO delta = delta(1);
+        delta.setDataSources(List.of(dataSource(Map.of("mail", "email"))));
+        replica.apply(delta);
+
+        assertEquals(1, replica.getVersion());
+        assertEquals(DecisionResult.PERMIT, replica.evaluate(request("mail", "Academic Research")).getResult());
+        assertEquals(ReasonCode.UNMAPPED_DATA, replica.evaluate(request("email", "Academic Research")).getReasonCode());
+    }
+
+    @Test
+    @DisplayName("A delta from another backend instance is rejected")
+    void testDeltaFromOtherInstance() {
+        replica.apply(snapshot(1));
+
+        PolicySnapshotDTO delta = new PolicySnapshotDTO();
+        delta.setInstanceId("instance-2");
+        delta.setControllerId(CONTROLLER_ID);
+        delta.setVersion(2);
+        assertThrows(IllegalStateException.class, () -> replica.apply(delta));
+    }
+}
@@ -0,0 +1,139 @@
+package com.ontosov.performance;
+
+import com.ontosov.dto.PolicyAssignmentDTO;
+import com.ontosov.dto.PolicyGroupDTO;
+import com.ontosov.services.ODRLService;
+import com.ontosov.services.PolicyStore;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.ReadWrite;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Bulk policy generation at 10K, 100K and 1M entity targets
+ *
+ * Generates the ODRL policy of one policy group over N synthetic entity targets into a fresh
+ * TDB2 store and commits it, which is what an assignment costs on the triplestore side. Needs
+ * no database or federation; run it on its own, the 1M case takes a while and a few GB of heap:
+ *
+ *   mvn test -Dtest=BulkAssignmentBenchmark
+ */
+@DisplayName("OntoSov Bulk Assignment Benchmark")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class BulkAssignmentBenchmark {
+
+    private static final Long SUBJECT_ID = 1L;
+    private static final String DATA_SOURCE = "Benchmark Controller - ecommerce_db";
+    private static final String RESULTS_DIR = "test-results";
+    private static final String RESULTS_FILE = RESULTS_DIR + "/bulk-assignment-benchmark.csv";
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void setupResultsDirectory() throws IOException {
+        Path resultsPath = Paths.get(RESULTS_DIR);
+        if (!Files.exists(resultsPath)) {
+            Files.createDirectories(resultsPath);
+        }
+
+        Path csvPath = Paths.get(RESULTS_FILE);
+        if (!Files.exists(csvPath)) {
+            try (PrintWriter writer = new PrintWriter(new FileWriter(RESULTS_FILE))) {
+                writer.println("timestamp,targets,duration_ms,targets_per_sec,triples");
+            }
+        }
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Bulk assignment - 10,000 targets")
+    void benchmark10K() {
+        benchmark(10_000);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Bulk assignment - 100,000 targets")
+    void benchmark100K() {
+        benchmark(100_000);
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Bulk assignment - 1,000,000 targets")
+    void benchmark1M() {
+        benchmark(1_000_000);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void benchmark(int targets) {
+        System.out.println("\n========== bulk assignment, " + targets + " targets ==========");
+        PolicyStore policyStore = new PolicyStore(tempDir.resolve("store-" + targets).toString(), 1);
+        ODRLService odrlService = new ODRLService(policyStore);
+        PolicyGroupDTO group = createGroup();
+        PolicyAssignmentDTO assignment = createAssignment(targets);
+
+        Dataset dataset = policyStore.shardFor(SUBJECT_ID).getDataset();
+        long start = System.nanoTime();
+        dataset.begin(ReadWrite.WRITE);
+        try {
+            odrlService.generatePoliciesFromAssignment("pg-bench", group, assignment, SUBJECT_ID);
+            dataset.commit();
+        } finally {
+            dataset.end();
+        }
+        long durationMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+        long triples;
+        dataset.begin(ReadWrite.READ);
+        try {
+            triples = policyStore.shardFor(SUBJECT_ID).getOdrlModel().size();
+        } finally {
+            dataset.end();
+        }
+
+        double targetsPerSec = targets * 1000.0 / durationMs;
+        System.out.printf("  %dms, %.0f targets/s, %d triples%n", durationMs, targetsPerSec, triples);
+        recordResult(targets, durationMs, targetsPerSec, triples);
+
+        Assertions.assertTrue(triples >= targets, "Targets were not written");
+    }
+
+    private PolicyGroupDTO createGroup() {
+        PolicyGroupDTO group = new PolicyGroupDTO();
+        group.setId("pg-bench");
+        group.setPermissions(Map.of("read", true, "use", true));
+        group.setConstraints(Map.of("expiration", "2099-12-31"));
+        group.setConsequences(new HashMap<>());
+        group.setAiRestrictions(Map.of("allowAiTraining", false));
+        group.setTransformations(List.of("anonymize"));
+        return group;
+    }
+
+    private PolicyAssignmentDTO createAssignment(int targets) {
+        Set<String> entityIds = new HashSet<>(targets * 2);
+        for (int i = 0; i < targets; i++) {
+            entityIds.add("http://example.org/resource#Order/" + i);
+        }
+        PolicyAssignmentDTO assignment = new PolicyAssignmentDTO();
+        assignment.setEntityAssignments(Map.of(DATA_SOURCE, entityIds));
+        return assignment;
+    }
+
+    private void recordResult(int targets, long durationMs, double targetsPerSec, long triples) {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(RESULTS_FILE, true))) {
+            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            writer.printf("%s,%d,%d,%.2f,%d%n", timestamp, targets, durationMs, targetsPerSec, triples);
+        } catch (IOException e) {
+            System.err.println("Failed to record result: " + e.getMessage());
+        }
+    }
+}
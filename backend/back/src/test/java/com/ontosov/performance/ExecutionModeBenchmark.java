@@ -0,0 +1,190 @@
+package com.ontosov.performance;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.*;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Check-access throughput under platform vs virtual request threads
+ *
+ * Runs 100, 1,000 and 5,000 concurrent check-access clients against the embedded server for a
+ * fixed duration each. Clients are asynchronous HTTP requests, so the client side does not need
+ * a thread per client. Run once per mode and compare the rows in the CSV:
+ *
+ *   mvn test -Dtest=ExecutionModeBenchmark -Dontosov.execution.mode=platform
+ *   mvn test -Dtest=ExecutionModeBenchmark -Dontosov.execution.mode=virtual
+ *
+ * Prerequisites:
+ * - Same data as the other performance suites (controller 8, subject TST000010 with policies)
+ * - Virtual mode needs a Java 21 runtime; on older runtimes the server falls back to platform threads
+ *   and the mode column says so
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@DisplayName("OntoSov Execution Mode Benchmark")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ExecutionModeBenchmark {
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${ontosov.execution.mode:platform}")
+    private String executionMode;
+
+    private static final Long CONTROLLER_ID = 8L;
+    private static final String TAX_ID = "TST000010";
+    private static final String RESULTS_DIR = "test-results";
+    private static final String RESULTS_FILE = RESULTS_DIR + "/execution-mode-benchmark.csv";
+
+    private static final Duration WARMUP = Duration.ofSeconds(10);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(30);
+
+    private HttpClient httpClient;
+
+    @BeforeAll
+    static void setupResultsDirectory() throws IOException {
+        Path resultsPath = Paths.get(RESULTS_DIR);
+        if (!Files.exists(resultsPath)) {
+            Files.createDirectories(resultsPath);
+        }
+
+        Path csvPath = Paths.get(RESULTS_FILE);
+        if (!Files.exists(csvPath)) {
+            try (PrintWriter writer = new PrintWriter(new FileWriter(RESULTS_FILE))) {
+                writer.println("timestamp,mode,java_version,clients,duration_ms,requests,errors,throughput_rps,avg_latency_ms");
+            }
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("100 concurrent clients")
+    void benchmark100Clients() {
+        benchmark(100);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("1,000 concurrent clients")
+    void benchmark1000Clients() {
+        benchmark(1_000);
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("5,000 concurrent clients")
+    void benchmark5000Clients() {
+        benchmark(5_000);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void benchmark(int clients) {
+        String mode = effectiveMode();
+        System.out.println("\n========== check-access, " + clients + " clients (" + mode + ") ==========");
+
+        run(clients, WARMUP);
+        RunResult result = run(clients, MEASUREMENT);
+
+        long requests = result.completed.get();
+        double throughput = requests * 1000.0 / result.durationMs;
+        double avgLatency = requests > 0 ? result.latency.get() / 1_000_000.0 / requests : 0;
+        System.out.printf("  %d requests, %d errors, %.1f req/s, avg latency %.2fms%n",
+                requests, result.errors.get(), throughput, avgLatency);
+        recordResult(mode, clients, result, throughput, avgLatency);
+
+        Assertions.assertTrue(requests > 0, "No check-access request completed");
+    }
+
+    private RunResult run(int clients, Duration duration) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/controller/check-access"))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(String.format(
+                        "{\"controllerId\":%d,\"subjectTaxId\":\"%s\",\"action\":\"read\",\"purpose\":\"Academic Research\"," +
+                                "\"dataSource\":\"ecommerce_db\",\"dataProperty\":\"email\"}", CONTROLLER_ID, TAX_ID)))
+                .build();
+
+        RunResult result = new RunResult();
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+
+        CompletableFuture<?>[] loops = new CompletableFuture<?>[clients];
+        for (int i = 0; i < clients; i++) {
+            loops[i] = clientLoop(request, deadline, result);
+        }
+        CompletableFuture.allOf(loops).join();
+
+        result.durationMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * One client: sends the next request as soon as the previous response arrives, until the deadline
+     */
+    private CompletableFuture<Void> clientLoop(HttpRequest request, long deadline, RunResult result) {
+        if (System.nanoTime() >= deadline) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long sent = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    if (error != null || response.statusCode() != 200) {
+                        result.errors.incrementAndGet();
+                    } else {
+                        result.completed.incrementAndGet();
+                        result.latency.addAndGet(System.nanoTime() - sent);
+                    }
+                    return null;
+                })
+                .thenCompose(ignored -> clientLoop(request, deadline, result));
+    }
+
+    private String effectiveMode() {
+        if ("virtual".equalsIgnoreCase(executionMode.trim()) && Runtime.version().feature() < 21) {
+            return "platform (virtual unavailable)";
+        }
+        return executionMode.trim().toLowerCase();
+    }
+
+    private void recordResult(String mode, int clients, RunResult result, double throughput, double avgLatency) {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(RESULTS_FILE, true))) {
+            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            writer.printf("%s,%s,%s,%d,%d,%d,%d,%.2f,%.2f%n",
+                    timestamp, mode, Runtime.version().feature(), clients, result.durationMs,
+                    result.completed.get(), result.errors.get(), throughput, avgLatency);
+        } catch (IOException e) {
+            System.err.println("Failed to record result: " + e.getMessage());
+        }
+    }
+
+    private static class RunResult {
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong latency = new AtomicLong();
+        long durationMs;
+    }
+}
@@ -0,0 +1,135 @@
+package com.ontosov.services;
+
+import com.ontosov.dto.AccessRequestDTO;
+import com.ontosov.dto.DecisionResult;
+import com.ontosov.dto.PolicyDecisionDTO;
+import com.ontosov.dto.ReasonCode;
+import com.ontosov.models.AccessLog;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AuditPipeline Tests")
+class AuditPipelineTest {
+
+    @Mock
+    private AccessLogBatchWriter batchWriter;
+
+    @Mock
+    private BlockchainService blockchainService;
+
+    @Mock
+    private IdentityResolutionCache resolutionCache;
+
+    private AccessLog accessLog(long controllerId, DecisionResult decision) {
+        AccessLog log = new AccessLog();
+        log.setControllerId(controllerId);
+        log.setSubjectId(7L);
+        log.setAction("read");
+        log.setDecision(decision);
+        return log;
+    }
+
+    @Test
+    @DisplayName("Queued entries are written in batches and flushed on shutdown")
+    void testBatchedWrites() {
+        List<Integer> batchSizes = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<AccessLog> logs = invocation.getArgument(0);
+            batchSizes.add(logs.size());
+            return null;
+        }).when(batchWriter).insertAll(anyList());
+
+        AuditPipeline pipeline = new AuditPipeline(batchWriter, blockchainService, resolutionCache, 100, 10);
+        List<AccessLog> logs = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            logs.add(accessLog(i, DecisionResult.DENY));
+        }
+        pipeline.submitAll(logs, false);
+        pipeline.shutdown();
+
+        assertEquals(25, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 10));
+        verifyNoInteractions(blockchainService);
+
+        Map<String, Object> stats = pipeline.getStats();
+        assertEquals(0, stats.get("queueDepth"));
+        assertEquals(25L, stats.get("submitted"));
+        assertEquals(25L, stats.get("written"));
+        assertEquals(0L, stats.get("writeFailures"));
+    }
+
+    @Test
+    @DisplayName("On-chain entries get their transaction hash stored after the insert")
+    void testBlockchainWrites() {
+        when(blockchainService.logAccess(anyString(), anyString(), anyString(), eq("read"), eq(true), any(), any()))
+                .thenReturn(new BlockchainService.BlockchainLogResult("0xabc", 3L));
+
+        AuditPipeline pipeline = new AuditPipeline(batchWriter, blockchainService, resolutionCache, 100, 10);
+        AccessLog log = accessLog(1, DecisionResult.PERMIT);
+        pipeline.submit(log, true);
+        pipeline.shutdown();
+
+        verify(batchWriter).insertAll(List.of(log));
+        verify(batchWriter).updateBlockchainRefs(List.of(log));
+        assertEquals("0xabc", log.getBlockchainTxHash());
+        assertEquals(3L, log.getBlockchainLogIndex());
+        assertEquals(1L, pipeline.getStats().get("blockchainWritten"));
+    }
+
+    @Test
+    @DisplayName("Decision reasons are rendered by the writer, not the request thread")
+    void testReasonRenderedByWriter() {
+        Thread requestThread = Thread.currentThread();
+        List<String> reasons = new ArrayList<>();
+        doAnswer(invocation -> {
+            assertNotSame(requestThread, Thread.currentThread());
+            List<AccessLog> logs = invocation.getArgument(0);
+            logs.forEach(log -> reasons.add(log.getReason()));
+            return null;
+        }).when(batchWriter).insertAll(anyList());
+
+        AccessRequestDTO request = new AccessRequestDTO();
+        request.setControllerId(1L);
+        request.setSubjectTaxId("123456789");
+        request.setAction("read");
+        PolicyDecisionDTO decision = new PolicyDecisionDTO();
+        decision.setResult(DecisionResult.PERMIT);
+        decision.setReasonCode(ReasonCode.PERMITTED_BY_POLICY);
+        decision.setReasonParams(List.of("Research only"));
+
+        AuditPipeline pipeline = new AuditPipeline(batchWriter, blockchainService, resolutionCache, 100, 10);
+        pipeline.record(request, decision, false);
+        pipeline.shutdown();
+
+        assertEquals(List.of("Access permitted by policy: Research only"), reasons);
+        assertEquals(1L, pipeline.getStats().get("written"));
+    }
+
+    @Test
+    @DisplayName("Failed writes are counted and do not stop the writer")
+    void testWriteFailure() {
+        doThrow(new RuntimeException("connection refused")).doNothing().when(batchWriter).insertAll(anyList());
+
+        AuditPipeline pipeline = new AuditPipeline(batchWriter, blockchainService, resolutionCache, 100, 1);
+        pipeline.submit(accessLog(1, DecisionResult.DENY), false);
+        pipeline.submit(accessLog(2, DecisionResult.DENY), false);
+        pipeline.shutdown();
+
+        Map<String, Object> stats = pipeline.getStats();
+        assertEquals(1L, stats.get("writeFailures"));
+        assertEquals(1L, stats.get("written"));
+        assertThrows(IllegalStateException.class, () -> pipeline.submit(accessLog(3, DecisionResult.DENY), false));
+    }
+}
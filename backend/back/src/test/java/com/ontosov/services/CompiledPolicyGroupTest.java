@@ -0,0 +1,93 @@
+package com.ontosov.services;
+
+import com.ontosov.dto.AccessRequestDTO;
+import com.ontosov.dto.PolicyGroupDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CompiledPolicyGroup Tests")
+class CompiledPolicyGroupTest {
+
+    private PolicyGroupDTO group(Map<String, Object> constraints, Map<String, Object> aiRestrictions) {
+        PolicyGroupDTO group = new PolicyGroupDTO();
+        group.setId("pg-1");
+        group.setName("Research only");
+        group.setConstraints(constraints);
+        group.setConsequences(new HashMap<>(Map.of("compensationAmount", "5")));
+        group.setAiRestrictions(aiRestrictions);
+        group.setTransformations(List.of("anonymize"));
+        return group;
+    }
+
+    private AccessRequestDTO request(String action, String purpose, String aiAlgorithm) {
+        AccessRequestDTO request = new AccessRequestDTO();
+        request.setAction(action);
+        request.setPurpose(purpose);
+        request.setAiAlgorithm(aiAlgorithm);
+        return request;
+    }
+
+    @Test
+    @DisplayName("Expiration is compiled to an epoch day and swept by deactivation")
+    void testExpiry() {
+        LocalDate today = LocalDate.now();
+        CompiledPolicyGroup group = CompiledPolicyGroup.compile(
+                group(new HashMap<>(Map.of("expiration", today.toString())), new HashMap<>()), 1L);
+
+        assertTrue(group.isActive());
+        assertEquals(today, group.getExpirationDate());
+        assertFalse(group.isExpiredOn(today.toEpochDay()));
+        assertTrue(group.isExpiredOn(today.plusDays(1).toEpochDay()));
+
+        CompiledPolicyGroup swept = group.deactivated();
+        assertFalse(swept.isActive());
+        assertFalse(swept.satisfiesConstraints(request("read", null, null)));
+    }
+
+    @Test
+    @DisplayName("An expired group stops permitting before it is swept")
+    void testExpiryWithoutSweep() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        CompiledPolicyGroup group = CompiledPolicyGroup.compile(
+                group(new HashMap<>(Map.of("expiration", yesterday.toString())), new HashMap<>()), 1L,
+                yesterday.toEpochDay());
+
+        assertTrue(group.isActive());
+        assertFalse(group.satisfiesConstraints(request("read", null, null)));
+    }
+
+    @Test
+    @DisplayName("Unparseable expirations never permit")
+    void testInvalidExpiration() {
+        CompiledPolicyGroup group = CompiledPolicyGroup.compile(
+                group(new HashMap<>(Map.of("expiration", "not-a-date")), new HashMap<>()), 1L);
+
+        assertFalse(group.isActive());
+        assertNull(group.getExpirationDate());
+    }
+
+    @Test
+    @DisplayName("Purpose, algorithm and obligations are precompiled")
+    void testPredicatesAndObligations() {
+        CompiledPolicyGroup group = CompiledPolicyGroup.compile(group(
+                new HashMap<>(Map.of("purpose", "Research and Development")),
+                new HashMap<>(Map.of("allowAiTraining", true, "aiAlgorithm", "RandomForest"))), 1L);
+
+        assertTrue(group.satisfiesConstraints(request("read", "Academic Research", null)));
+        assertFalse(group.satisfiesConstraints(request("read", "Marketing", null)));
+
+        assertTrue(group.satisfiesAiRestrictions(request("aiTraining", null, " randomforest ")));
+        assertFalse(group.satisfiesAiRestrictions(request("aiTraining", null, "NeuralNetwork")));
+        assertFalse(group.satisfiesAiRestrictions(request("aiTraining", null, null)));
+
+        assertEquals(2, group.getObligations().size());
+        assertSame(group.getObligations(), group.getObligations());
+    }
+}
@@ -0,0 +1,186 @@
+package com.ontosov.services;
+
+import com.ontosov.dto.AccessRequestDTO;
+import com.ontosov.dto.ColumnMaskDTO;
+import com.ontosov.dto.DatabaseConfigDTO;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the policy-filtered AI training export
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DatasetExportService Test Suite")
+class DatasetExportServiceTest {
+
+    @Mock
+    private PolicyEvaluationService policyEvaluationService;
+
+    @Mock
+    private DatabaseConfigService databaseConfigService;
+
+    @InjectMocks
+    private DatasetExportService datasetExportService;
+
+    private static final Long TEST_CONTROLLER_ID = 9998L;
+    private static final String TEST_DATABASE_UUID = "test-db-uuid-12345";
+    private static final String TEST_TABLE_NAME = "user_profiles";
+
+    private DatasetExportService.ExportPlan prepare(String format) throws IOException {
+        DatabaseConfigDTO database = new DatabaseConfigDTO();
+        database.setId(TEST_DATABASE_UUID);
+        when(databaseConfigService.getDatabasesForController(TEST_CONTROLLER_ID))
+                .thenReturn(Collections.singletonList(database));
+        when(databaseConfigService.resolveTableMapping(TEST_CONTROLLER_ID, TEST_DATABASE_UUID, TEST_TABLE_NAME))
+                .thenReturn(new DatabaseConfigService.TableMapping("Person", "user_id",
+                        Map.of("tax_id", "taxID", "email", "email")));
+        return datasetExportService.prepare(TEST_CONTROLLER_ID, TEST_DATABASE_UUID, TEST_TABLE_NAME,
+                "RandomForest", null, format);
+    }
+
+    private ColumnMaskDTO mask(String... deniedColumns) {
+        ColumnMaskDTO mask = new ColumnMaskDTO();
+        mask.getPermittedColumns().add("tax_id");
+        for (String column : deniedColumns) {
+            mask.getDeniedColumns().put(column, "Policy 'Test Policy' AI training restrictions not satisfied");
+        }
+        return mask;
+    }
+
+    /**
+     * Result set over (user_id, tax_id, email) rows
+     */
+    private ResultSet resultSet(String[][] rows) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        String[] columns = {"user_id", "tax_id", "email"};
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            when(metaData.getColumnLabel(i + 1)).thenReturn(columns[i]);
+        }
+
+        int[] cursor = {-1};
+        when(rs.next()).thenAnswer(invocation -> ++cursor[0] < rows.length);
+        lenient().when(rs.getString(anyString())).thenAnswer(invocation ->
+                rows[cursor[0]][Arrays.asList(columns).indexOf(invocation.<String>getArgument(0))]);
+        lenient().when(rs.getObject(anyInt())).thenAnswer(invocation ->
+                rows[cursor[0]][invocation.<Integer>getArgument(0) - 1]);
+        return rs;
+    }
+
+    @Test
+    @DisplayName("Rows are masked and filtered per subject, policies evaluated once per subject")
+    void testRowsAreFilteredPerSubject() throws Exception {
+        DatasetExportService.ExportPlan plan = prepare("ndjson");
+
+        when(policyEvaluationService.evaluateColumnMask(argThat(r -> r != null && "111".equals(r.getSubjectTaxId()))))
+                .thenReturn(mask());
+        when(policyEvaluationService.evaluateColumnMask(argThat(r -> r != null && "222".equals(r.getSubjectTaxId()))))
+                .thenReturn(mask("email"));
+        ColumnMaskDTO unknown = new ColumnMaskDTO();
+        unknown.setReason("Subject not found with tax ID: 333");
+        when(policyEvaluationService.evaluateColumnMask(argThat(r -> r != null && "333".equals(r.getSubjectTaxId()))))
+                .thenReturn(unknown);
+        when(policyEvaluationService.findDeniedRecordIds(any(AccessRequestDTO.class)))
+                .thenAnswer(invocation -> "111".equals(invocation.<AccessRequestDTO>getArgument(0).getSubjectTaxId()) ?
+                        Collections.singletonList("2") : Collections.emptyList());
+
+        StringWriter out = new StringWriter();
+        datasetExportService.writeRows(plan, resultSet(new String[][]{
+                {"1", "111", "a@test.com"},
+                {"2", "111", "b@test.com"},
+                {"3", "222", "c@test.com"},
+                {"4", "333", "d@test.com"},
+                {"5", null, "e@test.com"},
+        }), out);
+
+        assertEquals("{\"user_id\":\"1\",\"tax_id\":\"111\",\"email\":\"a@test.com\"}\n" +
+                "{\"user_id\":\"3\",\"tax_id\":\"222\",\"email\":null}\n", out.toString());
+        verify(policyEvaluationService, times(3)).evaluateColumnMask(any());
+    }
+
+    @Test
+    @DisplayName("CSV output has a header and quotes values when needed")
+    void testCsvOutput() throws Exception {
+        DatasetExportService.ExportPlan plan = prepare("csv");
+        when(policyEvaluationService.evaluateColumnMask(any())).thenReturn(mask());
+        when(policyEvaluationService.findDeniedRecordIds(any())).thenReturn(Collections.emptyList());
+
+        StringWriter out = new StringWriter();
+        datasetExportService.writeRows(plan, resultSet(new String[][]{{"1", "111", "Doe, \"J\""}}), out);
+
+        assertEquals("user_id,tax_id,email\n1,111,\"Doe, \"\"J\"\"\"\n", out.toString());
+    }
+
+    @Test
+    @DisplayName("Denied columns are masked whatever the case of the mapping and the result set label")
+    void testMaskIgnoresColumnCase() throws Exception {
+        DatasetExportService.ExportPlan plan = prepare("ndjson");
+        when(policyEvaluationService.evaluateColumnMask(any())).thenReturn(mask("EMAIL"));
+        when(policyEvaluationService.findDeniedRecordIds(any())).thenReturn(Collections.emptyList());
+
+        StringWriter out = new StringWriter();
+        datasetExportService.writeRows(plan, resultSet(new String[][]{{"1", "111", "a@test.com"}}), out);
+
+        assertEquals("{\"user_id\":\"1\",\"tax_id\":\"111\",\"email\":null}\n", out.toString());
+    }
+
+    @Test
+    @DisplayName("Without a key column, subjects denying any record are excluded")
+    void testKeylessTableExcludesSubjectsWithDeniedRecords() throws Exception {
+        DatabaseConfigDTO database = new DatabaseConfigDTO();
+        database.setId(TEST_DATABASE_UUID);
+        when(databaseConfigService.getDatabasesForController(TEST_CONTROLLER_ID))
+                .thenReturn(Collections.singletonList(database));
+        when(databaseConfigService.resolveTableMapping(TEST_CONTROLLER_ID, TEST_DATABASE_UUID, TEST_TABLE_NAME))
+                .thenReturn(new DatabaseConfigService.TableMapping("Person", null,
+                        Map.of("tax_id", "taxID", "email", "email")));
+        DatasetExportService.ExportPlan plan = datasetExportService.prepare(TEST_CONTROLLER_ID,
+                TEST_DATABASE_UUID, TEST_TABLE_NAME, "RandomForest", null, "ndjson");
+
+        when(policyEvaluationService.evaluateColumnMask(any())).thenReturn(mask());
+        when(policyEvaluationService.findDeniedRecordIds(any(AccessRequestDTO.class)))
+                .thenAnswer(invocation -> "111".equals(invocation.<AccessRequestDTO>getArgument(0).getSubjectTaxId()) ?
+                        Collections.singletonList("2") : Collections.emptyList());
+
+        StringWriter out = new StringWriter();
+        datasetExportService.writeRows(plan, resultSet(new String[][]{
+                {"1", "111", "a@test.com"},
+                {"2", "111", "b@test.com"},
+                {"3", "222", "c@test.com"},
+        }), out);
+
+        assertEquals("{\"user_id\":\"3\",\"tax_id\":\"222\",\"email\":\"c@test.com\"}\n", out.toString());
+    }
+
+    @Test
+    @DisplayName("Tables without a subject column cannot be exported")
+    void testTableWithoutSubjectColumnIsRejected() throws IOException {
+        DatabaseConfigDTO database = new DatabaseConfigDTO();
+        database.setId(TEST_DATABASE_UUID);
+        when(databaseConfigService.getDatabasesForController(TEST_CONTROLLER_ID))
+                .thenReturn(Collections.singletonList(database));
+        when(databaseConfigService.resolveTableMapping(TEST_CONTROLLER_ID, TEST_DATABASE_UUID, "products"))
+                .thenReturn(new DatabaseConfigService.TableMapping("Product", "product_id", Map.of("name", "name")));
+
+        assertThrows(IllegalArgumentException.class, () -> datasetExportService.prepare(
+                TEST_CONTROLLER_ID, TEST_DATABASE_UUID, "products", null, null, "ndjson"));
+        assertThrows(IllegalArgumentException.class, () -> datasetExportService.prepare(
+                TEST_CONTROLLER_ID, TEST_DATABASE_UUID, "products; DROP TABLE x", null, null, "ndjson"));
+    }
+}
@@ -0,0 +1,49 @@
+package com.ontosov.services;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("EntitySelector Tests")
+class EntitySelectorTest {
+
+    @Test
+    @DisplayName("Whole-type and range selectors parse to their canonical form")
+    void testParse() {
+        assertEquals("Order", EntitySelector.parse(" Order ").toString());
+        assertEquals("Order/100..199", EntitySelector.parse("Order/ 100 .. 199").toString());
+        assertEquals("Order/100..", EntitySelector.parse("Order/100..").toString());
+        assertEquals("..199", EntitySelector.parse("Order/..199").recordId());
+        assertEquals("*", EntitySelector.parse("Order").recordId());
+        assertEquals(EntitySelector.parse("Order/1..2"), EntitySelector.parse("Order/1 ..2"));
+
+        assertThrows(IllegalArgumentException.class, () -> EntitySelector.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> EntitySelector.parse("/1..2"));
+        assertThrows(IllegalArgumentException.class, () -> EntitySelector.parse("Order/5"));
+        assertThrows(IllegalArgumentException.class, () -> EntitySelector.parse("Order/a..b"));
+        assertThrows(IllegalArgumentException.class, () -> EntitySelector.parse("Order/9..1"));
+    }
+
+    @Test
+    @DisplayName("Ranges cover the records and sub-ranges inside them")
+    void testCovers() {
+        EntitySelector range = EntitySelector.parse("Order/100..199");
+        assertTrue(range.covers("100"));
+        assertTrue(range.covers("199"));
+        assertFalse(range.covers("200"));
+        assertFalse(range.covers("abc"));
+        assertTrue(range.covers("120..130"));
+        assertFalse(range.covers("150.."));
+        assertFalse(range.covers("*"));
+
+        EntitySelector open = EntitySelector.parse("Order/100..");
+        assertTrue(open.covers("150.."));
+        assertTrue(open.covers("9999999"));
+        assertFalse(open.covers("..150"));
+
+        EntitySelector all = EntitySelector.parse("Order");
+        assertTrue(all.covers("abc"));
+        assertTrue(all.covers("*"));
+    }
+}
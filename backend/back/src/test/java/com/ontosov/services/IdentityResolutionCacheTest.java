@@ -0,0 +1,75 @@
+package com.ontosov.services;
+
+import com.ontosov.models.User;
+import com.ontosov.repositories.UserRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("IdentityResolutionCache Tests")
+class IdentityResolutionCacheTest {
+
+    @Mock
+    private UserRepo userRepo;
+
+    private IdentityResolutionCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new IdentityResolutionCache(userRepo);
+    }
+
+    private User user(Long id, String taxId, String name) {
+        User user = new User();
+        user.setId(id);
+        user.setTaxid(taxId);
+        user.setName(name);
+        return user;
+    }
+
+    @Test
+    @DisplayName("Repeated lookups hit the repository once")
+    void testLookupsAreCached() {
+        when(userRepo.findByTaxid("123")).thenReturn(user(1L, "123", null));
+        when(userRepo.findById(2L)).thenReturn(Optional.of(user(2L, null, "Acme")));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(1L, cache.getSubjectId("123"));
+            assertEquals("Acme", cache.getControllerName(2L));
+        }
+
+        verify(userRepo, times(1)).findByTaxid("123");
+        verify(userRepo, times(1)).findById(2L);
+    }
+
+    @Test
+    @DisplayName("Unknown tax IDs are not cached, so a later signup is seen")
+    void testMissesAreNotCached() {
+        when(userRepo.findByTaxid("123")).thenReturn(null, user(1L, "123", null));
+
+        assertNull(cache.getSubjectId("123"));
+        assertEquals(1L, cache.getSubjectId("123"));
+    }
+
+    @Test
+    @DisplayName("invalidateUser drops the user's cached entries")
+    void testInvalidateUser() {
+        User controller = user(2L, null, "Acme");
+        when(userRepo.findById(2L)).thenReturn(Optional.of(controller));
+        cache.getControllerName(2L);
+
+        cache.invalidateUser(controller);
+        cache.getControllerName(2L);
+
+        verify(userRepo, times(2)).findById(2L);
+    }
+}
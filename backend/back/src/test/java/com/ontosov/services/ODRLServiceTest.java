@@ -0,0 +1,204 @@
+package com.ontosov.services;
+
+import com.ontosov.dto.PolicyAssignmentDTO;
+import com.ontosov.dto.PolicyGroupDTO;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ODRLService Policy Layout Tests")
+class ODRLServiceTest {
+
+    private static final String ODRL = PolicyStore.ODRL_NS;
+    private static final String ONTO = PolicyStore.ONTOSOV_NS;
+    private static final String DATA_SOURCE = "TestController - testdb";
+    private static final String ORDER_1 = "http://example.org/resource#Order/1";
+    private static final Long SUBJECT_ID = 1L;
+    private static final Long CONTROLLER_ID = 7L;
+
+    @TempDir
+    Path tempDir;
+
+    private PolicyStore policyStore;
+    private ODRLService odrlService;
+
+    @BeforeEach
+    void setUp() {
+        policyStore = new PolicyStore(tempDir.toString(), 1);
+        odrlService = new ODRLService(policyStore);
+    }
+
+    private PolicyGroupDTO createGroup() {
+        PolicyGroupDTO group = new PolicyGroupDTO();
+        group.setId("pg-1");
+        group.setPermissions(Map.of("read", true, "use", true, "share", true, "modify", false));
+        group.setConstraints(Map.of("expiration", "2099-12-31"));
+        group.setConsequences(new HashMap<>());
+        group.setAiRestrictions(new HashMap<>());
+        group.setTransformations(List.of("anonymize"));
+        return group;
+    }
+
+    private PolicyAssignmentDTO createAssignment(Set<String> properties) {
+        PolicyAssignmentDTO assignment = new PolicyAssignmentDTO();
+        assignment.setPropertyAssignments(Map.of(DATA_SOURCE, properties));
+        assignment.setEntityAssignments(Map.of(DATA_SOURCE, Set.of(ORDER_1)));
+        return assignment;
+    }
+
+    private void generate(PolicyAssignmentDTO assignment) {
+        Dataset dataset = policyStore.shardFor(SUBJECT_ID).getDataset();
+        dataset.begin(ReadWrite.WRITE);
+        try {
+            odrlService.generatePoliciesFromAssignment("pg-1", createGroup(), assignment, SUBJECT_ID);
+            dataset.commit();
+        } finally {
+            dataset.end();
+        }
+        odrlService.refreshDecisionIndex(SUBJECT_ID);
+    }
+
+    private List<Resource> listPolicies() {
+        PolicyStore.Shard shard = policyStore.shardFor(SUBJECT_ID);
+        shard.getDataset().begin(ReadWrite.READ);
+        try {
+            Model odrlModel = shard.getOdrlModel();
+            return odrlModel.listSubjectsWithProperty(RDF.type, odrlModel.createResource(ODRL + "Policy")).toList();
+        } finally {
+            shard.getDataset().end();
+        }
+    }
+
+    @Test
+    @DisplayName("A group is stored as one policy whose rules cover all its targets and actions")
+    void testOnePolicyPerGroup() {
+        generate(createAssignment(Set.of("email", "name")));
+
+        assertEquals(1, listPolicies().size());
+        assertTrue(odrlService.checkPropertyAccess(SUBJECT_ID, CONTROLLER_ID, DATA_SOURCE, "email", "share"));
+        assertTrue(odrlService.checkPropertyAccess(SUBJECT_ID, CONTROLLER_ID, DATA_SOURCE, "name", "read"));
+        assertFalse(odrlService.checkPropertyAccess(SUBJECT_ID, CONTROLLER_ID, DATA_SOURCE, "name", "modify"));
+        assertTrue(odrlService.checkEntityAccess(SUBJECT_ID, CONTROLLER_ID, DATA_SOURCE, ORDER_1, "use"));
+        assertEquals(Map.of("pg-1", Set.of("read", "use", "share")),
+                odrlService.getPolicyGroupActionsForProperty(SUBJECT_ID, DATA_SOURCE, "email"));
+        assertEquals(Map.of(DATA_SOURCE, Set.of("email", "name")),
+                odrlService.getAssignmentsForPolicyGroup("pg-1", SUBJECT_ID).get("propertyAssignments"));
+    }
+
+    @Test
+    @DisplayName("Targets split over several chunks are all written")
+    void testChunkedTargets() {
+        ReflectionTestUtils.setField(odrlService, "bulkChunkSize", 1);
+        generate(createAssignment(Set.of("email", "name", "phone")));
+
+        assertEquals(1, listPolicies().size());
+        for (String property : List.of("email", "name", "phone")) {
+            assertTrue(odrlService.checkPropertyAccess(SUBJECT_ID, CONTROLLER_ID, DATA_SOURCE, property, "read"));
+        }
+        assertTrue(odrlService.checkEntityAccess(SUBJECT_ID, CONTROLLER_ID, DATA_SOURCE, ORDER_1, "use"));
+    }
+
+    @Test
+    @DisplayName("Regenerating a group replaces its policy and drops unassigned targets")
+    void testRegenerateReplacesPolicy() {
+        generate(createAssignment(Set.of("email", "name")));
+        generate(createAssignment(Set.of("email")));
+
+        assertEquals(1, listPolicies().size());
+        assertTrue(odrlService.policyExistsForProperty(SUBJECT_ID, DATA_SOURCE, "email"));
+        assertFalse(odrlService.policyExistsForProperty(SUBJECT_ID, DATA_SOURCE, "name"));
+    }
+
+    @Test
+    @DisplayName("An assignment diff relinks only the changed targets of the existing policy")
+    void testApplyAssignmentDiff() {
+        generate(createAssignment(Set.of("email", "name")));
+        Resource policyBefore = listPolicies().get(0);
+
+        PolicyAssignmentDTO added = new PolicyAssignmentDTO();
+        added.setPropertyAssignments(Map.of(DATA_SOURCE, Set.of("phone")));
+        PolicyAssignmentDTO removed = new PolicyAssignmentDTO();
+        removed.setPropertyAssignments(Map.of(DATA_SOURCE, Set.of("name")));
+
+        Dataset dataset = policyStore.shardFor(SUBJECT_ID).getDataset();
+        dataset.begin(ReadWrite.WRITE);
+        try {
+            odrlService.applyAssignmentDiff("pg-1", createGroup(), createAssignment(Set.of("email", "phone")),
+                    added, removed, SUBJECT_ID);
+            dataset.commit();
+        } finally {
+            dataset.end();
+        }
+        odrlService.refreshDecisionIndex(SUBJECT_ID);
+
+        assertEquals(List.of(policyBefore), listPolicies());
+        assertTrue(odrlService.checkPropertyAccess(SUBJECT_ID, CONTROLLER_ID, DATA_SOURCE, "phone", "share"));
+        assertTrue(odrlService.checkPropertyAccess(SUBJECT_ID, CONTROLLER_ID, DATA_SOURCE, "email", "read"));
+        assertFalse(odrlService.policyExistsForProperty(SUBJECT_ID, DATA_SOURCE, "name"));
+        assertTrue(odrlService.checkEntityAccess(SUBJECT_ID, CONTROLLER_ID, DATA_SOURCE, ORDER_1, "use"));
+    }
+
+    @Test
+    @DisplayName("Swapping two permission flags regenerates the policy on reassignment")
+    void testChangedDefinitionRegeneratesPolicy() {
+        PolicyAssignmentDTO assignment = createAssignment(Set.of("email"));
+        generate(assignment);
+
+        PolicyGroupDTO swapped = createGroup();
+        swapped.setPermissions(Map.of("read", true, "use", true, "share", false, "modify", true));
+        assertNotEquals(ODRLService.definitionHash(createGroup()), ODRLService.definitionHash(swapped));
+
+        Dataset dataset = policyStore.shardFor(SUBJECT_ID).getDataset();
+        dataset.begin(ReadWrite.WRITE);
+        try {
+            assertTrue(odrlService.isGroupPolicyCurrent("pg-1", createGroup(), assignment, SUBJECT_ID));
+            assertFalse(odrlService.isGroupPolicyCurrent("pg-1", swapped, assignment, SUBJECT_ID));
+            odrlService.applyAssignmentDiff("pg-1", swapped, assignment,
+                    new PolicyAssignmentDTO(), new PolicyAssignmentDTO(), SUBJECT_ID);
+            dataset.commit();
+        } finally {
+            dataset.end();
+        }
+        odrlService.refreshDecisionIndex(SUBJECT_ID);
+
+        assertTrue(odrlService.checkPropertyAccess(SUBJECT_ID, CONTROLLER_ID, DATA_SOURCE, "email", "modify"));
+        assertFalse(odrlService.checkPropertyAccess(SUBJECT_ID, CONTROLLER_ID, DATA_SOURCE, "email", "share"));
+    }
+
+    @Test
+    @DisplayName("Policies of the per-target layout are reported for migration")
+    void testFindLegacyPolicyGroups() {
+        generate(createAssignment(Set.of("email")));
+
+        PolicyStore.Shard shard = policyStore.shardFor(SUBJECT_ID);
+        shard.getDataset().begin(ReadWrite.WRITE);
+        try {
+            Model odrlModel = shard.getOdrlModel();
+            odrlModel.createResource(ODRL + "policy-" + UUID.randomUUID())
+                    .addProperty(RDF.type, odrlModel.createResource(ODRL + "Policy"))
+                    .addProperty(odrlModel.createProperty(ONTO, "policyGroup"), odrlModel.createResource(ONTO + "pg-2"));
+            shard.getDataset().commit();
+        } finally {
+            shard.getDataset().end();
+        }
+
+        shard.getDataset().begin(ReadWrite.READ);
+        try {
+            assertEquals(Set.of("pg-2"), odrlService.findLegacyPolicyGroupsInTransaction(shard));
+        } finally {
+            shard.getDataset().end();
+        }
+    }
+}
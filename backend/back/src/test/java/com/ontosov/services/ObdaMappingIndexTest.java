@@ -0,0 +1,55 @@
+package com.ontosov.services;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ObdaMappingIndex Tests")
+class ObdaMappingIndexTest {
+
+    // Same layout as DatabaseConfigService.saveSchemaMappings writes
+    private static final String OBDA = """
+            [PrefixDeclaration]
+            :       http://example.org/resource#
+            schema: http://schema.org/
+
+            [MappingDeclaration] @collection [[
+            mappingId users_mapping
+            target  :Person/{user_id} a schema:Person ; schema:email {email} ; schema:taxID {tax_id} .
+            source  SELECT user_id, email, tax_id FROM users
+
+            mappingId orders_mapping
+            target  :Order/{order_id} a schema:Order ; schema:orderDate {created_at} .
+            source  SELECT order_id, created_at FROM orders
+
+            mappingId orders_users_rel
+            target  :Order/{order_id} schema:customer :Person/{user_id} .
+            source  SELECT s.order_id, t.user_id FROM orders s JOIN users t ON s.user_id = t.user_id
+
+            ]]""";
+
+    @Test
+    @DisplayName("Resolves entity type, key column and column properties of a table")
+    void testTableMapping() {
+        ObdaMappingIndex index = ObdaMappingIndex.parse(OBDA);
+
+        DatabaseConfigService.TableMapping users = index.table("users");
+        assertEquals("Person", users.getEntityType());
+        assertEquals("user_id", users.getKeyColumn());
+        assertEquals("email", users.getSchemaOrgProperty("email"));
+        assertEquals("taxID", users.getSchemaOrgProperty("tax_id"));
+        assertNull(users.getSchemaOrgProperty("created_at"));
+
+        DatabaseConfigService.TableMapping orders = index.table("orders");
+        assertEquals("Order", orders.getEntityType());
+        assertEquals("orderDate", orders.getSchemaOrgProperty("created_at"));
+    }
+
+    @Test
+    @DisplayName("Unmapped tables and empty files resolve to nothing")
+    void testUnmappedTable() {
+        assertNull(ObdaMappingIndex.parse(OBDA).table("products").getEntityType());
+        assertTrue(ObdaMappingIndex.EMPTY.table("users").getColumnProperties().isEmpty());
+    }
+}
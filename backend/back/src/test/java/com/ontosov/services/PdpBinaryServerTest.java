@@ -0,0 +1,110 @@
+package com.ontosov.services;
+
+import com.ontosov.dto.AccessRequestDTO;
+import com.ontosov.dto.DecisionResult;
+import com.ontosov.dto.ObligationDTO;
+import com.ontosov.dto.PolicyDecisionDTO;
+import com.ontosov.dto.ReasonCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.Socket;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PdpBinaryServer Tests")
+class PdpBinaryServerTest {
+
+    @Mock
+    private PolicyEvaluationService policyEvaluationService;
+
+    @Mock
+    private AuditPipeline auditPipeline;
+
+    private PdpBinaryServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new PdpBinaryServer(policyEvaluationService, auditPipeline, true, "127.0.0.1", 0, 4);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    private AccessRequestDTO request(String property) {
+        AccessRequestDTO request = new AccessRequestDTO();
+        request.setControllerId(1L);
+        request.setSubjectTaxId("TAX123");
+        request.setAction("read");
+        request.setDataSource("ecommerce_db");
+        request.setDataProperty(property);
+        return request;
+    }
+
+    @Test
+    @DisplayName("Streamed requests are answered in order on one connection and audited")
+    void testStreamingDecisions() throws Exception {
+        PolicyDecisionDTO permit = new PolicyDecisionDTO();
+        permit.setResult(DecisionResult.PERMIT);
+        permit.setReasonCode(ReasonCode.PERMITTED_BY_POLICY);
+        permit.setReasonParams(List.of("Research only"));
+        permit.setPolicyGroupId("pg-1");
+        permit.setPolicyVersion(2);
+        permit.setValidUntil(LocalDate.of(2030, 1, 1));
+        ObligationDTO obligation = new ObligationDTO();
+        obligation.setType("notify");
+        obligation.getDetails().put("method", "email");
+        permit.setObligations(List.of(obligation));
+
+        when(policyEvaluationService.evaluateAccess(argThat(r -> r != null && "email".equals(r.getDataProperty()))))
+                .thenReturn(permit);
+        when(policyEvaluationService.evaluateAccess(argThat(r -> r != null && "phone".equals(r.getDataProperty()))))
+                .thenThrow(new RuntimeException("boom"));
+
+        try (Socket socket = new Socket("127.0.0.1", server.getPort());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            out.writeInt(PdpWireProtocol.MAGIC);
+            PdpWireProtocol.writeRequest(out, 1, true, request("email"));
+            PdpWireProtocol.writeRequest(out, 2, false, request("phone"));
+            out.flush();
+
+            assertEquals(PdpWireProtocol.MAGIC, in.readInt());
+
+            PdpWireProtocol.Response first = PdpWireProtocol.readResponse(in);
+            assertEquals(1, first.correlationId());
+            PolicyDecisionDTO decision = first.decision();
+            assertEquals(DecisionResult.PERMIT, decision.getResult());
+            assertEquals(ReasonCode.PERMITTED_BY_POLICY, decision.getReasonCode());
+            assertEquals("Access permitted by policy: Research only", decision.getReason());
+            assertEquals(2, decision.getPolicyVersion());
+            assertEquals(LocalDate.of(2030, 1, 1), decision.getValidUntil());
+            assertEquals("email", decision.getObligations().get(0).getDetails().get("method"));
+
+            PdpWireProtocol.Response second = PdpWireProtocol.readResponse(in);
+            assertEquals(2, second.correlationId());
+            assertNull(second.decision());
+            assertTrue(second.error().contains("boom"));
+        }
+
+        verify(auditPipeline).record(any(AccessRequestDTO.class), eq(permit), eq(true));
+        verifyNoMoreInteractions(auditPipeline);
+    }
+}
@@ -0,0 +1,87 @@
+package com.ontosov.services;
+
+import com.ontosov.dto.PolicyChangeDTO;
+import com.ontosov.dto.PolicyChangeFeedDTO;
+import com.ontosov.dto.PolicyChangeType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PolicyChangeLog Tests")
+class PolicyChangeLogTest {
+
+    private static List<Long> sequences(PolicyChangeFeedDTO feed) {
+        return feed.getChanges().stream().map(PolicyChangeDTO::getSequence).toList();
+    }
+
+    @Test
+    @DisplayName("Changes get monotonic sequences and are read back after since, oldest first")
+    void testReadSince() {
+        PolicyChangeLog log = new PolicyChangeLog(100);
+        assertEquals(1, log.append(1L, "pg-1", PolicyChangeType.CREATED));
+        assertEquals(2, log.append(2L, "pg-2", PolicyChangeType.CREATED));
+        assertEquals(3, log.append(1L, "pg-1", PolicyChangeType.ASSIGNED));
+
+        PolicyChangeFeedDTO feed = log.read(null, 1, null, 100);
+        assertFalse(feed.isReset());
+        assertEquals(List.of(2L, 3L), sequences(feed));
+        assertEquals(3, feed.getNextSince());
+
+        PolicyChangeFeedDTO subjectFeed = log.read(log.getLogId(), 0, 1L, 100);
+        assertEquals(List.of(1L, 3L), sequences(subjectFeed));
+        assertEquals(PolicyChangeType.ASSIGNED, subjectFeed.getChanges().get(1).getType());
+    }
+
+    @Test
+    @DisplayName("A full page resumes after its last entry")
+    void testPaging() {
+        PolicyChangeLog log = new PolicyChangeLog(100);
+        for (int i = 0; i < 5; i++) {
+            log.append(1L, "pg-1", PolicyChangeType.UPDATED);
+        }
+
+        PolicyChangeFeedDTO first = log.read(null, 0, null, 2);
+        assertEquals(List.of(1L, 2L), sequences(first));
+        PolicyChangeFeedDTO second = log.read(null, first.getNextSince(), null, 2);
+        assertEquals(List.of(3L, 4L), sequences(second));
+        PolicyChangeFeedDTO last = log.read(null, second.getNextSince(), null, 2);
+        assertEquals(List.of(5L), sequences(last));
+        assertEquals(5, last.getNextSince());
+    }
+
+    @Test
+    @DisplayName("Readers of another log or behind the retained entries must reset")
+    void testReset() {
+        PolicyChangeLog log = new PolicyChangeLog(2);
+        for (int i = 0; i < 4; i++) {
+            log.append(1L, "pg-1", PolicyChangeType.UPDATED);
+        }
+
+        assertTrue(log.read(null, 1, null, 10).isReset());
+        assertFalse(log.read(null, 2, null, 10).isReset());
+        assertTrue(log.read("other-log", 3, null, 10).isReset());
+        assertTrue(log.read(null, 9, null, 10).isReset());
+        assertEquals(4, log.read(null, 1, null, 10).getNextSince());
+    }
+
+    @Test
+    @DisplayName("A parked long-poll completes on the next matching change")
+    void testPollWakesOnAppend() {
+        PolicyChangeLog log = new PolicyChangeLog(100);
+        log.append(1L, "pg-1", PolicyChangeType.CREATED);
+
+        DeferredResult<PolicyChangeFeedDTO> poll = log.poll(null, 1, 2L, 10, 30000);
+        assertFalse(poll.hasResult());
+
+        log.append(1L, "pg-1", PolicyChangeType.UPDATED);
+        assertFalse(poll.hasResult());
+
+        log.append(2L, "pg-2", PolicyChangeType.CREATED);
+        assertTrue(poll.hasResult());
+        assertEquals(List.of(3L), sequences((PolicyChangeFeedDTO) poll.getResult()));
+    }
+}
@@ -0,0 +1,119 @@
+package com.ontosov.services;
+
+import com.ontosov.dto.AccessRequestDTO;
+import com.ontosov.dto.DecisionResult;
+import com.ontosov.dto.PolicyDecisionDTO;
+import org.junit.jupiter.api.*;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the epoch-versioned PDP decision cache
+ */
+@DisplayName("PolicyDecisionCache Test Suite")
+class PolicyDecisionCacheTest {
+
+    private static final Long SUBJECT_ID = 9999L;
+
+    private final Map<Long, Long> epochs = new HashMap<>();
+
+    private long epochOf(Long subjectId) {
+        return epochs.getOrDefault(subjectId, 0L);
+    }
+
+    private AccessRequestDTO request(Long controllerId, String property) {
+        AccessRequestDTO request = new AccessRequestDTO();
+        request.setControllerId(controllerId);
+        request.setSubjectTaxId("999999999");
+        request.setAction("read");
+        request.setDataSource("test-db-uuid-12345");
+        request.setTableName("users");
+        request.setDataProperty(property);
+        request.setPurpose("Service Provision");
+        return request;
+    }
+
+    private PolicyDecisionDTO permit(LocalDate validUntil) {
+        PolicyDecisionDTO decision = new PolicyDecisionDTO();
+        decision.setResult(DecisionResult.PERMIT);
+        decision.setReason("Access permitted by 1 policy/policies: Test");
+        decision.setValidUntil(validUntil);
+        return decision;
+    }
+
+    @Test
+    @DisplayName("Cached decision is served until the subject's epoch changes")
+    void testEpochInvalidation() {
+        PolicyDecisionCache cache = new PolicyDecisionCache(10);
+        String key = PolicyDecisionCache.keyFor(request(1L, "email"));
+
+        cache.put(key, SUBJECT_ID, epochOf(SUBJECT_ID), permit(null));
+        assertEquals(DecisionResult.PERMIT, cache.get(key, this::epochOf).getResult());
+
+        epochs.put(SUBJECT_ID, 1L);
+        assertNull(cache.get(key, this::epochOf));
+        assertEquals(1L, cache.getStats().get("hits"));
+        assertEquals(1L, cache.getStats().get("misses"));
+        assertEquals(1L, cache.getStats().get("invalidations"));
+    }
+
+    @Test
+    @DisplayName("Cached PERMIT is dropped once its policy has expired")
+    void testExpiredPermitIsNotServed() {
+        PolicyDecisionCache cache = new PolicyDecisionCache(10);
+        String key = PolicyDecisionCache.keyFor(request(1L, "email"));
+
+        cache.put(key, SUBJECT_ID, 0L, permit(LocalDate.now().minusDays(1)));
+        assertNull(cache.get(key, this::epochOf));
+
+        cache.put(key, SUBJECT_ID, 0L, permit(LocalDate.now()));
+        assertNotNull(cache.get(key, this::epochOf));
+    }
+
+    @Test
+    @DisplayName("Least recently used entry is evicted when full")
+    void testLruEviction() {
+        PolicyDecisionCache cache = new PolicyDecisionCache(2);
+        String first = PolicyDecisionCache.keyFor(request(1L, "email"));
+        String second = PolicyDecisionCache.keyFor(request(1L, "name"));
+        String third = PolicyDecisionCache.keyFor(request(1L, "telephone"));
+
+        cache.put(first, SUBJECT_ID, 0L, permit(null));
+        cache.put(second, SUBJECT_ID, 0L, permit(null));
+        cache.get(first, this::epochOf);
+        cache.put(third, SUBJECT_ID, 0L, permit(null));
+
+        assertNotNull(cache.get(first, this::epochOf));
+        assertNull(cache.get(second, this::epochOf));
+        assertEquals(1L, cache.getStats().get("evictions"));
+    }
+
+    @Test
+    @DisplayName("Controller invalidation only drops that controller's entries")
+    void testInvalidateController() {
+        PolicyDecisionCache cache = new PolicyDecisionCache(10);
+        String controller1 = PolicyDecisionCache.keyFor(request(1L, "email"));
+        String controller12 = PolicyDecisionCache.keyFor(request(12L, "email"));
+
+        cache.put(controller1, SUBJECT_ID, 0L, permit(null));
+        cache.put(controller12, SUBJECT_ID, 0L, permit(null));
+        cache.invalidateController(1L);
+
+        assertNull(cache.get(controller1, this::epochOf));
+        assertNotNull(cache.get(controller12, this::epochOf));
+    }
+
+    @Test
+    @DisplayName("Returned decisions are copies")
+    void testReturnsCopies() {
+        PolicyDecisionCache cache = new PolicyDecisionCache(10);
+        String key = PolicyDecisionCache.keyFor(request(1L, "email"));
+        cache.put(key, SUBJECT_ID, 0L, permit(null));
+
+        cache.get(key, this::epochOf).setResult(DecisionResult.DENY);
+        assertEquals(DecisionResult.PERMIT, cache.get(key, this::epochOf).getResult());
+    }
+}
@@ -0,0 +1,131 @@
+package com.ontosov.services;
+
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the in-memory policy decision index
+ */
+@DisplayName("PolicyDecisionIndex Test Suite")
+class PolicyDecisionIndexTest {
+
+    private static final String ODRL_NS = "http://www.w3.org/ns/odrl/2/";
+    private static final String ONTOSOV_NS = "http://ontosov.org/policy#";
+    private static final String ALL_CONTROLLERS = ONTOSOV_NS + "allControllers";
+    private static final String CONTROLLER = ONTOSOV_NS + "controller-7";
+    private static final String DATA_SOURCE = "TestController - testdb";
+    private static final Long SUBJECT_ID = 42L;
+
+    private PolicyDecisionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PolicyDecisionIndex();
+    }
+
+    @Test
+    @DisplayName("Permission granted to all controllers is visible for any controller")
+    void testPermissionForAllControllers() {
+        PolicyDecisionIndex.SubjectRules rules = new PolicyDecisionIndex.SubjectRules();
+        rules.addRule("pg-1", false, DATA_SOURCE, "email", null, ODRL_NS + "read", ALL_CONTROLLERS);
+        index.replaceSubject(SUBJECT_ID, rules);
+
+        PolicyDecisionIndex.TargetRules target = index.getPropertyRules(SUBJECT_ID, DATA_SOURCE, "email");
+        assertNotNull(target);
+        assertTrue(target.isPermitted(ODRL_NS + "read", CONTROLLER, ALL_CONTROLLERS));
+        assertFalse(target.isPermitted(ODRL_NS + "share", CONTROLLER, ALL_CONTROLLERS));
+        assertEquals(Map.of("pg-1", Set.of(ODRL_NS + "read")), target.getGroupActions());
+    }
+
+    @Test
+    @DisplayName("Prohibition alone makes the target known without permitting anything")
+    void testProhibitionOnly() {
+        PolicyDecisionIndex.SubjectRules rules = new PolicyDecisionIndex.SubjectRules();
+        rules.addRule("pg-1", true, DATA_SOURCE, "email", null, ONTOSOV_NS + "aiTraining", ALL_CONTROLLERS);
+        index.replaceSubject(SUBJECT_ID, rules);
+
+        PolicyDecisionIndex.TargetRules target = index.getPropertyRules(SUBJECT_ID, DATA_SOURCE, "email");
+        assertNotNull(target);
+        assertTrue(target.isProhibited(ONTOSOV_NS + "aiTraining"));
+        assertTrue(target.getPermittedActions().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Property and entity targets are kept apart")
+    void testPropertyAndEntityKeysAreSeparate() {
+        PolicyDecisionIndex.SubjectRules rules = new PolicyDecisionIndex.SubjectRules();
+        rules.addRule("pg-1", false, DATA_SOURCE, null, "http://example.org/resource#User/1",
+                ODRL_NS + "read", ALL_CONTROLLERS);
+        index.replaceSubject(SUBJECT_ID, rules);
+
+        assertNotNull(index.getEntityRules(SUBJECT_ID, DATA_SOURCE, "http://example.org/resource#User/1"));
+        assertNull(index.getPropertyRules(SUBJECT_ID, DATA_SOURCE, "http://example.org/resource#User/1"));
+    }
+
+    @Test
+    @DisplayName("Replacing a subject with empty rules removes it")
+    void testReplaceWithEmptyRulesRemovesSubject() {
+        PolicyDecisionIndex.SubjectRules rules = new PolicyDecisionIndex.SubjectRules();
+        rules.addRule("pg-1", false, DATA_SOURCE, "email", null, ODRL_NS + "read", ALL_CONTROLLERS);
+        index.replaceSubject(SUBJECT_ID, rules);
+        assertEquals(1, index.getSubjectCount());
+
+        index.replaceSubject(SUBJECT_ID, new PolicyDecisionIndex.SubjectRules());
+        assertEquals(0, index.getSubjectCount());
+        assertNull(index.getPropertyRules(SUBJECT_ID, DATA_SOURCE, "email"));
+    }
+
+    @Test
+    @DisplayName("Full rebuild drops subjects that no longer have policies")
+    void testReplaceAllDropsStaleSubjects() {
+        PolicyDecisionIndex.SubjectRules rules = new PolicyDecisionIndex.SubjectRules();
+        rules.addRule("pg-1", false, DATA_SOURCE, "email", null, ODRL_NS + "read", ALL_CONTROLLERS);
+        index.replaceSubject(SUBJECT_ID, rules);
+
+        PolicyDecisionIndex.SubjectRules other = new PolicyDecisionIndex.SubjectRules();
+        other.addRule("pg-2", false, DATA_SOURCE, "name", null, ODRL_NS + "use", CONTROLLER);
+        index.replaceAll(Map.of(43L, other));
+
+        assertNull(index.getPropertyRules(SUBJECT_ID, DATA_SOURCE, "email"));
+        assertTrue(index.getPropertyRules(43L, DATA_SOURCE, "name")
+                .isPermitted(ODRL_NS + "use", CONTROLLER, ALL_CONTROLLERS));
+    }
+
+    @Test
+    @DisplayName("Entity selectors apply to the records they cover, merged with record rules")
+    void testEntitySelectorsCoverRecords() {
+        PolicyDecisionIndex.SubjectRules rules = new PolicyDecisionIndex.SubjectRules();
+        rules.addSelectorRule("pg-1", false, DATA_SOURCE, EntitySelector.parse("Order"),
+                ODRL_NS + "read", ALL_CONTROLLERS);
+        rules.addSelectorRule("pg-2", false, DATA_SOURCE, EntitySelector.parse("Order/100..199"),
+                ODRL_NS + "share", ALL_CONTROLLERS);
+        rules.addRule("pg-3", true, DATA_SOURCE, null, "http://example.org/resource#Order/150",
+                ODRL_NS + "use", ALL_CONTROLLERS);
+        index.replaceSubject(SUBJECT_ID, rules);
+
+        PolicyDecisionIndex.TargetRules outside = index.getEntityRules(SUBJECT_ID, DATA_SOURCE,
+                "http://example.org/resource#Order/7");
+        assertTrue(outside.isPermitted(ODRL_NS + "read", CONTROLLER, ALL_CONTROLLERS));
+        assertFalse(outside.isPermitted(ODRL_NS + "share", CONTROLLER, ALL_CONTROLLERS));
+
+        PolicyDecisionIndex.TargetRules inside = index.getEntityRules(SUBJECT_ID, DATA_SOURCE,
+                "http://example.org/resource#Order/150");
+        assertTrue(inside.isPermitted(ODRL_NS + "share", CONTROLLER, ALL_CONTROLLERS));
+        assertTrue(inside.isProhibited(ODRL_NS + "use"));
+        assertEquals(Set.of("pg-1", "pg-2"), inside.getGroupActions().keySet());
+
+        // Synthetic selector IDs are only covered by selectors that cover all of them
+        assertEquals(Set.of("pg-1", "pg-2"), index.getEntityRules(SUBJECT_ID, DATA_SOURCE,
+                "http://example.org/resource#Order/120..130").getGroupActions().keySet());
+        assertEquals(Set.of("pg-1"), index.getEntityRules(SUBJECT_ID, DATA_SOURCE,
+                "http://example.org/resource#Order/*").getGroupActions().keySet());
+
+        assertNull(index.getEntityRules(SUBJECT_ID, DATA_SOURCE, "http://example.org/resource#User/150"));
+        assertEquals(List.of("http://example.org/resource#Order/150"),
+                index.getEntityIds(SUBJECT_ID, DATA_SOURCE, "http://example.org/resource#Order/"));
+        assertEquals(2, index.getEntitySelectors(SUBJECT_ID, DATA_SOURCE, "Order").size());
+    }
+}
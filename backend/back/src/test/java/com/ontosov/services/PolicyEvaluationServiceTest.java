@@ -11,6 +11,7 @@ import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.IOException;
 import java.time.LocalDate;
@@ -43,6 +44,12 @@ class PolicyEvaluationServiceTest {
     @Mock
     private DatabaseConfigService databaseConfigService;
 
+    @Mock
+    private PolicyDecisionCache decisionCache;
+
+    @Mock
+    private DecisionLogger decisionLogger;
+
     @InjectMocks
     private PolicyEvaluationService policyEvaluationService;
 
@@ -70,6 +77,9 @@ class PolicyEvaluationServiceTest {
 
     @BeforeEach
     void setUp() throws IOException {
+        // Real resolution cache over the mocked repository, fresh for every test
+        ReflectionTestUtils.setField(policyEvaluationService, "resolutionCache", new IdentityResolutionCache(userRepo));
+
         // Create test subject
         testSubject = new User();
         testSubject.setId(TEST_SUBJECT_ID);
@@ -198,6 +208,44 @@ class PolicyEvaluationServiceTest {
                 .thenReturn(TEST_SCHEMA_PROPERTY);
     }
 
+    /**
+     * Stubs the batched compiled policy group lookup; only groups whose ids are requested are returned
+     */
+    private void setupPolicyGroups(PolicyGroupDTO... policies) {
+        when(policyGroupService.getCompiledPolicyGroups(eq(TEST_SUBJECT_ID), anyCollection()))
+                .thenAnswer(invocation -> {
+                    Collection<String> groupIds = invocation.getArgument(1);
+                    List<CompiledPolicyGroup> result = new ArrayList<>();
+                    for (PolicyGroupDTO policy : policies) {
+                        if (groupIds.contains(policy.getId())) {
+                            result.add(CompiledPolicyGroup.compile(policy, TEST_SUBJECT_ID));
+                        }
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * Builds the group -> permitted actions map the decision index holds for the given groups
+     * (granted permissions, plus aiTraining whenever the group carries AI restrictions)
+     */
+    private Map<String, Set<String>> groupActions(PolicyGroupDTO... policies) {
+        Map<String, Set<String>> groupActions = new LinkedHashMap<>();
+        for (PolicyGroupDTO policy : policies) {
+            Set<String> actions = new HashSet<>();
+            policy.getPermissions().forEach((action, granted) -> {
+                if (Boolean.TRUE.equals(granted)) {
+                    actions.add(action);
+                }
+            });
+            if (policy.getAiRestrictions() != null && !policy.getAiRestrictions().isEmpty()) {
+                actions.add("aiTraining");
+            }
+            groupActions.put(policy.getId(), actions);
+        }
+        return groupActions;
+    }
+
     /**
      * Sets up common mocks for entity access tests
      */
@@ -230,17 +278,10 @@ class PolicyEvaluationServiceTest {
             when(odrlService.checkPropertyAccess(eq(TEST_SUBJECT_ID), eq(TEST_CONTROLLER_ID),
                     eq(TEST_DATA_SOURCE), eq(TEST_SCHEMA_PROPERTY), eq(action)))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-
-            Map<String, Object> assignments = new HashMap<>();
-            Map<String, Set<String>> propertyAssignments = new HashMap<>();
-            propertyAssignments.put(TEST_DATA_SOURCE, Collections.singleton(TEST_SCHEMA_PROPERTY));
-            assignments.put("propertyAssignments", propertyAssignments);
-            assignments.put("entityAssignments", new HashMap<>());
+            setupPolicyGroups(policy);
 
-            when(odrlService.getAssignmentsForPolicyGroup(eq(TEST_POLICY_GROUP_ID), eq(TEST_SUBJECT_ID)))
-                    .thenReturn(assignments);
+            when(odrlService.getPolicyGroupActionsForProperty(eq(TEST_SUBJECT_ID), eq(TEST_DATA_SOURCE), eq(TEST_SCHEMA_PROPERTY)))
+                    .thenReturn(groupActions(policy));
 
             // Execute
             AccessRequestDTO request = createPropertyAccessRequest(action, TEST_PURPOSE);
@@ -249,7 +290,7 @@ class PolicyEvaluationServiceTest {
             // Assert
             assertEquals(DecisionResult.PERMIT, decision.getResult(),
                     "Action '" + action + "' should be PERMITTED when policy allows it");
-            assertNotNull(decision.getReason());
+            assertNotNull(decision.getExplanation());
         }
 
         @ParameterizedTest
@@ -272,8 +313,11 @@ class PolicyEvaluationServiceTest {
             // Assert
             assertEquals(DecisionResult.DENY, decision.getResult(),
                     "Action '" + action + "' should be DENIED when policy prohibits it");
-            assertTrue(decision.getReason().contains("No policy permits"),
+            assertTrue(decision.getExplanation().contains("No policy permits"),
                     "Reason should indicate action not permitted");
+            assertEquals(ReasonCode.NOT_PERMITTED, decision.getReasonCode());
+            assertEquals(List.of(action, TEST_SCHEMA_PROPERTY, TEST_DATA_SOURCE), decision.getReasonParams());
+            assertNull(decision.getReason(), "Reason text is only rendered on request");
         }
 
         @ParameterizedTest
@@ -293,7 +337,7 @@ class PolicyEvaluationServiceTest {
             // Assert
             assertEquals(DecisionResult.PERMIT, decision.getResult(),
                     "Action '" + action + "' should be PERMITTED when no policy is assigned");
-            assertTrue(decision.getReason().contains("No policy assigned"),
+            assertTrue(decision.getExplanation().contains("No policy assigned"),
                     "Reason should indicate no policy assigned");
         }
 
@@ -312,10 +356,9 @@ class PolicyEvaluationServiceTest {
             when(odrlService.checkPropertyAccess(eq(TEST_SUBJECT_ID), eq(TEST_CONTROLLER_ID),
                     eq(TEST_DATA_SOURCE), eq(TEST_SCHEMA_PROPERTY), eq("aiTraining")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
+            setupPolicyGroups(policy);
 
-            setupPolicyAssignments(policy.getId());
+            setupPolicyAssignments(policy);
 
             // Execute
             AccessRequestDTO request = createPropertyAccessRequest("aiTraining", null);
@@ -357,15 +400,9 @@ class PolicyEvaluationServiceTest {
             return permissions;
         }
 
-        private void setupPolicyAssignments(String policyGroupId) {
-            Map<String, Object> assignments = new HashMap<>();
-            Map<String, Set<String>> propertyAssignments = new HashMap<>();
-            propertyAssignments.put(TEST_DATA_SOURCE, Collections.singleton(TEST_SCHEMA_PROPERTY));
-            assignments.put("propertyAssignments", propertyAssignments);
-            assignments.put("entityAssignments", new HashMap<>());
-
-            when(odrlService.getAssignmentsForPolicyGroup(eq(policyGroupId), eq(TEST_SUBJECT_ID)))
-                    .thenReturn(assignments);
+        private void setupPolicyAssignments(PolicyGroupDTO policy) {
+            when(odrlService.getPolicyGroupActionsForProperty(eq(TEST_SUBJECT_ID), eq(TEST_DATA_SOURCE), eq(TEST_SCHEMA_PROPERTY)))
+                    .thenReturn(groupActions(policy));
         }
     }
 
@@ -389,9 +426,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute
             AccessRequestDTO request = createPropertyAccessRequest("read", TEST_PURPOSE);
@@ -416,9 +452,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute - request with different purpose
             AccessRequestDTO request = createPropertyAccessRequest("read", "Service Provision");
@@ -427,8 +462,9 @@ class PolicyEvaluationServiceTest {
             // Assert
             assertEquals(DecisionResult.DENY, decision.getResult(),
                     "Should be DENIED when purpose doesn't match");
-            assertTrue(decision.getReason().contains("constraints not satisfied"),
+            assertTrue(decision.getExplanation().contains("constraints not satisfied"),
                     "Reason should mention constraints not satisfied");
+            assertEquals(ReasonCode.DENIED_BY_POLICIES, decision.getReasonCode());
         }
 
         @Test
@@ -443,9 +479,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute
             AccessRequestDTO request = createPropertyAccessRequest("read", "Any Purpose");
@@ -470,9 +505,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute - request with null purpose
             AccessRequestDTO request = createPropertyAccessRequest("read", null);
@@ -499,9 +533,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute
             AccessRequestDTO request = createPropertyAccessRequest("read", TEST_PURPOSE);
@@ -528,9 +561,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute
             AccessRequestDTO request = createPropertyAccessRequest("read", TEST_PURPOSE);
@@ -553,9 +585,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute
             AccessRequestDTO request = createPropertyAccessRequest("read", TEST_PURPOSE);
@@ -581,9 +612,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute
             AccessRequestDTO request = createPropertyAccessRequest("read", TEST_PURPOSE);
@@ -609,9 +639,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute
             AccessRequestDTO request = createPropertyAccessRequest("read", TEST_PURPOSE);
@@ -637,9 +666,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute
             AccessRequestDTO request = createPropertyAccessRequest("read", "Service Provision");
@@ -660,15 +688,9 @@ class PolicyEvaluationServiceTest {
             return permissions;
         }
 
-        private void setupPolicyAssignments(String policyGroupId) {
-            Map<String, Object> assignments = new HashMap<>();
-            Map<String, Set<String>> propertyAssignments = new HashMap<>();
-            propertyAssignments.put(TEST_DATA_SOURCE, Collections.singleton(TEST_SCHEMA_PROPERTY));
-            assignments.put("propertyAssignments", propertyAssignments);
-            assignments.put("entityAssignments", new HashMap<>());
-
-            when(odrlService.getAssignmentsForPolicyGroup(eq(policyGroupId), eq(TEST_SUBJECT_ID)))
-                    .thenReturn(assignments);
+        private void setupPolicyAssignments(PolicyGroupDTO policy) {
+            when(odrlService.getPolicyGroupActionsForProperty(eq(TEST_SUBJECT_ID), eq(TEST_DATA_SOURCE), eq(TEST_SCHEMA_PROPERTY)))
+                    .thenReturn(groupActions(policy));
         }
     }
 
@@ -692,9 +714,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("aiTraining")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute
             AccessRequestDTO request = createPropertyAccessRequest("aiTraining", null);
@@ -740,9 +761,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("aiTraining")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute
             AccessRequestDTO request = createPropertyAccessRequest("aiTraining", null);
@@ -769,9 +789,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("aiTraining")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute - using different algorithm
             AccessRequestDTO request = createPropertyAccessRequest("aiTraining", null);
@@ -798,9 +817,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("aiTraining")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute - no algorithm specified
             AccessRequestDTO request = createPropertyAccessRequest("aiTraining", null);
@@ -826,9 +844,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("aiTraining")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute
             AccessRequestDTO request = createPropertyAccessRequest("aiTraining", null);
@@ -854,9 +871,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute - reading should still work
             AccessRequestDTO request = createPropertyAccessRequest("read", TEST_PURPOSE);
@@ -882,9 +898,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("aiTraining")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute
             AccessRequestDTO request = createPropertyAccessRequest("aiTraining", null);
@@ -906,15 +921,9 @@ class PolicyEvaluationServiceTest {
             return permissions;
         }
 
-        private void setupPolicyAssignments(String policyGroupId) {
-            Map<String, Object> assignments = new HashMap<>();
-            Map<String, Set<String>> propertyAssignments = new HashMap<>();
-            propertyAssignments.put(TEST_DATA_SOURCE, Collections.singleton(TEST_SCHEMA_PROPERTY));
-            assignments.put("propertyAssignments", propertyAssignments);
-            assignments.put("entityAssignments", new HashMap<>());
-
-            when(odrlService.getAssignmentsForPolicyGroup(eq(policyGroupId), eq(TEST_SUBJECT_ID)))
-                    .thenReturn(assignments);
+        private void setupPolicyAssignments(PolicyGroupDTO policy) {
+            when(odrlService.getPolicyGroupActionsForProperty(eq(TEST_SUBJECT_ID), eq(TEST_DATA_SOURCE), eq(TEST_SCHEMA_PROPERTY)))
+                    .thenReturn(groupActions(policy));
         }
     }
 
@@ -942,10 +951,9 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Arrays.asList(policy1, policy2));
+            setupPolicyGroups(policy1, policy2);
 
-            setupMultiplePolicyAssignments(Arrays.asList("pg-1", "pg-2"));
+            setupMultiplePolicyAssignments(policy1, policy2);
 
             // Execute
             AccessRequestDTO request = createPropertyAccessRequest("read", TEST_PURPOSE);
@@ -978,10 +986,9 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Arrays.asList(policy1, policy2));
+            setupPolicyGroups(policy1, policy2);
 
-            setupMultiplePolicyAssignments(Arrays.asList("pg-1", "pg-2"));
+            setupMultiplePolicyAssignments(policy1, policy2);
 
             // Execute
             AccessRequestDTO request = createPropertyAccessRequest("read", "Service Provision");
@@ -1022,9 +1029,8 @@ class PolicyEvaluationServiceTest {
 
             when(odrlService.policyExistsForProperty(eq(TEST_SUBJECT_ID), eq(TEST_DATA_SOURCE), eq(TEST_SCHEMA_PROPERTY)))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Arrays.asList(policy1, policy2));
-            setupMultiplePolicyAssignments(Arrays.asList("pg-1", "pg-2"));
+            setupPolicyGroups(policy1, policy2);
+            setupMultiplePolicyAssignments(policy1, policy2);
 
             // Test read action
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
@@ -1071,9 +1077,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Arrays.asList(policy1, policy2));
-            setupMultiplePolicyAssignments(Arrays.asList("pg-1", "pg-2"));
+            setupPolicyGroups(policy1, policy2);
+            setupMultiplePolicyAssignments(policy1, policy2);
 
             // Test with Service Provision - should fail because Policy 2 won't match
             AccessRequestDTO request1 = createPropertyAccessRequest("read", "Service Provision");
@@ -1114,9 +1119,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Arrays.asList(policy1, policy2));
-            setupMultiplePolicyAssignments(Arrays.asList("pg-1", "pg-2"));
+            setupPolicyGroups(policy1, policy2);
+            setupMultiplePolicyAssignments(policy1, policy2);
 
             // Execute
             AccessRequestDTO request = createPropertyAccessRequest("read", TEST_PURPOSE);
@@ -1152,9 +1156,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Arrays.asList(policy1, policy2, policy3));
-            setupMultiplePolicyAssignments(Arrays.asList("pg-1", "pg-2", "pg-3"));
+            setupPolicyGroups(policy1, policy2, policy3);
+            setupMultiplePolicyAssignments(policy1, policy2, policy3);
 
             // Execute
             AccessRequestDTO request = createPropertyAccessRequest("read", TEST_PURPOSE);
@@ -1175,17 +1178,9 @@ class PolicyEvaluationServiceTest {
             return permissions;
         }
 
-        private void setupMultiplePolicyAssignments(List<String> policyIds) {
-            for (String policyId : policyIds) {
-                Map<String, Object> assignments = new HashMap<>();
-                Map<String, Set<String>> propertyAssignments = new HashMap<>();
-                propertyAssignments.put(TEST_DATA_SOURCE, Collections.singleton(TEST_SCHEMA_PROPERTY));
-                assignments.put("propertyAssignments", propertyAssignments);
-                assignments.put("entityAssignments", new HashMap<>());
-
-                when(odrlService.getAssignmentsForPolicyGroup(eq(policyId), eq(TEST_SUBJECT_ID)))
-                        .thenReturn(assignments);
-            }
+        private void setupMultiplePolicyAssignments(PolicyGroupDTO... policies) {
+            when(odrlService.getPolicyGroupActionsForProperty(eq(TEST_SUBJECT_ID), eq(TEST_DATA_SOURCE), eq(TEST_SCHEMA_PROPERTY)))
+                    .thenReturn(groupActions(policies));
         }
     }
 
@@ -1209,9 +1204,8 @@ class PolicyEvaluationServiceTest {
             when(odrlService.checkEntityAccess(eq(TEST_SUBJECT_ID), eq(TEST_CONTROLLER_ID),
                     eq(TEST_DATA_SOURCE), eq(entityUri), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupEntityPolicyAssignments(policy.getId(), entityUri);
+            setupPolicyGroups(policy);
+            setupEntityPolicyAssignments(policy, entityUri);
 
             // Execute
             AccessRequestDTO request = createEntityAccessRequest("read", TEST_PURPOSE);
@@ -1263,7 +1257,7 @@ class PolicyEvaluationServiceTest {
             // Assert
             assertEquals(DecisionResult.PERMIT, decision.getResult(),
                     "Entity access should be PERMITTED when no policy exists");
-            assertTrue(decision.getReason().contains("No policy assigned"),
+            assertTrue(decision.getExplanation().contains("No policy assigned"),
                     "Reason should indicate no policy assigned");
         }
 
@@ -1283,9 +1277,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkEntityAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupEntityPolicyAssignments(policy.getId(), entityUri);
+            setupPolicyGroups(policy);
+            setupEntityPolicyAssignments(policy, entityUri);
 
             // Execute with matching purpose
             AccessRequestDTO request = createEntityAccessRequest("read", TEST_PURPOSE);
@@ -1312,9 +1305,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkEntityAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupEntityPolicyAssignments(policy.getId(), entityUri);
+            setupPolicyGroups(policy);
+            setupEntityPolicyAssignments(policy, entityUri);
 
             // Execute
             AccessRequestDTO request = createEntityAccessRequest("read", TEST_PURPOSE);
@@ -1341,9 +1333,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkEntityAccess(anyLong(), anyLong(), anyString(), anyString(), eq("aiTraining")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupEntityPolicyAssignments(policy.getId(), entityUri);
+            setupPolicyGroups(policy);
+            setupEntityPolicyAssignments(policy, entityUri);
 
             // Execute
             AccessRequestDTO request = createEntityAccessRequest("aiTraining", null);
@@ -1369,9 +1360,8 @@ class PolicyEvaluationServiceTest {
             when(odrlService.checkEntityAccess(eq(TEST_SUBJECT_ID), eq(TEST_CONTROLLER_ID),
                     eq(TEST_DATA_SOURCE), eq(entityUri), eq(action)))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupEntityPolicyAssignments(policy.getId(), entityUri);
+            setupPolicyGroups(policy);
+            setupEntityPolicyAssignments(policy, entityUri);
 
             // Execute
             AccessRequestDTO request = createEntityAccessRequest(action, TEST_PURPOSE);
@@ -1392,15 +1382,9 @@ class PolicyEvaluationServiceTest {
             return permissions;
         }
 
-        private void setupEntityPolicyAssignments(String policyGroupId, String entityUri) {
-            Map<String, Object> assignments = new HashMap<>();
-            Map<String, Set<String>> entityAssignments = new HashMap<>();
-            entityAssignments.put(TEST_DATA_SOURCE, Collections.singleton(entityUri));
-            assignments.put("propertyAssignments", new HashMap<>());
-            assignments.put("entityAssignments", entityAssignments);
-
-            when(odrlService.getAssignmentsForPolicyGroup(eq(policyGroupId), eq(TEST_SUBJECT_ID)))
-                    .thenReturn(assignments);
+        private void setupEntityPolicyAssignments(PolicyGroupDTO policy, String entityUri) {
+            when(odrlService.getPolicyGroupActionsForEntity(eq(TEST_SUBJECT_ID), eq(TEST_DATA_SOURCE), eq(entityUri)))
+                    .thenReturn(groupActions(policy));
         }
     }
 
@@ -1424,7 +1408,7 @@ class PolicyEvaluationServiceTest {
             // Assert
             assertEquals(DecisionResult.DENY, decision.getResult(),
                     "Should be DENIED when subject doesn't exist");
-            assertTrue(decision.getReason().contains("Subject not found"),
+            assertTrue(decision.getExplanation().contains("Subject not found"),
                     "Reason should indicate subject not found");
         }
 
@@ -1442,7 +1426,7 @@ class PolicyEvaluationServiceTest {
             // Assert
             assertEquals(DecisionResult.DENY, decision.getResult(),
                     "Should be DENIED when controller doesn't exist");
-            assertTrue(decision.getReason().contains("Controller not found"),
+            assertTrue(decision.getExplanation().contains("Controller not found"),
                     "Reason should indicate controller not found");
         }
 
@@ -1462,7 +1446,7 @@ class PolicyEvaluationServiceTest {
             // Assert
             assertEquals(DecisionResult.DENY, decision.getResult(),
                     "Should be DENIED when database doesn't exist");
-            assertTrue(decision.getReason().contains("Database not found"),
+            assertTrue(decision.getExplanation().contains("Database not found"),
                     "Reason should indicate database not found");
         }
 
@@ -1477,7 +1461,7 @@ class PolicyEvaluationServiceTest {
             // Assert
             assertEquals(DecisionResult.DENY, decision.getResult(),
                     "Should be DENIED when subject tax ID is null");
-            assertTrue(decision.getReason().contains("Invalid request"),
+            assertTrue(decision.getExplanation().contains("Invalid request"),
                     "Reason should indicate invalid request");
         }
 
@@ -1491,7 +1475,7 @@ class PolicyEvaluationServiceTest {
             // Assert
             assertEquals(DecisionResult.DENY, decision.getResult(),
                     "Should be DENIED when action is null");
-            assertTrue(decision.getReason().contains("Invalid request"),
+            assertTrue(decision.getExplanation().contains("Invalid request"),
                     "Reason should indicate invalid request");
         }
 
@@ -1509,7 +1493,7 @@ class PolicyEvaluationServiceTest {
             // Assert
             assertEquals(DecisionResult.DENY, decision.getResult(),
                     "Should be DENIED when neither dataProperty nor recordId specified");
-            assertTrue(decision.getReason().contains("must specify either dataProperty"),
+            assertTrue(decision.getExplanation().contains("must specify either dataProperty"),
                     "Reason should indicate missing property");
         }
 
@@ -1524,7 +1508,7 @@ class PolicyEvaluationServiceTest {
             // Assert
             assertEquals(DecisionResult.DENY, decision.getResult(),
                     "Should be DENIED when both dataProperty and recordId specified");
-            assertTrue(decision.getReason().contains("cannot specify both"),
+            assertTrue(decision.getExplanation().contains("cannot specify both"),
                     "Reason should indicate cannot specify both");
         }
 
@@ -1546,7 +1530,7 @@ class PolicyEvaluationServiceTest {
             // Assert
             assertEquals(DecisionResult.PERMIT, decision.getResult(),
                     "Should be PERMITTED for unmapped data");
-            assertTrue(decision.getReason().contains("Unmapped"),
+            assertTrue(decision.getExplanation().contains("Unmapped"),
                     "Reason should indicate unmapped data");
         }
 
@@ -1564,9 +1548,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute with empty purpose
             AccessRequestDTO request = createPropertyAccessRequest("read", "");
@@ -1595,9 +1578,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("aiTraining")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute - aiTraining with no purpose (should be allowed)
             AccessRequestDTO request = createPropertyAccessRequest("aiTraining", null);
@@ -1622,9 +1604,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute with very long purpose that contains "Service"
             String longPurpose = "Service " + "x".repeat(10000);
@@ -1678,7 +1659,7 @@ class PolicyEvaluationServiceTest {
             // Assert
             assertEquals(DecisionResult.DENY, decision.getResult(),
                     "Should be DENIED when IO exception occurs");
-            assertTrue(decision.getReason().contains("Error resolving mappings"),
+            assertTrue(decision.getExplanation().contains("Error resolving mappings"),
                     "Reason should indicate mapping error");
         }
 
@@ -1692,8 +1673,9 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.emptyList());
+            when(odrlService.getPolicyGroupActionsForProperty(eq(TEST_SUBJECT_ID), eq(TEST_DATA_SOURCE), eq(TEST_SCHEMA_PROPERTY)))
+                    .thenReturn(Map.of(TEST_POLICY_GROUP_ID, Set.of("read")));
+            setupPolicyGroups();
 
             // Execute
             AccessRequestDTO request = createPropertyAccessRequest("read", TEST_PURPOSE);
@@ -1714,15 +1696,9 @@ class PolicyEvaluationServiceTest {
             return permissions;
         }
 
-        private void setupPolicyAssignments(String policyGroupId) {
-            Map<String, Object> assignments = new HashMap<>();
-            Map<String, Set<String>> propertyAssignments = new HashMap<>();
-            propertyAssignments.put(TEST_DATA_SOURCE, Collections.singleton(TEST_SCHEMA_PROPERTY));
-            assignments.put("propertyAssignments", propertyAssignments);
-            assignments.put("entityAssignments", new HashMap<>());
-
-            when(odrlService.getAssignmentsForPolicyGroup(eq(policyGroupId), eq(TEST_SUBJECT_ID)))
-                    .thenReturn(assignments);
+        private void setupPolicyAssignments(PolicyGroupDTO policy) {
+            when(odrlService.getPolicyGroupActionsForProperty(eq(TEST_SUBJECT_ID), eq(TEST_DATA_SOURCE), eq(TEST_SCHEMA_PROPERTY)))
+                    .thenReturn(groupActions(policy));
         }
     }
 
@@ -1753,9 +1729,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute
             AccessRequestDTO request = createPropertyAccessRequest("read", TEST_PURPOSE);
@@ -1782,9 +1757,8 @@ class PolicyEvaluationServiceTest {
                     .thenReturn(true);
             when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
                     .thenReturn(true);
-            when(policyGroupService.getPolicyGroupsBySubject(TEST_SUBJECT_ID))
-                    .thenReturn(Collections.singletonList(policy));
-            setupPolicyAssignments(policy.getId());
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
 
             // Execute with label that maps to the URI
             AccessRequestDTO request = createPropertyAccessRequest("read", "Service Provision");
@@ -1795,6 +1769,59 @@ class PolicyEvaluationServiceTest {
                     "DPV URI and label should match via normalization");
         }
 
+        @ParameterizedTest
+        @ValueSource(strings = {"Academic Research", "Commercial Research", "https://w3id.org/dpv#AcademicResearch"})
+        @DisplayName("Test: DPV subclass purpose should satisfy its parent purpose")
+        void testDpvSubclassPurposeMatching(String requestPurpose) throws IOException {
+            // Setup
+            setupPropertyAccessMocks();
+
+            Map<String, Object> constraints = new HashMap<>();
+            constraints.put("purpose", "Research and Development");
+            PolicyGroupDTO policy = createPolicyGroup(createAllPermissions(), constraints, new HashMap<>());
+
+            when(odrlService.policyExistsForProperty(eq(TEST_SUBJECT_ID), eq(TEST_DATA_SOURCE), eq(TEST_SCHEMA_PROPERTY)))
+                    .thenReturn(true);
+            when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
+                    .thenReturn(true);
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
+
+            // Execute
+            PolicyDecisionDTO decision = policyEvaluationService.evaluateAccess(
+                    createPropertyAccessRequest("read", requestPurpose));
+
+            // Assert
+            assertEquals(DecisionResult.PERMIT, decision.getResult(),
+                    requestPurpose + " is a kind of Research and Development");
+        }
+
+        @Test
+        @DisplayName("Test: DPV parent purpose should not satisfy a subclass purpose")
+        void testDpvParentPurposeDoesNotMatchSubclass() throws IOException {
+            // Setup
+            setupPropertyAccessMocks();
+
+            Map<String, Object> constraints = new HashMap<>();
+            constraints.put("purpose", "https://w3id.org/dpv#PersonalisedAdvertising");
+            PolicyGroupDTO policy = createPolicyGroup(createAllPermissions(), constraints, new HashMap<>());
+
+            when(odrlService.policyExistsForProperty(eq(TEST_SUBJECT_ID), eq(TEST_DATA_SOURCE), eq(TEST_SCHEMA_PROPERTY)))
+                    .thenReturn(true);
+            when(odrlService.checkPropertyAccess(anyLong(), anyLong(), anyString(), anyString(), eq("read")))
+                    .thenReturn(true);
+            setupPolicyGroups(policy);
+            setupPolicyAssignments(policy);
+
+            // Execute - Marketing is broader than Personalized Advertising
+            PolicyDecisionDTO decision = policyEvaluationService.evaluateAccess(
+                    createPropertyAccessRequest("read", "Marketing"));
+
+            // Assert
+            assertEquals(DecisionResult.DENY, decision.getResult(),
+                    "A broader purpose must not satisfy a narrower required purpose");
+        }
+
         private Map<String, Boolean> createAllPermissions() {
             Map<String, Boolean> permissions = new HashMap<>();
             permissions.put("read", true);
@@ -1805,15 +1832,154 @@ class PolicyEvaluationServiceTest {
             return permissions;
         }
 
-        private void setupPolicyAssignments(String policyGroupId) {
-            Map<String, Object> assignments = new HashMap<>();
-            Map<String, Set<String>> propertyAssignments = new HashMap<>();
-            propertyAssignments.put(TEST_DATA_SOURCE, Collections.singleton(TEST_SCHEMA_PROPERTY));
-            assignments.put("propertyAssignments", propertyAssignments);
-            assignments.put("entityAssignments", new HashMap<>());
+        private void setupPolicyAssignments(PolicyGroupDTO policy) {
+            when(odrlService.getPolicyGroupActionsForProperty(eq(TEST_SUBJECT_ID), eq(TEST_DATA_SOURCE), eq(TEST_SCHEMA_PROPERTY)))
+                    .thenReturn(groupActions(policy));
+        }
+    }
+
+    // ==================== CATEGORY 8: BATCH EVALUATION TESTS ====================
+
+    @Nested
+    @DisplayName("Category 8: Batch Evaluation Tests")
+    class BatchEvaluationTests {
+
+        private static final String TEST_ENTITY_URI = "http://example.org/resource#User/1";
+
+        @Test
+        @DisplayName("Test: Batch returns decisions in input order and resolves each table once")
+        void testBatchPreservesOrderAndResolvesTableOnce() throws IOException {
+            // Setup
+            when(userRepo.findByTaxid(TEST_TAX_ID)).thenReturn(testSubject);
+            when(userRepo.findById(TEST_CONTROLLER_ID)).thenReturn(Optional.of(testController));
+            when(databaseConfigService.getDatabasesForController(TEST_CONTROLLER_ID))
+                    .thenReturn(Collections.singletonList(testDatabase));
+            when(databaseConfigService.resolveTableMapping(TEST_CONTROLLER_ID, TEST_DATABASE_UUID, TEST_TABLE_NAME))
+                    .thenReturn(new DatabaseConfigService.TableMapping("User",
+                            Map.of(TEST_DATA_PROPERTY, TEST_SCHEMA_PROPERTY)));
+            when(odrlService.policyExistsForProperty(TEST_SUBJECT_ID, TEST_DATA_SOURCE, TEST_SCHEMA_PROPERTY))
+                    .thenReturn(true);
+            when(odrlService.checkPropertyAccess(TEST_SUBJECT_ID, TEST_CONTROLLER_ID,
+                    TEST_DATA_SOURCE, TEST_SCHEMA_PROPERTY, "share"))
+                    .thenReturn(false);
+            when(odrlService.policyExistsForEntity(TEST_SUBJECT_ID, TEST_DATA_SOURCE, TEST_ENTITY_URI))
+                    .thenReturn(false);
+
+            AccessRequestDTO denied = createPropertyAccessRequest("share", TEST_PURPOSE);
+            AccessRequestDTO unmapped = createPropertyAccessRequest("read", TEST_PURPOSE);
+            unmapped.setDataProperty("notes");
+            AccessRequestDTO invalid = createPropertyAccessRequest(null, TEST_PURPOSE);
+            AccessRequestDTO entity = createEntityAccessRequest("read", TEST_PURPOSE);
+
+            // Execute
+            List<PolicyDecisionDTO> decisions = policyEvaluationService.evaluateBatch(
+                    Arrays.asList(denied, unmapped, invalid, entity));
+
+            // Assert
+            assertEquals(4, decisions.size());
+            assertEquals(DecisionResult.DENY, decisions.get(0).getResult());
+            assertTrue(decisions.get(0).getExplanation().contains("No policy permits"));
+            assertEquals(DecisionResult.PERMIT, decisions.get(1).getResult());
+            assertTrue(decisions.get(1).getExplanation().contains("Unmapped"));
+            assertEquals(DecisionResult.DENY, decisions.get(2).getResult());
+            assertTrue(decisions.get(2).getExplanation().contains("Invalid request"));
+            assertEquals(DecisionResult.PERMIT, decisions.get(3).getResult());
+            assertTrue(decisions.get(3).getExplanation().contains("No policy assigned"));
+
+            verify(userRepo, times(1)).findByTaxid(TEST_TAX_ID);
+            verify(userRepo, times(1)).findById(TEST_CONTROLLER_ID);
+            verify(databaseConfigService, times(1)).getDatabasesForController(TEST_CONTROLLER_ID);
+            verify(databaseConfigService, times(1))
+                    .resolveTableMapping(TEST_CONTROLLER_ID, TEST_DATABASE_UUID, TEST_TABLE_NAME);
+        }
+
+        @Test
+        @DisplayName("Test: Unknown database denies every request of that table")
+        void testBatchUnknownDatabase() throws IOException {
+            // Setup
+            when(userRepo.findByTaxid(TEST_TAX_ID)).thenReturn(testSubject);
+            when(userRepo.findById(TEST_CONTROLLER_ID)).thenReturn(Optional.of(testController));
+            when(databaseConfigService.getDatabasesForController(TEST_CONTROLLER_ID))
+                    .thenReturn(Collections.emptyList());
+
+            // Execute
+            List<PolicyDecisionDTO> decisions = policyEvaluationService.evaluateBatch(Arrays.asList(
+                    createPropertyAccessRequest("read", TEST_PURPOSE),
+                    createPropertyAccessRequest("use", TEST_PURPOSE)));
+
+            // Assert
+            assertEquals(2, decisions.size());
+            for (PolicyDecisionDTO decision : decisions) {
+                assertEquals(DecisionResult.DENY, decision.getResult());
+                assertTrue(decision.getExplanation().contains("Database not found"));
+            }
+            verify(databaseConfigService, never()).resolveTableMapping(any(), any(), any());
+        }
+    }
+
+    // ==================== CATEGORY 9: COLUMN MASK TESTS ====================
+
+    @Nested
+    @DisplayName("Category 9: Column Mask Tests")
+    class ColumnMaskTests {
+
+        private static final String TEST_NAME_PROPERTY = "http://schema.org/name";
+
+        @Test
+        @DisplayName("Test: Column mask splits mapped columns and merges obligations")
+        void testColumnMaskSplitsColumns() throws IOException {
+            // Setup
+            when(userRepo.findByTaxid(TEST_TAX_ID)).thenReturn(testSubject);
+            when(userRepo.findById(TEST_CONTROLLER_ID)).thenReturn(Optional.of(testController));
+            when(databaseConfigService.getDatabasesForController(TEST_CONTROLLER_ID))
+                    .thenReturn(Collections.singletonList(testDatabase));
+            when(databaseConfigService.resolveTableMapping(TEST_CONTROLLER_ID, TEST_DATABASE_UUID, TEST_TABLE_NAME))
+                    .thenReturn(new DatabaseConfigService.TableMapping("User",
+                            Map.of(TEST_DATA_PROPERTY, TEST_SCHEMA_PROPERTY, "name", TEST_NAME_PROPERTY)));
+
+            PolicyGroupDTO policy = createDefaultPolicyGroup();
+            policy.setConstraints(new HashMap<>(Map.of("requiresNotification", true)));
 
-            when(odrlService.getAssignmentsForPolicyGroup(eq(policyGroupId), eq(TEST_SUBJECT_ID)))
-                    .thenReturn(assignments);
+            when(odrlService.policyExistsForProperty(TEST_SUBJECT_ID, TEST_DATA_SOURCE, TEST_SCHEMA_PROPERTY))
+                    .thenReturn(true);
+            when(odrlService.checkPropertyAccess(TEST_SUBJECT_ID, TEST_CONTROLLER_ID,
+                    TEST_DATA_SOURCE, TEST_SCHEMA_PROPERTY, "read"))
+                    .thenReturn(true);
+            when(odrlService.getPolicyGroupActionsForProperty(TEST_SUBJECT_ID, TEST_DATA_SOURCE, TEST_SCHEMA_PROPERTY))
+                    .thenReturn(groupActions(policy));
+            setupPolicyGroups(policy);
+
+            when(odrlService.policyExistsForProperty(TEST_SUBJECT_ID, TEST_DATA_SOURCE, TEST_NAME_PROPERTY))
+                    .thenReturn(true);
+            when(odrlService.checkPropertyAccess(TEST_SUBJECT_ID, TEST_CONTROLLER_ID,
+                    TEST_DATA_SOURCE, TEST_NAME_PROPERTY, "read"))
+                    .thenReturn(false);
+
+            // Execute
+            ColumnMaskDTO mask = policyEvaluationService.evaluateColumnMask(createPropertyAccessRequest("read", TEST_PURPOSE));
+
+            // Assert
+            assertNull(mask.getReason());
+            assertEquals(Collections.singletonList(TEST_DATA_PROPERTY), mask.getPermittedColumns());
+            assertTrue(mask.getDeniedColumns().containsKey("name"));
+            assertEquals(1, mask.getObligations().size());
+            assertEquals("notify", mask.getObligations().get(0).getType());
+            verify(databaseConfigService, times(1))
+                    .resolveTableMapping(TEST_CONTROLLER_ID, TEST_DATABASE_UUID, TEST_TABLE_NAME);
+        }
+
+        @Test
+        @DisplayName("Test: Column mask for unknown subject permits no columns")
+        void testColumnMaskUnknownSubject() {
+            // Setup
+            when(userRepo.findByTaxid(TEST_TAX_ID)).thenReturn(null);
+
+            // Execute
+            ColumnMaskDTO mask = policyEvaluationService.evaluateColumnMask(createPropertyAccessRequest("read", TEST_PURPOSE));
+
+            // Assert
+            assertTrue(mask.getPermittedColumns().isEmpty());
+            assertTrue(mask.getReason().contains("Subject not found"));
         }
     }
 }
@@ -0,0 +1,131 @@
+package com.ontosov.services;
+
+import com.ontosov.dto.PolicyAssignmentDTO;
+import com.ontosov.dto.PolicyAssignmentResultDTO;
+import com.ontosov.dto.PolicyGroupDTO;
+import org.apache.jena.query.ReadWrite;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PolicyGroupService Assignment Tests")
+class PolicyGroupServiceTest {
+
+    private static final String DATA_SOURCE = "TestController - testdb";
+    private static final Long SUBJECT_ID = 1L;
+    private static final Long CONTROLLER_ID = 7L;
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private BlockchainService blockchainService;
+
+    private PolicyStore policyStore;
+    private ODRLService odrlService;
+    private PolicyGroupService policyGroupService;
+
+    @BeforeEach
+    void setUp() {
+        policyStore = new PolicyStore(tempDir.toString(), 1);
+        odrlService = new ODRLService(policyStore);
+        policyGroupService = new PolicyGroupService(policyStore, "standalone", false);
+        ReflectionTestUtils.setField(policyGroupService, "odrlService", odrlService);
+        ReflectionTestUtils.setField(policyGroupService, "blockchainService", blockchainService);
+        ReflectionTestUtils.setField(policyGroupService, "changeLog", new PolicyChangeLog(1000));
+    }
+
+    private PolicyGroupDTO createGroup(Map<String, Boolean> permissions) {
+        PolicyGroupDTO group = new PolicyGroupDTO();
+        group.setName("Research only");
+        group.setDescription("Test group");
+        group.setPermissions(permissions);
+        group.setConstraints(new HashMap<>());
+        group.setConsequences(new HashMap<>());
+        group.setAiRestrictions(new HashMap<>());
+        group.setTransformations(new ArrayList<>());
+        group.setId(policyGroupService.createPolicyGroup(group, SUBJECT_ID));
+        return group;
+    }
+
+    private PolicyAssignmentDTO createAssignment(String... properties) {
+        PolicyAssignmentDTO assignment = new PolicyAssignmentDTO();
+        assignment.setPropertyAssignments(Map.of(DATA_SOURCE, Set.of(properties)));
+        return assignment;
+    }
+
+    private PolicyAssignmentResultDTO assign(PolicyGroupDTO group, String... properties) {
+        return policyGroupService.assignDataToPolicy(group.getId(), createAssignment(properties), group, SUBJECT_ID);
+    }
+
+    private long storeSize() {
+        PolicyStore.Shard shard = policyStore.shardFor(SUBJECT_ID);
+        shard.getDataset().begin(ReadWrite.READ);
+        try {
+            return shard.getPolicyGroupModel().size() + shard.getOdrlModel().size();
+        } finally {
+            shard.getDataset().end();
+        }
+    }
+
+    @Test
+    @DisplayName("Re-saving an unchanged assignment writes nothing")
+    void testUnchangedAssignmentWritesNothing() {
+        PolicyGroupDTO group = createGroup(Map.of("read", true, "use", true));
+        assertEquals(new PolicyAssignmentResultDTO(2, 0, 0), assign(group, "email", "name"));
+        long version = policyGroupService.getPolicyVersion();
+        long size = storeSize();
+
+        assertEquals(new PolicyAssignmentResultDTO(0, 0, 2), assign(group, "email", "name"));
+
+        assertEquals(version, policyGroupService.getPolicyVersion());
+        assertEquals(size, storeSize());
+        assertTrue(odrlService.checkPropertyAccess(SUBJECT_ID, CONTROLLER_ID, DATA_SOURCE, "email", "read"));
+    }
+
+    @Test
+    @DisplayName("Removing data unlinks only this group's rule from the shared target")
+    void testRemovalUnlinksOnlyThisGroup() {
+        PolicyGroupDTO research = createGroup(Map.of("read", true));
+        PolicyGroupDTO sharing = createGroup(Map.of("share", true));
+        assign(research, "email", "name");
+        assign(sharing, "email");
+
+        assertEquals(new PolicyAssignmentResultDTO(0, 1, 1), assign(research, "name"));
+
+        assertEquals(Map.of(sharing.getId(), Set.of("share")),
+                odrlService.getPolicyGroupActionsForProperty(SUBJECT_ID, DATA_SOURCE, "email"));
+        assertEquals(Map.of(research.getId(), Set.of("read")),
+                odrlService.getPolicyGroupActionsForProperty(SUBJECT_ID, DATA_SOURCE, "name"));
+        assertFalse(odrlService.checkPropertyAccess(SUBJECT_ID, CONTROLLER_ID, DATA_SOURCE, "email", "read"));
+        assertTrue(odrlService.checkPropertyAccess(SUBJECT_ID, CONTROLLER_ID, DATA_SOURCE, "email", "share"));
+    }
+
+    @Test
+    @DisplayName("A changed group definition regenerates the policy for the same assignment")
+    void testDefinitionChangeRegeneratesPolicy() {
+        PolicyGroupDTO group = createGroup(Map.of("read", true, "modify", false));
+        assign(group, "email");
+        long version = policyGroupService.getPolicyVersion();
+
+        group.setPermissions(Map.of("read", false, "modify", true));
+        assertEquals(new PolicyAssignmentResultDTO(0, 0, 1), assign(group, "email"));
+
+        assertTrue(policyGroupService.getPolicyVersion() > version);
+        assertEquals(Map.of(group.getId(), Set.of("modify")),
+                odrlService.getPolicyGroupActionsForProperty(SUBJECT_ID, DATA_SOURCE, "email"));
+        assertTrue(odrlService.checkPropertyAccess(SUBJECT_ID, CONTROLLER_ID, DATA_SOURCE, "email", "modify"));
+        assertFalse(odrlService.checkPropertyAccess(SUBJECT_ID, CONTROLLER_ID, DATA_SOURCE, "email", "read"));
+    }
+}
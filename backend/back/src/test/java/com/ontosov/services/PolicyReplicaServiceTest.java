@@ -0,0 +1,124 @@
+package com.ontosov.services;
+
+import com.ontosov.dto.DatabaseConfigDTO;
+import com.ontosov.dto.PolicyChangeFeedDTO;
+import com.ontosov.dto.PolicySnapshotDTO;
+import com.ontosov.dto.SchemaMappingDTO;
+import com.ontosov.models.User;
+import com.ontosov.models.UserRole;
+import com.ontosov.repositories.UserRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PolicyReplicaService Tests")
+class PolicyReplicaServiceTest {
+
+    private static final Long CONTROLLER_ID = 7L;
+    private static final String DB_ID = "db-uuid";
+    private static final String LOG_ID = "log-1";
+
+    @Mock
+    private ODRLService odrlService;
+
+    @Mock
+    private PolicyChangeLog changeLog;
+
+    @Mock
+    private PolicyGroupService policyGroupService;
+
+    @Mock
+    private DatabaseConfigService databaseConfigService;
+
+    @Mock
+    private IdentityResolutionCache resolutionCache;
+
+    @Mock
+    private UserRepo userRepo;
+
+    @Mock
+    private AuditPipeline auditPipeline;
+
+    @InjectMocks
+    private PolicyReplicaService policyReplicaService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        DatabaseConfigDTO database = new DatabaseConfigDTO();
+        database.setId(DB_ID);
+        database.setDatabaseName("ecommerce_db");
+        lenient().when(resolutionCache.getControllerName(CONTROLLER_ID)).thenReturn("Shop");
+        lenient().when(databaseConfigService.getDatabasesForController(CONTROLLER_ID)).thenReturn(List.of(database));
+        lenient().when(databaseConfigService.getMappings(CONTROLLER_ID, "ecommerce_db"))
+                .thenReturn(List.of(new SchemaMappingDTO("users", "email", "Person", "email")));
+        lenient().when(changeLog.getLogId()).thenReturn(LOG_ID);
+    }
+
+    private void mapUsers(Map<String, String> columnProperties) throws IOException {
+        when(databaseConfigService.resolveTableMapping(CONTROLLER_ID, DB_ID, "users"))
+                .thenReturn(new DatabaseConfigService.TableMapping("Person", "user_id", columnProperties));
+    }
+
+    private User subjectUser(Long id, String taxId) {
+        User user = new User();
+        user.setId(id);
+        user.setRole(UserRole.SUBJECT);
+        user.setTaxid(taxId);
+        return user;
+    }
+
+    @Test
+    @DisplayName("A snapshot only names the subjects with policies on the controller's data sources")
+    void testSnapshotOnlyNamesGovernedSubjects() throws IOException {
+        mapUsers(Map.of("email", "email"));
+        when(policyGroupService.getPolicyVersion()).thenReturn(3L);
+        when(userRepo.findByRole(UserRole.SUBJECT))
+                .thenReturn(List.of(subjectUser(1L, "TAX1"), subjectUser(2L, "TAX2"), subjectUser(3L, "TAX3")));
+        when(odrlService.getGovernedSubjectIds()).thenReturn(Set.of(1L, 2L));
+
+        PolicySnapshotDTO.Target target = new PolicySnapshotDTO.Target("Shop - ecommerce_db", "email", null,
+                Set.of("read"), Set.of(), Map.of("pg-1", Set.of("read")));
+        Set<String> dataSources = Set.of("Shop - ecommerce_db");
+        when(odrlService.getControllerTargets(1L, CONTROLLER_ID, dataSources)).thenReturn(List.of(target));
+        when(odrlService.getControllerTargets(2L, CONTROLLER_ID, dataSources)).thenReturn(List.of());
+        when(policyGroupService.getCompiledPolicyGroups(eq(1L), any())).thenReturn(List.of());
+
+        PolicySnapshotDTO snapshot = policyReplicaService.getSnapshot(CONTROLLER_ID);
+
+        assertTrue(snapshot.isFull());
+        assertEquals(Map.of("TAX1", 1L), snapshot.getSubjectIds());
+        assertEquals(1, snapshot.getSubjects().size());
+        assertEquals("TAX1", snapshot.getSubjects().get(0).getTaxId());
+    }
+
+    @Test
+    @DisplayName("A delta carries the controller's current table mappings, even without policy changes")
+    void testDeltaCarriesMappings() throws IOException {
+        when(changeLog.read(LOG_ID, 5L, null, Integer.MAX_VALUE))
+                .thenReturn(new PolicyChangeFeedDTO(LOG_ID, new ArrayList<>(), 5L, 5L, false));
+        mapUsers(Map.of("mail", "email"));
+
+        PolicySnapshotDTO delta = policyReplicaService.getDelta(CONTROLLER_ID, LOG_ID, 5L);
+
+        assertFalse(delta.isFull());
+        assertEquals(5L, delta.getVersion());
+        assertEquals(1, delta.getDataSources().size());
+        PolicySnapshotDTO.DataSource dataSource = delta.getDataSources().get(0);
+        assertEquals("Shop - ecommerce_db", dataSource.getIdentifier());
+        assertEquals(Map.of("mail", "email"), dataSource.getTables().get("users").getColumnProperties());
+        assertTrue(delta.getSubjects().isEmpty());
+        verifyNoInteractions(odrlService);
+    }
+}
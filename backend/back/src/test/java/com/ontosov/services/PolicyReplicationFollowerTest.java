@@ -0,0 +1,187 @@
+package com.ontosov.services;
+
+import com.ontosov.controllers.PolicyGroupController;
+import com.ontosov.dto.PolicyAssignmentDTO;
+import com.ontosov.dto.PolicyChangeFeedDTO;
+import com.ontosov.dto.PolicyChangeType;
+import com.ontosov.dto.PolicyGroupDTO;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Follower side of replication against a leader PolicyGroupService served over HTTP
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PolicyReplicationFollower Tests")
+class PolicyReplicationFollowerTest {
+
+    private static final String DATA_SOURCE = "TestController - testdb";
+    private static final Long SUBJECT_ID = 1L;
+    private static final Long CONTROLLER_ID = 7L;
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private BlockchainService blockchainService;
+
+    private PolicyChangeLog leaderLog;
+    private PolicyGroupService leader;
+    private ODRLService followerOdrl;
+    private PolicyGroupService followerService;
+    private PolicyReplicationFollower follower;
+
+    private HttpServer server;
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    private volatile long snapshotSequence;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        leaderLog = new PolicyChangeLog(1000);
+        leader = createService(tempDir.resolve("leader"), "leader", leaderLog);
+        followerService = createService(tempDir.resolve("follower"), "follower", new PolicyChangeLog(1000));
+        followerOdrl = (ODRLService) ReflectionTestUtils.getField(followerService, "odrlService");
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/replication/snapshot", exchange -> {
+            exchange.getResponseHeaders().add("X-Policy-Log-Id", leaderLog.getLogId());
+            exchange.getResponseHeaders().add("X-Policy-Sequence", String.valueOf(snapshotSequence));
+            respond(exchange, leader::writeReplicationSnapshot);
+        });
+        server.createContext("/api/replication/groups/", exchange -> {
+            String groupId = exchange.getRequestURI().getPath().substring("/api/replication/groups/".length());
+            Long subjectId = Long.valueOf(exchange.getRequestURI().getQuery().substring("subjectId=".length()));
+            respond(exchange, out -> leader.writeReplicationBundle(groupId, subjectId, out));
+        });
+        server.start();
+
+        follower = new PolicyReplicationFollower(followerService, "follower",
+                "http://localhost:" + server.getAddress().getPort() + "/", 1, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private PolicyGroupService createService(Path path, String role, PolicyChangeLog changeLog) {
+        PolicyStore policyStore = new PolicyStore(path.toString(), 1);
+        PolicyGroupService service = new PolicyGroupService(policyStore, role, false);
+        ReflectionTestUtils.setField(service, "odrlService", new ODRLService(policyStore));
+        ReflectionTestUtils.setField(service, "blockchainService", blockchainService);
+        ReflectionTestUtils.setField(service, "changeLog", changeLog);
+        return service;
+    }
+
+    private interface Body {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private void respond(HttpExchange exchange, Body body) throws IOException {
+        requests.add(exchange.getRequestURI().getPath());
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            body.write(out);
+        }
+    }
+
+    private PolicyGroupDTO createGroup(Map<String, Boolean> permissions, String... properties) {
+        PolicyGroupDTO group = new PolicyGroupDTO();
+        group.setName("Group");
+        group.setDescription("Test group");
+        group.setPermissions(permissions);
+        group.setConstraints(new HashMap<>());
+        group.setConsequences(new HashMap<>());
+        group.setAiRestrictions(new HashMap<>());
+        group.setTransformations(new ArrayList<>());
+        group.setId(leader.createPolicyGroup(group, SUBJECT_ID));
+
+        PolicyAssignmentDTO assignment = new PolicyAssignmentDTO();
+        assignment.setPropertyAssignments(Map.of(DATA_SOURCE, Set.of(properties)));
+        leader.assignDataToPolicy(group.getId(), assignment, group, SUBJECT_ID);
+        return group;
+    }
+
+    private Set<String> followerGroupIds() {
+        Set<String> groupIds = new HashSet<>();
+        followerService.getPolicyGroupsBySubject(SUBJECT_ID).forEach(group -> groupIds.add(group.getId()));
+        return groupIds;
+    }
+
+    private boolean followerPermits(String property, String action) {
+        return followerOdrl.checkPropertyAccess(SUBJECT_ID, CONTROLLER_ID, DATA_SOURCE, property, action);
+    }
+
+    @Test
+    @DisplayName("The follower applies the snapshot, then one bundle per changed group, skipping expiry")
+    void testSnapshotThenBundles() throws Exception {
+        PolicyGroupDTO research = createGroup(Map.of("read", true), "email");
+        snapshotSequence = leaderLog.getLastSequence();
+
+        follower.loadSnapshot();
+
+        assertEquals(Set.of(research.getId()), followerGroupIds());
+        assertTrue(followerPermits("email", "read"));
+        long epoch = followerService.getPolicyEpoch(SUBJECT_ID);
+
+        // Two changes of the new group, a deletion and an expiry every node sweeps itself
+        PolicyGroupDTO sharing = createGroup(Map.of("share", true), "name");
+        leader.deletePolicyGroup(research.getId(), SUBJECT_ID);
+        leaderLog.append(SUBJECT_ID, sharing.getId(), PolicyChangeType.EXPIRED);
+        PolicyChangeFeedDTO feed = leaderLog.read(leaderLog.getLogId(), snapshotSequence, null, 1000);
+        assertEquals(PolicyChangeType.EXPIRED, feed.getChanges().get(feed.getChanges().size() - 1).getType());
+        requests.clear();
+
+        follower.applyChanges(feed);
+
+        assertEquals(List.of("/api/replication/groups/" + sharing.getId(),
+                "/api/replication/groups/" + research.getId()), requests);
+        assertEquals(Set.of(sharing.getId()), followerGroupIds());
+        assertFalse(followerPermits("email", "read"));
+        assertTrue(followerPermits("name", "share"));
+        assertTrue(followerService.getPolicyEpoch(SUBJECT_ID) > epoch);
+
+        // Replaying the same page leaves the replica as it is
+        follower.applyChanges(feed);
+        assertEquals(Set.of(sharing.getId()), followerGroupIds());
+        assertTrue(followerPermits("name", "share"));
+    }
+
+    @Test
+    @DisplayName("Policy writes on a follower are refused with 409")
+    void testFollowerRefusesWrites() {
+        PolicyGroupDTO group = new PolicyGroupDTO();
+        group.setName("Group");
+        group.setPermissions(Map.of("read", true));
+
+        assertThrows(IllegalStateException.class, () -> followerService.createPolicyGroup(group, SUBJECT_ID));
+        assertThrows(IllegalStateException.class, () -> followerService.deletePolicyGroup("pg-1", SUBJECT_ID));
+
+        PolicyGroupController controller = new PolicyGroupController();
+        ReflectionTestUtils.setField(controller, "policyGroupService", followerService);
+        ResponseEntity<String> created = controller.createPolicyGroup(group, SUBJECT_ID);
+        assertEquals(HttpStatus.CONFLICT, created.getStatusCode());
+        ResponseEntity<Void> deleted = controller.deletePolicyGroup("pg-1", SUBJECT_ID);
+        assertEquals(HttpStatus.CONFLICT, deleted.getStatusCode());
+        assertTrue(followerGroupIds().isEmpty());
+    }
+}
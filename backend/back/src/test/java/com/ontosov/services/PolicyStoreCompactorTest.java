@@ -0,0 +1,174 @@
+package com.ontosov.services;
+
+import com.ontosov.dto.PolicyAssignmentDTO;
+import com.ontosov.dto.PolicyGroupDTO;
+import com.ontosov.dto.StoreCompactionDTO;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PolicyStoreCompactor Tests")
+class PolicyStoreCompactorTest {
+
+    private static final String ONTO = PolicyStore.ONTOSOV_NS;
+    private static final String DATA_SOURCE = "TestController - testdb";
+    private static final Long SUBJECT_ID = 1L;
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private PolicyGroupService policyGroupService;
+
+    private PolicyStore policyStore;
+    private ODRLService odrlService;
+
+    @BeforeEach
+    void setUp() {
+        policyStore = new PolicyStore(tempDir.toString(), 1);
+        odrlService = new ODRLService(policyStore);
+    }
+
+    private PolicyGroupDTO createGroup(String groupId) {
+        PolicyGroupDTO group = new PolicyGroupDTO();
+        group.setId(groupId);
+        group.setPermissions(Map.of("read", true));
+        group.setConstraints(new HashMap<>());
+        group.setConsequences(new HashMap<>());
+        group.setAiRestrictions(new HashMap<>());
+        group.setTransformations(new ArrayList<>());
+        return group;
+    }
+
+    /**
+     * Stores group pg-live with a policy over "email", the policy of the deleted group pg-gone
+     * over "phone", a detached assignment node and a target nothing points to
+     */
+    private long populate() {
+        Dataset dataset = policyStore.shardFor(SUBJECT_ID).getDataset();
+        dataset.begin(ReadWrite.WRITE);
+        try {
+            PolicyStore.Shard shard = policyStore.shardFor(SUBJECT_ID);
+            Model groupModel = shard.getPolicyGroupModel();
+            groupModel.createResource(ONTO + "pg-live")
+                    .addProperty(RDF.type, groupModel.createResource(ONTO + "PolicyGroup"))
+                    .addProperty(groupModel.createProperty(ONTO, "owner"), groupModel.createResource(ONTO + "subject-1"));
+            groupModel.createResource()
+                    .addProperty(groupModel.createProperty(ONTO, "dataSource"), DATA_SOURCE)
+                    .addProperty(groupModel.createProperty(ONTO, "dataProperty"), "name");
+
+            PolicyAssignmentDTO live = new PolicyAssignmentDTO();
+            live.setPropertyAssignments(Map.of(DATA_SOURCE, Set.of("email")));
+            odrlService.generatePoliciesFromAssignment("pg-live", createGroup("pg-live"), live, SUBJECT_ID);
+            PolicyAssignmentDTO gone = new PolicyAssignmentDTO();
+            gone.setPropertyAssignments(Map.of(DATA_SOURCE, Set.of("phone")));
+            odrlService.generatePoliciesFromAssignment("pg-gone", createGroup("pg-gone"), gone, SUBJECT_ID);
+
+            Model odrlModel = shard.getOdrlModel();
+            odrlModel.createResource(ONTO + "data-1-orphan-address")
+                    .addProperty(odrlModel.createProperty(ONTO, "dataSource"), DATA_SOURCE)
+                    .addProperty(odrlModel.createProperty(ONTO, "dataProperty"), "address");
+            dataset.commit();
+        } finally {
+            dataset.end();
+        }
+        odrlService.refreshDecisionIndex(SUBJECT_ID);
+        return size();
+    }
+
+    private long size() {
+        PolicyStore.Shard shard = policyStore.shardFor(SUBJECT_ID);
+        shard.getDataset().begin(ReadWrite.READ);
+        try {
+            return shard.getPolicyGroupModel().size() + shard.getOdrlModel().size();
+        } finally {
+            shard.getDataset().end();
+        }
+    }
+
+    private List<Resource> listPolicies() {
+        PolicyStore.Shard shard = policyStore.shardFor(SUBJECT_ID);
+        shard.getDataset().begin(ReadWrite.READ);
+        try {
+            Model odrlModel = shard.getOdrlModel();
+            return odrlModel.listSubjectsWithProperty(RDF.type,
+                    odrlModel.createResource(PolicyStore.ODRL_NS + "Policy")).toList();
+        } finally {
+            shard.getDataset().end();
+        }
+    }
+
+    @Test
+    @DisplayName("The sweep removes unreachable nodes and policies of deleted groups only")
+    void testSweep() {
+        long before = populate();
+
+        Map<String, Long> orphanedGroups = new HashMap<>();
+        PolicyStoreCompactor.SweepResult result =
+                PolicyStoreCompactor.sweep(policyStore.shardFor(SUBJECT_ID), orphanedGroups);
+
+        assertEquals(2, result.policyGroupTriples());
+        assertTrue(result.odrlTriples() > 2);
+        assertEquals(before - result.policyGroupTriples() - result.odrlTriples(), size());
+        assertEquals(Map.of("pg-gone", SUBJECT_ID), orphanedGroups);
+        assertEquals(1, listPolicies().size());
+
+        odrlService.refreshDecisionIndex(SUBJECT_ID);
+        assertTrue(odrlService.policyExistsForProperty(SUBJECT_ID, DATA_SOURCE, "email"));
+        assertFalse(odrlService.policyExistsForProperty(SUBJECT_ID, DATA_SOURCE, "phone"));
+
+        // Nothing left to collect
+        assertEquals(new PolicyStoreCompactor.SweepResult(0, 0),
+                PolicyStoreCompactor.sweep(policyStore.shardFor(SUBJECT_ID), new HashMap<>()));
+    }
+
+    @Test
+    @DisplayName("A compaction run reports removed triples and publishes removed group policies")
+    void testCompact() {
+        long before = populate();
+        PolicyStoreCompactor compactor = new PolicyStoreCompactor(policyStore, policyGroupService);
+
+        StoreCompactionDTO report = compactor.compact();
+
+        assertEquals(before - size(), report.getTriplesRemoved());
+        assertEquals(1, report.getOrphanedPolicyGroups());
+        assertTrue(report.getBytesBefore() > 0);
+        assertEquals(Math.max(0, report.getBytesBefore() - report.getBytesAfter()), report.getBytesReclaimed());
+        assertSame(report, compactor.getLastReport());
+        verify(policyGroupService).afterOrphanedPoliciesRemoved(SUBJECT_ID, "pg-gone");
+        // The shard's models stay usable after compaction switched the dataset to a new generation
+        assertEquals(1, listPolicies().size());
+    }
+
+    @Test
+    @DisplayName("A follower refuses to compact its replicated store")
+    void testFollowerRefusesCompaction() {
+        long before = populate();
+        when(policyGroupService.isReadOnlyReplica()).thenReturn(true);
+        PolicyStoreCompactor compactor = new PolicyStoreCompactor(policyStore, policyGroupService);
+
+        assertThrows(IllegalStateException.class, compactor::compact);
+        // The scheduled run skips quietly
+        compactor.scheduledCompaction();
+
+        assertEquals(before, size());
+        assertNull(compactor.getLastReport());
+        verify(policyGroupService, never()).afterOrphanedPoliciesRemoved(any(), any());
+    }
+}
@@ -0,0 +1,101 @@
+package com.ontosov.services;
+
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PolicyStore Tests")
+class PolicyStoreTest {
+
+    private static final String ONTO = PolicyStore.ONTOSOV_NS;
+    private static final String ODRL = PolicyStore.ODRL_NS;
+
+    private Model groups;
+    private Model policies;
+
+    @BeforeEach
+    void setUp() {
+        groups = ModelFactory.createDefaultModel();
+        policies = ModelFactory.createDefaultModel();
+        for (long subjectId = 1; subjectId <= 4; subjectId++) {
+            addGroup(subjectId, "pg-" + subjectId);
+        }
+    }
+
+    private void addGroup(long subjectId, String groupId) {
+        Resource subject = groups.createResource(ONTO + "subject-" + subjectId);
+        Resource group = groups.createResource(ONTO + groupId);
+        group.addProperty(groups.createProperty(ONTO, "owner"), subject);
+        group.addProperty(groups.createProperty(ONTO, "permission"),
+                groups.createResource().addProperty(RDF.type, groups.createResource(ODRL + "Permission")));
+
+        Resource target = policies.createResource(ONTO + "data-" + subjectId + "-db-email");
+        target.addProperty(policies.createProperty(ONTO, "dataProperty"), "email");
+        Resource policy = policies.createResource(ODRL + "policy-" + groupId);
+        policy.addProperty(RDF.type, policies.createResource(ODRL + "Policy"));
+        policy.addProperty(policies.createProperty(ONTO, "policyGroup"), policies.createResource(ONTO + groupId));
+        policy.addProperty(policies.createProperty(ODRL, "permission"), policies.createResource()
+                .addProperty(policies.createProperty(ODRL, "target"), target)
+                .addProperty(policies.createProperty(ODRL, "assigner"), subject));
+    }
+
+    @Test
+    @DisplayName("Groups, policies and targets land on their subject's shard")
+    void testPartition() {
+        List<PolicyStore.Partition> partitions = PolicyStore.partition(groups, policies, 2);
+
+        for (long subjectId = 1; subjectId <= 4; subjectId++) {
+            PolicyStore.Partition own = partitions.get(PolicyStore.shardIndex(subjectId, 2));
+            PolicyStore.Partition other = partitions.get(1 - PolicyStore.shardIndex(subjectId, 2));
+            Resource group = ResourceFactory.createResource(ONTO + "pg-" + subjectId);
+            Resource policy = ResourceFactory.createResource(ODRL + "policy-pg-" + subjectId);
+            Resource target = ResourceFactory.createResource(ONTO + "data-" + subjectId + "-db-email");
+
+            assertTrue(own.policyGroupModel().contains(group, null));
+            assertTrue(own.odrlModel().contains(policy, null));
+            assertTrue(own.odrlModel().contains(target, null));
+            assertFalse(other.policyGroupModel().contains(group, null));
+            assertFalse(other.odrlModel().contains(policy, null));
+        }
+
+        long total = partitions.stream().mapToLong(p -> p.policyGroupModel().size() + p.odrlModel().size()).sum();
+        assertEquals(groups.size() + policies.size(), total);
+    }
+
+    @Test
+    @DisplayName("Resharding keeps every statement and records the new layout")
+    void testReshard(@TempDir Path tempDir) throws Exception {
+        Path source = tempDir.resolve("source");
+        Path target = tempDir.resolve("target");
+
+        PolicyStore.Shard plain = PolicyStore.open(source, 1).get(0);
+        plain.getDataset().begin(ReadWrite.WRITE);
+        plain.getPolicyGroupModel().add(groups);
+        plain.getOdrlModel().add(policies);
+        plain.getDataset().commit();
+        plain.getDataset().end();
+        assertEquals(1, PolicyStore.readLayout(source));
+
+        assertEquals(groups.size() + policies.size(), PolicyStoreResharder.reshard(source, target, 3));
+        assertEquals(3, PolicyStore.readLayout(target));
+        assertThrows(IllegalStateException.class, () -> PolicyStore.open(target, 2));
+
+        Model copied = ModelFactory.createDefaultModel();
+        for (PolicyStore.Shard shard : PolicyStore.open(target, 3)) {
+            shard.getDataset().begin(ReadWrite.READ);
+            copied.add(shard.getPolicyGroupModel());
+            copied.add(shard.getOdrlModel());
+            shard.getDataset().end();
+        }
+        assertTrue(copied.isIsomorphicWith(ModelFactory.createDefaultModel().add(groups).add(policies)));
+    }
+}
@@ -0,0 +1,83 @@
+package com.ontosov.services;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("RdfGraphs Tests")
+class RdfGraphsTest {
+
+    private static final String NS = "http://ontosov.org/policy#";
+
+    private Model model;
+    private Resource group;
+    private Resource otherGroup;
+    private Resource owner;
+
+    @BeforeEach
+    void setUp() {
+        model = ModelFactory.createDefaultModel();
+        Property name = model.createProperty(NS, "name");
+        Property owns = model.createProperty(NS, "owner");
+        Property assignment = model.createProperty(NS, "hasDataAssignment");
+        Property constraint = model.createProperty(NS, "constraint");
+        Property dataProperty = model.createProperty(NS, "dataProperty");
+
+        owner = model.createResource(NS + "subject-1");
+        owner.addProperty(name, "Alice");
+
+        group = model.createResource(NS + "pg-1");
+        group.addProperty(name, "Research only");
+        group.addProperty(owns, owner);
+        Resource nested = model.createResource().addProperty(constraint,
+                model.createResource().addProperty(name, "expiration"));
+        group.addProperty(assignment, nested.addProperty(dataProperty, "email"));
+
+        otherGroup = model.createResource(NS + "pg-2");
+        otherGroup.addProperty(name, "Marketing");
+        otherGroup.addProperty(owns, owner);
+    }
+
+    @Test
+    @DisplayName("Description follows blank nodes but not named resources")
+    void testDescribe() {
+        Model description = ModelFactory.createDefaultModel();
+        RdfGraphs.describe(model, group, description);
+
+        // pg-1: name, owner, assignment; assignment: constraint, dataProperty; constraint: name
+        assertEquals(6, description.size());
+        assertFalse(description.contains(owner, null));
+        assertFalse(description.contains(otherGroup, null));
+    }
+
+    @Test
+    @DisplayName("Removing a description leaves other resources untouched")
+    void testRemoveDescription() {
+        long before = model.size();
+        RdfGraphs.removeDescription(model, group);
+
+        assertEquals(before - 6, model.size());
+        assertFalse(model.contains(group, null));
+        assertTrue(model.contains(owner, null));
+        assertTrue(model.contains(otherGroup, null));
+    }
+
+    @Test
+    @DisplayName("A copied description replaces the original without leftovers")
+    void testRoundTrip() {
+        Model description = ModelFactory.createDefaultModel();
+        RdfGraphs.describe(model, group, description);
+
+        Model replica = ModelFactory.createDefaultModel().add(model);
+        RdfGraphs.removeDescription(replica, group);
+        replica.add(description);
+
+        assertTrue(replica.isIsomorphicWith(model));
+    }
+}
@@ -0,0 +1,90 @@
+package com.ontosov.services;
+
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SparqlTemplates Tests")
+class SparqlTemplatesTest {
+
+    private static final String ONTO = PolicyStore.ONTOSOV_NS;
+
+    private Model createModel() {
+        Model model = ModelFactory.createDefaultModel();
+        model.createResource(ONTO + "target-1")
+                .addProperty(model.createProperty(ONTO, "dataSource"), "Shop \"A\" } UNION { ?x ?y ?z")
+                .addProperty(model.createProperty(ONTO, "dataProperty"), "email");
+        model.createResource(ONTO + "target-2")
+                .addProperty(model.createProperty(ONTO, "dataSource"), "Shop B")
+                .addProperty(model.createProperty(ONTO, "dataProperty"), "name");
+        return model;
+    }
+
+    private List<String> select(SparqlTemplates.Template template, Model model, String dataSource) {
+        List<String> properties = new ArrayList<>();
+        try (QueryExecution qexec = template.execute(model,
+                Map.of("source", ResourceFactory.createPlainLiteral(dataSource)))) {
+            ResultSet rs = qexec.execSelect();
+            while (rs.hasNext()) {
+                properties.add(rs.next().getLiteral("property").getString());
+            }
+        }
+        return properties;
+    }
+
+    @Test
+    @DisplayName("Parameters are bound as RDF terms, so literals need no escaping")
+    void testTypedBinding() {
+        SparqlTemplates.Template template = SparqlTemplates.register("test.properties-by-source",
+                "SELECT ?property WHERE { ?target onto:dataSource ?source ; onto:dataProperty ?property }",
+                "source");
+        Model model = createModel();
+
+        assertEquals(List.of("email"), select(template, model, "Shop \"A\" } UNION { ?x ?y ?z"));
+        assertEquals(List.of("name"), select(template, model, "Shop B"));
+        assertEquals(List.of(), select(template, model, "Shop C"));
+    }
+
+    @Test
+    @DisplayName("A template is parsed once and later executions count as hits")
+    void testParsedOnce() {
+        SparqlTemplates.Template template = SparqlTemplates.register("test.parsed-once",
+                "SELECT ?property WHERE { ?target onto:dataSource ?source ; onto:dataProperty ?property }",
+                "source");
+        Model model = createModel();
+        for (int i = 0; i < 4; i++) {
+            select(template, model, "Shop B");
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> stats = (Map<String, Object>)
+                ((Map<String, Object>) SparqlTemplates.getStats().get("queries")).get("test.parsed-once");
+        assertEquals(4L, stats.get("executions"));
+        assertEquals(3L, stats.get("hits"));
+        assertEquals("75.0%", stats.get("hitRate"));
+    }
+
+    @Test
+    @DisplayName("Executing with missing or unknown parameters is rejected")
+    void testParameterMismatch() {
+        SparqlTemplates.Template template = SparqlTemplates.register("test.mismatch",
+                "SELECT ?property WHERE { ?target onto:dataSource ?source ; onto:dataProperty ?property }",
+                "source");
+        Model model = createModel();
+
+        assertThrows(IllegalArgumentException.class, () -> template.execute(model));
+        assertThrows(IllegalArgumentException.class, () -> template.execute(model,
+                Map.of("dataSource", ResourceFactory.createPlainLiteral("Shop B"))));
+        assertThrows(IllegalStateException.class, () -> SparqlTemplates.register("test.mismatch", "ASK {}"));
+    }
+}
@@ -0,0 +1,179 @@
+package com.ontosov.services;
+
+import com.ontosov.dto.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for query-rewriting enforcement
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SqlRewriteService Test Suite")
+class SqlRewriteServiceTest {
+
+    @Mock
+    private PolicyEvaluationService policyEvaluationService;
+
+    @Mock
+    private DatabaseConfigService databaseConfigService;
+
+    @InjectMocks
+    private SqlRewriteService sqlRewriteService;
+
+    private static final Long TEST_CONTROLLER_ID = 9998L;
+    private static final String TEST_DATABASE_UUID = "test-db-uuid-12345";
+
+    private SqlRewriteRequestDTO createRequest(String sql) {
+        SqlRewriteRequestDTO request = new SqlRewriteRequestDTO();
+        request.setControllerId(TEST_CONTROLLER_ID);
+        request.setSubjectTaxId("999999999");
+        request.setDataSource(TEST_DATABASE_UUID);
+        request.setAction("read");
+        request.setPurpose("Service Provision");
+        request.setSql(sql);
+        return request;
+    }
+
+    private void setupMask(String tableName, String... deniedColumns) {
+        ColumnMaskDTO mask = new ColumnMaskDTO();
+        mask.setTableName(tableName);
+        for (String column : deniedColumns) {
+            mask.getDeniedColumns().put(column, "No policy permits 'read'");
+        }
+        when(policyEvaluationService.evaluateColumnMask(argThat(r -> r != null && tableName.equals(r.getTableName()))))
+                .thenReturn(mask);
+    }
+
+    private void setupMapping(String tableName, String subjectColumn) throws IOException {
+        Map<String, String> columnProperties = new HashMap<>();
+        if (subjectColumn != null) {
+            columnProperties.put(subjectColumn, "taxID");
+        }
+        when(databaseConfigService.resolveTableMapping(TEST_CONTROLLER_ID, TEST_DATABASE_UUID, tableName))
+                .thenReturn(new DatabaseConfigService.TableMapping("Person", "user_id", columnProperties));
+    }
+
+    @Test
+    @DisplayName("Denied columns are nulled in the select list and in predicates")
+    void testDeniedColumnsAreNulled() throws IOException {
+        setupMapping("user_profiles", "tax_id");
+        setupMask("user_profiles", "email");
+        when(policyEvaluationService.findDeniedRecordIds(any())).thenReturn(Collections.emptyList());
+
+        SqlRewriteDTO result = sqlRewriteService.rewrite(
+                createRequest("SELECT name, email FROM user_profiles WHERE email LIKE '%@test.com'"));
+
+        assertNull(result.getReason());
+        assertEquals("SELECT name, NULL AS email FROM user_profiles " +
+                "WHERE (NULL LIKE '%@test.com') AND user_profiles.tax_id = '999999999'", result.getSql());
+        assertEquals(Collections.singletonList("user_profiles.email"), result.getMaskedColumns());
+    }
+
+    @Test
+    @DisplayName("Denied records are filtered out, on the join condition for joined tables")
+    void testDeniedRecordsAreFiltered() throws IOException {
+        setupMask("order_history");
+        setupMask("user_profiles", "phone_number");
+        when(policyEvaluationService.findDeniedRecordIds(argThat(r -> r != null && "order_history".equals(r.getTableName()))))
+                .thenReturn(Collections.emptyList());
+        when(policyEvaluationService.findDeniedRecordIds(argThat(r -> r != null && "user_profiles".equals(r.getTableName()))))
+                .thenReturn(Arrays.asList("3", "7"));
+        setupMapping("order_history", "customer_tax_id");
+        setupMapping("user_profiles", "tax_id");
+
+        SqlRewriteRequestDTO request = createRequest(
+                "SELECT o.order_id, u.phone_number FROM order_history o LEFT JOIN user_profiles u ON o.user_id = u.user_id");
+        request.setMaskMode("mask");
+        SqlRewriteDTO result = sqlRewriteService.rewrite(request);
+
+        assertEquals("SELECT o.order_id, '****' AS phone_number FROM order_history o " +
+                "LEFT JOIN user_profiles u ON (o.user_id = u.user_id) AND u.tax_id = '999999999' AND u.user_id NOT IN ('3', '7') " +
+                "WHERE o.customer_tax_id = '999999999'", result.getSql());
+        assertEquals(Arrays.asList("3", "7"), result.getExcludedRecords().get("user_profiles"));
+    }
+
+    @Test
+    @DisplayName("Star is expanded from table metadata when the table has denied columns")
+    void testStarIsExpanded() throws IOException {
+        setupMapping("user_profiles", "tax_id");
+        setupMask("user_profiles", "email");
+        when(policyEvaluationService.findDeniedRecordIds(any())).thenReturn(Collections.emptyList());
+
+        DatabaseConfigDTO database = new DatabaseConfigDTO();
+        database.setId(TEST_DATABASE_UUID);
+        TableMetadataDTO table = new TableMetadataDTO("user_profiles");
+        table.addColumn(new ColumnMetadataDTO("user_id", "int4"));
+        table.addColumn(new ColumnMetadataDTO("email", "varchar"));
+        when(databaseConfigService.getDatabasesForController(TEST_CONTROLLER_ID)).thenReturn(Collections.singletonList(database));
+        when(databaseConfigService.getDatabaseTables(database)).thenReturn(Collections.singletonList(table));
+
+        SqlRewriteDTO result = sqlRewriteService.rewrite(createRequest("SELECT * FROM user_profiles"));
+
+        assertEquals("SELECT user_profiles.user_id, NULL AS email FROM user_profiles " +
+                "WHERE user_profiles.tax_id = '999999999'", result.getSql());
+    }
+
+    @Test
+    @DisplayName("Only the requesting subject's rows are returned")
+    void testOtherSubjectsRowsAreExcluded() throws IOException {
+        setupMapping("user_profiles", "tax_id");
+        setupMask("user_profiles");
+        when(policyEvaluationService.findDeniedRecordIds(any())).thenReturn(Collections.emptyList());
+
+        SqlRewriteDTO result = sqlRewriteService.rewrite(createRequest("SELECT * FROM user_profiles"));
+
+        assertNull(result.getReason());
+        assertEquals("SELECT * FROM user_profiles WHERE user_profiles.tax_id = '999999999'", result.getSql());
+    }
+
+    @Test
+    @DisplayName("Tables without a subject column are rejected")
+    void testTableWithoutSubjectColumnIsRejected() throws IOException {
+        setupMapping("product_catalog", null);
+
+        SqlRewriteDTO result = sqlRewriteService.rewrite(createRequest("SELECT * FROM product_catalog"));
+
+        assertNull(result.getSql());
+        assertTrue(result.getReason().contains("schema:taxID"));
+        verifyNoInteractions(policyEvaluationService);
+    }
+
+    @Test
+    @DisplayName("Statements that could bypass enforcement are rejected")
+    void testUnsupportedStatementsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> sqlRewriteService.rewrite(
+                createRequest("DELETE FROM user_profiles")));
+        assertThrows(IllegalArgumentException.class, () -> sqlRewriteService.rewrite(
+                createRequest("SELECT name FROM user_profiles UNION SELECT email FROM user_profiles")));
+        assertThrows(IllegalArgumentException.class, () -> sqlRewriteService.rewrite(
+                createRequest("SELECT name FROM (SELECT * FROM user_profiles) p")));
+        assertThrows(IllegalArgumentException.class, () -> sqlRewriteService.rewrite(
+                createRequest("SELECT name FROM user_profiles WHERE user_id IN (SELECT user_id FROM order_history)")));
+    }
+
+    @Test
+    @DisplayName("Sub-queries in GROUP BY are rejected")
+    void testSubSelectInGroupByIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> sqlRewriteService.rewrite(createRequest(
+                "SELECT count(*) FROM user_profiles GROUP BY (SELECT ssn FROM order_history o WHERE o.user_id = 1)")));
+        verifyNoInteractions(policyEvaluationService);
+    }
+
+    @Test
+    @DisplayName("Sub-queries in ORDER BY are rejected")
+    void testSubSelectInOrderByIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> sqlRewriteService.rewrite(createRequest(
+                "SELECT name FROM user_profiles u ORDER BY (SELECT ssn FROM order_history o WHERE o.user_id = u.user_id)")));
+        verifyNoInteractions(policyEvaluationService);
+    }
+}
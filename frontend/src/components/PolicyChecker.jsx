@@ -257,7 +257,7 @@ const PolicyChecker = ({ controllerId }) => {
       console.log("Submitting request:", requestBody);
 
       const response = await fetch(
-        "http://localhost:8080/api/controller/check-access",
+        "http://localhost:8080/api/controller/check-access?explain=true",
         {
           method: "POST",
           headers: { "Content-Type": "application/json" },